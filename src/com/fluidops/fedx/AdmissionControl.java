@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+
+import com.fluidops.fedx.algebra.ExclusiveGroup;
+import com.fluidops.fedx.algebra.StatementTupleExpr;
+import com.fluidops.fedx.exception.QueryRejectedException;
+import com.fluidops.fedx.structures.QueryInfo;
+
+
+/**
+ * Admission control for queries: the total weight of concurrently executing queries
+ * is limited to a capacity (see {@link Config#getMaxConcurrentQueries()}). Queries
+ * exceeding the capacity are queued in FIFO order and wait at most for the admission
+ * timeout (see {@link Config#getAdmissionTimeout()}) or until their deadline. If the 
+ * queue is full (see {@link Config#getMaxQueuedQueries()}), queries are rejected 
+ * immediately with a {@link QueryRejectedException}.<p>
+ * 
+ * The weight of a query is 1, or the estimated cost of the optimized query if 
+ * {@link Config#isEnableCostBasedAdmission()} is set, see {@link #estimateWeight(TupleExpr)}.<p>
+ * 
+ * The counters of this class are exposed as queue metrics.
+ * 
+ * @see QueryManager
+ */
+public class AdmissionControl {
+
+	public static Logger log = Logger.getLogger(AdmissionControl.class);
+	
+	protected final int capacity;
+	protected final int maxQueued;
+	protected final long timeout;
+	
+	protected final ArrayDeque<QueryInfo> queue = new ArrayDeque<QueryInfo>();
+	protected final Map<QueryInfo, Integer> admitted = new HashMap<QueryInfo, Integer>();
+	protected int usedCapacity = 0;
+	
+	/* metrics */
+	protected long numberOfAdmitted = 0;
+	protected long numberOfQueued = 0;
+	protected long numberOfRejected = 0;
+	protected long numberOfTimeouts = 0;
+	protected long totalWaitTime = 0;
+	
+	/**
+	 * 
+	 * @param capacity
+	 * 			the maximum total weight of concurrently executing queries, 0 or less means unlimited
+	 * @param maxQueued
+	 * 			the maximum number of waiting queries
+	 * @param timeout
+	 * 			the maximum time in milliseconds a query waits for admission
+	 */
+	public AdmissionControl(int capacity, int maxQueued, long timeout) {
+		this.capacity = capacity;
+		this.maxQueued = maxQueued;
+		this.timeout = timeout;
+	}
+	
+	/**
+	 * Admit the given query for execution, blocks while the query is queued.
+	 * 
+	 * @param queryInfo
+	 * @param weight
+	 * 			the weight of the query, adjusted to the range [1, capacity]
+	 * @throws QueryRejectedException
+	 * 			if the queue is full or the query could not be admitted in time
+	 * @throws InterruptedException
+	 */
+	public synchronized void admit(QueryInfo queryInfo, int weight) throws QueryRejectedException, InterruptedException {
+		
+		if (!isEnabled())
+			return;
+		
+		weight = Math.max(1, Math.min(capacity, weight));
+		
+		// fast path: queued queries are served first
+		if (queue.isEmpty() && usedCapacity + weight <= capacity) {
+			grant(queryInfo, weight);
+			return;
+		}
+		
+		if (queue.size() >= maxQueued) {
+			numberOfRejected++;
+			throw new QueryRejectedException("Query " + queryInfo.getQueryID() + " rejected: admission queue is full (" + queue.size() + " queries waiting).");
+		}
+		
+		long start = System.currentTimeMillis();
+		long maxWait = Math.min(timeout, queryInfo.getRemainingTime());
+		numberOfQueued++;
+		queue.add(queryInfo);
+		try {
+			while (queue.peek()!=queryInfo || usedCapacity + weight > capacity) {
+				long remaining = maxWait - (System.currentTimeMillis() - start);
+				if (remaining <= 0) {
+					numberOfTimeouts++;
+					throw new QueryRejectedException("Query " + queryInfo.getQueryID() + " rejected: not admitted within " + maxWait + "ms.");
+				}
+				wait(remaining);
+			}
+			grant(queryInfo, weight);
+		} finally {
+			queue.remove(queryInfo);
+			totalWaitTime += System.currentTimeMillis() - start;
+			// the next query in the queue may fit
+			notifyAll();
+		}
+	}
+	
+	private void grant(QueryInfo queryInfo, int weight) {
+		usedCapacity += weight;
+		admitted.put(queryInfo, weight);
+		numberOfAdmitted++;
+		if (log.isTraceEnabled())
+			log.trace("Query " + queryInfo.getQueryID() + " admitted with weight " + weight + ", used capacity: " + usedCapacity + "/" + capacity);
+	}
+	
+	/**
+	 * Release the capacity of the given query, i.e. if it is finished or aborted. Nothing
+	 * is done if the query is not admitted.
+	 * 
+	 * @param queryInfo
+	 */
+	public synchronized void release(QueryInfo queryInfo) {
+		Integer weight = admitted.remove(queryInfo);
+		if (weight==null)
+			return;
+		usedCapacity -= weight;
+		notifyAll();
+	}
+	
+	public boolean isEnabled() {
+		return capacity > 0;
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	public synchronized int getUsedCapacity() {
+		return usedCapacity;
+	}
+	
+	public synchronized int getNumberOfExecutingQueries() {
+		return admitted.size();
+	}
+	
+	public synchronized int getQueueLength() {
+		return queue.size();
+	}
+	
+	public synchronized long getNumberOfAdmitted() {
+		return numberOfAdmitted;
+	}
+	
+	public synchronized long getNumberOfQueued() {
+		return numberOfQueued;
+	}
+	
+	public synchronized long getNumberOfRejected() {
+		return numberOfRejected;
+	}
+	
+	public synchronized long getNumberOfTimeouts() {
+		return numberOfTimeouts;
+	}
+	
+	/**
+	 * @return the average time in milliseconds queued queries have waited
+	 */
+	public synchronized double getAverageWaitTime() {
+		return numberOfQueued==0 ? 0 : (double)totalWaitTime / numberOfQueued;
+	}
+	
+	@Override
+	public synchronized String toString() {
+		return "AdmissionControl [capacity=" + capacity + ", used=" + usedCapacity + ", executing=" + admitted.size() 
+				+ ", queued=" + queue.size() + ", admitted=" + numberOfAdmitted + ", rejected=" + numberOfRejected 
+				+ ", timeouts=" + numberOfTimeouts + ", avgWait=" + getAverageWaitTime() + "ms]";
+	}
+	
+	/**
+	 * Estimate the weight of the optimized query, i.e. the number of subqueries sent
+	 * to the sources per {@link Config#getAdmissionCostUnit()}: each statement counts
+	 * once per relevant source, an exclusive group counts once.
+	 * 
+	 * @param query
+	 * 			the optimized query
+	 * @return the weight, at least 1
+	 */
+	public static int estimateWeight(TupleExpr query) {
+		final int[] cost = new int[] { 0 };
+		query.visit(new AbstractQueryModelVisitor<RuntimeException>() {
+			@Override
+			public void meetOther(QueryModelNode node) {
+				if (node instanceof ExclusiveGroup) {
+					cost[0]++;
+					return;
+				}
+				if (node instanceof StatementTupleExpr) {
+					cost[0] += Math.max(1, ((StatementTupleExpr)node).getStatementSources().size());
+					return;
+				}
+				super.meetOther(node);
+			}
+		});
+		int unit = Math.max(1, Config.getConfig().getAdmissionCostUnit());
+		return Math.max(1, (cost[0] + unit - 1) / unit);
+	}
+}
@@ -19,20 +19,34 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.log4j.Logger;
 
+import com.fluidops.fedx.algebra.ExclusiveGroup;
+import com.fluidops.fedx.algebra.HashJoin;
 import com.fluidops.fedx.cache.MemoryCache;
+import com.fluidops.fedx.evaluation.AsyncSparqlClient;
+import com.fluidops.fedx.evaluation.AsyncSparqlTripleSource;
 import com.fluidops.fedx.evaluation.FederationEvalStrategy;
 import com.fluidops.fedx.evaluation.SailFederationEvalStrategy;
 import com.fluidops.fedx.evaluation.SparqlFederationEvalStrategy;
 import com.fluidops.fedx.evaluation.SparqlFederationEvalStrategyWithValues;
 import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.concurrent.FairTaskQueue;
+import com.fluidops.fedx.evaluation.concurrent.HedgedRequest;
+import com.fluidops.fedx.evaluation.concurrent.VirtualThreadScheduler;
+import com.fluidops.fedx.evaluation.iterator.ConsumingIteration;
+import com.fluidops.fedx.evaluation.join.ForkJoinJoin;
+import com.fluidops.fedx.evaluation.union.ForkJoinWorkerUnion;
 import com.fluidops.fedx.exception.FedXException;
 import com.fluidops.fedx.exception.FedXRuntimeException;
 import com.fluidops.fedx.monitoring.QueryLog;
 import com.fluidops.fedx.monitoring.QueryPlanLog;
+import com.fluidops.fedx.optimizer.AggregationOptimizer;
+import com.fluidops.fedx.optimizer.DuplicateEliminationOptimizer;
 import com.fluidops.fedx.provider.ProviderUtil;
+import com.fluidops.fedx.util.SpillFile;
 
 
 /**
@@ -154,6 +168,287 @@ public class Config {
 		return Integer.parseInt( props.getProperty("unionWorkerThreads", "20"));
 	}
 	
+	/**
+	 * The maximum number of threads of the executor for join operators, see
+	 * {@link FederationManager#getExecutor()}. If all threads are busy, an operator
+	 * is run in the calling thread. Default is 100.
+	 * 
+	 * @return the maximum number of executor threads
+	 */
+	public int getExecutorThreads() {
+		return Integer.parseInt( props.getProperty("executorThreads", "100"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether join and union tasks are executed by a
+	 * {@link VirtualThreadScheduler}, i.e. each task runs in its own (virtual) thread
+	 * and the concurrency is limited by {@link #getVirtualThreadConcurrency()} instead
+	 * of the number of worker threads. If the runtime does not provide virtual threads
+	 * (Java 21+), a warning is logged and the worker threads are used.
+	 * 
+	 * Default: false
+	 * 
+	 * @return whether the virtual thread scheduler is used
+	 */
+	public boolean isEnableVirtualThreads() {
+		return Boolean.parseBoolean(props.getProperty("enableVirtualThreads", "false"));
+	}
+	
+	/**
+	 * The maximum number of concurrently running tasks per scheduler if 
+	 * {@link #isEnableVirtualThreads()} is set, which is also the size of the HTTP connection
+	 * pool of the repositories. Default is 1000.
+	 * 
+	 * @return the maximum number of concurrently running tasks
+	 */
+	public int getVirtualThreadConcurrency() {
+		return Integer.parseInt( props.getProperty("virtualThreadConcurrency", "1000"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether SELECT subqueries to (plain HTTP) SPARQL
+	 * endpoints are sent with the non-blocking {@link AsyncSparqlClient}, i.e. 
+	 * whether {@link AsyncSparqlTripleSource} is used for SPARQL endpoints.
+	 * 
+	 * Default: false
+	 * 
+	 * @return whether asynchronous SPARQL requests are enabled
+	 */
+	public boolean isEnableAsyncSparqlRequests() {
+		return Boolean.parseBoolean(props.getProperty("enableAsyncSparqlRequests", "false"));
+	}
+	
+	/**
+	 * The number of I/O dispatch threads of the {@link AsyncSparqlClient}. Default is 2.
+	 * 
+	 * @return the number of I/O threads
+	 */
+	public int getAsyncSparqlIOThreads() {
+		return Integer.parseInt( props.getProperty("asyncSparqlIOThreads", "2"));
+	}
+	
+	/**
+	 * The maximum number of connections per endpoint of the {@link AsyncSparqlClient}. 
+	 * Default is 20.
+	 * 
+	 * @return the maximum number of connections per endpoint
+	 */
+	public int getAsyncSparqlMaxConnections() {
+		return Integer.parseInt( props.getProperty("asyncSparqlMaxConnections", "20"));
+	}
+	
+	/**
+	 * The timeout in milliseconds for establishing a connection with the
+	 * {@link AsyncSparqlClient}, 0 means no timeout. Default is 10000.
+	 * 
+	 * @return the connect timeout in milliseconds
+	 */
+	public int getAsyncSparqlConnectTimeout() {
+		return Integer.parseInt( props.getProperty("asyncSparqlConnectTimeout", "10000"));
+	}
+	
+	/**
+	 * The maximum period of inactivity in milliseconds on a connection of the
+	 * {@link AsyncSparqlClient}, i.e. the time to wait for data from an endpoint,
+	 * 0 means no timeout. Default is 300000.
+	 * 
+	 * @return the socket timeout in milliseconds
+	 */
+	public int getAsyncSparqlSocketTimeout() {
+		return Integer.parseInt( props.getProperty("asyncSparqlSocketTimeout", "300000"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether unions and joins of local federations (i.e.
+	 * federations of NativeStore members only) are evaluated in a work-stealing
+	 * {@link ForkJoinPool}, see {@link ForkJoinWorkerUnion} and {@link ForkJoinJoin}.
+	 * 
+	 * Default: false
+	 * 
+	 * @return whether fork/join evaluation is enabled for local federations
+	 */
+	public boolean isEnableForkJoin() {
+		return Boolean.parseBoolean(props.getProperty("enableForkJoin", "false"));
+	}
+	
+	/**
+	 * The parallelism of the {@link ForkJoinPool} if {@link #isEnableForkJoin()} is
+	 * set. Default is the number of available processors.
+	 * 
+	 * @return the parallelism of the fork/join pool
+	 */
+	public int getForkJoinParallelism() {
+		return Integer.parseInt( props.getProperty("forkJoinParallelism", String.valueOf(Runtime.getRuntime().availableProcessors())));
+	}
+	
+	/**
+	 * Returns a flag indicating whether requests to endpoints with replicas are hedged,
+	 * i.e. a slow request is duplicated to a replica, see {@link HedgedRequest}.
+	 * 
+	 * Default: false
+	 * 
+	 * @return whether hedged requests are enabled
+	 */
+	public boolean isEnableHedgedRequests() {
+		return Boolean.parseBoolean(props.getProperty("enableHedgedRequests", "false"));
+	}
+	
+	/**
+	 * The percentile of the observed latencies of an endpoint after which a hedged 
+	 * request is sent. Default 0.95
+	 * 
+	 * @return the percentile
+	 */
+	public double getHedgePercentile() {
+		return Double.parseDouble( props.getProperty("hedgePercentile", "0.95"));
+	}
+	
+	/**
+	 * The delay in milliseconds after which a hedged request is sent as long as not 
+	 * enough latencies of the endpoint are observed. Default 200
+	 * 
+	 * @return the hedge delay
+	 */
+	public long getHedgeDelay() {
+		return Long.parseLong( props.getProperty("hedgeDelay", "200"));
+	}
+	
+	/**
+	 * The maximum number of concurrently executing queries, see {@link AdmissionControl}. 
+	 * If cost based admission is enabled, this is the maximum total weight of the 
+	 * executing queries. Default 0 (unlimited)
+	 * 
+	 * @return the capacity for executing queries
+	 */
+	public int getMaxConcurrentQueries() {
+		return Integer.parseInt( props.getProperty("maxConcurrentQueries", "0"));
+	}
+	
+	/**
+	 * The maximum number of queries waiting for admission, further queries are rejected
+	 * immediately. Default 100
+	 * 
+	 * @return the maximum number of queued queries
+	 */
+	public int getMaxQueuedQueries() {
+		return Integer.parseInt( props.getProperty("maxQueuedQueries", "100"));
+	}
+	
+	/**
+	 * The maximum time in milliseconds a query waits for admission. Default 10000
+	 * 
+	 * @return the admission timeout
+	 */
+	public long getAdmissionTimeout() {
+		return Long.parseLong( props.getProperty("admissionTimeout", "10000"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether queries are weighted by their estimated cost
+	 * in the admission control, see {@link AdmissionControl#estimateWeight(org.eclipse.rdf4j.query.algebra.TupleExpr)}.
+	 * 
+	 * Default: false
+	 * 
+	 * @return whether cost based admission is enabled
+	 */
+	public boolean isEnableCostBasedAdmission() {
+		return Boolean.parseBoolean(props.getProperty("enableCostBasedAdmission", "false"));
+	}
+	
+	/**
+	 * The number of subqueries of a query which correspond to a weight of 1 in the cost
+	 * based admission control. Default 10
+	 * 
+	 * @return the admission cost unit
+	 */
+	public int getAdmissionCostUnit() {
+		return Integer.parseInt( props.getProperty("admissionCostUnit", "10"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether the optimizer may enable duplicate elimination on 
+	 * the results of multi-source unions, i.e. if this does not change the query result 
+	 * (e.g. under a DISTINCT projection).
+	 * 
+	 * Default: true
+	 * 
+	 * @return whether duplicate elimination is enabled
+	 * @see DuplicateEliminationOptimizer
+	 */
+	public boolean isEnableDuplicateElimination() {
+		return Boolean.parseBoolean(props.getProperty("enableDuplicateElimination", "true"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether duplicate statements provided by several federation 
+	 * members are removed from the result of getStatements requests.
+	 * 
+	 * Default: false
+	 * 
+	 * @return whether statements are deduplicated
+	 */
+	public boolean isEnableStatementDeduplication() {
+		return Boolean.parseBoolean(props.getProperty("enableStatementDeduplication", "false"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether the optimizer may push decomposable aggregates
+	 * (COUNT, SUM, MIN, MAX, AVG, SAMPLE) as GROUP BY subqueries to the sources. The 
+	 * partial aggregates of the sources are merged locally.
+	 * 
+	 * Default: false
+	 * 
+	 * @return whether aggregation pushdown is enabled
+	 * @see AggregationOptimizer
+	 */
+	public boolean isEnableAggregationPushdown() {
+		return Boolean.parseBoolean(props.getProperty("enableAggregationPushdown", "false"));
+	}
+	
+	/**
+	 * The maximum number of intermediate result rows that a single query may hold in 
+	 * memory in operators which can spill to disk, e.g. the build side of a hash join.
+	 * If exceeded, further rows are spilled to temporary files (see {@link SpillFile}). 
+	 * A value of 0 disables spilling. Default 1000000
+	 * 
+	 * @return the memory budget of a query in rows
+	 */
+	public long getQueryMemoryBudget() {
+		return Long.parseLong( props.getProperty("queryMemoryBudget", "1000000"));
+	}
+	
+	/**
+	 * The number of rows after which the sort, group and distinct state of the query
+	 * evaluation is synchronized to disk, i.e. the iteration cache sync threshold of 
+	 * the rdf4j evaluation strategy. A value of 0 keeps the state in memory. Default 0
+	 * 
+	 * @return the iteration cache sync threshold
+	 */
+	public long getIterationCacheSyncThreshold() {
+		return Long.parseLong( props.getProperty("iterationCacheSyncThreshold", "0"));
+	}
+	
+	/**
+	 * The maximum number of row fingerprints that a duplicate elimination stage keeps in 
+	 * memory. If exceeded, the fingerprints are spilled to a sorted temporary file. 
+	 * Default 100000
+	 * 
+	 * @return the maximum number of fingerprints in memory
+	 */
+	public int getDuplicateEliminationMaxEntries() {
+		return Integer.parseInt( props.getProperty("duplicateEliminationMaxEntries", "100000"));
+	}
+	
+	/**
+	 * The maximum number of results of a remote subquery that are read ahead into 
+	 * memory in the background, see {@link ConsumingIteration}. Default 1000
+	 * 
+	 * @return the maximum prefetch buffer size
+	 */
+	public int getPrefetchBufferSize() {
+		return Integer.parseInt( props.getProperty("prefetchBufferSize", "1000"));
+	}
+	
 	/**
 	 * The block size for a bound join, i.e. the number of bindings that are integrated
 	 * in a single subquery. Default is 15.
@@ -164,6 +459,16 @@ public class Config {
 		return Integer.parseInt( props.getProperty("boundJoinBlockSize", "15"));
 	}
 	
+	/**
+	 * The block size for a semi join, i.e. the number of distinct join values that are
+	 * pushed to the endpoint in a single subquery. Default is 100.
+	 * 
+	 * @return the semi join block size
+	 */
+	public int getSemiJoinBlockSize() {
+		return Integer.parseInt( props.getProperty("semiJoinBlockSize", "100"));
+	}
+	
 	/**
 	 * Get the maximum query time in seconds used for query evaluation. Applied in CLI
 	 * or in general if {@link QueryManager} is used to create queries.<p>
@@ -279,6 +584,71 @@ public class Config {
 		return Boolean.parseBoolean(props.getProperty("optimizer.enableServiceAsBoundJoin", "false"));
 	}
 	
+	/**
+	 * Returns a flag indicating whether the bindings of a bound join block are routed
+	 * to the plausible sources of the bound statement only, i.e. sources which are known
+	 * (from the cache) not to provide results for a binding are skipped for that binding.
+	 * 
+	 * Default: true
+	 * 
+	 * @return whether source routing is applied for bound joins
+	 */
+	public boolean isEnableBoundJoinSourceRouting() {
+		return Boolean.parseBoolean(props.getProperty("optimizer.enableBoundJoinSourceRouting", "true"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether left bindings of a bound join are deduplicated, 
+	 * i.e. only distinct projections onto the join variables are sent to the endpoints
+	 * and the results are expanded back to all matching left bindings.
+	 * 
+	 * Default: true
+	 * 
+	 * @return whether bound join bindings are deduplicated
+	 */
+	public boolean isEnableBoundJoinDeduplication() {
+		return Boolean.parseBoolean(props.getProperty("optimizer.enableBoundJoinDeduplication", "true"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether joins of two {@link ExclusiveGroup}s located at different
+	 * endpoints are evaluated as semi join, i.e. the distinct join values of the left group are
+	 * pushed to the endpoint of the right group and the results are joined locally.
+	 * 
+	 * Default: false
+	 * 
+	 * @return whether semi joins are applied for exclusive groups
+	 */
+	public boolean isEnableSemiJoin() {
+		return Boolean.parseBoolean(props.getProperty("optimizer.enableSemiJoin", "false"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether the worker schedulers use weighted fair 
+	 * scheduling across queries (deficit round robin according to the query priority),
+	 * see {@link FairTaskQueue}. Otherwise tasks are executed in FIFO order.
+	 * 
+	 * Default: true
+	 * 
+	 * @return whether fair scheduling is enabled
+	 */
+	public boolean isEnableFairScheduling() {
+		return Boolean.parseBoolean(props.getProperty("enableFairScheduling", "true"));
+	}
+	
+	/**
+	 * Returns a flag indicating whether the join order optimizer creates bushy plans, i.e.
+	 * independent sub-trees (stars and exclusive groups) connected via join variables are
+	 * evaluated in parallel and joined locally using a {@link HashJoin}.
+	 * 
+	 * Default: false
+	 * 
+	 * @return whether bushy join plans are created
+	 */
+	public boolean isEnableBushyJoins() {
+		return Boolean.parseBoolean(props.getProperty("optimizer.enableBushyJoins", "false"));
+	}
+	
 	/**
 	 * If enabled, repository connections are validated by {@link ProviderUtil#checkConnectionIfConfigured(org.eclipse.rdf4j.repository.Repository)}
 	 * prior to adding the endpoint to the federation. If validation fails, an error is thrown to the user.
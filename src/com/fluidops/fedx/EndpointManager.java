@@ -28,6 +28,9 @@ import org.eclipse.rdf4j.query.algebra.evaluation.federation.FederatedService;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 
+import com.fluidops.fedx.algebra.ExclusiveGroup;
+import com.fluidops.fedx.algebra.StatementSource;
+import com.fluidops.fedx.algebra.StatementTupleExpr;
 import com.fluidops.fedx.exception.ExceptionUtil;
 import com.fluidops.fedx.exception.FedXException;
 import com.fluidops.fedx.exception.FedXRuntimeException;
@@ -225,6 +228,20 @@ public class EndpointManager {
 		return connToEndpoint.get(conn);
 	}
 	
+	/**
+	 * Return the endpoint of the provided expression if it has exactly one statement 
+	 * source (e.g. an {@link ExclusiveGroup}), otherwise return null.
+	 * 
+	 * @param expr
+	 * @return the single endpoint of the expression or null
+	 */
+	public Endpoint getSingleSourceEndpoint(StatementTupleExpr expr) {
+		List<StatementSource> sources = expr.getStatementSources();
+		if (sources==null || sources.size()!=1)
+			return null;
+		return getEndpoint(sources.get(0).getEndpointID());
+	}
+	
 	/**
 	 * Return the Endpoint for the provided endpoint url, if it exists. Otherwise
 	 * return null.
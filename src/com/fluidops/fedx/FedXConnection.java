@@ -42,6 +42,7 @@ import org.eclipse.rdf4j.sail.helpers.AbstractSailConnection;
 import com.fluidops.fedx.evaluation.FederationEvalStrategy;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
 import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
+import com.fluidops.fedx.evaluation.iterator.QueryResultIteration;
 import com.fluidops.fedx.evaluation.iterator.RepositoryExceptionConvertingIteration;
 import com.fluidops.fedx.evaluation.union.SynchronousWorkerUnion;
 import com.fluidops.fedx.evaluation.union.WorkerUnionBase;
@@ -95,7 +96,9 @@ public class FedXConnection extends AbstractSailConnection
 			boolean includeInferred) throws SailException {
 		
 		FederationEvalStrategy strategy = FederationManager.getInstance().getStrategy();
+		QueryManager queryManager = FederationManager.getInstance().getQueryManager();
 
+		QueryInfo queryInfo = null;
 		long start=0;
 		if (true) {
 			if (log.isDebugEnabled()) {
@@ -106,10 +109,14 @@ public class FedXConnection extends AbstractSailConnection
 				String queryString = getOriginalQueryString(bindings);
 				if (queryString==null)
 					logger.warn("Query string is null. Please check your FedX setup.");
-				QueryInfo queryInfo = new QueryInfo(queryString, getOriginalQueryType(bindings));
+				queryInfo = new QueryInfo(queryString, getOriginalQueryType(bindings));
+				queryManager.registerQuery(queryInfo);
 				FederationManager.getMonitoringService().monitorQuery(queryInfo);
 				query = Optimizer.optimize(query, dataset, bindings, strategy, queryInfo);
+				queryManager.admitQuery(queryInfo, query);
 			}  catch (Exception e) {
+				if (queryInfo!=null)
+					queryManager.abortQuery(queryInfo);
 				log.error("Exception occured during optimization.", e);
 				throw new SailException(e);
 			}
@@ -126,8 +133,10 @@ public class FedXConnection extends AbstractSailConnection
 		}
 		
 		try {
-			return strategy.evaluate(query, EmptyBindingSet.getInstance());
+			// closing the result aborts all remaining tasks of the query
+			return new QueryResultIteration(strategy.evaluate(query, EmptyBindingSet.getInstance()), queryInfo);
 		} catch (QueryEvaluationException e) {
+			queryManager.abortQuery(queryInfo);
 			throw new SailException(e);
 		} 		
 	}
@@ -186,8 +195,8 @@ public class FedXConnection extends AbstractSailConnection
 			});
 		}
 		
-		// execute the union in a separate thread
-		FederationManager.getInstance().getExecutor().execute(union);
+		// execute the union in this thread, the results are consumed lazily
+		union.run();
 		
 		return new DistinctIteration<Resource, SailException>( new ExceptionConvertingIteration<Resource, SailException>(union) {
 			@Override
@@ -23,16 +23,22 @@ import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
 
 import com.fluidops.fedx.cache.Cache;
+import com.fluidops.fedx.evaluation.AsyncSparqlClient;
 import com.fluidops.fedx.evaluation.DelegateFederatedServiceResolver;
 import com.fluidops.fedx.evaluation.EvaluationStrategyFactory;
 import com.fluidops.fedx.evaluation.FederationEvalStrategy;
@@ -41,7 +47,9 @@ import com.fluidops.fedx.evaluation.SparqlFederationEvalStrategy;
 import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
 import com.fluidops.fedx.evaluation.concurrent.NamingThreadFactory;
 import com.fluidops.fedx.evaluation.concurrent.Scheduler;
+import com.fluidops.fedx.evaluation.concurrent.VirtualThreadScheduler;
 import com.fluidops.fedx.evaluation.union.ControlledWorkerUnion;
+import com.fluidops.fedx.evaluation.union.ForkJoinWorkerUnion;
 import com.fluidops.fedx.evaluation.union.SynchronousWorkerUnion;
 import com.fluidops.fedx.evaluation.union.WorkerUnionBase;
 import com.fluidops.fedx.exception.FedXException;
@@ -120,7 +128,9 @@ public class FederationManager {
 		
 		DelegateFederatedServiceResolver.initialize();
 		
-		ExecutorService ex = Executors.newCachedThreadPool(new NamingThreadFactory("FedX Executor"));
+		// operators are run in the calling thread if all threads are busy
+		ExecutorService ex = new ThreadPoolExecutor(0, Config.getConfig().getExecutorThreads(), 60L, TimeUnit.SECONDS, 
+				new SynchronousQueue<Runnable>(), new NamingThreadFactory("FedX Executor"), new ThreadPoolExecutor.CallerRunsPolicy());
 		FedX federation = new FedX(members);
 
 		FedXSailRepository repo = new FedXSailRepository(federation);
@@ -207,6 +217,12 @@ public class FederationManager {
 	protected FederationType type;
 	protected ControlledWorkerScheduler<BindingSet> joinScheduler;
 	protected ControlledWorkerScheduler<BindingSet> unionScheduler;
+	protected ControlledWorkerScheduler<BindingSet> hedgeScheduler = null;
+	protected ControlledWorkerScheduler<BindingSet> prefetchScheduler = null;
+	protected ControlledWorkerScheduler<Statement> statementScheduler = null;
+	protected AsyncSparqlClient asyncSparqlClient = null;
+	protected ForkJoinPool forkJoinPool = null;
+	protected ScheduledExecutorService timer = null;
 	
 	
 	
@@ -235,14 +251,37 @@ public class FederationManager {
 			log.debug("Scheduler for join and union are reset.");
 		}
 		
+		boolean virtualThreads = Config.getConfig().isEnableVirtualThreads();
+		if (virtualThreads && !VirtualThreadScheduler.isAvailable()) {
+			log.warn("Virtual threads are not available in this runtime (Java 21+ is required), using worker threads for join and union tasks.");
+			virtualThreads = false;
+		}
+		
 		if (joinScheduler!=null)
 			joinScheduler.abort();
-		joinScheduler = new ControlledWorkerScheduler<BindingSet>(Config.getConfig().getJoinWorkerThreads(), "Join Scheduler");		
+		if (virtualThreads)
+			joinScheduler = new VirtualThreadScheduler<BindingSet>(Config.getConfig().getVirtualThreadConcurrency(), "Join Scheduler");
+		else
+			joinScheduler = new ControlledWorkerScheduler<BindingSet>(Config.getConfig().getJoinWorkerThreads(), "Join Scheduler");		
 		
 		if (unionScheduler!=null)
 			unionScheduler.abort();
-		unionScheduler = new ControlledWorkerScheduler<BindingSet>(Config.getConfig().getUnionWorkerThreads(), "Union Scheduler");		
+		if (virtualThreads)
+			unionScheduler = new VirtualThreadScheduler<BindingSet>(Config.getConfig().getVirtualThreadConcurrency(), "Union Scheduler");
+		else
+			unionScheduler = new ControlledWorkerScheduler<BindingSet>(Config.getConfig().getUnionWorkerThreads(), "Union Scheduler");		
 		
+		synchronized (this) {
+			if (hedgeScheduler!=null)
+				hedgeScheduler.abort();
+			hedgeScheduler = null;
+			if (prefetchScheduler!=null)
+				prefetchScheduler.abort();
+			prefetchScheduler = null;
+			if (statementScheduler!=null)
+				statementScheduler.abort();
+			statementScheduler = null;
+		}
 	}
 
 	
@@ -254,6 +293,13 @@ public class FederationManager {
 		return statistics;
 	}
 	
+	/**
+	 * Return the executor for join operators, which consume their left argument in
+	 * a thread of this executor. The number of threads is bounded by {@link Config#getExecutorThreads()},
+	 * if all threads are busy the operator is run in the calling thread.
+	 * 
+	 * @return the {@link Executor}
+	 */
 	public Executor getExecutor() {
 		return executor;
 	}
@@ -274,6 +320,88 @@ public class FederationManager {
 		return unionScheduler;
 	}
 	
+	/**
+	 * Return the scheduler for the attempts of hedged requests, which is initialized
+	 * upon first access. The attempts are not executed by the join or union scheduler
+	 * since the calling tasks of these schedulers wait for them.
+	 * 
+	 * @return the scheduler
+	 * @see com.fluidops.fedx.evaluation.concurrent.HedgedRequest
+	 */
+	public synchronized ControlledWorkerScheduler<BindingSet> getHedgeScheduler() {
+		if (hedgeScheduler==null)
+			hedgeScheduler = new ControlledWorkerScheduler<BindingSet>(Config.getConfig().getUnionWorkerThreads(), "Hedge Scheduler");
+		return hedgeScheduler;
+	}
+	
+	/**
+	 * Return the scheduler for reading results of remote subqueries ahead, which is 
+	 * initialized upon first access. Prefetch tasks never wait for other tasks.
+	 * 
+	 * @return the scheduler
+	 * @see com.fluidops.fedx.evaluation.iterator.ConsumingIteration
+	 */
+	public synchronized ControlledWorkerScheduler<BindingSet> getPrefetchScheduler() {
+		if (prefetchScheduler==null)
+			prefetchScheduler = new ControlledWorkerScheduler<BindingSet>(Config.getConfig().getUnionWorkerThreads(), "Prefetch Scheduler");
+		return prefetchScheduler;
+	}
+	
+	/**
+	 * Return the scheduler for the union of statements from several endpoints in
+	 * getStatements requests, which is initialized upon first access.
+	 * 
+	 * @return the scheduler
+	 * @see com.fluidops.fedx.evaluation.union.ParallelGetStatementsTask
+	 */
+	public synchronized ControlledWorkerScheduler<Statement> getStatementScheduler() {
+		if (statementScheduler==null)
+			statementScheduler = new ControlledWorkerScheduler<Statement>(Config.getConfig().getUnionWorkerThreads(), "Statement Scheduler");
+		return statementScheduler;
+	}
+	
+	/**
+	 * Return the work-stealing pool for local federations, which is initialized
+	 * upon first access.
+	 * 
+	 * @return the {@link ForkJoinPool}
+	 * @see Config#isEnableForkJoin()
+	 */
+	public synchronized ForkJoinPool getForkJoinPool() {
+		if (forkJoinPool==null)
+			forkJoinPool = new ForkJoinPool(Config.getConfig().getForkJoinParallelism());
+		return forkJoinPool;
+	}
+	
+	/**
+	 * Return the client for asynchronous SPARQL requests, which is initialized
+	 * upon first access.
+	 * 
+	 * @return the {@link AsyncSparqlClient}
+	 */
+	public synchronized AsyncSparqlClient getAsyncSparqlClient() {
+		if (asyncSparqlClient==null)
+			asyncSparqlClient = new AsyncSparqlClient(Config.getConfig().getAsyncSparqlIOThreads(), Config.getConfig().getAsyncSparqlMaxConnections(),
+					Config.getConfig().getAsyncSparqlConnectTimeout(), Config.getConfig().getAsyncSparqlSocketTimeout(), getTimer());
+		return asyncSparqlClient;
+	}
+	
+	/**
+	 * Return the timer for deadlines of join and union executors and for timeouts
+	 * of asynchronous SPARQL requests, which is
+	 * initialized upon first access.
+	 * 
+	 * @return the {@link ScheduledExecutorService}
+	 */
+	public synchronized ScheduledExecutorService getTimer() {
+		if (timer==null) {
+			ScheduledThreadPoolExecutor t = new ScheduledThreadPoolExecutor(1, new NamingThreadFactory("FedX Timer"));
+			t.setRemoveOnCancelPolicy(true);
+			timer = t;
+		}
+		return timer;
+	}
+	
 	public FederationType getFederationType() {
 		return type;
 	}
@@ -430,6 +558,20 @@ public class FederationManager {
 			log.debug("Details:", e);
 		}
 		federation.shutDownInternal();
+		synchronized (this) {
+			if (asyncSparqlClient!=null)
+				asyncSparqlClient.shutdown();
+			if (forkJoinPool!=null)
+				forkJoinPool.shutdown();
+			if (hedgeScheduler!=null)
+				hedgeScheduler.shutdown();
+			if (prefetchScheduler!=null)
+				prefetchScheduler.shutdown();
+			if (statementScheduler!=null)
+				statementScheduler.shutdown();
+			if (timer!=null)
+				timer.shutdownNow();
+		}
 		cache.persist();
 		Config.reset();
 		EndpointManager.getEndpointManager().shutDown();
@@ -441,7 +583,8 @@ public class FederationManager {
 	/**
 	 * Create an appropriate worker union for this federation, i.e. a synchronous
 	 * worker union for local federations and a multithreaded worker union
-	 * for remote & hybrid federations.
+	 * for remote & hybrid federations. If {@link Config#isEnableForkJoin()} is
+	 * set, local federations use a {@link ForkJoinWorkerUnion}.
 	 * 
 	 * @return the {@link WorkerUnionBase}
 	 * 
@@ -449,8 +592,11 @@ public class FederationManager {
 	 * @see SynchronousWorkerUnion
 	 */
 	public WorkerUnionBase<BindingSet> createWorkerUnion(QueryInfo queryInfo) {
-		if (type==FederationType.LOCAL)
+		if (type==FederationType.LOCAL) {
+			if (Config.getConfig().isEnableForkJoin())
+				return new ForkJoinWorkerUnion<BindingSet>(getForkJoinPool(), queryInfo);
 			return new SynchronousWorkerUnion<BindingSet>(queryInfo);
+		}
 		return new ControlledWorkerUnion<BindingSet>(unionScheduler, queryInfo);
 		
 	}
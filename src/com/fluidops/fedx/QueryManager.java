@@ -19,7 +19,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Scanner;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.MatchResult;
 import java.util.regex.Pattern;
 
@@ -43,6 +43,7 @@ import org.eclipse.rdf4j.sail.SailException;
 
 import com.fluidops.fedx.exception.FedXException;
 import com.fluidops.fedx.exception.FedXRuntimeException;
+import com.fluidops.fedx.exception.QueryRejectedException;
 import com.fluidops.fedx.optimizer.Optimizer;
 import com.fluidops.fedx.structures.QueryInfo;
 import com.fluidops.fedx.structures.QueryType;
@@ -52,7 +53,8 @@ import com.fluidops.fedx.structures.QueryType;
  * QueryManager to manage queries. 
  * 
  * a) Management of running queries (abort, finish)
- * b) Factory to create queries
+ * b) Admission control of queries, see {@link AdmissionControl}
+ * c) Factory to create queries
  * 
  * @author Andreas Schwarte
  */
@@ -71,12 +73,15 @@ public class QueryManager {
 	protected final FederationManager federationManager;
 	protected final Repository repo;
 	protected final RepositoryConnection conn;
-	protected Set<QueryInfo> runningQueries = new ConcurrentSkipListSet<QueryInfo>();
+	protected Set<QueryInfo> runningQueries = ConcurrentHashMap.newKeySet();
 	protected HashMap<String, String> prefixDeclarations = new HashMap<String, String>();
+	protected final AdmissionControl admissionControl;
 	
 	protected QueryManager(FederationManager federationManager, Repository repo) {
 		this.federationManager = federationManager;
 		this.repo = repo;
+		this.admissionControl = new AdmissionControl(Config.getConfig().getMaxConcurrentQueries(), 
+				Config.getConfig().getMaxQueuedQueries(), Config.getConfig().getAdmissionTimeout());
 		try	{
 			this.conn = repo.getConnection();
 		} catch (RepositoryException e)	{
@@ -104,10 +109,36 @@ public class QueryManager {
 	 * @param queryInfo
 	 */
 	public void registerQuery(QueryInfo queryInfo) {
-		assert runningQueries.contains(queryInfo) : "Duplicate query: query " + queryInfo.getQueryID() + " is already registered.";
+		assert !runningQueries.contains(queryInfo) : "Duplicate query: query " + queryInfo.getQueryID() + " is already registered.";
 		runningQueries.add(queryInfo);
 	}
 	
+	/**
+	 * Admit the registered query for execution, blocks while the query is queued, see 
+	 * {@link AdmissionControl}. The capacity is released once the query is finished
+	 * or aborted.
+	 * 
+	 * @param queryInfo
+	 * @param query
+	 * 			the optimized query, used to estimate the weight
+	 * @throws QueryRejectedException
+	 * 			if the query is not admitted
+	 * @throws InterruptedException
+	 */
+	public void admitQuery(QueryInfo queryInfo, TupleExpr query) throws QueryRejectedException, InterruptedException {
+		if (!admissionControl.isEnabled())
+			return;
+		int weight = Config.getConfig().isEnableCostBasedAdmission() ? AdmissionControl.estimateWeight(query) : 1;
+		admissionControl.admit(queryInfo, weight);
+	}
+	
+	/**
+	 * @return the admission control, e.g. to retrieve queue metrics
+	 */
+	public AdmissionControl getAdmissionControl() {
+		return admissionControl;
+	}
+	
 	public Set<QueryInfo> getRunningQueries() {
 		return new HashSet<QueryInfo>(runningQueries);
 	}
@@ -117,6 +148,7 @@ public class QueryManager {
 	}
 	
 	public void abortQuery(QueryInfo queryInfo) {
+		admissionControl.release(queryInfo);
 		synchronized (queryInfo) {
 			if (!runningQueries.contains(queryInfo))
 				return;		
@@ -128,7 +160,12 @@ public class QueryManager {
 	}
 	
 	public void finishQuery(QueryInfo queryInfo) {
-		runningQueries.remove(queryInfo);
+		admissionControl.release(queryInfo);
+		if (runningQueries.remove(queryInfo)) {
+			// cancel tasks which are not needed anymore, e.g. if the result is cut by a LIMIT
+			federationManager.getJoinScheduler().abort(queryInfo.getQueryID());
+			federationManager.getUnionScheduler().abort(queryInfo.getQueryID());
+		}
 	}
 	
 	public boolean isRunning(QueryInfo queryInfo) {
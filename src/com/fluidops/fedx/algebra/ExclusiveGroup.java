@@ -28,6 +28,7 @@ import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.AbstractQueryModelNode;
+import org.eclipse.rdf4j.query.algebra.OrderElem;
 import org.eclipse.rdf4j.query.algebra.QueryModelVisitor;
 import org.eclipse.rdf4j.repository.RepositoryException;
 
@@ -44,7 +45,7 @@ import com.fluidops.fedx.structures.QueryInfo;
  * @author Andreas Schwarte
  *
  */
-public class ExclusiveGroup extends AbstractQueryModelNode implements StatementTupleExpr, FilterTuple
+public class ExclusiveGroup extends AbstractQueryModelNode implements StatementTupleExpr, FilterTuple, LimitTuple
 {
 	private static final long serialVersionUID = 9215353191021766797L;
 
@@ -55,6 +56,8 @@ public class ExclusiveGroup extends AbstractQueryModelNode implements StatementT
 	protected final int id;
 	protected final QueryInfo queryInfo;
 	protected FilterValueExpr filter = null;
+	protected long upperLimit = NO_LIMIT;
+	protected List<OrderElem> order = null;
 	protected Endpoint ownedEndpoint = null;
 	
 		
@@ -225,4 +228,31 @@ public class ExclusiveGroup extends AbstractQueryModelNode implements StatementT
 	public List<String> getLocalVars() {
 		return localVars;
 	}
+	
+	@Override
+	public long getUpperLimit() {
+		return upperLimit;
+	}
+
+	@Override
+	public void setUpperLimit(long upperLimit) {
+		this.upperLimit = upperLimit;
+	}
+	
+	@Override
+	public List<OrderElem> getOrder() {
+		return order;
+	}
+
+	@Override
+	public void setOrder(List<OrderElem> order) {
+		this.order = order;
+	}
+	
+	@Override
+	public String getSignature() {
+		if (upperLimit==NO_LIMIT)
+			return super.getSignature();
+		return super.getSignature() + " (limit: " + upperLimit + ")";
+	}
 }
@@ -23,6 +23,7 @@ import java.util.List;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.OrderElem;
 import org.eclipse.rdf4j.query.algebra.QueryModelVisitor;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 
@@ -38,7 +39,7 @@ import com.fluidops.fedx.util.QueryAlgebraUtil;
  * @see ExclusiveStatement
  *
  */
-public abstract class FedXStatementPattern extends StatementPattern implements StatementTupleExpr, FilterTuple, BoundJoinTupleExpr
+public abstract class FedXStatementPattern extends StatementPattern implements StatementTupleExpr, FilterTuple, BoundJoinTupleExpr, LimitTuple
 {
 	private static final long serialVersionUID = 6588020780262348806L;
 
@@ -48,6 +49,8 @@ public abstract class FedXStatementPattern extends StatementPattern implements S
 	protected final List<String> freeVars = new ArrayList<String>(3);
 	protected final List<String> localVars = new ArrayList<String>();
 	protected FilterValueExpr filterExpr = null;
+	protected long upperLimit = NO_LIMIT;
+	protected List<OrderElem> order = null;
 	
 	public FedXStatementPattern(StatementPattern node, QueryInfo queryInfo) {
 		super(node.getSubjectVar(), node.getPredicateVar(), node.getObjectVar(), node.getContextVar());
@@ -178,6 +181,33 @@ public abstract class FedXStatementPattern extends StatementPattern implements S
 		// if no free vars AND hasResults => replace by TrueNode to avoid additional remote requests
 	}
 	
+	@Override
+	public long getUpperLimit() {
+		return upperLimit;
+	}
+
+	@Override
+	public void setUpperLimit(long upperLimit) {
+		this.upperLimit = upperLimit;
+	}
+	
+	@Override
+	public List<OrderElem> getOrder() {
+		return order;
+	}
+
+	@Override
+	public void setOrder(List<OrderElem> order) {
+		this.order = order;
+	}
+	
+	@Override
+	public String getSignature() {
+		if (upperLimit==NO_LIMIT)
+			return super.getSignature();
+		return super.getSignature() + " (limit: " + upperLimit + ")";
+	}
+	
 	private List<StatementSource> sort(List<StatementSource> stmtSources) {
 		List<StatementSource> res = new ArrayList<StatementSource>(stmtSources);
 		Collections.sort(res, new Comparator<StatementSource>()	{
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.algebra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.rdf4j.query.algebra.QueryModelVisitor;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+
+import com.fluidops.fedx.structures.QueryInfo;
+
+/**
+ * A tuple expression that represents a join of two independent sub-trees, i.e.
+ * both arguments are evaluated in parallel and the results are joined locally
+ * using the join variables.
+ * 
+ *
+ */
+public class HashJoin extends NTuple implements TupleExpr {
+
+	private static final long serialVersionUID = 4611930893640826378L;
+	
+	protected final List<String> joinVars;
+	
+	/**
+	 * Construct a hash join. Note that the parentNode of both arguments is
+	 * set to this instance.
+	 * 
+	 * @param leftArg
+	 * @param rightArg
+	 * @param joinVars
+	 * 			the variables shared by both arguments
+	 * @param queryInfo
+	 */
+	public HashJoin(TupleExpr leftArg, TupleExpr rightArg, List<String> joinVars, QueryInfo queryInfo) {
+		super(new ArrayList<TupleExpr>(Arrays.asList(leftArg, rightArg)), queryInfo);
+		this.joinVars = joinVars;
+	}
+
+	public TupleExpr getLeftArg() {
+		return args.get(0);
+	}
+	
+	public TupleExpr getRightArg() {
+		return args.get(1);
+	}
+	
+	public List<String> getJoinVars() {
+		return joinVars;
+	}
+	
+	@Override
+	public <X extends Exception> void visit(QueryModelVisitor<X> visitor)
+			throws X {
+		visitor.meetOther(this);		
+	}
+	
+	@Override
+	public HashJoin clone() {
+		return (HashJoin)super.clone();
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.algebra;
+
+import java.util.List;
+
+import org.eclipse.rdf4j.query.algebra.OrderElem;
+
+import com.fluidops.fedx.optimizer.LimitOptimizer;
+
+/**
+ * Expressions implementing this interface can push a LIMIT (and ORDER BY) into the 
+ * subqueries which are sent to their sources. The upper limit is set by the {@link LimitOptimizer}
+ * if at most this number of results is required from each source, i.e. the first results
+ * or, if an order is set, the top results according to this order.
+ * 
+ * 
+ * @see StatementSourcePattern
+ * @see ExclusiveStatement
+ * @see ExclusiveGroup
+ */
+public interface LimitTuple {
+
+	/**
+	 * Marker for expressions without upper limit
+	 */
+	public static final long NO_LIMIT = -1;
+	
+	/**
+	 * @return
+	 * 			the maximum number of results required from each source, or {@link #NO_LIMIT}
+	 */
+	public long getUpperLimit();
+	
+	/**
+	 * Set the maximum number of results required from each source
+	 * 
+	 * @param upperLimit
+	 * 			the limit or {@link #NO_LIMIT}
+	 */
+	public void setUpperLimit(long upperLimit);
+	
+	/**
+	 * @return
+	 * 			the order of the results required from each source, or null
+	 */
+	public List<OrderElem> getOrder();
+	
+	/**
+	 * Set the order of the results required from each source. The expressions
+	 * of the order elements must be variables.
+	 * 
+	 * @param order
+	 * 			the order or null
+	 */
+	public void setOrder(List<OrderElem> order);
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.algebra;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+
+import com.fluidops.fedx.optimizer.AggregationOptimizer;
+import com.fluidops.fedx.structures.QueryInfo;
+
+
+/**
+ * Represents the partial aggregation of statements (or exclusive groups) at their sources, i.e.
+ * each source evaluates a GROUP BY subquery computing the {@link Aggregate}s for its results. The
+ * union of the partial aggregates is merged by the (rewritten) group of the query.
+ * 
+ * @see AggregationOptimizer
+ */
+public class PartialAggregation extends NTuple implements TupleExpr {
+
+	private static final long serialVersionUID = -1283960813522350426L;
+
+	protected final List<String> groupNames;
+	protected final List<Aggregate> aggregates;
+	
+	/**
+	 * @param args
+	 * 			the statements or exclusive groups, each is evaluated at its sources
+	 * @param groupNames
+	 * 			the names of the grouping variables
+	 * @param aggregates
+	 * 			the partial aggregates
+	 * @param queryInfo
+	 */
+	public PartialAggregation(List<TupleExpr> args, List<String> groupNames, List<Aggregate> aggregates, QueryInfo queryInfo) {
+		super(args, queryInfo);
+		this.groupNames = groupNames;
+		this.aggregates = aggregates;
+	}
+	
+	public List<String> getGroupNames() {
+		return groupNames;
+	}
+	
+	public List<Aggregate> getAggregates() {
+		return aggregates;
+	}
+	
+	@Override
+	public Set<String> getBindingNames() {
+		Set<String> res = new LinkedHashSet<String>(groupNames);
+		for (Aggregate a : aggregates)
+			res.add(a.getName());
+		return res;
+	}
+	
+	@Override
+	public Set<String> getAssuredBindingNames() {
+		return Collections.emptySet();
+	}
+	
+	@Override
+	public String getSignature() {
+		return super.getSignature() + " (group: " + groupNames + ", aggregates: " + aggregates + ")";
+	}
+	
+	@Override
+	public PartialAggregation clone() {
+		return (PartialAggregation)super.clone();
+	}
+	
+	
+	/**
+	 * A partial aggregate computed at the sources, e.g. <i>(COUNT(?x) AS ?name)</i>
+	 */
+	public static class Aggregate {
+		
+		protected final String name;
+		protected final String function;
+		protected final String argName;
+		
+		/**
+		 * @param name
+		 * 			the name of the result variable
+		 * @param function
+		 * 			the SPARQL aggregate function, e.g. COUNT
+		 * @param argName
+		 * 			the name of the argument variable, or null for *
+		 */
+		public Aggregate(String name, String function, String argName) {
+			this.name = name;
+			this.function = function;
+			this.argName = argName;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getFunction() {
+			return function;
+		}
+
+		public String getArgName() {
+			return argName;
+		}
+		
+		@Override
+		public String toString() {
+			return "(" + function + "(" + (argName==null ? "*" : "?" + argName) + ") AS ?" + name + ")";
+		}
+	}
+}
@@ -27,9 +27,11 @@ import org.eclipse.rdf4j.repository.RepositoryException;
 import com.fluidops.fedx.EndpointManager;
 import com.fluidops.fedx.FederationManager;
 import com.fluidops.fedx.evaluation.TripleSource;
+import com.fluidops.fedx.evaluation.iterator.FingerprintDistinctIteration;
 import com.fluidops.fedx.evaluation.iterator.SingleBindingSetIteration;
 import com.fluidops.fedx.evaluation.union.ParallelPreparedUnionTask;
 import com.fluidops.fedx.evaluation.union.ParallelUnionTask;
+import com.fluidops.fedx.evaluation.union.SortedMergeUnion;
 import com.fluidops.fedx.evaluation.union.WorkerUnionBase;
 import com.fluidops.fedx.exception.IllegalQueryException;
 import com.fluidops.fedx.structures.Endpoint;
@@ -65,6 +67,10 @@ public class StatementSourcePattern extends FedXStatementPattern {
 					
 		try {
 			
+			// top-k: each source delivers its sorted top results
+			if (order!=null && statementSources.size()>1)
+				return evaluateSorted(bindings);
+			
 			Boolean isEvaluated = false;	// is filter evaluated in prepared query
 			String preparedQuery = null;	// used for some triple sources
 			WorkerUnionBase<BindingSet> union = FederationManager.getInstance().createWorkerUnion(queryInfo);
@@ -104,6 +110,10 @@ public class StatementSourcePattern extends FedXStatementPattern {
 			
 			union.run();	// execute the union in this thread
 			
+			// set semantics if the query permits (e.g. DISTINCT projection)
+			if (statementSources.size()>1 && queryInfo.isDuplicateElimination())
+				return new FingerprintDistinctIteration(union);
+			
 			return union;
 			
 		} catch (RepositoryException e) {
@@ -114,6 +124,37 @@ public class StatementSourcePattern extends FedXStatementPattern {
 	}
 	
 	
+	/**
+	 * Evaluate the subquery with ORDER BY and LIMIT at all sources in parallel and
+	 * combine the sorted results using a {@link SortedMergeUnion}. Note that the
+	 * prepared query is used for all types of triple sources, such that the results 
+	 * are sorted.
+	 * 
+	 * @param bindings
+	 * @return the merged result
+	 */
+	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateSorted(BindingSet bindings) throws RepositoryException, MalformedQueryException, QueryEvaluationException {
+		
+		String preparedQuery;
+		try {
+			preparedQuery = QueryStringUtil.selectQueryString(this, bindings, filterExpr, false);
+		} catch (IllegalQueryException e1) {
+			/* all vars are bound, this must be handled as a check query, can occur in joins */
+			return handleStatementSourcePatternCheck(bindings);
+		}
+		
+		SortedMergeUnion union = new SortedMergeUnion(FederationManager.getInstance().getUnionScheduler(), order, upperLimit, queryInfo);
+		for (StatementSource source : statementSources) {
+			Endpoint ownedEndpoint = EndpointManager.getEndpointManager().getEndpoint(source.getEndpointID());
+			union.addTask(new ParallelPreparedUnionTask(union, preparedQuery, ownedEndpoint.getTripleSource(), ownedEndpoint.getConn(), bindings, filterExpr));
+		}
+		
+		union.run();
+		
+		return union;
+	}
+	
+	
 	protected CloseableIteration<BindingSet, QueryEvaluationException> handleStatementSourcePatternCheck(BindingSet bindings) throws RepositoryException, MalformedQueryException, QueryEvaluationException {
 		
 		// if at least one source has statements, we can return this binding set as result
@@ -16,19 +16,32 @@
 package com.fluidops.fedx.cache;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 
+import com.fluidops.fedx.FederationManager;
 import com.fluidops.fedx.algebra.StatementSource;
 import com.fluidops.fedx.algebra.StatementSource.StatementSourceType;
 import com.fluidops.fedx.cache.Cache.StatementSourceAssurance;
 import com.fluidops.fedx.evaluation.TripleSource;
+import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.concurrent.EndpointTask;
+import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
+import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
 import com.fluidops.fedx.exception.OptimizationException;
 import com.fluidops.fedx.structures.Endpoint;
+import com.fluidops.fedx.structures.QueryInfo;
 import com.fluidops.fedx.structures.SubQuery;
 
 public class CacheUtils {
@@ -113,24 +126,193 @@ public class CacheUtils {
 	public static List<StatementSource> checkCacheForStatementSourcesUpdateCache(Cache cache, List<Endpoint> endpoints,
 			Resource subj, IRI pred, Value obj)
 	{
+		return checkCacheForStatementSourcesUpdateCache(cache, endpoints, subj, pred, obj, null);
+	}
+	
+	/**
+	 * Checks the cache for relevant statement sources to the provided statement. If the cache has no
+	 * knowledge ask the endpoint for further information. The ASK requests for several endpoints
+	 * are sent in parallel using the union scheduler, the order of the resulting sources corresponds 
+	 * to the order of the endpoints.
+	 * 
+	 * @param cache
+	 * @param endpoints
+	 * @param subj
+	 * @param pred
+	 * @param obj
+	 * @param queryInfo
+	 * 			the query on behalf of which the check is done, may be null
+	 * 
+	 * @return the list of relevant statement sources
+	 */
+	public static List<StatementSource> checkCacheForStatementSourcesUpdateCache(Cache cache, List<Endpoint> endpoints,
+			Resource subj, IRI pred, Value obj, QueryInfo queryInfo)
+	{
 		
 		SubQuery q = new SubQuery(subj, pred, obj);
-		List<StatementSource> sources = new ArrayList<StatementSource>(endpoints.size());
+		StatementSource[] found = new StatementSource[endpoints.size()];
+		List<ParallelEndpointCheckTask> tasks = new ArrayList<ParallelEndpointCheckTask>();
+		ParallelEndpointCheckExecutor control = new ParallelEndpointCheckExecutor(queryInfo);
 		
-		for (Endpoint e : endpoints) {
+		for (int i=0; i<endpoints.size(); i++) {
+			Endpoint e = endpoints.get(i);
 			StatementSourceAssurance a = cache.canProvideStatements(q, e);
 
 			if (a==StatementSourceAssurance.HAS_LOCAL_STATEMENTS) {
-				sources.add( new StatementSource(e.getId(), StatementSourceType.LOCAL));			
+				found[i] = new StatementSource(e.getId(), StatementSourceType.LOCAL);			
 			} else if (a==StatementSourceAssurance.HAS_REMOTE_STATEMENTS) {
-				sources.add( new StatementSource(e.getId(), StatementSourceType.REMOTE));			
+				found[i] = new StatementSource(e.getId(), StatementSourceType.REMOTE);			
 			} else if (a==StatementSourceAssurance.POSSIBLY_HAS_STATEMENTS) {
 				
-				// check if the endpoint has results (statistics + ask request)				
-				if (CacheUtils.checkEndpointForResults(cache, e, subj, pred, obj))
-					sources.add( new StatementSource(e.getId(), StatementSourceType.REMOTE));
+				// check if the endpoint has results (statistics + ask request)
+				tasks.add( new ParallelEndpointCheckTask(control, cache, e, subj, pred, obj, found, i));
 			} 
 		}
+		
+		if (tasks.size()==1) {
+			// a single check is performed in the current thread
+			ParallelEndpointCheckTask task = tasks.get(0);
+			if (checkEndpointForResults(cache, task.endpoint, subj, pred, obj))
+				found[task.index] = new StatementSource(task.endpoint.getId(), StatementSourceType.REMOTE);
+		} else if (tasks.size()>1) {
+			control.execute(tasks);
+		}
+		
+		List<StatementSource> sources = new ArrayList<StatementSource>(endpoints.size());
+		for (StatementSource source : found) {
+			if (source!=null)
+				sources.add(source);
+		}
 		return sources;
 	}
+	
+	
+	/**
+	 * Executes the ASK requests of {@link ParallelEndpointCheckTask}s on the union scheduler, and
+	 * blocks the calling thread until all checks are completed. Synchronization is achieved by means
+	 * of a latch, errors are reported as {@link OptimizationException}.
+	 */
+	protected static class ParallelEndpointCheckExecutor implements ParallelExecutor<BindingSet> {
+		
+		private final QueryInfo queryInfo;
+		private final ControlledWorkerScheduler<BindingSet> scheduler = FederationManager.getInstance().getUnionScheduler();
+		private final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+		private CountDownLatch latch;
+		private volatile boolean finished = false;
+		
+		public ParallelEndpointCheckExecutor(QueryInfo queryInfo) {
+			this.queryInfo = queryInfo;
+		}
+		
+		protected void execute(List<ParallelEndpointCheckTask> tasks) {
+			
+			latch = new CountDownLatch(tasks.size());
+			for (ParallelEndpointCheckTask task : tasks)
+				scheduler.schedule(task);
+			
+			try {
+				// wait at most until the deadline of the query
+				if (!latch.await(QueryInfo.getMaxWaitTime(queryInfo), TimeUnit.MILLISECONDS)) {
+					scheduler.abort(this);
+					errors.add(new OptimizationException("Source selection of query " + getQueryId() + " exceeded the maximum wait time."));
+				}
+			} catch (InterruptedException e) {
+				scheduler.abort(this);
+				Thread.currentThread().interrupt();
+				errors.add(new OptimizationException("Source selection of query " + getQueryId() + " was interrupted.", e));
+			}
+			
+			finished = true;
+			
+			if (errors.size()>0) {
+				Exception ex = errors.get(0);
+				if (ex instanceof OptimizationException)
+					throw (OptimizationException)ex;
+				throw new OptimizationException(ex.getMessage(), ex);
+			}
+		}
+
+		@Override
+		public void run() { /* not needed */ }
+
+		@Override
+		public void addResult(CloseableIteration<BindingSet, QueryEvaluationException> res) { /* not needed */ }
+
+		@Override
+		public void toss(Exception e) {
+			errors.add(e);
+			// do not wait for the remaining checks
+			scheduler.abort(this);
+			while (latch.getCount()>0)
+				latch.countDown();
+		}
+
+		@Override
+		public void done() {
+			// signalled by completed and by aborted tasks
+			latch.countDown();
+		}
+
+		@Override
+		public boolean isFinished() {
+			return finished;
+		}
+
+		@Override
+		public int getQueryId() {
+			return queryInfo==null ? -1 : queryInfo.getQueryID();
+		}
+
+		@Override
+		public QueryInfo getQueryInfo() {
+			return queryInfo;
+		}
+	}
+	
+	
+	/**
+	 * Task for sending an ASK request for a statement to a single endpoint. If the
+	 * endpoint can provide results, the corresponding {@link StatementSource} is
+	 * set at the index of the endpoint.
+	 */
+	protected static class ParallelEndpointCheckTask implements ParallelTask<BindingSet>, EndpointTask {
+
+		protected final ParallelEndpointCheckExecutor control;
+		protected final Cache cache;
+		protected final Endpoint endpoint;
+		protected final Resource subj;
+		protected final IRI pred;
+		protected final Value obj;
+		protected final StatementSource[] found;
+		protected final int index;
+		
+		public ParallelEndpointCheckTask(ParallelEndpointCheckExecutor control, Cache cache, Endpoint endpoint,
+				Resource subj, IRI pred, Value obj, StatementSource[] found, int index) {
+			this.control = control;
+			this.cache = cache;
+			this.endpoint = endpoint;
+			this.subj = subj;
+			this.pred = pred;
+			this.obj = obj;
+			this.found = found;
+			this.index = index;
+		}
+
+		@Override
+		public CloseableIteration<BindingSet, QueryEvaluationException> performTask() throws Exception {
+			if (checkEndpointForResults(cache, endpoint, subj, pred, obj))
+				found[index] = new StatementSource(endpoint.getId(), StatementSourceType.REMOTE);
+			return new EmptyIteration<BindingSet, QueryEvaluationException>();
+		}
+
+		@Override
+		public ParallelExecutor<BindingSet> getControl() {
+			return control;
+		}
+
+		@Override
+		public Endpoint getEndpoint() {
+			return endpoint;
+		}
+	}
 }
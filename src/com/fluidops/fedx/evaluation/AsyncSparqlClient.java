@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.http.HttpHost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.DefaultHttpClientIODispatch;
+import org.apache.http.impl.nio.pool.BasicNIOConnPool;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncRequestExecutor;
+import org.apache.http.nio.protocol.HttpAsyncRequester;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpProcessorBuilder;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+
+import com.fluidops.fedx.evaluation.concurrent.NamingThreadFactory;
+import com.fluidops.fedx.exception.FedXRuntimeException;
+
+
+/**
+ * A non-blocking HTTP client for sending SPARQL queries to remote endpoints, based
+ * on the I/O reactor of httpcore-nio. All requests are multiplexed on a small number 
+ * of I/O dispatch threads (see {@link com.fluidops.fedx.Config#getAsyncSparqlIOThreads()}),
+ * the response is streamed into the provided {@link HttpAsyncResponseConsumer} and
+ * the outcome of a request is reported to the provided {@link FutureCallback}.<p>
+ * 
+ * Connect and socket timeouts are configured with {@link com.fluidops.fedx.Config#getAsyncSparqlConnectTimeout()}
+ * and {@link com.fluidops.fedx.Config#getAsyncSparqlSocketTimeout()}. In addition, requests can be sent 
+ * with an overall timeout, after which the request is cancelled and 
+ * the callback is failed with a {@link QueryInterruptedException}.<p>
+ * 
+ * Only plain HTTP endpoints are supported.
+ * 
+ * @see AsyncSparqlTripleSource
+ */
+public class AsyncSparqlClient {
+
+	public static Logger log = Logger.getLogger(AsyncSparqlClient.class);
+	
+	/* the results are parsed incrementally, which is supported for the XML format */
+	public static final String SPARQL_RESULTS_ACCEPT = "application/sparql-results+xml";
+	
+	protected final ConnectingIOReactor ioReactor;
+	protected final BasicNIOConnPool connPool;
+	protected final HttpAsyncRequester requester;
+	protected final Thread reactorThread;
+	protected final ScheduledExecutorService timer;
+	
+	/**
+	 * Create and start a new client.
+	 * 
+	 * @param ioThreads
+	 * 			the number of I/O dispatch threads
+	 * @param maxConnections
+	 * 			the maximum number of connections per endpoint
+	 * @param connectTimeout
+	 * 			the timeout for establishing a connection in milliseconds, 0 for no timeout
+	 * @param socketTimeout
+	 * 			the maximum period of inactivity on a connection in milliseconds, 0 for no timeout
+	 * @param timer
+	 * 			the timer for request timeouts, see {@link com.fluidops.fedx.FederationManager#getTimer()}
+	 */
+	public AsyncSparqlClient(int ioThreads, int maxConnections, int connectTimeout, int socketTimeout, ScheduledExecutorService timer) {
+		
+		this.timer = timer;
+		
+		HttpProcessor httpProcessor = HttpProcessorBuilder.create()
+				.add(new RequestContent())
+				.add(new RequestTargetHost())
+				.add(new RequestConnControl())
+				.add(new RequestUserAgent("FedX"))
+				.build();
+		requester = new HttpAsyncRequester(httpProcessor);
+		
+		try {
+			IOReactorConfig config = IOReactorConfig.custom()
+					.setIoThreadCount(ioThreads)
+					.setConnectTimeout(connectTimeout)
+					.setSoTimeout(socketTimeout)
+					.build();
+			ioReactor = new DefaultConnectingIOReactor(config, new NamingThreadFactory("FedX Async SPARQL I/O"));
+		} catch (IOReactorException e) {
+			throw new FedXRuntimeException("Failed to initialize I/O reactor: " + e.getMessage(), e);
+		}
+		connPool = new BasicNIOConnPool(ioReactor, connectTimeout, ConnectionConfig.DEFAULT);
+		connPool.setDefaultMaxPerRoute(maxConnections);
+		connPool.setMaxTotal(Integer.MAX_VALUE);
+		
+		final DefaultHttpClientIODispatch<HttpAsyncRequestExecutor> ioEventDispatch = new DefaultHttpClientIODispatch<HttpAsyncRequestExecutor>(
+				new HttpAsyncRequestExecutor(), ConnectionConfig.DEFAULT);
+		reactorThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					ioReactor.execute(ioEventDispatch);
+				} catch (IOException e) {
+					log.error("I/O reactor of the asynchronous SPARQL client terminated: " + e.getMessage());
+					log.debug("Details:", e);
+				}
+			}
+		}, "FedX Async SPARQL Reactor");
+		reactorThread.setDaemon(true);
+		reactorThread.start();
+	}
+	
+	/**
+	 * Returns true if the given endpoint location can be used with this client, i.e.
+	 * if it is a plain HTTP URL.
+	 * 
+	 * @param location
+	 * @return whether the location is supported
+	 */
+	public static boolean supports(String location) {
+		return location!=null && location.startsWith("http://");
+	}
+	
+	/**
+	 * Send the given SPARQL query to the endpoint. The response is passed to the
+	 * consumer and the outcome to the callback, both are invoked by one of the
+	 * I/O dispatch threads.
+	 * 
+	 * @param location
+	 * 			the endpoint URL
+	 * @param queryString
+	 * 			the SPARQL query
+	 * @param consumer
+	 * 			the consumer of the response
+	 * @param callback
+	 * @return the future of the request, which can be used for cancellation
+	 */
+	public <T> Future<T> sendQuery(String location, String queryString, HttpAsyncResponseConsumer<T> consumer, FutureCallback<T> callback) {
+		
+		URI uri;
+		try {
+			uri = new URI(location);
+		} catch (URISyntaxException e) {
+			throw new FedXRuntimeException("Invalid endpoint location: " + location, e);
+		}
+		HttpHost target = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+		String requestUri = uri.getRawPath()==null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+		if (uri.getRawQuery()!=null) {
+			requestUri += "?" + uri.getRawQuery();
+		}
+		
+		BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest("POST", requestUri);
+		request.setHeader("Accept", SPARQL_RESULTS_ACCEPT);
+		try {
+			request.setEntity(new NStringEntity("query=" + URLEncoder.encode(queryString, "UTF-8"), 
+					ContentType.APPLICATION_FORM_URLENCODED));
+		} catch (UnsupportedEncodingException e) {
+			throw new FedXRuntimeException(e);		// UTF-8 is always supported
+		}
+		
+		return requester.execute(new BasicAsyncRequestProducer(target, request), consumer,
+				connPool, HttpCoreContext.create(), callback);
+	}
+	
+	/**
+	 * Send the given SPARQL query to the endpoint with the given timeout. If no
+	 * response has been received within the timeout, the request is cancelled
+	 * and the callback is failed with a {@link QueryInterruptedException}.
+	 * 
+	 * @param location
+	 * 			the endpoint URL
+	 * @param queryString
+	 * 			the SPARQL query
+	 * @param timeout
+	 * 			the timeout in milliseconds, {@link Long#MAX_VALUE} for no timeout
+	 * @param consumer
+	 * 			the consumer of the response
+	 * @param callback
+	 * @return the future of the request, which can be used for cancellation
+	 */
+	public <T> Future<T> sendQuery(String location, String queryString, long timeout, HttpAsyncResponseConsumer<T> consumer, FutureCallback<T> callback) {
+		if (timeout==Long.MAX_VALUE)
+			return sendQuery(location, queryString, consumer, callback);
+		TimeoutCallback<T> timeoutCallback = new TimeoutCallback<T>(callback);
+		Future<T> request = sendQuery(location, queryString, consumer, timeoutCallback);
+		timeoutCallback.schedule(request, timeout);
+		return request;
+	}
+	
+	/**
+	 * Shut down the I/O reactor, pending requests are cancelled.
+	 */
+	public void shutdown() {
+		try {
+			connPool.shutdown(1000);
+			ioReactor.shutdown(1000);
+		} catch (IOException e) {
+			log.warn("Failed to shut down asynchronous SPARQL client: " + e.getMessage());
+			log.debug("Details:", e);
+		}
+	}
+	
+	
+	/**
+	 * Callback which forwards the first outcome of a request to the wrapped callback,
+	 * and which fails the request once the timeout has passed.
+	 */
+	protected class TimeoutCallback<T> implements FutureCallback<T>, Runnable {
+
+		protected final FutureCallback<T> callback;
+		protected final AtomicBoolean signalled = new AtomicBoolean(false);
+		protected volatile Future<T> request;
+		protected volatile ScheduledFuture<?> timeoutTask;
+		
+		public TimeoutCallback(FutureCallback<T> callback) {
+			this.callback = callback;
+		}
+		
+		protected void schedule(Future<T> request, long timeout) {
+			this.request = request;
+			timeoutTask = timer.schedule(this, timeout, TimeUnit.MILLISECONDS);
+			// the request may have finished in the meantime
+			if (signalled.get())
+				timeoutTask.cancel(false);
+		}
+		
+		protected void cancelTimer() {
+			ScheduledFuture<?> t = timeoutTask;
+			if (t!=null)
+				t.cancel(false);
+		}
+		
+		@Override
+		public void completed(T result) {
+			if (signalled.compareAndSet(false, true)) {
+				cancelTimer();
+				callback.completed(result);
+			}
+		}
+
+		@Override
+		public void failed(Exception ex) {
+			if (signalled.compareAndSet(false, true)) {
+				cancelTimer();
+				callback.failed(ex);
+			}
+		}
+
+		@Override
+		public void cancelled() {
+			if (signalled.compareAndSet(false, true)) {
+				cancelTimer();
+				callback.cancelled();
+			}
+		}
+
+		@Override
+		public void run() {
+			if (signalled.compareAndSet(false, true)) {
+				request.cancel(true);
+				callback.failed(new QueryInterruptedException("Asynchronous SPARQL request timed out"));
+			}
+		}
+	}
+}
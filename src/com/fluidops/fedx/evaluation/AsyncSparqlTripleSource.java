@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.MalformedQueryException;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+
+import com.fluidops.fedx.FederationManager;
+import com.fluidops.fedx.algebra.FilterValueExpr;
+import com.fluidops.fedx.evaluation.concurrent.EndpointRequestLimiter;
+import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
+import com.fluidops.fedx.evaluation.iterator.AsyncQueryResultIteration;
+import com.fluidops.fedx.evaluation.iterator.FilteringInsertBindingsIteration;
+import com.fluidops.fedx.evaluation.iterator.FilteringIteration;
+import com.fluidops.fedx.evaluation.iterator.InsertBindingsIteration;
+import com.fluidops.fedx.structures.Endpoint;
+import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.structures.QueryType;
+
+
+/**
+ * A triple source for (remote) SPARQL endpoints which evaluates SELECT subqueries 
+ * asynchronously using the non-blocking {@link AsyncSparqlClient}.<p>
+ * 
+ * In contrast to {@link SparqlTripleSource} the request is only sent, the returned
+ * {@link AsyncQueryResultIteration} is fed by the response consumer. Hence a 
+ * task using this triple source immediately hands the (pending) result to its
+ * control via {@link ParallelExecutor#addResult(CloseableIteration)} and releases 
+ * the worker thread, i.e. many concurrent subqueries only occupy the few I/O 
+ * threads of the client. The request slot of the endpoint (see {@link EndpointRequestLimiter})
+ * is held until the result iteration is closed.<p>
+ * 
+ * All other operations are evaluated by the blocking base implementation.
+ * 
+ * @see com.fluidops.fedx.Config#isEnableAsyncSparqlRequests()
+ */
+public class AsyncSparqlTripleSource extends SparqlTripleSource {
+
+	AsyncSparqlTripleSource(Endpoint endpoint) {
+		super(endpoint);
+	}
+
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> getStatements(
+			String preparedQuery, RepositoryConnection conn, BindingSet bindings, FilterValueExpr filterExpr)
+			throws RepositoryException, MalformedQueryException,
+			QueryEvaluationException {
+		
+		CloseableIteration<BindingSet, QueryEvaluationException> res = sendQuery(preparedQuery, conn);
+		
+		// apply filter and/or insert original bindings
+		if (filterExpr!=null) {
+			if (bindings.size()>0) 
+				res = new FilteringInsertBindingsIteration(filterExpr, bindings, res);
+			else
+				res = new FilteringIteration(filterExpr, res);
+		} else if (bindings.size()>0) {
+			res = new InsertBindingsIteration(res, bindings);
+		}
+		return res;
+	}
+	
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> getStatements(
+			String preparedQuery, RepositoryConnection conn, QueryType queryType)
+			throws RepositoryException, MalformedQueryException,
+			QueryEvaluationException {
+		
+		if (queryType==QueryType.SELECT)
+			return sendQuery(preparedQuery, conn);
+		return super.getStatements(preparedQuery, conn, queryType);
+	}
+	
+	protected AsyncQueryResultIteration sendQuery(String queryString, RepositoryConnection conn) {
+		// use the remaining time of the current query as HTTP timeout
+		QueryInfo queryInfo = QueryInfo.getCurrent();
+		if (queryInfo!=null)
+			queryInfo.checkDeadline();
+		long timeout = QueryInfo.getRemainingTime(queryInfo);
+		
+		monitorRemoteRequest();
+		AsyncQueryResultIteration res = new AsyncQueryResultIteration(queryString, conn, EndpointRequestLimiter.deferRelease());
+		try {
+			res.setRequest(FederationManager.getInstance().getAsyncSparqlClient().sendQuery(
+					endpoint.getEndpoint(), queryString, timeout, res.getResponseConsumer(), res));
+		} catch (RuntimeException e) {
+			// release the slot of the endpoint
+			res.close();
+			throw e;
+		}
+		return res;
+	}
+}
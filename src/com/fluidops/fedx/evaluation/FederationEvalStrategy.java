@@ -15,13 +15,23 @@
  */
 package com.fluidops.fedx.evaluation;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.Executor;
 
 import org.apache.log4j.Logger;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.common.iteration.SingletonIteration;
+import org.eclipse.rdf4j.common.iteration.UnionIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
@@ -33,9 +43,15 @@ import org.eclipse.rdf4j.query.Binding;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.Difference;
+import org.eclipse.rdf4j.query.algebra.Exists;
+import org.eclipse.rdf4j.query.algebra.Filter;
+import org.eclipse.rdf4j.query.algebra.Not;
 import org.eclipse.rdf4j.query.algebra.Projection;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.ValueExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
 import org.eclipse.rdf4j.query.algebra.evaluation.federation.ServiceJoinIterator;
@@ -55,19 +71,29 @@ import com.fluidops.fedx.algebra.EmptyResult;
 import com.fluidops.fedx.algebra.ExclusiveGroup;
 import com.fluidops.fedx.algebra.FedXService;
 import com.fluidops.fedx.algebra.FilterExpr;
+import com.fluidops.fedx.algebra.FilterTuple;
+import com.fluidops.fedx.algebra.HashJoin;
 import com.fluidops.fedx.algebra.IndependentJoinGroup;
 import com.fluidops.fedx.algebra.NJoin;
 import com.fluidops.fedx.algebra.NUnion;
+import com.fluidops.fedx.algebra.PartialAggregation;
 import com.fluidops.fedx.algebra.ProjectionWithBindings;
 import com.fluidops.fedx.algebra.SingleSourceQuery;
 import com.fluidops.fedx.algebra.StatementSource;
 import com.fluidops.fedx.algebra.StatementTupleExpr;
 import com.fluidops.fedx.cache.Cache;
+import com.fluidops.fedx.cache.Cache.StatementSourceAssurance;
 import com.fluidops.fedx.cache.CacheUtils;
 import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.concurrent.HedgedRequest;
 import com.fluidops.fedx.evaluation.concurrent.ParallelServiceExecutor;
+import com.fluidops.fedx.evaluation.iterator.FingerprintDistinctIteration;
+import com.fluidops.fedx.evaluation.iterator.FingerprintDistinctStatementIteration;
+import com.fluidops.fedx.evaluation.iterator.HashJoinIteration;
+import com.fluidops.fedx.evaluation.join.ControlledWorkerAntiJoin;
 import com.fluidops.fedx.evaluation.join.ControlledWorkerBoundJoin;
 import com.fluidops.fedx.evaluation.join.ControlledWorkerJoin;
+import com.fluidops.fedx.evaluation.join.ControlledWorkerSemiJoin;
 import com.fluidops.fedx.evaluation.join.SynchronousBoundJoin;
 import com.fluidops.fedx.evaluation.join.SynchronousJoin;
 import com.fluidops.fedx.evaluation.union.ControlledWorkerUnion;
@@ -75,13 +101,17 @@ import com.fluidops.fedx.evaluation.union.ParallelGetStatementsTask;
 import com.fluidops.fedx.evaluation.union.ParallelPreparedAlgebraUnionTask;
 import com.fluidops.fedx.evaluation.union.ParallelPreparedUnionTask;
 import com.fluidops.fedx.evaluation.union.ParallelUnionOperatorTask;
-import com.fluidops.fedx.evaluation.union.SynchronousWorkerUnion;
 import com.fluidops.fedx.evaluation.union.WorkerUnionBase;
 import com.fluidops.fedx.exception.FedXRuntimeException;
+import com.fluidops.fedx.exception.FilterConversionException;
+import com.fluidops.fedx.optimizer.AggregationOptimizer;
 import com.fluidops.fedx.statistics.Statistics;
 import com.fluidops.fedx.structures.Endpoint;
 import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.structures.SubQuery;
 import com.fluidops.fedx.util.FedXUtil;
+import com.fluidops.fedx.util.QueryAlgebraUtil;
+import com.fluidops.fedx.util.QueryStringUtil;
 
 
 /**
@@ -117,7 +147,8 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 			@Override
 			public ValueFactory getValueFactory() {
 				return SimpleValueFactory.getInstance();
-			}}, DelegateFederatedServiceResolver.getInstance());	
+			}}, null, DelegateFederatedServiceResolver.getInstance(), 
+				Config.getConfig().getIterationCacheSyncThreshold());	// sort, group and distinct state is only spilled if configured
 		this.executor = FederationManager.getInstance().getExecutor();
 		this.cache = FederationManager.getInstance().getCache();
 		this.statistics = FederationManager.getInstance().getStatistics();
@@ -141,6 +172,14 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 			return evaluateNaryUnion((NUnion)expr, bindings);
 		}
 		
+		if (expr instanceof HashJoin) {
+			return evaluateHashJoin((HashJoin)expr, bindings);
+		}
+		
+		if (expr instanceof PartialAggregation) {
+			return evaluatePartialAggregation((PartialAggregation)expr, bindings);
+		}
+		
 		if (expr instanceof ExclusiveGroup) {
 			return ((ExclusiveGroup)expr).evaluate(bindings);
 		}
@@ -163,6 +202,21 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 		if(expr instanceof EmptyResult)
 			return new EmptyIteration<BindingSet, QueryEvaluationException>();
 		
+		if (expr instanceof Difference) {
+			Difference difference = (Difference)expr;
+			if (canApplyVectoredAntiJoin(difference.getRightArg()))
+				return evaluateAntiJoin(difference.getLeftArg(), (StatementTupleExpr)difference.getRightArg(), true, bindings);
+		}
+		
+		if (expr instanceof Filter) {
+			Filter filter = (Filter)expr;
+			if (filter.getCondition() instanceof Not && ((Not)filter.getCondition()).getArg() instanceof Exists) {
+				TupleExpr subQuery = ((Exists)((Not)filter.getCondition()).getArg()).getSubQuery();
+				if (canApplyVectoredAntiJoin(subQuery))
+					return evaluateAntiJoin(filter.getArg(), (StatementTupleExpr)subQuery, false, bindings);
+			}
+		}
+		
 		return super.evaluate(expr, bindings);
 	}
 	
@@ -211,7 +265,7 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 		}
 		
 		// form the union of results from relevant endpoints
-		List<StatementSource> sources = CacheUtils.checkCacheForStatementSourcesUpdateCache(cache, members, subj, pred, obj);
+		List<StatementSource> sources = CacheUtils.checkCacheForStatementSourcesUpdateCache(cache, members, subj, pred, obj, queryInfo);
 		
 		if (sources.size()==0)
 			return new EmptyIteration<Statement, QueryEvaluationException>();
@@ -221,8 +275,8 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 			return e.getTripleSource().getStatements(e.getConn(), subj, pred, obj, contexts);
 		}
 		
-		// TODO why not collect in parallel?
-		WorkerUnionBase<Statement> union = new SynchronousWorkerUnion<Statement>(queryInfo);		
+		// collect in parallel, statements are streamed as they arrive
+		WorkerUnionBase<Statement> union = new ControlledWorkerUnion<Statement>(FederationManager.getInstance().getStatementScheduler(), queryInfo);		
 		
 		for (StatementSource source : sources) {
 			Endpoint e = EndpointManager.getEndpointManager().getEndpoint(source.getEndpointID());
@@ -230,10 +284,11 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 			union.addTask(task);
 		}
 		
-		// run the union in a separate thread
-		executor.execute(union);
+		// schedule the tasks, the union is finished by the last task
+		union.run();
 		
-		// TODO distinct iteration ?
+		if (Config.getConfig().isEnableStatementDeduplication())
+			return new FingerprintDistinctStatementIteration(union);
 		
 		return union;
 	}
@@ -268,11 +323,167 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 		ControlledWorkerScheduler<BindingSet> joinScheduler = FederationManager.getInstance().getJoinScheduler();
 		
 		for (int i = 1, n = join.getNumberOfArguments(); i < n; i++) {
+			
+			if (i==1) {
+				List<String> joinVars = getSemiJoinVars(join.getArg(0), join.getArg(1), bindings);
+				if (joinVars!=null) {
+					result = executeSemiJoin(joinScheduler, result, (ExclusiveGroup)join.getArg(1), joinVars, bindings, join.getQueryInfo());
+					continue;
+				}
+			}
+			
 			result = executeJoin(joinScheduler, result, join.getArg(i), bindings, join.getQueryInfo());
 		}
 		return result;
 	}
 	
+	/**
+	 * Evaluate the independent sub-trees of the {@link HashJoin} in parallel and join
+	 * the results locally, see {@link HashJoinIteration}.
+	 * 
+	 * @param join
+	 * @param bindings
+	 * @return the result iteration
+	 * @throws QueryEvaluationException
+	 */
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluateHashJoin(HashJoin join, BindingSet bindings) throws QueryEvaluationException {
+		return new HashJoinIteration(this, join, bindings);
+	}
+	
+	/**
+	 * Execute a semi join of the left iteration and the right {@link ExclusiveGroup} using 
+	 * a {@link ControlledWorkerSemiJoin}.
+	 * 
+	 * @param joinScheduler
+	 * @param leftIter
+	 * @param rightArg
+	 * @param joinVars
+	 * 			the join variables, see {@link #getSemiJoinVars(TupleExpr, TupleExpr, BindingSet)}
+	 * @param bindings
+	 * @param queryInfo
+	 * @return the result iteration
+	 * @throws QueryEvaluationException
+	 */
+	protected CloseableIteration<BindingSet, QueryEvaluationException> executeSemiJoin(ControlledWorkerScheduler<BindingSet> joinScheduler, CloseableIteration<BindingSet, QueryEvaluationException> leftIter, ExclusiveGroup rightArg, List<String> joinVars, BindingSet bindings, QueryInfo queryInfo) throws QueryEvaluationException {
+		
+		ControlledWorkerSemiJoin join = new ControlledWorkerSemiJoin(joinScheduler, this, leftIter, rightArg, joinVars, bindings, queryInfo);
+		executor.execute(join);
+		return join;
+	}
+	
+	/**
+	 * Determine the join variables of a semi join for the given join arguments. A semi join
+	 * is applied if {@link Config#isEnableSemiJoin()} is set and both arguments are
+	 * {@link ExclusiveGroup}s located at different endpoints sharing at least one variable.
+	 * 
+	 * @param leftArg
+	 * @param rightArg
+	 * @param bindings
+	 * @return the join variables, or <code>null</code> if no semi join is to be applied
+	 */
+	protected List<String> getSemiJoinVars(TupleExpr leftArg, TupleExpr rightArg, BindingSet bindings) {
+		
+		if (!Config.getConfig().isEnableSemiJoin())
+			return null;
+		if (!(leftArg instanceof ExclusiveGroup) || !(rightArg instanceof ExclusiveGroup))
+			return null;
+		
+		ExclusiveGroup left = (ExclusiveGroup)leftArg;
+		ExclusiveGroup right = (ExclusiveGroup)rightArg;
+		if (left.getOwner().getEndpointID().equals(right.getOwner().getEndpointID()))
+			return null;
+		
+		// variables of the right group that are bound in the left results
+		List<String> joinVars = new ArrayList<String>();
+		for (String var : right.getFreeVars()) {
+			if (left.getFreeVarsSet().contains(var) || bindings.hasBinding(var))
+				joinVars.add(var);
+		}
+		return joinVars.isEmpty() ? null : joinVars;
+	}
+	
+	/**
+	 * Evaluate the {@link ExclusiveGroup} of a semi join restricted to the given join keys,
+	 * i.e. the results are the bindings of the group whose values for the join variables are
+	 * contained in the keys. Implementations may return a superset of these bindings, an exact
+	 * join is applied afterwards.
+	 * 
+	 * @param group
+	 * @param joinVars
+	 * @param keys
+	 * 			the join keys, i.e. the list of values for the join variables
+	 * @return the result iteration
+	 * @throws QueryEvaluationException
+	 * 
+	 * @see ControlledWorkerSemiJoin
+	 */
+	public abstract CloseableIteration<BindingSet, QueryEvaluationException> evaluateExclusiveGroupSemiJoin(ExclusiveGroup group, List<String> joinVars, List<List<Value>> keys) throws QueryEvaluationException;
+	
+	/**
+	 * @return the number of join keys that are pushed to the endpoint in a single semi join request
+	 */
+	public int getSemiJoinBlockSize() {
+		return Config.getConfig().getSemiJoinBlockSize();
+	}
+	
+	/**
+	 * Evaluate an anti join, i.e. MINUS or FILTER NOT EXISTS, for a single statement as right
+	 * argument. Blocks of left bindings are checked in parallel on the join scheduler using a
+	 * {@link ControlledWorkerAntiJoin}.
+	 * 
+	 * @param leftArg
+	 * @param rightArg
+	 * @param minusSemantics
+	 * 			true for MINUS, false for FILTER NOT EXISTS
+	 * @param bindings
+	 * @return the result iteration
+	 * @throws QueryEvaluationException
+	 */
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluateAntiJoin(TupleExpr leftArg, StatementTupleExpr rightArg, boolean minusSemantics, BindingSet bindings) throws QueryEvaluationException {
+		
+		CloseableIteration<BindingSet, QueryEvaluationException> leftIter = evaluate(leftArg, bindings);
+		
+		ControlledWorkerScheduler<BindingSet> joinScheduler = FederationManager.getInstance().getJoinScheduler();
+		ControlledWorkerAntiJoin join = new ControlledWorkerAntiJoin(joinScheduler, this, leftIter, rightArg, minusSemantics, bindings, rightArg.getQueryInfo());
+		executor.execute(join);
+		return join;
+	}
+	
+	
+	/**
+	 * Evaluate the partial aggregates at the sources of each argument, i.e. send a 
+	 * GROUP BY subquery to each relevant source. The union of the partial results
+	 * is merged by the parent group.
+	 * 
+	 * @param aggregation
+	 * @param bindings
+	 * @return the union of the partial aggregates
+	 * @throws QueryEvaluationException
+	 * @see AggregationOptimizer
+	 */
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluatePartialAggregation(PartialAggregation aggregation, BindingSet bindings) throws QueryEvaluationException {
+		
+		WorkerUnionBase<BindingSet> union = FederationManager.getInstance().createWorkerUnion(aggregation.getQueryInfo());
+		
+		try {
+			for (TupleExpr arg : aggregation.getArgs()) {
+				StatementTupleExpr expr = (StatementTupleExpr)arg;
+				String preparedQuery = QueryStringUtil.selectQueryStringAggregate(expr, bindings, aggregation.getGroupNames(), aggregation.getAggregates());
+				for (StatementSource source : expr.getStatementSources()) {
+					Endpoint ownedEndpoint = EndpointManager.getEndpointManager().getEndpoint(source.getEndpointID());
+					union.addTask(new ParallelPreparedUnionTask(union, preparedQuery, ownedEndpoint.getTripleSource(), ownedEndpoint.getConn(), bindings, null));
+				}
+			}
+		} catch (FilterConversionException e) {
+			// filters are checked by the optimizer
+			throw new QueryEvaluationException(e);
+		}
+		
+		union.run();	// execute the union in this thread
+		
+		return union;
+	}
+	
 	public CloseableIteration<BindingSet, QueryEvaluationException> evaluateNaryUnion(NUnion union, BindingSet bindings) throws QueryEvaluationException {
 		
 		ControlledWorkerScheduler<BindingSet> unionScheduler = FederationManager.getInstance().getUnionScheduler();
@@ -282,7 +493,7 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 			unionRunnable.addTask(new ParallelUnionOperatorTask(unionRunnable, this, union.getArg(i), bindings));
 		}
 		
-		executor.execute(unionRunnable);
+		unionRunnable.run();	// execute the union in this thread, i.e. schedule the tasks
 		
 		return unionRunnable;
 	}
@@ -318,14 +529,131 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 	
 	/**
 	 * Evaluate a bound join at the relevant endpoint, i.e. i.e. for a group of bindings retrieve
-	 * results for the bound statement from the relevant endpoints
+	 * results for the bound statement from the relevant endpoints.
+	 * 
+	 * If the statement has more than one source and {@link Config#isEnableBoundJoinSourceRouting()}
+	 * is set, the bindings are partitioned by their plausible sources (see {@link #routeBindings(StatementTupleExpr, List)})
+	 * and each partition is only sent to the endpoints that can provide results for it.
 	 * 
 	 * @param stmt
 	 * @param bindings
 	 * @return the result iteration
 	 * @throws QueryEvaluationException
 	 */
-	public abstract CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(StatementTupleExpr stmt, final List<BindingSet> bindings) throws QueryEvaluationException;
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(StatementTupleExpr stmt, final List<BindingSet> bindings) throws QueryEvaluationException {
+		
+		// we can omit the bound join handling
+		if (bindings.size()==1)
+			return evaluate(stmt, bindings.get(0));
+		
+		List<StatementSource> statementSources = stmt.getStatementSources();
+		if (statementSources.size()==1 || !Config.getConfig().isEnableBoundJoinSourceRouting())
+			return evaluateBoundJoinStatementPattern(stmt, bindings, statementSources);
+		
+		Map<List<StatementSource>, List<BindingSet>> partitions = routeBindings(stmt, bindings);
+		
+		// no binding can produce results at any of the sources
+		if (partitions.isEmpty())
+			return new EmptyIteration<BindingSet, QueryEvaluationException>();
+		
+		// routing did not exclude any source, evaluate the block as is
+		if (partitions.size()==1 && partitions.containsKey(statementSources))
+			return evaluateBoundJoinStatementPattern(stmt, bindings, statementSources);
+		
+		List<CloseableIteration<BindingSet, QueryEvaluationException>> results = new ArrayList<CloseableIteration<BindingSet, QueryEvaluationException>>(partitions.size());
+		try {
+			for (Entry<List<StatementSource>, List<BindingSet>> partition : partitions.entrySet())
+				results.add(evaluateBoundJoinStatementPattern(stmt, partition.getValue(), partition.getKey()));
+		} catch (QueryEvaluationException e) {
+			for (CloseableIteration<BindingSet, QueryEvaluationException> result : results)
+				result.close();
+			throw e;
+		}
+		
+		if (results.size()==1)
+			return results.get(0);
+		return new UnionIteration<BindingSet, QueryEvaluationException>(results);
+	}
+	
+	/**
+	 * Evaluate a bound join for the given group of bindings at the specified statement sources,
+	 * which is a subset of the sources of the statement.
+	 * 
+	 * @param stmt
+	 * @param bindings
+	 * @param statementSources
+	 * 			the sources to which the bound query is sent
+	 * @return the result iteration
+	 * @throws QueryEvaluationException
+	 */
+	protected abstract CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(StatementTupleExpr stmt, final List<BindingSet> bindings, List<StatementSource> statementSources) throws QueryEvaluationException;
+	
+	/**
+	 * Partition the bindings of a bound join block by the sources at which the bound statement 
+	 * can plausibly produce results. A source is excluded for a binding if the cache knows that
+	 * the endpoint cannot provide statements for the bound statement or for its bound subject
+	 * (i.e. the subject is not known at that endpoint). No remote requests are sent for the routing,
+	 * unknown sources are kept.
+	 * 
+	 * Bindings for which no source remains are dropped, as they cannot contribute to the join.
+	 * The iteration order of the returned map follows the order of the bindings.
+	 * 
+	 * @param stmt
+	 * @param bindings
+	 * @return a mapping from the (ordered) list of plausible sources to the bindings routed to them
+	 */
+	protected Map<List<StatementSource>, List<BindingSet>> routeBindings(StatementTupleExpr stmt, List<BindingSet> bindings) {
+		
+		List<StatementSource> statementSources = stmt.getStatementSources();
+		Map<List<StatementSource>, List<BindingSet>> res = new LinkedHashMap<List<StatementSource>, List<BindingSet>>();
+		
+		if (!(stmt instanceof StatementPattern)) {
+			res.put(statementSources, bindings);
+			return res;
+		}
+		
+		StatementPattern pattern = (StatementPattern)stmt;
+		List<Endpoint> endpoints = new ArrayList<Endpoint>(statementSources.size());
+		for (StatementSource source : statementSources)
+			endpoints.add(EndpointManager.getEndpointManager().getEndpoint(source.getEndpointID()));
+		
+		for (BindingSet b : bindings) {
+			
+			Value subj = QueryAlgebraUtil.getVarValue(pattern.getSubjectVar(), b);
+			Value pred = QueryAlgebraUtil.getVarValue(pattern.getPredicateVar(), b);
+			Value obj = QueryAlgebraUtil.getVarValue(pattern.getObjectVar(), b);
+			
+			// a literal subject or a non-IRI predicate cannot match at any source
+			if ((subj!=null && !(subj instanceof Resource)) || (pred!=null && !(pred instanceof IRI)))
+				continue;
+			
+			// the keys are built like the entries of the cache, i.e. literals keep their datatype
+			SubQuery q = new SubQuery((Resource)subj, (IRI)pred, obj);
+			SubQuery subjQ = subj==null ? null : new SubQuery((Resource)subj, null, null);
+			
+			List<StatementSource> plausible = new ArrayList<StatementSource>(statementSources.size());
+			for (int i=0; i<statementSources.size(); i++) {
+				Endpoint e = endpoints.get(i);
+				if (cache.canProvideStatements(q, e)==StatementSourceAssurance.NONE)
+					continue;
+				if (subjQ!=null && cache.canProvideStatements(subjQ, e)==StatementSourceAssurance.NONE)
+					continue;
+				plausible.add(statementSources.get(i));
+			}
+			
+			if (plausible.isEmpty())
+				continue;
+			
+			List<BindingSet> partition = res.get(plausible);
+			if (partition==null) {
+				partition = new ArrayList<BindingSet>();
+				res.put(plausible, partition);
+			}
+			partition.add(b);
+		}
+		
+		return res;
+	}
 	
 	/**
 	 * Perform a grouped check at the relevant endpoints, i.e. for a group of bindings keep only 
@@ -340,6 +668,131 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 	
 	
 	
+	/**
+	 * Perform a grouped anti join check at the relevant endpoints, i.e. for a group of bindings 
+	 * keep only those for which no endpoint provides a result to the bound statement. Bindings
+	 * which bind all variables of the statement are checked with a single grouped request
+	 * (see {@link #evaluateGroupedCheck(CheckStatementPattern, List)}), the remaining ones are
+	 * evaluated as a single bound join block (see {@link #evaluateBoundJoinStatementPattern(StatementTupleExpr, List)})
+	 * and each result is mapped back to the input binding it extends.
+	 * 
+	 * @param stmt
+	 * @param bindings
+	 * @param minusSemantics
+	 * 			if true, bindings which do not share a variable with the statement are kept (MINUS)
+	 * @return the result iteration
+	 * @throws QueryEvaluationException
+	 */
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluateGroupedAntiJoin(StatementTupleExpr stmt, final List<BindingSet> bindings, boolean minusSemantics) throws QueryEvaluationException {
+		
+		Set<BindingSet> matched = Collections.newSetFromMap(new IdentityHashMap<BindingSet, Boolean>());
+		List<BindingSet> checkBindings = new ArrayList<BindingSet>(bindings.size());
+		List<BindingSet> boundJoinBindings = new ArrayList<BindingSet>();
+		
+		for (BindingSet b : bindings) {
+			// MINUS does not remove solutions with disjoint domains
+			if (minusSemantics && !sharesVariable((StatementPattern)stmt, b))
+				continue;
+			if (stmt.hasFreeVarsFor(b))
+				boundJoinBindings.add(b);
+			else
+				checkBindings.add(b);
+		}
+		
+		if (!boundJoinBindings.isEmpty()) {
+			// input bindings by their binding names and values, a result extends its input binding
+			Map<Set<String>, Map<BindingSet, List<BindingSet>>> inputs = new HashMap<Set<String>, Map<BindingSet, List<BindingSet>>>();
+			for (BindingSet b : boundJoinBindings) {
+				Set<String> names = new HashSet<String>(b.getBindingNames());
+				Map<BindingSet, List<BindingSet>> byValues = inputs.get(names);
+				if (byValues==null) {
+					byValues = new HashMap<BindingSet, List<BindingSet>>();
+					inputs.put(names, byValues);
+				}
+				BindingSet key = new QueryBindingSet(b);
+				List<BindingSet> equal = byValues.get(key);
+				if (equal==null) {
+					equal = new ArrayList<BindingSet>(1);
+					byValues.put(key, equal);
+				}
+				equal.add(b);
+			}
+			
+			CloseableIteration<BindingSet, QueryEvaluationException> res = evaluateBoundJoinStatementPattern(stmt, boundJoinBindings);
+			try {
+				while (res.hasNext()) {
+					BindingSet r = res.next();
+					for (Entry<Set<String>, Map<BindingSet, List<BindingSet>>> e : inputs.entrySet()) {
+						List<BindingSet> equal = e.getValue().get(project(r, e.getKey()));
+						if (equal!=null)
+							matched.addAll(equal);
+					}
+				}
+			} finally {
+				res.close();
+			}
+		}
+		
+		if (!checkBindings.isEmpty()) {
+			CloseableIteration<BindingSet, QueryEvaluationException> res = evaluateGroupedCheck(new CheckStatementPattern(stmt), checkBindings);
+			try {
+				while (res.hasNext())
+					matched.add(res.next());
+			} finally {
+				res.close();
+			}
+		}
+		
+		if (matched.isEmpty())
+			return new CollectionIteration<BindingSet, QueryEvaluationException>(bindings);
+		
+		List<BindingSet> result = new ArrayList<BindingSet>(bindings.size()-matched.size());
+		for (BindingSet b : bindings) {
+			if (!matched.contains(b))
+				result.add(b);
+		}
+		if (result.isEmpty())
+			return new EmptyIteration<BindingSet, QueryEvaluationException>();
+		return new CollectionIteration<BindingSet, QueryEvaluationException>(result);
+	}
+	
+	/**
+	 * Returns true if the vectored anti join can be applied for the given (right) argument, i.e.
+	 * if it is a single statement which is not an {@link EmptyResult} and which has no filter
+	 * attached.
+	 * 
+	 * @param expr
+	 * @return whether the anti join can be evaluated using grouped checks
+	 */
+	protected boolean canApplyVectoredAntiJoin(TupleExpr expr) {
+		if (!(expr instanceof StatementTupleExpr) || !(expr instanceof StatementPattern))
+			return false;
+		if (expr instanceof EmptyResult)
+			return false;
+		if (expr instanceof FilterTuple && ((FilterTuple)expr).hasFilter())
+			return false;
+		return true;
+	}
+	
+	private static BindingSet project(BindingSet bindings, Set<String> names) {
+		QueryBindingSet res = new QueryBindingSet(names.size());
+		for (String name : names) {
+			Value value = bindings.getValue(name);
+			if (value==null)
+				return null;
+			res.addBinding(name, value);
+		}
+		return res;
+	}
+	
+	private static boolean sharesVariable(StatementPattern stmt, BindingSet bindings) {
+		for (Var var : stmt.getVarList()) {
+			if (!var.hasValue() && bindings.hasBinding(var.getName()))
+				return true;
+		}
+		return false;
+	}
+	
 	public abstract CloseableIteration<BindingSet, QueryEvaluationException> evaluateIndependentJoinGroup(IndependentJoinGroup joinGroup, final BindingSet bindings) throws QueryEvaluationException; 
 	
 	public abstract CloseableIteration<BindingSet, QueryEvaluationException> evaluateIndependentJoinGroup(IndependentJoinGroup joinGroup, final List<BindingSet> bindings) throws QueryEvaluationException;
@@ -422,16 +875,20 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 		throw new RuntimeException("Unsupported type for prepared query: " + preparedQuery.getClass().getCanonicalName());
 	}
 	
-	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateAtStatementSources(String preparedQuery, List<StatementSource> statementSources, QueryInfo queryInfo) throws QueryEvaluationException {
+	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateAtStatementSources(final String preparedQuery, List<StatementSource> statementSources, QueryInfo queryInfo) throws QueryEvaluationException {
 		
 		try {
 			CloseableIteration<BindingSet, QueryEvaluationException> result;
 			
 			if (statementSources.size()==1) {				
 				Endpoint ownedEndpoint = EndpointManager.getEndpointManager().getEndpoint(statementSources.get(0).getEndpointID());
-				RepositoryConnection conn = ownedEndpoint.getConn();
-				com.fluidops.fedx.evaluation.TripleSource t = ownedEndpoint.getTripleSource();
-				result = t.getStatements(preparedQuery, conn, EmptyBindingSet.getInstance(), null);
+				// hedged if the endpoint has replicas, e.g. for bound join tasks
+				result = HedgedRequest.execute(ownedEndpoint, new HedgedRequest.Request() {
+					@Override
+					public CloseableIteration<BindingSet, QueryEvaluationException> perform(Endpoint e) throws Exception {
+						return e.getTripleSource().getStatements(preparedQuery, e.getConn(), EmptyBindingSet.getInstance(), null);
+					}
+				});
 			} 
 			 
 			else {			
@@ -447,7 +904,9 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 				union.run();				
 				result = union;
 				
-				// TODO we should add some DISTINCT here to have SET semantics
+				// set semantics if the query permits (e.g. DISTINCT projection)
+				if (queryInfo.isDuplicateElimination())
+					result = new FingerprintDistinctIteration(result);
 			}
 		
 			return result;
@@ -483,7 +942,9 @@ public abstract class FederationEvalStrategy extends StrictEvaluationStrategy {
 				union.run();				
 				result = union;
 				
-				// TODO we should add some DISTINCT here to have SET semantics
+				// set semantics if the query permits (e.g. DISTINCT projection)
+				if (queryInfo.isDuplicateElimination())
+					result = new FingerprintDistinctIteration(result);
 			}
 		
 			return result;
@@ -15,18 +15,24 @@
  */
 package com.fluidops.fedx.evaluation;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 
+import com.fluidops.fedx.Config;
+import com.fluidops.fedx.EndpointManager;
+import com.fluidops.fedx.FederationManager;
 import com.fluidops.fedx.algebra.CheckStatementPattern;
 import com.fluidops.fedx.algebra.ExclusiveGroup;
 import com.fluidops.fedx.algebra.FilterTuple;
@@ -35,12 +41,14 @@ import com.fluidops.fedx.algebra.IndependentJoinGroup;
 import com.fluidops.fedx.algebra.StatementSource;
 import com.fluidops.fedx.algebra.StatementTupleExpr;
 import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.iterator.BloomFilterIteration;
 import com.fluidops.fedx.evaluation.iterator.BoundJoinConversionIteration;
 import com.fluidops.fedx.evaluation.iterator.FilteringIteration;
 import com.fluidops.fedx.evaluation.iterator.GroupedCheckConversionIteration;
-import com.fluidops.fedx.evaluation.iterator.IndependentJoingroupBindingsIteration;
 import com.fluidops.fedx.evaluation.iterator.IndependentJoingroupBindingsIteration3;
 import com.fluidops.fedx.evaluation.join.ControlledWorkerJoin;
+import com.fluidops.fedx.evaluation.join.ForkJoinJoin;
+import com.fluidops.fedx.structures.Endpoint;
 import com.fluidops.fedx.structures.QueryInfo;
 import com.fluidops.fedx.util.QueryAlgebraUtil;
 import com.fluidops.fedx.util.QueryStringUtil;
@@ -53,7 +61,8 @@ import com.fluidops.fedx.util.QueryStringUtil;
  * created in the internal representation used by Sesame. This is necessary
  * to avoid String parsing overhead.  
  * 
- * Joins are executed using {@link ControlledWorkerJoin}
+ * Joins are executed using {@link ControlledWorkerJoin}, or using {@link ForkJoinJoin}
+ * if {@link Config#isEnableForkJoin()} is set.
  * @author Andreas Schwarte
  *
  */
@@ -66,14 +75,10 @@ public class SailFederationEvalStrategy extends FederationEvalStrategy {
 	
 	
 	@Override
-	public CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(
-			StatementTupleExpr stmt, List<BindingSet> bindings)
+	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(
+			StatementTupleExpr stmt, List<BindingSet> bindings, List<StatementSource> statementSources)
 			throws QueryEvaluationException {
 				
-		// we can omit the bound join handling
-		if (bindings.size()==1)
-			return evaluate(stmt, bindings.get(0));
-				
 		FilterValueExpr filterExpr = null;
 		if (stmt instanceof FilterTuple)
 			filterExpr = ((FilterTuple)stmt).getFilterExpr();
@@ -81,7 +86,7 @@ public class SailFederationEvalStrategy extends FederationEvalStrategy {
 		Boolean isEvaluated = false;
 		TupleExpr preparedQuery = QueryAlgebraUtil.selectQueryBoundUnion((StatementPattern)stmt, bindings, filterExpr, isEvaluated);
 		
-		CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateAtStatementSources(preparedQuery, stmt.getStatementSources(), stmt.getQueryInfo());
+		CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateAtStatementSources(preparedQuery, statementSources, stmt.getQueryInfo());
 						
 		// apply filter and/or convert to original bindings
 		if (filterExpr!=null && !isEvaluated) {
@@ -118,20 +123,8 @@ public class SailFederationEvalStrategy extends FederationEvalStrategy {
 			IndependentJoinGroup joinGroup, BindingSet bindings)
 			throws QueryEvaluationException {
 			
-		TupleExpr preparedQuery = QueryAlgebraUtil.selectQueryIndependentJoinGroup(joinGroup, bindings);
-		
-		try {
-			List<StatementSource> statementSources = joinGroup.getMembers().get(0).getStatementSources();	// TODO this is only correct for the prototype (=> different endpoints)
-			CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateAtStatementSources(preparedQuery, statementSources, joinGroup.getQueryInfo());
-						
-			// return only those elements which evaluated positively at the endpoint
-			result = new IndependentJoingroupBindingsIteration(result, bindings);
-			
-			return result;
-		} catch (Exception e) {
-			throw new QueryEvaluationException(e);
-		}
-
+		// evaluated as bound join group with a single binding, i.e. results are streamed
+		return evaluateIndependentJoinGroup(joinGroup, Collections.singletonList(bindings));
 	}
 
 
@@ -164,6 +157,12 @@ public class SailFederationEvalStrategy extends FederationEvalStrategy {
 			TupleExpr rightArg, BindingSet bindings, QueryInfo queryInfo)
 			throws QueryEvaluationException {
 		
+		if (Config.getConfig().isEnableForkJoin()) {
+			ForkJoinJoin join = new ForkJoinJoin(FederationManager.getInstance().getForkJoinPool(), this, leftIter, rightArg, bindings, queryInfo);
+			executor.execute(join);
+			return join;
+		}
+		
 		ControlledWorkerJoin join = new ControlledWorkerJoin(joinScheduler, this, leftIter, rightArg, bindings, queryInfo);
 		executor.execute(join);
 		return join;
@@ -188,4 +187,34 @@ public class SailFederationEvalStrategy extends FederationEvalStrategy {
 	}	
 		
 	
+	
+	
+	/**
+	 * Local members are evaluated in a single scan, the results are filtered by
+	 * a {@link BloomFilterIteration} over all join keys.
+	 */
+	@Override
+	public int getSemiJoinBlockSize() {
+		return Integer.MAX_VALUE;
+	}
+
+
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluateExclusiveGroupSemiJoin(
+			ExclusiveGroup group, List<String> joinVars, List<List<Value>> keys)
+			throws QueryEvaluationException {
+		
+		Boolean isEvaluated = false;
+		
+		try {
+			TupleExpr preparedQuery = QueryAlgebraUtil.selectQuery(group, EmptyBindingSet.getInstance(), group.getFilterExpr(), isEvaluated);
+			Endpoint ownedEndpoint = EndpointManager.getEndpointManager().getEndpoint(group.getOwner().getEndpointID());
+			CloseableIteration<BindingSet, QueryEvaluationException> result = ownedEndpoint.getTripleSource().getStatements(preparedQuery, ownedEndpoint.getConn(), EmptyBindingSet.getInstance(), (isEvaluated ? null : group.getFilterExpr()));
+			return new BloomFilterIteration(result, joinVars, BloomFilterIteration.createBloomFilter(keys));
+		} catch (RepositoryException e) {
+			throw new QueryEvaluationException(e);
+		} catch (MalformedQueryException e) {
+			throw new QueryEvaluationException(e);
+		}
+	}
 }
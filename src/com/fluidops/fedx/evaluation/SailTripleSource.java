@@ -73,6 +73,7 @@ public class SailTripleSource extends TripleSourceBase implements TripleSource{
 		
 		TupleQuery query = conn.prepareTupleQuery(QueryLanguage.SPARQL, preparedQuery, null);
 		disableInference(query);		
+		applyMaxExecutionTime(query);
 		
 		// evaluate the query
 		CloseableIteration<BindingSet, QueryEvaluationException> res = query.evaluate();
@@ -15,18 +15,22 @@
  */
 package com.fluidops.fedx.evaluation;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 
+import com.fluidops.fedx.EndpointManager;
 import com.fluidops.fedx.algebra.CheckStatementPattern;
 import com.fluidops.fedx.algebra.ExclusiveGroup;
 import com.fluidops.fedx.algebra.FilterTuple;
@@ -38,11 +42,11 @@ import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
 import com.fluidops.fedx.evaluation.iterator.BoundJoinConversionIteration;
 import com.fluidops.fedx.evaluation.iterator.FilteringIteration;
 import com.fluidops.fedx.evaluation.iterator.GroupedCheckConversionIteration;
-import com.fluidops.fedx.evaluation.iterator.IndependentJoingroupBindingsIteration;
 import com.fluidops.fedx.evaluation.iterator.IndependentJoingroupBindingsIteration3;
 import com.fluidops.fedx.evaluation.iterator.SingleBindingSetIteration;
 import com.fluidops.fedx.evaluation.join.ControlledWorkerBoundJoin;
 import com.fluidops.fedx.exception.IllegalQueryException;
+import com.fluidops.fedx.structures.Endpoint;
 import com.fluidops.fedx.structures.QueryInfo;
 import com.fluidops.fedx.util.QueryStringUtil;
 
@@ -67,14 +71,10 @@ public class SparqlFederationEvalStrategy extends FederationEvalStrategy {
 	
 	
 	@Override
-	public CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(
-			StatementTupleExpr stmt, List<BindingSet> bindings)
+	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(
+			StatementTupleExpr stmt, List<BindingSet> bindings, List<StatementSource> statementSources)
 			throws QueryEvaluationException {
 		
-		// we can omit the bound join handling
-		if (bindings.size()==1)
-			return evaluate(stmt, bindings.get(0));
-				
 		FilterValueExpr filterExpr = null;
 		if (stmt instanceof FilterTuple)
 			filterExpr = ((FilterTuple)stmt).getFilterExpr();
@@ -82,7 +82,7 @@ public class SparqlFederationEvalStrategy extends FederationEvalStrategy {
 		Boolean isEvaluated = false;
 		String preparedQuery = QueryStringUtil.selectQueryStringBoundUnion((StatementPattern)stmt, bindings, filterExpr, isEvaluated);
 		
-		CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateAtStatementSources(preparedQuery, stmt.getStatementSources(), stmt.getQueryInfo());
+		CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateAtStatementSources(preparedQuery, statementSources, stmt.getQueryInfo());
 						
 		// apply filter and/or convert to original bindings
 		if (filterExpr!=null && !isEvaluated) {
@@ -119,20 +119,8 @@ public class SparqlFederationEvalStrategy extends FederationEvalStrategy {
 			IndependentJoinGroup joinGroup, BindingSet bindings)
 			throws QueryEvaluationException {
 			
-		String preparedQuery = QueryStringUtil.selectQueryStringIndependentJoinGroup(joinGroup, bindings);
-		
-		try {
-			List<StatementSource> statementSources = joinGroup.getMembers().get(0).getStatementSources();	// TODO this is only correct for the prototype (=> different endpoints)
-			CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateAtStatementSources(preparedQuery, statementSources, joinGroup.getQueryInfo());
-						
-			// return only those elements which evaluated positively at the endpoint
-			result = new IndependentJoingroupBindingsIteration(result, bindings);
-			
-			return result;
-		} catch (Exception e) {
-			throw new QueryEvaluationException(e);
-		}
-
+		// evaluated as bound join group with a single binding, i.e. results are streamed
+		return evaluateIndependentJoinGroup(joinGroup, Collections.singletonList(bindings));
 	}
 
 
@@ -190,4 +178,21 @@ public class SparqlFederationEvalStrategy extends FederationEvalStrategy {
 		}		
 		
 	}
+	
+	
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> evaluateExclusiveGroupSemiJoin(
+			ExclusiveGroup group, List<String> joinVars, List<List<Value>> keys)
+			throws QueryEvaluationException {
+		
+		Boolean isEvaluated = false;
+		
+		try {
+			String preparedQuery = QueryStringUtil.selectQueryStringSemiJoinVALUES(group, joinVars, keys, group.getFilterExpr(), isEvaluated);
+			Endpoint ownedEndpoint = EndpointManager.getEndpointManager().getEndpoint(group.getOwner().getEndpointID());
+			return ownedEndpoint.getTripleSource().getStatements(preparedQuery, ownedEndpoint.getConn(), EmptyBindingSet.getInstance(), (isEvaluated ? null : group.getFilterExpr()));
+		} catch (Exception e) {
+			throw new QueryEvaluationException(e);
+		}
+	}
 }
@@ -25,6 +25,7 @@ import org.eclipse.rdf4j.query.algebra.StatementPattern;
 
 import com.fluidops.fedx.algebra.FilterTuple;
 import com.fluidops.fedx.algebra.FilterValueExpr;
+import com.fluidops.fedx.algebra.StatementSource;
 import com.fluidops.fedx.algebra.StatementTupleExpr;
 import com.fluidops.fedx.evaluation.iterator.BoundJoinConversionIteration;
 import com.fluidops.fedx.evaluation.iterator.BoundJoinVALUESConversionIteration;
@@ -52,14 +53,10 @@ public class SparqlFederationEvalStrategyWithValues extends SparqlFederationEval
 	
 	
 	@Override
-	public CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(
-			StatementTupleExpr stmt, List<BindingSet> bindings)
+	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(
+			StatementTupleExpr stmt, List<BindingSet> bindings, List<StatementSource> statementSources)
 			throws QueryEvaluationException {
 		
-		// we can omit the bound join handling
-		if (bindings.size()==1)
-			return evaluate(stmt, bindings.get(0));
-				
 		FilterValueExpr filterExpr = null;
 		if (stmt instanceof FilterTuple)
 			filterExpr = ((FilterTuple)stmt).getFilterExpr();
@@ -67,7 +64,7 @@ public class SparqlFederationEvalStrategyWithValues extends SparqlFederationEval
 		Boolean isEvaluated = false;
 		String preparedQuery = QueryStringUtil.selectQueryStringBoundJoinVALUES((StatementPattern)stmt, bindings, filterExpr, isEvaluated);
 		
-		CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateAtStatementSources(preparedQuery, stmt.getStatementSources(), stmt.getQueryInfo());
+		CloseableIteration<BindingSet, QueryEvaluationException> result = evaluateAtStatementSources(preparedQuery, statementSources, stmt.getQueryInfo());
 						
 		// apply filter and/or convert to original bindings
 		if (filterExpr!=null && !isEvaluated) {
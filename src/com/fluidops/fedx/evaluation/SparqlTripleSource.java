@@ -59,7 +59,8 @@ import com.fluidops.fedx.util.QueryStringUtil;
  * defining whether ASK queries are to be used for source selection.
  * 
  * The query result of {@link #getStatements(String, RepositoryConnection, BindingSet, FilterValueExpr)}
- * is wrapped in a {@link ConsumingIteration} to avoid blocking behavior..
+ * is wrapped in a {@link ConsumingIteration}, which reads the results ahead in the background
+ * and releases the connection as soon as possible.
  * 
  * @author Andreas Schwarte
  *
@@ -85,6 +86,7 @@ public class SparqlTripleSource extends TripleSourceBase implements TripleSource
 		
 		TupleQuery query = conn.prepareTupleQuery(QueryLanguage.SPARQL, preparedQuery, null);
 		disableInference(query);
+		applyMaxExecutionTime(query);
 		
 		CloseableIteration<BindingSet, QueryEvaluationException> res=null;
 		try {			
@@ -152,6 +154,7 @@ public class SparqlTripleSource extends TripleSourceBase implements TripleSource
 			String queryString = QueryStringUtil.askQueryString(stmt, bindings);
 			BooleanQuery query = conn.prepareBooleanQuery(QueryLanguage.SPARQL, queryString, null);
 			disableInference(query);
+			applyMaxExecutionTime(query);
 			
 			try {
 				monitorRemoteRequest();
@@ -166,6 +169,7 @@ public class SparqlTripleSource extends TripleSourceBase implements TripleSource
 			String queryString = QueryStringUtil.selectQueryStringLimit1(stmt, bindings);
 			TupleQuery query = conn.prepareTupleQuery(QueryLanguage.SPARQL, queryString);
 			disableInference(query);
+			applyMaxExecutionTime(query);
 			
 			TupleQueryResult qRes = null;
 			try {
@@ -195,6 +199,7 @@ public class SparqlTripleSource extends TripleSourceBase implements TripleSource
 			String queryString = QueryStringUtil.selectQueryStringLimit1(group, bindings);
 			TupleQuery query = conn.prepareTupleQuery(QueryLanguage.SPARQL, queryString);
 			disableInference(query);
+			applyMaxExecutionTime(query);
 			
 			TupleQueryResult qRes = null;
 			try {
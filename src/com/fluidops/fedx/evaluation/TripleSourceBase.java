@@ -26,6 +26,7 @@ import org.eclipse.rdf4j.query.GraphQuery;
 import org.eclipse.rdf4j.query.MalformedQueryException;
 import org.eclipse.rdf4j.query.Query;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
 import org.eclipse.rdf4j.query.QueryLanguage;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
@@ -37,6 +38,7 @@ import com.fluidops.fedx.evaluation.iterator.GraphToBindingSetConversionIteratio
 import com.fluidops.fedx.evaluation.iterator.SingleBindingSetIteration;
 import com.fluidops.fedx.monitoring.Monitoring;
 import com.fluidops.fedx.structures.Endpoint;
+import com.fluidops.fedx.structures.QueryInfo;
 import com.fluidops.fedx.structures.QueryType;
 import com.fluidops.fedx.util.QueryStringUtil;
 
@@ -63,16 +65,19 @@ public abstract class TripleSourceBase implements TripleSource
 			monitorRemoteRequest();
 			TupleQuery tQuery = conn.prepareTupleQuery(QueryLanguage.SPARQL, preparedQuery);
 			disableInference(tQuery);
+			applyMaxExecutionTime(tQuery);
 			return tQuery.evaluate();
 		case CONSTRUCT:
 			monitorRemoteRequest();
 			GraphQuery gQuery = conn.prepareGraphQuery(QueryLanguage.SPARQL, preparedQuery);
 			disableInference(gQuery);
+			applyMaxExecutionTime(gQuery);
 			return new GraphToBindingSetConversionIteration(gQuery.evaluate());
 		case ASK:
 			monitorRemoteRequest();
 			BooleanQuery bQuery = conn.prepareBooleanQuery(QueryLanguage.SPARQL, preparedQuery);
 			disableInference(bQuery);
+			applyMaxExecutionTime(bQuery);
 			return booleanToBindingSetIteration(bQuery.evaluate());
 		default:
 			throw new UnsupportedOperationException(
@@ -123,4 +128,21 @@ public abstract class TripleSourceBase implements TripleSource
 		} catch (Exception e) { }
 	}
 	
+	/**
+	 * Apply the remaining time of the query that is evaluated by the current
+	 * thread (see {@link QueryInfo#getCurrent()}) as maximum execution time
+	 * to the given query. Nothing is done if the query has no deadline.
+	 * 
+	 * @param query
+	 * @throws QueryInterruptedException if the deadline has already passed
+	 */
+	protected void applyMaxExecutionTime(Query query) throws QueryInterruptedException {
+		QueryInfo queryInfo = QueryInfo.getCurrent();
+		if (queryInfo==null || !queryInfo.hasDeadline())
+			return;
+		queryInfo.checkDeadline();
+		// max execution time is specified in seconds, round up
+		long remainingSeconds = (queryInfo.getRemainingTime() + 999) / 1000;
+		query.setMaxExecutionTime((int) Math.min(Integer.MAX_VALUE, Math.max(1, remainingSeconds)));
+	}
 }
@@ -15,6 +15,7 @@
  */
 package com.fluidops.fedx.evaluation;
 
+import com.fluidops.fedx.Config;
 import com.fluidops.fedx.structures.Endpoint;
 import com.fluidops.fedx.structures.Endpoint.EndpointType;
 
@@ -27,6 +28,8 @@ public class TripleSourceFactory
 		case NativeStore:
 			return new SailTripleSource(e);
 		case SparqlEndpoint:
+			if (Config.getConfig().isEnableAsyncSparqlRequests() && AsyncSparqlClient.supports(e.getEndpoint()))
+				return new AsyncSparqlTripleSource(e);
 			return new SparqlTripleSource(e);
 		case RemoteRepository:
 			return new SparqlTripleSource(e);
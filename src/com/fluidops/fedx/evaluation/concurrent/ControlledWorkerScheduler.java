@@ -16,20 +16,30 @@
 package com.fluidops.fedx.evaluation.concurrent;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
 
+import com.fluidops.fedx.Config;
 import com.fluidops.fedx.evaluation.join.ControlledWorkerBoundJoin;
 import com.fluidops.fedx.evaluation.join.ControlledWorkerJoin;
 import com.fluidops.fedx.evaluation.union.ControlledWorkerUnion;
 import com.fluidops.fedx.exception.FedXRuntimeException;
+import com.fluidops.fedx.structures.Endpoint;
+import com.fluidops.fedx.structures.QueryInfo;
 
 
 
@@ -39,6 +49,22 @@ import com.fluidops.fedx.exception.FedXRuntimeException;
  * notified a worker picks the next task from the queue and executes it. The results
  * is then returned to the controlling instance retrieved from the task.
  * 
+ * If {@link Config#isEnableFairScheduling()} is set, the tasks are managed in a
+ * {@link FairTaskQueue}, i.e. tasks of different queries are dequeued in a weighted
+ * round robin fashion according to the query priority.
+ * 
+ * Tasks implementing {@link EndpointTask} are subject to the concurrency limit of 
+ * their endpoint: if the endpoint is saturated, the task is parked in the endpoint's
+ * {@link EndpointRequestLimiter} and rescheduled once a slot is free.
+ * 
+ * The scheduler keeps track of the queued and running tasks of each control instance.
+ * Aborting a control (or all controls of a query) removes its queued tasks and interrupts
+ * the running ones. Aborted tasks signal {@link ParallelExecutor#done()} to their control,
+ * results produced by aborted tasks are closed immediately.
+ * 
+ * Tasks of queries which exceeded their deadline (see {@link QueryInfo#getDeadline()}) are
+ * not started but fail with a {@link QueryInterruptedException}.
+ * 
  * 
  * @author Andreas Schwarte
  * 
@@ -53,8 +79,10 @@ public class ControlledWorkerScheduler<T> implements Scheduler<T> {
 	
 	protected ExecutorService executor;
 
-	protected LinkedBlockingQueue<Runnable> _taskQueue = new LinkedBlockingQueue<>();
+	protected BlockingQueue<Runnable> _taskQueue;
 
+	/* the unfinished tasks per control instance, access must be synchronized on the map */
+	protected final Map<ParallelExecutor<T>, ControlStatus> controlStatus = new HashMap<ParallelExecutor<T>, ControlStatus>();
 
 
 	protected int nWorkers;
@@ -93,8 +121,9 @@ public class ControlledWorkerScheduler<T> implements Scheduler<T> {
 	public void schedule(ParallelTask<T> task) {
 		
 		WorkerRunnable runnable = new WorkerRunnable(task);
+		registerTask(runnable);
 
-		executor.submit(runnable);
+		executor.execute(runnable);
 		// TODO rejected execution exception?
 		
 	}	
@@ -129,10 +158,87 @@ public class ControlledWorkerScheduler<T> implements Scheduler<T> {
 	
 	protected void initWorkerThreads() {
 
+		_taskQueue = createTaskQueue();
 		executor = new ThreadPoolExecutor(Math.min(10, nWorkers / 2), nWorkers, 30L, TimeUnit.SECONDS, _taskQueue,
 				new NamingThreadFactory(name));
 	}
 	
+	/**
+	 * Create the task queue of this scheduler: a {@link FairTaskQueue} if 
+	 * {@link Config#isEnableFairScheduling()} is set, a FIFO queue otherwise.
+	 * 
+	 * @return the task queue
+	 */
+	protected BlockingQueue<Runnable> createTaskQueue() {
+		if (Config.getConfig().isEnableFairScheduling())
+			return new FairTaskQueue();
+		return new LinkedBlockingQueue<Runnable>();
+	}
+	
+	/**
+	 * Register the given task with the status of its control instance, such that
+	 * it can be aborted.
+	 * 
+	 * @param task
+	 */
+	protected void registerTask(WorkerRunnable task) {
+		ParallelExecutor<T> control = task.task.getControl();
+		synchronized (controlStatus) {
+			ControlStatus status = controlStatus.get(control);
+			if (status==null) {
+				status = new ControlStatus();
+				controlStatus.put(control, status);
+			}
+			status.tasks.add(task);
+		}
+	}
+	
+	/**
+	 * Remove the given (finished or aborted) task from the status of its control
+	 * instance.
+	 * 
+	 * @param task
+	 */
+	protected void unregisterTask(WorkerRunnable task) {
+		ParallelExecutor<T> control = task.task.getControl();
+		synchronized (controlStatus) {
+			ControlStatus status = controlStatus.get(control);
+			if (status==null) {
+				return;
+			}
+			status.tasks.remove(task);
+			if (status.tasks.isEmpty()) {
+				if (status.done && log.isTraceEnabled()) {
+					log.trace("All tasks of control " + control + " are finished.");
+				}
+				controlStatus.remove(control);
+			}
+		}
+	}
+	
+	/**
+	 * Abort the given tasks: queued tasks are removed from the queue, running tasks
+	 * are interrupted.
+	 * 
+	 * @param tasks
+	 */
+	protected void abortTasks(List<WorkerRunnable> tasks) {
+		for (WorkerRunnable t : tasks) {
+			_taskQueue.remove(t);
+			t.abort();
+		}
+	}
+	
+	/**
+	 * Put a task back to the scheduler, e.g. after the queue was drained in
+	 * {@link #abort(int)}.
+	 * 
+	 * @param task
+	 */
+	protected void reschedule(Runnable task) {
+		executor.execute(task);
+	}
+	
 	@Override
 	public void abort() {
 		log.info("Aborting workers of " + name + ".");
@@ -153,27 +259,19 @@ public class ControlledWorkerScheduler<T> implements Scheduler<T> {
 	 * 
 	 * @param control
 	 */
-	@SuppressWarnings("unchecked")
 	public void abort(ParallelExecutor<T> control) {
-		log.debug("Aborting tasks for executor " + control + " due to previous error.");
-
-		if (control.isFinished())
-		{
-			log.debug("Join executor is already finished or aborted, no tasks are aborted.");
-			return;
-		}
 
-		List<Runnable> allTasks = new ArrayList<>();
-		_taskQueue.drainTo(allTasks);
-		for (Runnable t : allTasks)
-		{
-			WorkerRunnable wt = ((WorkerRunnable) t);
-			if (wt.task.getControl().equals(control))
-			{
-				continue;
+		List<WorkerRunnable> tasks;
+		synchronized (controlStatus) {
+			ControlStatus status = controlStatus.remove(control);
+			if (status==null) {
+				return;
 			}
-			executor.submit(t);
+			tasks = new ArrayList<WorkerRunnable>(status.tasks);
 		}
+		
+		log.debug("Aborting " + tasks.size() + " tasks for executor " + control + ".");
+		abortTasks(tasks);
 	}
 	
 	/**
@@ -182,23 +280,20 @@ public class ControlledWorkerScheduler<T> implements Scheduler<T> {
 	 * @param queryId
 	 * 			the valid queryId or -1 if not available
 	 */
-	@SuppressWarnings("unchecked")
 	public void abort(int queryId) {
 		log.debug("Aborting tasks for query with id " + queryId + ".");
 		if (queryId<0)
 			return;
 		
-		List<Runnable> allTasks = new ArrayList<>();
-		_taskQueue.drainTo(allTasks);
-		for (Runnable t : allTasks)
-		{
-			WorkerRunnable wt = ((WorkerRunnable) t);
-			if (wt.task.getControl().getQueryId() == queryId)
-			{
-				continue;
+		List<WorkerRunnable> tasks = new ArrayList<WorkerRunnable>();
+		synchronized (controlStatus) {
+			for (ParallelExecutor<T> control : new ArrayList<ParallelExecutor<T>>(controlStatus.keySet())) {
+				if (control.getQueryId()==queryId) {
+					tasks.addAll(controlStatus.remove(control).tasks);
+				}
 			}
-			executor.submit(t);
 		}
+		abortTasks(tasks);
 	}
 	
 
@@ -226,8 +321,12 @@ public class ControlledWorkerScheduler<T> implements Scheduler<T> {
 	 * @param control
 	 */
 	public void informFinish(ParallelExecutor<T> control) {
-		
-		// TODO
+		synchronized (controlStatus) {
+			ControlStatus status = controlStatus.get(control);
+			if (status!=null) {
+				status.done = true;
+			}
+		}
 	}
 	
 
@@ -247,7 +346,10 @@ public class ControlledWorkerScheduler<T> implements Scheduler<T> {
 	 * 		true, if there are unfinished tasks, false otherwise
 	 */
 	public boolean isRunning(ParallelExecutor<T> control) {
-		return true; // TODO
+		synchronized (controlStatus) {
+			ControlStatus status = controlStatus.get(control);
+			return status!=null && !status.tasks.isEmpty();
+		}
 	}
 	
 	
@@ -259,13 +361,17 @@ public class ControlledWorkerScheduler<T> implements Scheduler<T> {
 
 	
 	
-	protected class WorkerRunnable implements Runnable {
+	protected class WorkerRunnable implements Runnable, FairTaskQueue.QueryTask {
 
 		protected final ParallelTask<T> task;
 		
-		protected boolean inTask = false;
-
-		protected boolean aborted = false;
+		protected volatile boolean aborted = false;
+		
+		/* the thread currently performing the task, access must be synchronized */
+		protected Thread runner = null;
+		
+		/* true once the control has been informed about the outcome of this task */
+		protected final AtomicBoolean signalled = new AtomicBoolean(false);
 		
 		public WorkerRunnable(ParallelTask<T> task)
 		{
@@ -277,39 +383,129 @@ public class ControlledWorkerScheduler<T> implements Scheduler<T> {
 		@Override
 		public void run()
 		{
+			EndpointRequestLimiter limiter = getRequestLimiter();
+			
 			if (aborted)
 			{
+				// the task may have been resumed by the limiter: pass the free slot on
+				if (limiter!=null)
+				{
+					limiter.resumeNext();
+				}
 				return;
 			}
 
+			if (limiter!=null && !limiter.tryAcquire(new Runnable() {
+						@Override
+						public void run() {
+							reschedule(WorkerRunnable.this);
+						}
+					}))
+			{
+				// the endpoint is saturated: the task is parked without holding the worker
+				return;
+			}
+			EndpointRequestLimiter.Slot slot = limiter!=null ? limiter.newSlot() : null;
+			
 			ParallelExecutor<T> taskControl = task.getControl();
 			
 			try {
-				inTask = true;
+				synchronized (this) {
+					if (aborted)
+					{
+						return;
+					}
+					runner = Thread.currentThread();
+				}
+				QueryInfo queryInfo = taskControl.getQueryInfo();
+				if (queryInfo!=null)
+				{
+					// do not start tasks of queries which exceeded their deadline
+					queryInfo.checkDeadline();
+				}
 				if (log.isTraceEnabled())
 				{
 					log.trace("Performing task " + task.toString() + " in " + Thread.currentThread().getName());
 				}
+				QueryInfo.setCurrent(queryInfo);
+				EndpointRequestLimiter.setCurrentSlot(slot);
 				CloseableIteration<T, QueryEvaluationException> res = task.performTask();
-				inTask = false;
+				if (!signalled.compareAndSet(false, true))
+				{
+					// the task was aborted in the meantime: release the result
+					res.close();
+					return;
+				}
 				taskControl.addResult(res);						
 
 				taskControl.done();		// in most cases this is a no-op
 			} catch (Exception e) {
-				if (aborted)
+				if (aborted || !signalled.compareAndSet(false, true))
 				{
 					return;
 				}
 				log.warn("Exception encountered while evaluating task (" + e.getClass().getSimpleName() + "): " + e.getMessage());
 				taskControl.toss(e);
 				
+			} finally {
+				QueryInfo.setCurrent(null);
+				EndpointRequestLimiter.setCurrentSlot(null);
+				synchronized (this) {
+					runner = null;
+					// do not leak an interrupt of an aborted task to the worker thread
+					Thread.interrupted();
+				}
+				unregisterTask(this);
+				if (slot!=null && !slot.isDeferred())
+				{
+					// a deferred slot is released by the owner of the request, e.g. on close
+					slot.release();
+				}
 			}
 			
 		}
 		
+		protected EndpointRequestLimiter getRequestLimiter()
+		{
+			if (!(task instanceof EndpointTask))
+			{
+				return null;
+			}
+			Endpoint endpoint = ((EndpointTask) task).getEndpoint();
+			return endpoint==null ? null : endpoint.getRequestLimiter();
+		}
+		
+		/**
+		 * Abort this task: a queued task is not executed anymore, a running task is
+		 * interrupted. The control is informed via {@link ParallelExecutor#done()},
+		 * unless the task has already delivered its outcome.
+		 */
 		public void abort()
 		{
-			this.aborted = true;
+			synchronized (this) {
+				this.aborted = true;
+				if (runner!=null)
+				{
+					runner.interrupt();
+				}
+			}
+			if (signalled.compareAndSet(false, true))
+			{
+				task.getControl().done();
+			}
+		}
+		
+		@Override
+		public int getQueryId()
+		{
+			return task.getControl().getQueryId();
+		}
+		
+		@Override
+		public int getPriority()
+		{
+			QueryInfo queryInfo = task.getControl().getQueryInfo();
+			return queryInfo==null ? QueryInfo.DEFAULT_PRIORITY : queryInfo.getPriority();
 		}
 	}
 	
@@ -321,12 +517,8 @@ public class ControlledWorkerScheduler<T> implements Scheduler<T> {
 	 * @author Andreas Schwarte
 	 */
 	protected class ControlStatus {
-		public int waiting;
-		public boolean done;
-		public ControlStatus(int waiting, boolean done) {
-			this.waiting = waiting;
-			this.done = done;
-		}
+		public final Set<WorkerRunnable> tasks = new HashSet<WorkerRunnable>();
+		public boolean done = false;	// true if the control does not submit further tasks
 	}
 	
 	
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.fluidops.fedx.structures.Endpoint;
+
+
+/**
+ * Limits the number of concurrently running tasks for a single {@link Endpoint}, i.e.
+ * acts as a bulkhead for slow endpoints. Tasks exceeding the limit are parked without 
+ * holding a worker: the provided resume action is invoked once a running task of the 
+ * endpoint has finished.<p>
+ * 
+ * By default the slot is released once the task has been performed. A task which 
+ * only initiates the request, e.g. an asynchronous request, can take over the slot
+ * of the current task with {@link #deferRelease()} and release it once the response
+ * has been consumed.
+ * 
+ * @see EndpointTask
+ * @see ControlledWorkerScheduler
+ */
+public class EndpointRequestLimiter {
+
+	/* the slot of the task which is currently performed by a thread, if any */
+	private static final ThreadLocal<Slot> currentSlot = new ThreadLocal<Slot>();
+	
+	/**
+	 * Take over the slot of the task which is currently performed by this thread,
+	 * i.e. the slot is not released when the task is finished. The caller is
+	 * responsible for calling {@link Slot#release()}.
+	 * 
+	 * @return the slot or <code>null</code> if the current task does not hold a slot
+	 */
+	public static Slot deferRelease() {
+		Slot slot = currentSlot.get();
+		if (slot!=null)
+			slot.deferred = true;
+		return slot;
+	}
+	
+	/**
+	 * @return true if the task which is currently performed by this thread holds a slot
+	 */
+	static boolean hasCurrentSlot() {
+		return currentSlot.get()!=null;
+	}
+	
+	/**
+	 * Bind the given slot to the current thread, see {@link #deferRelease()}.
+	 * 
+	 * @param slot
+	 * 			the slot or <code>null</code> to unbind the slot
+	 */
+	static void setCurrentSlot(Slot slot) {
+		if (slot==null)
+			currentSlot.remove();
+		else
+			currentSlot.set(slot);
+	}
+	
+	protected final int maxConcurrentRequests;
+	protected final Queue<Runnable> parked = new ArrayDeque<Runnable>();
+	protected int running = 0;
+	
+	public EndpointRequestLimiter(int maxConcurrentRequests) {
+		this.maxConcurrentRequests = maxConcurrentRequests;
+	}
+	
+	/**
+	 * Try to acquire a slot for a task. If the endpoint is saturated, the resume action
+	 * is parked and invoked after the next {@link #release()}.
+	 * 
+	 * @param resume
+	 * 			the action to reschedule the task
+	 * @return true if the task can be executed, false if it has been parked
+	 */
+	public synchronized boolean tryAcquire(Runnable resume) {
+		if (running < maxConcurrentRequests) {
+			running++;
+			return true;
+		}
+		parked.add(resume);
+		return false;
+	}
+	
+	/**
+	 * Release the slot of a finished task and resume the next parked task, if any.
+	 */
+	public void release() {
+		synchronized (this) {
+			running--;
+		}
+		resumeNext();
+	}
+	
+	/**
+	 * Resume the next parked task if a slot is free. A resumed task which is not
+	 * executed anymore (e.g. because it was aborted in the meantime) must call this 
+	 * method to pass the free slot on to the next parked task.
+	 */
+	public void resumeNext() {
+		Runnable next;
+		synchronized (this) {
+			next = running < maxConcurrentRequests ? parked.poll() : null;
+		}
+		if (next!=null)
+			next.run();
+	}
+	
+	/**
+	 * Create a slot handle for a task which has acquired a slot with {@link #tryAcquire(Runnable)}.
+	 * 
+	 * @return the slot
+	 */
+	public Slot newSlot() {
+		return new Slot(this);
+	}
+	
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+	
+	public synchronized int getNumberOfParkedTasks() {
+		return parked.size();
+	}
+	
+	
+	/**
+	 * An acquired slot of the limiter, which is released at most once.
+	 */
+	public static class Slot {
+		
+		protected final EndpointRequestLimiter limiter;
+		protected final AtomicBoolean released = new AtomicBoolean(false);
+		protected volatile boolean deferred = false;
+		
+		protected Slot(EndpointRequestLimiter limiter) {
+			this.limiter = limiter;
+		}
+		
+		/**
+		 * @return true if the release has been taken over, see {@link EndpointRequestLimiter#deferRelease()}
+		 */
+		public boolean isDeferred() {
+			return deferred;
+		}
+		
+		/**
+		 * Release the slot, subsequent calls have no effect.
+		 */
+		public void release() {
+			if (released.compareAndSet(false, true))
+				limiter.release();
+		}
+	}
+}
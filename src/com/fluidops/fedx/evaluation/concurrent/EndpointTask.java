@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.concurrent;
+
+import com.fluidops.fedx.structures.Endpoint;
+
+
+/**
+ * Interface for {@link ParallelTask}s which send their requests to a single endpoint. The
+ * {@link ControlledWorkerScheduler} uses this information to enforce the concurrency limit
+ * of the endpoint, see {@link Endpoint#getRequestLimiter()}.
+ */
+public interface EndpointTask {
+
+	/**
+	 * @return the endpoint targeted by this task, or <code>null</code> if unknown
+	 */
+	public Endpoint getEndpoint();
+}
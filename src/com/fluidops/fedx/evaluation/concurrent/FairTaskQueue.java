@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fluidops.fedx.structures.QueryInfo;
+
+
+/**
+ * A task queue which maintains a separate FIFO queue per query and dequeues
+ * tasks according to the deficit round robin principle: in each round a query 
+ * may run as many tasks as its priority (see {@link QueryInfo#getPriority()})
+ * before the next query is served. 
+ * 
+ * Thus a query with many tasks (e.g. a large bound join) does not delay the tasks
+ * of other queries, i.e. short interactive queries keep a low latency while heavy
+ * queries are running.
+ * 
+ * Elements which do not implement {@link QueryTask} are assigned to a shared
+ * queue with default priority.
+ * 
+ * @see ControlledWorkerScheduler
+ */
+public class FairTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+	/**
+	 * Interface for tasks that are associated to a query
+	 */
+	public interface QueryTask {
+		
+		/**
+		 * @return the query id, or -1 if unknown
+		 */
+		public int getQueryId();
+		
+		/**
+		 * @return the priority of the query, see {@link QueryInfo#getPriority()}
+		 */
+		public int getPriority();
+	}
+	
+	protected final ReentrantLock lock = new ReentrantLock();
+	protected final Condition notEmpty = lock.newCondition();
+	
+	protected final Map<Integer, TaskQueue> queues = new HashMap<Integer, TaskQueue>();
+	protected final ArrayDeque<TaskQueue> activeQueues = new ArrayDeque<TaskQueue>();
+	protected int count = 0;
+	
+	@Override
+	public boolean offer(Runnable task) {
+		if (task==null)
+			throw new NullPointerException();
+		
+		int queryId = -1;
+		int priority = QueryInfo.DEFAULT_PRIORITY;
+		if (task instanceof QueryTask) {
+			queryId = ((QueryTask)task).getQueryId();
+			priority = ((QueryTask)task).getPriority();
+		}
+		
+		lock.lock();
+		try {
+			TaskQueue queue = queues.get(queryId);
+			if (queue==null) {
+				queue = new TaskQueue(queryId, priority);
+				queues.put(queryId, queue);
+				activeQueues.addLast(queue);
+			}
+			queue.tasks.addLast(task);
+			count++;
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public void put(Runnable task) throws InterruptedException {
+		offer(task);
+	}
+
+	@Override
+	public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+		return offer(task);
+	}
+	
+	@Override
+	public Runnable poll() {
+		lock.lock();
+		try {
+			return count==0 ? null : dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (count==0)
+				notEmpty.await();
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (count==0) {
+				if (nanos<=0)
+					return null;
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public Runnable peek() {
+		lock.lock();
+		try {
+			TaskQueue queue = activeQueues.peekFirst();
+			return queue==null ? null : queue.tasks.peekFirst();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int remainingCapacity() {
+		return Integer.MAX_VALUE;
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c, int maxElements) {
+		lock.lock();
+		try {
+			int n = 0;
+			while (n<maxElements && count>0) {
+				c.add(dequeue());
+				n++;
+			}
+			return n;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		lock.lock();
+		try {
+			for (TaskQueue queue : activeQueues) {
+				if (queue.tasks.remove(o)) {
+					count--;
+					if (queue.tasks.isEmpty())
+						removeQueue(queue);
+					return true;
+				}
+			}
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns an iterator over a snapshot of the queued tasks, which does not 
+	 * support removal.
+	 */
+	@Override
+	public Iterator<Runnable> iterator() {
+		lock.lock();
+		try {
+			List<Runnable> res = new ArrayList<Runnable>(count);
+			for (TaskQueue queue : activeQueues)
+				res.addAll(queue.tasks);
+			return Collections.unmodifiableList(res).iterator();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Dequeue the next task using deficit round robin. Must be called with the lock
+	 * held and count>0.
+	 * 
+	 * @return the next task
+	 */
+	protected Runnable dequeue() {
+		TaskQueue queue = activeQueues.peekFirst();
+		if (queue.deficit<=0)
+			queue.deficit += queue.priority;
+		
+		Runnable task = queue.tasks.pollFirst();
+		queue.deficit--;
+		count--;
+		
+		if (queue.tasks.isEmpty()) {
+			removeQueue(queue);
+		} else if (queue.deficit<=0) {
+			// quantum is consumed, continue with the next query
+			activeQueues.pollFirst();
+			activeQueues.addLast(queue);
+		}
+		return task;
+	}
+	
+	private void removeQueue(TaskQueue queue) {
+		activeQueues.remove(queue);
+		queues.remove(queue.queryId);
+	}
+	
+	
+	/**
+	 * The queue of a particular query
+	 */
+	protected static class TaskQueue {
+		public final int queryId;
+		public final int priority;
+		public final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+		public int deficit = 0;
+		public TaskQueue(int queryId, int priority) {
+			this.queryId = queryId;
+			this.priority = priority;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.concurrent;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import com.fluidops.fedx.structures.QueryInfo;
+
+
+/**
+ * Executes a range of {@link ParallelTask}s in a {@link ForkJoinPool}. The range is split
+ * recursively into halves, such that idle workers of the pool can steal the sub ranges.
+ * Each task is handled like in the {@link ControlledWorkerScheduler}, i.e. its result
+ * is passed to {@link ParallelExecutor#addResult(CloseableIteration)} followed by
+ * {@link ParallelExecutor#done()}, exceptions are passed to {@link ParallelExecutor#toss(Exception)}.<p>
+ * 
+ * Tasks which have not yet started are skipped once the shared cancellation flag is set.
+ */
+public class ForkJoinParallelTask<T> extends RecursiveAction {
+
+	private static final long serialVersionUID = -2398764214123557120L;
+
+	public static Logger log = Logger.getLogger(ForkJoinParallelTask.class);
+	
+	protected final List<? extends ParallelTask<T>> tasks;
+	protected final int from;
+	protected final int to;
+	protected final AtomicBoolean cancelled;
+	
+	/**
+	 * @param tasks
+	 * 			the tasks
+	 * @param from
+	 * 			the start index (inclusive)
+	 * @param to
+	 * 			the end index (exclusive)
+	 * @param cancelled
+	 * 			the shared cancellation flag
+	 */
+	public ForkJoinParallelTask(List<? extends ParallelTask<T>> tasks, int from, int to, AtomicBoolean cancelled) {
+		this.tasks = tasks;
+		this.from = from;
+		this.to = to;
+		this.cancelled = cancelled;
+	}
+
+	@Override
+	protected void compute() {
+		if (to<=from) {
+			return;
+		}
+		if (to-from==1) {
+			perform(tasks.get(from));
+			return;
+		}
+		int mid = (from+to) >>> 1;
+		invokeAll(new ForkJoinParallelTask<T>(tasks, from, mid, cancelled), 
+				new ForkJoinParallelTask<T>(tasks, mid, to, cancelled));
+	}
+	
+	protected void perform(ParallelTask<T> task) {
+		ParallelExecutor<T> control = task.getControl();
+		if (cancelled.get()) {
+			control.done();
+			return;
+		}
+		QueryInfo queryInfo = control.getQueryInfo();
+		QueryInfo previous = QueryInfo.getCurrent();		// tasks may be nested in joins of the pool
+		try {
+			if (queryInfo!=null)
+				queryInfo.checkDeadline();
+			QueryInfo.setCurrent(queryInfo);
+			CloseableIteration<T, QueryEvaluationException> res = task.performTask();
+			control.addResult(res);
+			control.done();
+		} catch (Exception e) {
+			log.warn("Exception encountered while evaluating task (" + e.getClass().getSimpleName() + "): " + e.getMessage());
+			control.toss(e);
+		} finally {
+			QueryInfo.setCurrent(previous);
+		}
+	}
+}
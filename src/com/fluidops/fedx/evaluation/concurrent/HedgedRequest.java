@@ -0,0 +1,319 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+
+import com.fluidops.fedx.Config;
+import com.fluidops.fedx.FederationManager;
+import com.fluidops.fedx.structures.Endpoint;
+import com.fluidops.fedx.structures.QueryInfo;
+
+
+/**
+ * Executes a request against an {@link Endpoint} with hedging, i.e. if the endpoint has 
+ * replicas (see {@link Endpoint#getReplicas()}) and the endpoint did not answer within 
+ * the hedge delay, a duplicate request is sent to the next replica. The first response 
+ * is used, responses of the other attempts are closed and running attempts are cancelled. 
+ * If an attempt fails, the request is retried on the next replica immediately.<p>
+ * 
+ * The hedge delay adapts to the endpoint: it is the observed percentile (see 
+ * {@link Config#getHedgePercentile()}) of the recent latencies of the endpoint, and
+ * {@link Config#getHedgeDelay()} as long as not enough latencies are recorded. Attempts
+ * which are abandoned while running record the time they have taken so far.<p>
+ * 
+ * Hedging is only applied if {@link Config#isEnableHedgedRequests()} is set. The attempts
+ * are executed by the hedge scheduler (see {@link FederationManager#getHedgeScheduler()}),
+ * attempts at replicas are {@link EndpointTask}s, i.e. they are subject to the request 
+ * limit of the replica. The calling task waits for the first response.
+ * 
+ * @see LatencyTracker
+ */
+public class HedgedRequest implements ParallelExecutor<BindingSet> {
+
+	public static Logger log = Logger.getLogger(HedgedRequest.class);
+	
+	/**
+	 * A request which can be sent to the endpoint or to any of its replicas.
+	 */
+	public static interface Request {
+		
+		/**
+		 * Perform the request at the given endpoint.
+		 * 
+		 * @param endpoint
+		 * 			the endpoint or one of its replicas
+		 * @return the result of the request
+		 * @throws Exception
+		 */
+		public CloseableIteration<BindingSet, QueryEvaluationException> perform(Endpoint endpoint) throws Exception;
+	}
+	
+	/**
+	 * Execute the given request at the endpoint, hedged if the endpoint has replicas
+	 * and hedging is enabled.
+	 * 
+	 * @param endpoint
+	 * @param request
+	 * @return the first result
+	 * @throws Exception
+	 * 			the error of the first attempt, if all attempts failed
+	 */
+	public static CloseableIteration<BindingSet, QueryEvaluationException> execute(Endpoint endpoint, Request request) throws Exception {
+		if (!Config.getConfig().isEnableHedgedRequests() || endpoint.getReplicas().isEmpty())
+			return request.perform(endpoint);
+		return new HedgedRequest(endpoint, request, FederationManager.getInstance().getHedgeScheduler(), getHedgeDelay(endpoint)).execute();
+	}
+	
+	/**
+	 * @param endpoint
+	 * @return the hedge delay of the endpoint in milliseconds
+	 */
+	protected static long getHedgeDelay(Endpoint endpoint) {
+		long delay = endpoint.getLatencyTracker().getPercentile(Config.getConfig().getHedgePercentile());
+		if (delay<0)
+			delay = Config.getConfig().getHedgeDelay();
+		return Math.min(delay, QueryInfo.getRemainingTime(QueryInfo.getCurrent()));
+	}
+	
+	
+	/* marks the result as abandoned, i.e. the results of all attempts are closed */
+	private static final CloseableIteration<BindingSet, QueryEvaluationException> ABANDONED = new EmptyIteration<BindingSet, QueryEvaluationException>();
+	
+	protected final Endpoint endpoint;
+	protected final Request request;
+	protected final ControlledWorkerScheduler<BindingSet> scheduler;
+	protected final long delay;
+	protected final QueryInfo queryInfo;
+	protected final AtomicReference<CloseableIteration<BindingSet, QueryEvaluationException>> result = new AtomicReference<CloseableIteration<BindingSet, QueryEvaluationException>>();
+	protected final BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<Outcome>();
+	protected final List<Attempt> attempts = new ArrayList<Attempt>();
+	protected volatile boolean finished = false;
+	
+	protected HedgedRequest(Endpoint endpoint, Request request, ControlledWorkerScheduler<BindingSet> scheduler, long delay) {
+		this.endpoint = endpoint;
+		this.request = request;
+		this.scheduler = scheduler;
+		this.delay = delay;
+		this.queryInfo = QueryInfo.getCurrent();
+	}
+	
+	protected CloseableIteration<BindingSet, QueryEvaluationException> execute() throws Exception {
+		
+		List<Endpoint> targets = new ArrayList<Endpoint>();
+		targets.add(endpoint);
+		targets.addAll(endpoint.getReplicas());
+		
+		int next = 0;
+		int pending = 0;
+		Exception error = null;
+		CloseableIteration<BindingSet, QueryEvaluationException> winner = null;
+		
+		// the calling task usually holds the request slot of the endpoint itself
+		submit(targets.get(next++), !EndpointRequestLimiter.hasCurrentSlot());
+		pending++;
+		
+		try {
+			while (pending>0) {
+				Outcome outcome;
+				if (next<targets.size())
+					outcome = outcomes.poll(delay, TimeUnit.MILLISECONDS);
+				else if ((outcome = outcomes.poll(QueryInfo.getMaxWaitTime(queryInfo), TimeUnit.MILLISECONDS))==null)
+					throw new QueryInterruptedException("Hedged request to " + endpoint.getId() + " exceeded the maximum wait time.");
+				
+				if (outcome==null) {
+					// no response within the hedge delay
+					if (log.isDebugEnabled())
+						log.debug("Sending hedged request to " + targets.get(next).getId() + " after " + delay + "ms.");
+					submit(targets.get(next++), true);
+					pending++;
+					continue;
+				}
+				
+				pending--;
+				if (outcome.result!=null) {
+					winner = outcome.result;
+					return winner;
+				}
+				if (outcome.error!=null) {
+					if (error==null)
+						error = outcome.error;
+					log.debug("Attempt of hedged request failed: " + outcome.error.getMessage());
+					// retry on the next replica
+					if (pending==0 && next<targets.size()) {
+						submit(targets.get(next++), true);
+						pending++;
+					}
+				}
+				// otherwise another attempt has won, its response is still pending
+			}
+			throw error;
+		} finally {
+			finished = true;
+			// close the response of an attempt which won after this request was abandoned, e.g. interrupted
+			if (winner==null && !result.compareAndSet(null, ABANDONED))
+				result.get().close();
+			scheduler.abort(this);
+			for (Attempt attempt : attempts)
+				attempt.abandon();
+		}
+	}
+	
+	protected void submit(Endpoint target, boolean limited) {
+		Attempt attempt = limited ? new EndpointAttempt(target) : new Attempt(target);
+		attempts.add(attempt);
+		scheduler.schedule(attempt);
+	}
+	
+	@Override
+	public void run() {
+		/* no-op, the attempts are submitted by execute() */
+	}
+
+	@Override
+	public void addResult(CloseableIteration<BindingSet, QueryEvaluationException> res) {
+		/* no-op, the attempts deliver their outcome directly */
+	}
+
+	@Override
+	public void toss(Exception e) {
+		// e.g. the deadline of the query has passed before the attempt was started
+		outcomes.add(new Outcome(null, e));
+	}
+
+	@Override
+	public void done() {
+		/* no-op */
+	}
+
+	@Override
+	public boolean isFinished() {
+		return finished;
+	}
+
+	@Override
+	public int getQueryId() {
+		return queryInfo==null ? -1 : queryInfo.getQueryID();
+	}
+
+	@Override
+	public QueryInfo getQueryInfo() {
+		return queryInfo;
+	}
+	
+	
+	/**
+	 * The outcome of an attempt: the result, an error, or neither if the attempt lost.
+	 */
+	protected static class Outcome {
+		
+		protected final CloseableIteration<BindingSet, QueryEvaluationException> result;
+		protected final Exception error;
+		
+		public Outcome(CloseableIteration<BindingSet, QueryEvaluationException> result, Exception error) {
+			this.result = result;
+			this.error = error;
+		}
+	}
+	
+	/**
+	 * An attempt of the request at a single target, which records its latency exactly once.
+	 */
+	protected class Attempt implements ParallelTask<BindingSet> {
+		
+		protected final Endpoint target;
+		protected final AtomicBoolean recorded = new AtomicBoolean(false);
+		protected volatile long start = -1;
+		
+		public Attempt(Endpoint target) {
+			this.target = target;
+		}
+
+		@Override
+		public CloseableIteration<BindingSet, QueryEvaluationException> performTask() throws Exception {
+			start = System.currentTimeMillis();
+			CloseableIteration<BindingSet, QueryEvaluationException> res;
+			try {
+				res = request.perform(target);
+			} catch (Exception e) {
+				record();
+				outcomes.add(new Outcome(null, e));
+				return new EmptyIteration<BindingSet, QueryEvaluationException>();
+			}
+			record();
+			if (result.compareAndSet(null, res)) {
+				outcomes.add(new Outcome(res, null));
+			} else {
+				// another attempt has won or the request was abandoned
+				res.close();
+				outcomes.add(new Outcome(null, null));
+			}
+			return new EmptyIteration<BindingSet, QueryEvaluationException>();
+		}
+		
+		protected void record() {
+			if (recorded.compareAndSet(false, true))
+				target.getLatencyTracker().record(System.currentTimeMillis() - start);
+		}
+		
+		/**
+		 * Record the time taken so far if this attempt is still running, i.e. the
+		 * latency of the target is at least as high.
+		 */
+		protected void abandon() {
+			if (start>=0)
+				record();
+		}
+
+		@Override
+		public ParallelExecutor<BindingSet> getControl() {
+			return HedgedRequest.this;
+		}
+		
+		@Override
+		public String toString() {
+			return "Attempt of hedged request @" + target.getId();
+		}
+	}
+	
+	/**
+	 * An attempt which is subject to the request limit of its target.
+	 */
+	protected class EndpointAttempt extends Attempt implements EndpointTask {
+
+		public EndpointAttempt(Endpoint target) {
+			super(target);
+		}
+
+		@Override
+		public Endpoint getEndpoint() {
+			return target;
+		}
+	}
+}
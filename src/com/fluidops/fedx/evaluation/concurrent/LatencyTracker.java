@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.concurrent;
+
+import java.util.Arrays;
+
+import com.fluidops.fedx.structures.Endpoint;
+
+
+/**
+ * Keeps the latencies of the most recent requests to an {@link Endpoint} in a ring
+ * buffer, e.g. to derive the delay for hedged requests from an observed percentile.
+ * 
+ * @see HedgedRequest
+ */
+public class LatencyTracker {
+
+	/**
+	 * The minimum number of samples required to compute a percentile
+	 */
+	public static final int MIN_SAMPLES = 20;
+	
+	protected final long[] samples;
+	protected int next = 0;
+	protected int size = 0;
+	
+	public LatencyTracker(int capacity) {
+		this.samples = new long[capacity];
+	}
+	
+	/**
+	 * Record the latency of a request, the oldest sample is replaced if the
+	 * buffer is full.
+	 * 
+	 * @param millis
+	 * 			the latency in milliseconds
+	 */
+	public synchronized void record(long millis) {
+		samples[next] = millis;
+		next = (next + 1) % samples.length;
+		if (size < samples.length)
+			size++;
+	}
+	
+	/**
+	 * Returns the given percentile of the recorded latencies.
+	 * 
+	 * @param percentile
+	 * 			the percentile, e.g. 0.95
+	 * @return the latency in milliseconds, or -1 if less than {@link #MIN_SAMPLES} are recorded
+	 */
+	public long getPercentile(double percentile) {
+		long[] sorted;
+		synchronized (this) {
+			if (size < MIN_SAMPLES)
+				return -1;
+			sorted = Arrays.copyOf(samples, size);
+		}
+		Arrays.sort(sorted);
+		int idx = (int) Math.ceil(percentile * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+	}
+	
+	public synchronized int size() {
+		return size;
+	}
+}
@@ -20,6 +20,7 @@ import org.eclipse.rdf4j.query.QueryEvaluationException;
 
 import com.fluidops.fedx.evaluation.join.JoinExecutorBase;
 import com.fluidops.fedx.evaluation.union.UnionExecutorBase;
+import com.fluidops.fedx.structures.QueryInfo;
 
 
 /**
@@ -70,4 +71,11 @@ public interface ParallelExecutor<T> extends Runnable {
 	 * @return the query id
 	 */
 	public int getQueryId();
+	
+	/**
+	 * Return the query info of the associated query, or <code>null</code> if unknown
+	 * 
+	 * @return the query info
+	 */
+	public QueryInfo getQueryInfo();
 }
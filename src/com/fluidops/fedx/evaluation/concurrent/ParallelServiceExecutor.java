@@ -24,6 +24,7 @@ import org.eclipse.rdf4j.query.QueryEvaluationException;
 import com.fluidops.fedx.FederationManager;
 import com.fluidops.fedx.algebra.FedXService;
 import com.fluidops.fedx.evaluation.FederationEvalStrategy;
+import com.fluidops.fedx.structures.QueryInfo;
 
 
 /**
@@ -102,6 +103,11 @@ public class ParallelServiceExecutor extends LookAheadIteration<BindingSet, Quer
 	public int getQueryId()	{
 		return service.getQueryInfo().getQueryID();
 	}
+	
+	@Override
+	public QueryInfo getQueryInfo() {
+		return service.getQueryInfo();
+	}
 
 	@Override
 	protected BindingSet getNextElement() throws QueryEvaluationException {
@@ -132,6 +138,16 @@ public class ParallelServiceExecutor extends LookAheadIteration<BindingSet, Quer
 		
 		return null;
 	}
+	
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		FederationManager.getInstance().getUnionScheduler().abort(this);
+		synchronized (this) {
+			if (rightIter!=null)
+				rightIter.close();
+		}
+		super.handleClose();
+	}
 
 
 	
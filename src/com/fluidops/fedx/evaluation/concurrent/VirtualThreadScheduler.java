@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.fluidops.fedx.Config;
+import com.fluidops.fedx.exception.FedXRuntimeException;
+
+
+/**
+ * A {@link ControlledWorkerScheduler} which runs each task in its own (virtual) thread. The
+ * number of concurrently running tasks is not limited by a pool size, but by a semaphore 
+ * with the configured number of permits, see {@link Config#getVirtualThreadConcurrency()}. 
+ * Tasks exceeding this limit wait in the task queue without occupying a thread.
+ * 
+ * Virtual threads require Java 21+ (see {@link #isAvailable()}), this scheduler cannot
+ * be created in older runtimes.
+ */
+public class VirtualThreadScheduler<T> extends ControlledWorkerScheduler<T> {
+
+	/* true if the runtime provides virtual threads */
+	private static final boolean available = isVirtualThreadRuntime();
+	
+	protected Semaphore permits;
+	
+	/**
+	 * Construct a new instance with the specified maximum number of concurrently running
+	 * tasks and the given name.
+	 * 
+	 * @param maxConcurrentTasks
+	 * @param name
+	 */
+	public VirtualThreadScheduler(int maxConcurrentTasks, String name) {
+		super(maxConcurrentTasks, name);
+	}
+
+	@Override
+	public void schedule(ParallelTask<T> task) {
+		WorkerRunnable runnable = new WorkerRunnable(task);
+		registerTask(runnable);
+		_taskQueue.offer(runnable);
+		dispatch();
+	}
+	
+	@Override
+	protected void reschedule(Runnable task) {
+		_taskQueue.offer(task);
+		dispatch();
+	}
+	
+	/**
+	 * Start queued tasks as long as permits are available. 
+	 */
+	protected void dispatch() {
+		while (!_taskQueue.isEmpty() && permits.tryAcquire()) {
+			final Runnable task = _taskQueue.poll();
+			if (task==null) {
+				permits.release();
+				continue;
+			}
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						task.run();
+					} finally {
+						permits.release();
+						dispatch();
+					}
+				}
+			});
+		}
+	}
+	
+	@Override
+	public int getNumberOfIdleWorkers() {
+		return permits.availablePermits();
+	}
+	
+	@Override
+	protected void initWorkerThreads() {
+		
+		_taskQueue = createTaskQueue();
+		permits = new Semaphore(nWorkers);
+		executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+				createThreadFactory(name));
+	}
+	
+	/**
+	 * Returns true if the runtime provides virtual threads, i.e. if this scheduler can be used.
+	 * 
+	 * @return whether virtual threads are available
+	 */
+	public static boolean isAvailable() {
+		return available;
+	}
+	
+	private static boolean isVirtualThreadRuntime() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Create a thread factory for virtual threads using reflection, as the code is compiled
+	 * for older runtimes.
+	 * 
+	 * @param name
+	 * @return the thread factory
+	 * @throws FedXRuntimeException if the runtime does not provide virtual threads
+	 */
+	protected static ThreadFactory createThreadFactory(String name) {
+		if (!available)
+			throw new FedXRuntimeException("Virtual threads are not available in this runtime, Java 21+ is required.");
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+			Method factory = builderClass.getMethod("factory");
+			return (ThreadFactory)factory.invoke(builder);
+		} catch (Exception e) {
+			throw new FedXRuntimeException("Failed to create the virtual thread factory for " + name + ": " + e.getMessage(), e);
+		}
+	}
+}
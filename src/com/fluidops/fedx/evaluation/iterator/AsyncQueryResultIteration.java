@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentInputStream;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.protocol.HttpContext;
+import org.eclipse.rdf4j.common.io.IOUtil;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+
+import com.fluidops.fedx.evaluation.AsyncSparqlClient;
+import com.fluidops.fedx.evaluation.concurrent.EndpointRequestLimiter;
+import com.fluidops.fedx.exception.ExceptionUtil;
+
+
+/**
+ * An iteration over the result of an asynchronous SPARQL request sent with
+ * {@link AsyncSparqlClient}. The response body is streamed by the I/O dispatch
+ * thread into a bounded buffer (see {@link #getResponseConsumer()}), input from
+ * the endpoint is suspended while the buffer is full. The SPARQL XML result is
+ * parsed incrementally by the consumer of this iteration, i.e. never on the I/O
+ * dispatch thread.<p>
+ *
+ * Errors are reported to the consumer. If a connection is provided, they are
+ * traced to the endpoint using {@link ExceptionUtil#traceExceptionSourceAndRepair(RepositoryConnection, QueryEvaluationException, String)}.<p>
+ *
+ * Closing this iteration cancels the request if it is still in progress and
+ * releases the request slot of the endpoint, if any.
+ */
+public class AsyncQueryResultIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> implements FutureCallback<Boolean> {
+
+	/* the capacity of the buffer between the I/O dispatch thread and the consumer */
+	protected static final int BUFFER_SIZE = 32*1024;
+
+	protected static final XMLInputFactory xmlInputFactory = createXMLInputFactory();
+
+	protected final String queryString;
+	protected final RepositoryConnection conn;
+	protected final EndpointRequestLimiter.Slot slot;
+	protected final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	protected final SharedInputBuffer buffer = new SharedInputBuffer(BUFFER_SIZE);
+	protected final CountDownLatch responseReceived = new CountDownLatch(1);
+	protected final ResponseConsumer consumer = new ResponseConsumer();
+
+	protected volatile HttpResponse response;
+	protected volatile ContentType contentType;
+	protected volatile Exception error;
+	protected volatile Future<Boolean> request;
+	protected volatile IOControl ioControl;
+
+	protected XMLStreamReader reader;
+
+	/**
+	 * @param queryString
+	 * 			the query string, used for error reporting
+	 * @param conn
+	 * 			the connection of the endpoint used for error reporting, may be <code>null</code>
+	 * @param slot
+	 * 			the request slot of the endpoint which is released on close, may be <code>null</code>
+	 */
+	public AsyncQueryResultIteration(String queryString, RepositoryConnection conn, EndpointRequestLimiter.Slot slot) {
+		this.queryString = queryString;
+		this.conn = conn;
+		this.slot = slot;
+	}
+
+	/**
+	 * @return the consumer which streams the response into this iteration
+	 */
+	public ResponseConsumer getResponseConsumer() {
+		return consumer;
+	}
+
+	/**
+	 * Attach the request which feeds this iteration.
+	 *
+	 * @param request
+	 */
+	public void setRequest(Future<Boolean> request) {
+		this.request = request;
+		if (isClosed()) {
+			request.cancel(true);
+		}
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		try {
+			if (reader==null) {
+				reader = openResult();
+			}
+			return nextResult();
+		} catch (QueryInterruptedException e) {
+			throw e;
+		} catch (QueryEvaluationException e) {
+			throw traceException(e);
+		} catch (XMLStreamException e) {
+			throw traceException(toException(e, "Failed to parse SPARQL result: " + e.getMessage()));
+		} catch (IOException e) {
+			throw traceException(toException(e, "Failed to read SPARQL result: " + e.getMessage()));
+		}
+	}
+
+	/**
+	 * Wait for the response and prepare the parser for the result.
+	 */
+	protected XMLStreamReader openResult() throws IOException, XMLStreamException {
+		try {
+			responseReceived.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new QueryInterruptedException("Interrupted while waiting for SPARQL response");
+		}
+		checkError();
+
+		int status = response.getStatusLine().getStatusCode();
+		if (status!=HttpStatus.SC_OK) {
+			Charset charset = contentType!=null && contentType.getCharset()!=null ? contentType.getCharset() : StandardCharsets.UTF_8;
+			String message = IOUtil.readString(new InputStreamReader(new ContentInputStream(buffer), charset));
+			checkError();
+			throw new QueryEvaluationException("SPARQL endpoint responded with status " + status + (message.isEmpty() ? "" : ": " + message));
+		}
+		if (response.getEntity()==null) {
+			throw new QueryEvaluationException("SPARQL endpoint responded with empty result.");
+		}
+
+		InputStream in = new ContentInputStream(buffer);
+		return contentType!=null && contentType.getCharset()!=null ?
+				xmlInputFactory.createXMLStreamReader(in, contentType.getCharset().name()) : xmlInputFactory.createXMLStreamReader(in);
+	}
+
+	/**
+	 * Pull the next &lt;result&gt; element from the parser.
+	 *
+	 * @return the next binding set or <code>null</code> if there are no more results
+	 */
+	protected BindingSet nextResult() throws XMLStreamException {
+		while (reader.hasNext()) {
+			if (reader.next()==XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("result")) {
+				MapBindingSet bs = new MapBindingSet();
+				while (reader.nextTag()==XMLStreamConstants.START_ELEMENT) {
+					// <binding name="..."><uri|bnode|literal>...</...></binding>
+					String name = reader.getAttributeValue(null, "name");
+					reader.nextTag();
+					bs.addBinding(name, readValue());
+					reader.nextTag();
+				}
+				return bs;
+			}
+		}
+		checkError();
+		return null;
+	}
+
+	protected Value readValue() throws XMLStreamException {
+		String type = reader.getLocalName();
+		if (type.equals("uri")) {
+			return vf.createIRI(reader.getElementText());
+		}
+		if (type.equals("bnode")) {
+			return vf.createBNode(reader.getElementText());
+		}
+		if (type.equals("literal")) {
+			String lang = reader.getAttributeValue(XMLConstants.XML_NS_URI, "lang");
+			String datatype = reader.getAttributeValue(null, "datatype");
+			String label = reader.getElementText();
+			if (lang!=null)
+				return vf.createLiteral(label, lang);
+			if (datatype!=null)
+				return vf.createLiteral(label, vf.createIRI(datatype));
+			return vf.createLiteral(label);
+		}
+		throw new XMLStreamException("Unexpected element in SPARQL result binding: " + type, reader.getLocation());
+	}
+
+	/**
+	 * Throw the error recorded for the request, if any.
+	 */
+	protected void checkError() throws QueryEvaluationException {
+		Exception ex = error;
+		if (ex==null)
+			return;
+		if (ex instanceof QueryEvaluationException)
+			throw (QueryEvaluationException)ex;
+		throw new QueryEvaluationException("Asynchronous SPARQL request failed: " + ex.getMessage(), ex);
+	}
+
+	/**
+	 * Convert a read or parse failure, which may be caused by an aborted request.
+	 */
+	protected QueryEvaluationException toException(Exception ex, String message) {
+		try {
+			checkError();
+		} catch (QueryEvaluationException e) {
+			return e;
+		}
+		return new QueryEvaluationException(message, ex);
+	}
+
+	protected QueryEvaluationException traceException(QueryEvaluationException ex) {
+		if (ex instanceof QueryInterruptedException)
+			return ex;
+		if (conn!=null)
+			return ExceptionUtil.traceExceptionSourceAndRepair(conn, ex, "Subquery: " + queryString);
+		return new QueryEvaluationException(ex.getMessage() + ". Subquery: " + queryString, ex);
+	}
+
+	/**
+	 * Abort the request with the given error, a blocked consumer is woken up.
+	 */
+	protected void abort(Exception ex) {
+		if (error==null)
+			error = ex;
+		buffer.shutdown();
+		responseReceived.countDown();
+	}
+
+	@Override
+	public void completed(Boolean result) {
+		// the body has been consumed into the buffer completely
+	}
+
+	@Override
+	public void failed(Exception ex) {
+		abort(ex);
+	}
+
+	@Override
+	public void cancelled() {
+		abort(new QueryInterruptedException("Asynchronous SPARQL request was cancelled"));
+	}
+
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			abort(new QueryInterruptedException("Iteration was closed"));
+			// input may be suspended: do not keep the connection of an unconsumed response
+			consumer.shutdownConnection();
+			consumer.cancel();
+			Future<Boolean> r = request;
+			if (r!=null && !r.isDone()) {
+				r.cancel(true);
+			}
+			if (reader!=null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException ignore) {
+					; // ignore
+				}
+			}
+		} finally {
+			if (slot!=null)
+				slot.release();
+			super.handleClose();
+		}
+	}
+
+	protected static XMLInputFactory createXMLInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+		return factory;
+	}
+
+
+	/**
+	 * Streams the response body into the bounded buffer of the iteration. Invoked
+	 * by the I/O dispatch thread of the client.
+	 */
+	public class ResponseConsumer extends AbstractAsyncResponseConsumer<Boolean> {
+
+		@Override
+		protected void onResponseReceived(HttpResponse r) {
+			response = r;
+			responseReceived.countDown();
+		}
+
+		@Override
+		protected void onContentReceived(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+			synchronized (this) {
+				ioControl = ioctrl;
+			}
+			// suspends input from the endpoint while the buffer is full
+			buffer.consumeContent(decoder, ioctrl);
+		}
+
+		@Override
+		protected void onEntityEnclosed(HttpEntity entity, ContentType ct) {
+			contentType = ct;
+		}
+
+		@Override
+		protected Boolean buildResult(HttpContext context) {
+			if (response.getEntity()==null) {
+				// no content is signalled to the reader
+				buffer.shutdown();
+			}
+			return Boolean.TRUE;
+		}
+
+		@Override
+		protected void releaseResources() {
+			synchronized (this) {
+				// the connection is returned to the pool and may be used by another request
+				ioControl = null;
+			}
+			if (getResult()==null) {
+				// failed or cancelled
+				Exception ex = getException();
+				abort(ex!=null ? ex : new QueryInterruptedException("Asynchronous SPARQL request was cancelled"));
+			}
+		}
+
+		/**
+		 * Shut down the connection of the response if it is still in progress.
+		 */
+		protected synchronized void shutdownConnection() {
+			if (ioControl==null)
+				return;
+			try {
+				ioControl.shutdown();
+			} catch (IOException ignore) {
+				; // ignore
+			}
+			ioControl = null;
+		}
+	}
+}
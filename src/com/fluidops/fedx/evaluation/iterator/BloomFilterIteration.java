@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.FilterIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import com.fluidops.fedx.util.QueryAlgebraUtil;
+import com.google.common.base.Charsets;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.PrimitiveSink;
+
+/**
+ * Filters an iteration by the values of the join variables using a {@link BloomFilter}
+ * of the join keys of the other join argument. Note that false positives may pass the 
+ * filter, i.e. an exact join needs to be applied afterwards.
+ * 
+ * @see com.fluidops.fedx.evaluation.join.ControlledWorkerSemiJoin
+ */
+public class BloomFilterIteration extends FilterIteration<BindingSet, QueryEvaluationException> {
+
+	/**
+	 * Funnel for join keys, i.e. the list of values of the join variables
+	 */
+	public static final Funnel<List<Value>> JOIN_KEY_FUNNEL = new Funnel<List<Value>>() {
+		private static final long serialVersionUID = 3413463470377565549L;
+		@Override
+		public void funnel(List<Value> key, PrimitiveSink into) {
+			for (Value v : key)
+				into.putString(v.toString(), Charsets.UTF_8).putByte((byte)0);
+		}
+	};
+	
+	/**
+	 * Create a {@link BloomFilter} for the given join keys
+	 * 
+	 * @param keys
+	 * @return the bloom filter containing all keys
+	 */
+	public static BloomFilter<List<Value>> createBloomFilter(List<List<Value>> keys) {
+		BloomFilter<List<Value>> filter = BloomFilter.create(JOIN_KEY_FUNNEL, Math.max(keys.size(), 100), 0.01);
+		for (List<Value> key : keys)
+			filter.put(key);
+		return filter;
+	}
+	
+	protected final List<String> joinVars;
+	protected final BloomFilter<List<Value>> filter;
+	
+	public BloomFilterIteration(CloseableIteration<BindingSet, QueryEvaluationException> iter, List<String> joinVars, 
+			BloomFilter<List<Value>> filter) {
+		super(iter);
+		this.joinVars = joinVars;
+		this.filter = filter;
+	}
+
+	@Override
+	protected boolean accept(BindingSet bindings) throws QueryEvaluationException {
+		List<Value> key = QueryAlgebraUtil.joinKey(bindings, joinVars);
+		return key!=null && filter.mightContain(key);
+	}
+}
@@ -15,24 +15,36 @@
  */
 package com.fluidops.fedx.evaluation.iterator;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.ConvertingIteration;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.Binding;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+
+import com.fluidops.fedx.structures.BindingSchema;
+import com.fluidops.fedx.structures.CompactBindingSet;
 
 /**
- * Inserts original bindings into the result.
+ * Inserts original bindings into the result. The result rows are {@link CompactBindingSet}s
+ * which reference the original bindings. The binding names of the bound join (e.g. name_2)
+ * are resolved once per name.
  * 
  * @author Andreas Schwarte
  */
 public class BoundJoinConversionIteration extends ConvertingIteration<BindingSet, BindingSet, QueryEvaluationException>{
 
 	protected final List<BindingSet> bindings;
+	protected final BindingSchema schema = new BindingSchema();
+	
+	// resolved binding names: name_index => { slot, index }
+	protected final Map<String, int[]> resolved = new HashMap<String, int[]>();
 	
 	public BoundJoinConversionIteration(CloseableIteration<BindingSet, QueryEvaluationException> iter, List<BindingSet> bindings) {
 		super(iter);
@@ -41,16 +53,27 @@ public class BoundJoinConversionIteration extends ConvertingIteration<BindingSet
 
 	@Override
 	protected BindingSet convert(BindingSet bIn) throws QueryEvaluationException {
-		QueryBindingSet res = new QueryBindingSet();
+		Value[] values = new Value[schema.size()];
 		int bIndex = -1;
 		Iterator<Binding> bIter = bIn.iterator();
 		while (bIter.hasNext()) {
 			Binding b = bIter.next();
-			String name = b.getName();
-			bIndex = Integer.parseInt(name.substring(name.lastIndexOf("_")+1));
-			res.addBinding(name.substring(0, name.lastIndexOf("_")), b.getValue());
+			int[] r = resolve(b.getName());
+			bIndex = r[1];
+			if (r[0]>=values.length)
+				values = Arrays.copyOf(values, schema.size());
+			values[r[0]] = b.getValue();
+		}
+		return new CompactBindingSet(schema, values, bindings.get(bIndex));
+	}
+	
+	protected int[] resolve(String name) {
+		int[] r = resolved.get(name);
+		if (r==null) {
+			int idx = name.lastIndexOf("_");
+			r = new int[] { schema.add(name.substring(0, idx)), Integer.parseInt(name.substring(idx+1)) };
+			resolved.put(name, r);
 		}
-		res.addAll( bindings.get(bIndex));
-		return res;
+		return r;
 	}
 }
@@ -15,17 +15,20 @@
  */
 package com.fluidops.fedx.evaluation.iterator;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.ConvertingIteration;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.Binding;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
 
 import com.fluidops.fedx.evaluation.SparqlFederationEvalStrategyWithValues;
+import com.fluidops.fedx.structures.BindingSchema;
+import com.fluidops.fedx.structures.CompactBindingSet;
 import com.fluidops.fedx.util.QueryStringUtil;
 
 /**
@@ -47,6 +50,7 @@ public class BoundJoinVALUESConversionIteration extends ConvertingIteration<Bind
 	public static final String INDEX_BINDING_NAME = "__index";
 	
 	protected final List<BindingSet> bindings;
+	protected final BindingSchema schema = new BindingSchema();
 	
 	public BoundJoinVALUESConversionIteration(CloseableIteration<BindingSet, QueryEvaluationException> iter, List<BindingSet> bindings) {
 		super(iter);
@@ -55,17 +59,20 @@ public class BoundJoinVALUESConversionIteration extends ConvertingIteration<Bind
 
 	@Override
 	protected BindingSet convert(BindingSet bIn) throws QueryEvaluationException {
-		QueryBindingSet res = new QueryBindingSet();
+		Value[] values = new Value[schema.size()];
 		int bIndex = Integer.parseInt(bIn.getBinding(INDEX_BINDING_NAME).getValue().stringValue());
 		Iterator<Binding> bIter = bIn.iterator();
 		while (bIter.hasNext()) {
 			Binding b = bIter.next();
 			if (b.getName().equals(INDEX_BINDING_NAME))
 				continue;
-			res.addBinding(b);
+			int slot = schema.indexOf(b.getName());
+			if (slot<0)
+				slot = schema.add(b.getName());
+			if (slot>=values.length)
+				values = Arrays.copyOf(values, schema.size());
+			values[slot] = b.getValue();
 		}
-		for (Binding bs : bindings.get(bIndex))
-			res.setBinding(bs);
-		return res;
+		return new CompactBindingSet(schema, values, bindings.get(bIndex));
 	}
 }
@@ -15,22 +15,39 @@
  */
 package com.fluidops.fedx.evaluation.iterator;
 
-import java.util.List;
+import java.util.ArrayDeque;
 import java.util.NoSuchElementException;
 
+import org.apache.log4j.Logger;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.common.iteration.Iterations;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
 
-import com.google.common.collect.Lists;
+import com.fluidops.fedx.Config;
+import com.fluidops.fedx.FederationManager;
+import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
+import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
+import com.fluidops.fedx.structures.QueryInfo;
 
 
 /**
- * A specialized {@link CloseableIteration} that consumes part (or the entire input
- * iteration if it fits into the buffer) and keeps data for further processing
- * in memory. If the buffer is full, the remaining items will be read from the
- * iteration lazily.
+ * A specialized {@link CloseableIteration} that consumes the input iteration in
+ * the background and keeps data for further processing in memory. 
+ * 
+ * The results are read ahead into a bounded buffer by tasks of the prefetch scheduler
+ * (see {@link FederationManager#getPrefetchScheduler()}), such that the first result is 
+ * available to the consumer as soon as it arrives. A prefetch task fills the buffer and 
+ * terminates, i.e. it never waits for a slow consumer: the consumer schedules the next 
+ * task once the buffer is drained to half of its capacity. The buffer starts small and 
+ * grows adaptively up to {@link Config#getPrefetchBufferSize()} if the endpoint delivers 
+ * results faster than the consumer processes them: the new capacity is derived from the 
+ * ratio of the observed rates. The input iteration (and thus the HTTP connection) is 
+ * closed by the prefetch task as soon as it is exhausted, i.e. small results are released
+ * immediately while the consumer may still be busy.
  * 
  * This implementation can be used to avoid blocking behavior in HTTP connection
  * streams, i.e. to process results in memory and close the underlying HTTP stream.
@@ -40,53 +57,96 @@ import com.google.common.collect.Lists;
  */
 public class ConsumingIteration implements CloseableIteration<BindingSet, QueryEvaluationException> {
 
+	public static Logger log = Logger.getLogger(ConsumingIteration.class);
 	
 	/**
-	 * Maximum number of bindings that are consumed at construction time.
-	 * Remaining items, if any are consumed from the iterator itself
+	 * The initial capacity of the prefetch buffer
 	 */
-	private static final int max = 1000;	// TODO make configurable
-	
+	protected static final int INITIAL_CAPACITY = 64;
 	
-	private final List<BindingSet> consumed = Lists.newArrayList();
 	
 	private final CloseableIteration<BindingSet, QueryEvaluationException> innerIter;
-
 	
-	/**
-	 * The index of the next element that will be returned by a call to {@link #next()}.
-	 */
-	private volatile int currentIndex = 0;
+	private final ControlledWorkerScheduler<BindingSet> scheduler;
+	
+	private final QueryInfo queryInfo;
+	
+	private final int maxCapacity;
+	
+	/* all fields below are guarded by the buffer */
+	private final ArrayDeque<BindingSet> buffer = new ArrayDeque<BindingSet>();
+	private int capacity;
+	private Prefetcher prefetcher = null;	// the scheduled prefetch task, if any
+	private boolean done = false;		// the inner iteration is closed
+	private boolean closed = false;		// closed by the consumer
+	private Exception error = null;
+	
+	/* statistics for the adaptive buffer size */
+	private long produced = 0;
+	private long producerNanos = 0;		// time spent reading from the inner iteration
+	private long consumed = 0;
+	private long firstConsumed = -1;	// start of consumption (nanos)
 	
 	
 	public ConsumingIteration(CloseableIteration<BindingSet, QueryEvaluationException> iter) throws QueryEvaluationException {
-		
-		innerIter = iter;
-				
-		while (consumed.size() < max && iter.hasNext()) {
-			consumed.add(iter.next());
-		}
-		
-		if (!iter.hasNext()) {
-			iter.close();
+		this(iter, FederationManager.getInstance().getPrefetchScheduler(), Config.getConfig().getPrefetchBufferSize());
+	}
+	
+	public ConsumingIteration(CloseableIteration<BindingSet, QueryEvaluationException> iter, ControlledWorkerScheduler<BindingSet> scheduler, int maxCapacity) throws QueryEvaluationException {
+		this.innerIter = iter;
+		this.scheduler = scheduler;
+		this.queryInfo = QueryInfo.getCurrent();
+		this.maxCapacity = Math.max(1, maxCapacity);
+		this.capacity = Math.min(INITIAL_CAPACITY, this.maxCapacity);
+		synchronized (buffer) {
+			schedulePrefetch();
 		}
 	}
 	
 	@Override
 	public boolean hasNext() throws QueryEvaluationException {
-		return currentIndex < consumed.size() || innerIter.hasNext();
+		boolean interrupted = false;
+		synchronized (buffer) {
+			try {
+				while (buffer.isEmpty() && !done && !closed) {
+					schedulePrefetch();
+					buffer.wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				interrupted = true;
+			}
+			if (!interrupted) {
+				if (!buffer.isEmpty())
+					return true;
+				if (error!=null) {
+					Exception e = error;
+					error = null;
+					if (e instanceof QueryEvaluationException)
+						throw (QueryEvaluationException)e;
+					throw new QueryEvaluationException(e);
+				}
+				return false;
+			}
+		}
+		// close outside of the lock, the scheduler may need it to abort the prefetch task
+		close();
+		throw new QueryInterruptedException("Interrupted while waiting for results");
 	}
 
 	@Override
 	public BindingSet next() throws QueryEvaluationException {
 		if (hasNext()) {
-			// try to read from the consumed items
-			if (currentIndex < consumed.size()) {
-				BindingSet result = consumed.get(currentIndex);
-				currentIndex++;
+			synchronized (buffer) {
+				if (firstConsumed<0)
+					firstConsumed = System.nanoTime();
+				consumed++;
+				BindingSet result = buffer.poll();
+				// refill in the background before the buffer runs empty
+				if (buffer.size()<=capacity/2)
+					schedulePrefetch();
 				return result;
 			}
-			return innerIter.next();
 		}
 
 		throw new NoSuchElementException();
@@ -100,7 +160,185 @@ public class ConsumingIteration implements CloseableIteration<BindingSet, QueryE
 
 	@Override
 	public void close() throws QueryEvaluationException {
-		Iterations.closeCloseable(innerIter);
+		Prefetcher p;
+		synchronized (buffer) {
+			if (closed)
+				return;
+			closed = true;
+			buffer.clear();
+			buffer.notifyAll();
+			if (done)
+				return;
+			p = prefetcher;
+			if (p==null) {
+				// no prefetch task is active, i.e. nobody else reads the inner iteration
+				done = true;
+			}
+		}
+		if (p==null) {
+			Iterations.closeCloseable(innerIter);
+		} else {
+			// a queued task is removed, a running task is interrupted: the task closes the inner iteration
+			scheduler.abort(p);
+		}
+	}
+	
+	/**
+	 * Schedule a prefetch task, unless a task is active or the inner iteration is closed.
+	 * The caller must hold the lock of the buffer.
+	 */
+	private void schedulePrefetch() {
+		if (prefetcher!=null || done || closed)
+			return;
+		prefetcher = new Prefetcher();
+		scheduler.schedule(prefetcher);
+	}
+	
+	/**
+	 * Close the inner iteration, to be called by the active prefetch task. 
+	 * 
+	 * @param e
+	 * 			the error to pass to the consumer, or <code>null</code>
+	 */
+	private void finish(Exception e) {
+		try {
+			Iterations.closeCloseable(innerIter);
+		} catch (Exception ex) {
+			log.debug("Failed to close iteration: " + ex.getMessage());
+		}
+		synchronized (buffer) {
+			if (e!=null && !closed && error==null)
+				error = e;
+			done = true;
+			prefetcher = null;
+			buffer.notifyAll();
+		}
+	}
+	
+	/**
+	 * Adapt the capacity of the full buffer to the observed rates of the producer 
+	 * and the consumer. As long as the consumer has not started the buffer is doubled.
+	 * 
+	 * @return true if the capacity has been increased
+	 */
+	private boolean grow() {
+		if (capacity>=maxCapacity)
+			return false;
+		int newCapacity;
+		if (consumed==0) {
+			newCapacity = capacity*2;
+		} else {
+			double consumerNanosPerRow = (double)(System.nanoTime() - firstConsumed) / consumed;
+			double producerNanosPerRow = Math.max(1.0, (double)producerNanos / produced);
+			double ratio = consumerNanosPerRow / producerNanosPerRow;
+			if (ratio<=1.0)
+				return false;		// the consumer keeps up, a larger buffer does not help
+			newCapacity = (int)Math.min(Integer.MAX_VALUE, Math.ceil(capacity*ratio));
+		}
+		capacity = Math.min(maxCapacity, newCapacity);
+		if (log.isTraceEnabled())
+			log.trace("Prefetch buffer capacity increased to " + capacity);
+		return true;
 	}
+	
+	
+	/**
+	 * Reads the inner iteration into the buffer until it is full, and closes the inner 
+	 * iteration when exhausted. The task is its own control, since it is aborted 
+	 * individually.
+	 */
+	private class Prefetcher implements ParallelTask<BindingSet>, ParallelExecutor<BindingSet> {
+		
+		private boolean started = false;	// guarded by the buffer, claimed by performTask() or by an abort
+		
+		@Override
+		public CloseableIteration<BindingSet, QueryEvaluationException> performTask() throws Exception {
+			synchronized (buffer) {
+				if (started)
+					return new EmptyIteration<BindingSet, QueryEvaluationException>();	// aborted in the meantime
+				started = true;
+			}
+			try {
+				while (true) {
+					synchronized (buffer) {
+						if (closed) {
+							finish(null);
+							break;
+						}
+						if (buffer.size()>=capacity && !grow()) {
+							// the buffer is full: the consumer schedules the next task
+							prefetcher = null;
+							break;
+						}
+					}
+					long start = System.nanoTime();
+					if (!innerIter.hasNext()) {
+						finish(null);
+						break;
+					}
+					BindingSet b = innerIter.next();
+					synchronized (buffer) {
+						producerNanos += System.nanoTime() - start;
+						produced++;
+						if (closed)
+							continue;	// the inner iteration is closed in the next round
+						buffer.add(b);
+						buffer.notifyAll();
+					}
+				}
+			} catch (Exception e) {
+				finish(e);
+			}
+			return new EmptyIteration<BindingSet, QueryEvaluationException>();
+		}
 
+		@Override
+		public ParallelExecutor<BindingSet> getControl() {
+			return this;
+		}
+		
+		@Override
+		public void run() {
+			/* no-op */
+		}
+
+		@Override
+		public void addResult(CloseableIteration<BindingSet, QueryEvaluationException> res) {
+			/* no-op, the results are passed via the buffer */
+		}
+
+		@Override
+		public void toss(Exception e) {
+			// the task failed before reading, e.g. the deadline of the query has passed
+			finish(e);
+		}
+
+		@Override
+		public void done() {
+			synchronized (buffer) {
+				if (started || prefetcher!=this)
+					return;
+				started = true;
+			}
+			// aborted before the task was started: nobody else reads the inner iteration
+			finish(new QueryInterruptedException("Prefetching of results was aborted."));
+		}
+
+		@Override
+		public boolean isFinished() {
+			synchronized (buffer) {
+				return done || closed;
+			}
+		}
+
+		@Override
+		public int getQueryId() {
+			return queryInfo==null ? -1 : queryInfo.getQueryID();
+		}
+
+		@Override
+		public QueryInfo getQueryInfo() {
+			return queryInfo;
+		}
+	}
 }
@@ -18,9 +18,10 @@ package com.fluidops.fedx.evaluation.iterator;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
 
 import com.fluidops.fedx.algebra.FilterValueExpr;
+import com.fluidops.fedx.structures.BindingSchema;
+import com.fluidops.fedx.structures.CompactBindingSet;
 
 
 /**
@@ -32,6 +33,7 @@ import com.fluidops.fedx.algebra.FilterValueExpr;
 public class FilteringInsertBindingsIteration extends FilteringIteration {
 
 	protected final BindingSet bindings;
+	protected final BindingSchema schema = new BindingSchema();
 	
 	public FilteringInsertBindingsIteration(FilterValueExpr filterExpr, BindingSet bindings,
 			CloseableIteration<BindingSet, QueryEvaluationException> iter)
@@ -45,9 +47,6 @@ public class FilteringInsertBindingsIteration extends FilteringIteration {
 		BindingSet next = super.next();
 		if (next==null)
 			return null;
-		QueryBindingSet res = new QueryBindingSet(bindings.size() + next.size());
-		res.addAll(bindings);
-		res.addAll(next);
-		return res;
+		return CompactBindingSet.create(schema, next, bindings);
 	}
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.io.IOException;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.FilterIteration;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import com.fluidops.fedx.Config;
+import com.fluidops.fedx.util.FingerprintSet;
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Removes duplicate binding sets from an iteration, e.g. from the union of results of
+ * several sources. Instead of the binding sets themselves only a 64 bit fingerprint of
+ * each row is kept in a {@link FingerprintSet}, which spills to disk if the configured
+ * number of entries is exceeded. 
+ * 
+ * Note that two different rows with the same fingerprint are considered duplicates, the
+ * probability of such a collision is negligible for practical result sizes.
+ * 
+ * @see Config#getDuplicateEliminationMaxEntries()
+ */
+public class FingerprintDistinctIteration extends FilterIteration<BindingSet, QueryEvaluationException> {
+
+	protected static final HashFunction HASH = Hashing.murmur3_128();
+	
+	/**
+	 * Compute the fingerprint of the given binding set. The fingerprint does not depend
+	 * on the order of the bindings.
+	 * 
+	 * @param bindings
+	 * @return the fingerprint
+	 */
+	public static long fingerprint(BindingSet bindings) {
+		long fingerprint = 0;
+		for (Binding b : bindings) {
+			Hasher h = HASH.newHasher();
+			h.putString(b.getName(), Charsets.UTF_8).putByte((byte)0);
+			putValue(h, b.getValue());
+			fingerprint += h.hash().asLong();
+		}
+		return fingerprint;
+	}
+	
+	/**
+	 * Add the given value to the hasher, the type of the value is taken into account.
+	 * 
+	 * @param h
+	 * @param v
+	 * 			the value, may be null
+	 */
+	protected static void putValue(Hasher h, Value v) {
+		if (v instanceof IRI) {
+			h.putByte((byte)'I').putString(v.stringValue(), Charsets.UTF_8);
+		} else if (v instanceof BNode) {
+			h.putByte((byte)'B').putString(v.stringValue(), Charsets.UTF_8);
+		} else if (v instanceof Literal) {
+			Literal l = (Literal)v;
+			h.putByte((byte)'L').putString(l.getLabel(), Charsets.UTF_8).putByte((byte)0);
+			h.putString(l.getDatatype().stringValue(), Charsets.UTF_8).putByte((byte)0);
+			if (l.getLanguage().isPresent())
+				h.putString(l.getLanguage().get(), Charsets.UTF_8);
+		} else if (v!=null) {
+			h.putByte((byte)'V').putString(v.toString(), Charsets.UTF_8);
+		}
+	}
+	
+	protected FingerprintSet fingerprints;
+	
+	public FingerprintDistinctIteration(CloseableIteration<BindingSet, QueryEvaluationException> iter) {
+		this(iter, Config.getConfig().getDuplicateEliminationMaxEntries());
+	}
+	
+	public FingerprintDistinctIteration(CloseableIteration<BindingSet, QueryEvaluationException> iter, int maxEntries) {
+		super(iter);
+		this.fingerprints = new FingerprintSet(maxEntries);
+	}
+
+	@Override
+	protected boolean accept(BindingSet bindings) throws QueryEvaluationException {
+		try {
+			return fingerprints.add(fingerprint(bindings));
+		} catch (IOException e) {
+			throw new QueryEvaluationException("Duplicate elimination failed: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				fingerprints.close();
+			} catch (IOException e) {
+				throw new QueryEvaluationException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.io.IOException;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.FilterIteration;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import com.fluidops.fedx.Config;
+import com.fluidops.fedx.util.FingerprintSet;
+import com.google.common.hash.Hasher;
+
+/**
+ * Removes duplicate statements from an iteration, e.g. from the union of the statements
+ * of several federation members. Like {@link FingerprintDistinctIteration} only a 64 bit
+ * fingerprint of subject, predicate and object is kept for each statement. 
+ * 
+ * @see Config#isEnableStatementDeduplication()
+ */
+public class FingerprintDistinctStatementIteration extends FilterIteration<Statement, QueryEvaluationException> {
+
+	/**
+	 * Compute the fingerprint of the given statement, the context is not considered.
+	 * 
+	 * @param st
+	 * @return the fingerprint
+	 */
+	public static long fingerprint(Statement st) {
+		Hasher h = FingerprintDistinctIteration.HASH.newHasher();
+		FingerprintDistinctIteration.putValue(h, st.getSubject());
+		h.putByte((byte)0);
+		FingerprintDistinctIteration.putValue(h, st.getPredicate());
+		h.putByte((byte)0);
+		FingerprintDistinctIteration.putValue(h, st.getObject());
+		return h.hash().asLong();
+	}
+	
+	protected FingerprintSet fingerprints;
+	
+	public FingerprintDistinctStatementIteration(CloseableIteration<Statement, QueryEvaluationException> iter) {
+		this(iter, Config.getConfig().getDuplicateEliminationMaxEntries());
+	}
+	
+	public FingerprintDistinctStatementIteration(CloseableIteration<Statement, QueryEvaluationException> iter, int maxEntries) {
+		super(iter);
+		this.fingerprints = new FingerprintSet(maxEntries);
+	}
+
+	@Override
+	protected boolean accept(Statement st) throws QueryEvaluationException {
+		try {
+			return fingerprints.add(fingerprint(st));
+		} catch (IOException e) {
+			throw new QueryEvaluationException("Duplicate elimination failed: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			try {
+				fingerprints.close();
+			} catch (IOException e) {
+				throw new QueryEvaluationException(e);
+			}
+		}
+	}
+}
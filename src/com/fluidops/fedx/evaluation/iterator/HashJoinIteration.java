@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.common.iteration.IterationWrapper;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+
+import com.fluidops.fedx.FederationManager;
+import com.fluidops.fedx.algebra.HashJoin;
+import com.fluidops.fedx.evaluation.FederationEvalStrategy;
+import com.fluidops.fedx.evaluation.union.ControlledWorkerUnion;
+import com.fluidops.fedx.evaluation.union.ParallelUnionOperatorTask;
+import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.util.QueryAlgebraUtil;
+import com.fluidops.fedx.util.SpillFile;
+
+/**
+ * Evaluates both arguments of a {@link HashJoin} in parallel: when this iteration is
+ * created, each argument is submitted as a task to the union scheduler (see 
+ * {@link FederationManager#getUnionScheduler()}), i.e. the requests of both arguments
+ * are sent concurrently by the worker threads. On first access, the right
+ * argument is consumed into a hash table (keyed by the join variables), while the 
+ * requests of the left argument are in progress. Once the hash table is built, the
+ * results of the left argument are probed against it.
+ * 
+ * If the hash table exceeds the memory budget of the query (see {@link QueryInfo#reserveRows(long)}),
+ * the remaining rows of the right argument are spilled to partitioned {@link SpillFile}s 
+ * (hybrid hash join): the results of the left argument are probed against the in-memory
+ * table and additionally spilled to the corresponding partition. Afterwards the spilled
+ * partitions are joined one by one, each in its own in-memory table. A partition which
+ * does not fit into the memory budget is split again using further bits of the hash
+ * of the join key. Rows are reserved only while their table is in use.
+ * 
+ * @see HashJoinProbeIteration
+ */
+public class HashJoinIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	public static Logger log = Logger.getLogger(HashJoinIteration.class);
+	
+	/* the number of partitions of the spilled rows, selected by PARTITION_BITS bits of the hash */
+	protected static final int PARTITIONS = 16;
+	protected static final int PARTITION_BITS = 4;
+	
+	/* the maximum depth of splitting partitions, i.e. until all bits of the hash are used */
+	protected static final int MAX_DEPTH = 32 / PARTITION_BITS - 1;
+	
+	protected final HashJoin join;
+	protected final QueryInfo queryInfo;
+	protected final CloseableIteration<BindingSet, QueryEvaluationException> rightIter;
+	protected final CloseableIteration<BindingSet, QueryEvaluationException> leftIter;
+	protected CloseableIteration<BindingSet, QueryEvaluationException> probeIter = null;
+	
+	/* the rows of the current hash table reserved in the memory budget of the query */
+	protected long reservedRows = 0;
+	
+	/* the spilled rows of both arguments per partition, null if nothing is spilled */
+	protected SpillFile[] buildPartitions = null;
+	protected SpillFile[] probePartitions = null;
+	
+	/* the spilled partitions which remain to be joined */
+	protected final Deque<Partition> pending = new ArrayDeque<Partition>();
+	
+	/* all spill files, guarded by this */
+	protected final List<SpillFile> spillFiles = new ArrayList<SpillFile>();
+	protected boolean closed = false;
+	
+	public HashJoinIteration(FederationEvalStrategy strategy, HashJoin join, BindingSet bindings) throws QueryEvaluationException {
+		this.join = join;
+		this.queryInfo = join.getQueryInfo();
+		this.rightIter = evaluateArgument(strategy, join.getRightArg(), bindings);
+		try {
+			this.leftIter = evaluateArgument(strategy, join.getLeftArg(), bindings);
+		} catch (QueryEvaluationException e) {
+			rightIter.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Submit the evaluation of the given argument as a task to the union scheduler. The
+	 * returned iteration provides the results once the task is done.
+	 * 
+	 * @param strategy
+	 * @param expr
+	 * @param bindings
+	 * @return the result iteration of the argument
+	 * @throws QueryEvaluationException
+	 */
+	protected CloseableIteration<BindingSet, QueryEvaluationException> evaluateArgument(FederationEvalStrategy strategy, TupleExpr expr, BindingSet bindings) throws QueryEvaluationException {
+		ControlledWorkerUnion<BindingSet> task = new ControlledWorkerUnion<BindingSet>(FederationManager.getInstance().getUnionScheduler(), queryInfo);
+		task.addTask(new ParallelUnionOperatorTask(task, strategy, expr, bindings));
+		task.run();		// schedule the task
+		return task;
+	}
+	
+	protected Map<List<Value>, List<BindingSet>> buildHashTable(CloseableIteration<BindingSet, QueryEvaluationException> iter) throws QueryEvaluationException {
+		Map<List<Value>, List<BindingSet>> hashTable = new HashMap<List<Value>, List<BindingSet>>();
+		try {
+			while (iter.hasNext()) {
+				BindingSet b = iter.next();
+				List<Value> key = QueryAlgebraUtil.joinKey(b, join.getJoinVars());
+				if (key==null)
+					continue;
+				
+				if (buildPartitions==null) {
+					if (queryInfo.reserveRows(1)) {
+						reservedRows++;
+						add(hashTable, key, b);
+						continue;
+					}
+					if (log.isDebugEnabled())
+						log.debug("Hash join of query " + queryInfo.getQueryID() + " exceeds the memory budget after " + reservedRows + " rows, spilling to disk.");
+					buildPartitions = createPartitions();
+				}
+				append(buildPartitions, key, b, 0);
+			}
+		} finally {
+			iter.close();
+		}
+		return hashTable;
+	}
+	
+	protected static void add(Map<List<Value>, List<BindingSet>> hashTable, List<Value> key, BindingSet b) {
+		List<BindingSet> l = hashTable.get(key);
+		if (l==null) {
+			l = new ArrayList<BindingSet>(1);
+			hashTable.put(key, l);
+		}
+		l.add(b);
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		
+		if (probeIter==null) {
+			Map<List<Value>, List<BindingSet>> hashTable = buildHashTable(rightIter);
+			
+			CloseableIteration<BindingSet, QueryEvaluationException> probe = leftIter;
+			if (buildPartitions!=null) {
+				// spill the probed rows for the join with the spilled partitions
+				probePartitions = createPartitions();
+				probe = new IterationWrapper<BindingSet, QueryEvaluationException>(leftIter) {
+					@Override
+					public BindingSet next() throws QueryEvaluationException {
+						BindingSet b = super.next();
+						List<Value> key = QueryAlgebraUtil.joinKey(b, join.getJoinVars());
+						if (key!=null)
+							append(probePartitions, key, b, 0);
+						return b;
+					}
+				};
+			}
+			probeIter = new HashJoinProbeIteration(probe, join.getJoinVars(), hashTable);
+		}
+		
+		while (!probeIter.hasNext()) {
+			// the current hash table is no longer required
+			probeIter.close();
+			releaseRows();
+			if (buildPartitions!=null) {
+				for (int i=0; i<PARTITIONS; i++)
+					pending.push(new Partition(buildPartitions[i], probePartitions[i], 0));
+				buildPartitions = null;
+				probePartitions = null;
+			}
+			Partition p = pending.poll();
+			if (p==null)
+				return null;
+			probeIter = joinPartition(p);
+		}
+		return probeIter.next();
+	}
+	
+	/**
+	 * Join the spilled rows of the given partition, the spilled rows of the right 
+	 * argument are loaded into an in-memory hash table. If they do not fit into the
+	 * memory budget, the partition is split and the resulting partitions are joined
+	 * later.
+	 * 
+	 * @param p
+	 * @return the join results of the partition
+	 * @throws QueryEvaluationException
+	 */
+	protected CloseableIteration<BindingSet, QueryEvaluationException> joinPartition(Partition p) throws QueryEvaluationException {
+		
+		if (p.build.size()==0 || p.probe.size()==0)
+			return new EmptyIteration<BindingSet, QueryEvaluationException>();
+		
+		if (queryInfo.reserveRows(p.build.size())) {
+			reservedRows = p.build.size();
+		} else if (p.depth<MAX_DEPTH && p.build.size()>1 && queryInfo.reserveRows(1)) {
+			// splitting only helps if some rows fit into the memory budget
+			queryInfo.releaseRows(1);
+			split(p);
+			return new EmptyIteration<BindingSet, QueryEvaluationException>();
+		} else if (log.isDebugEnabled()) {
+			log.debug("Partition of hash join of query " + queryInfo.getQueryID() + " with " + p.build.size() + " rows cannot be split further, joining it in memory.");
+		}
+		
+		Map<List<Value>, List<BindingSet>> hashTable = new HashMap<List<Value>, List<BindingSet>>();
+		try {
+			CloseableIteration<BindingSet, QueryEvaluationException> iter = p.build.iterator();
+			try {
+				while (iter.hasNext()) {
+					BindingSet b = iter.next();
+					add(hashTable, QueryAlgebraUtil.joinKey(b, join.getJoinVars()), b);
+				}
+			} finally {
+				iter.close();
+			}
+			return new HashJoinProbeIteration(p.probe.iterator(), join.getJoinVars(), hashTable);
+		} catch (IOException e) {
+			throw new QueryEvaluationException(e);
+		}
+	}
+	
+	/**
+	 * Split the given partition using the next bits of the hash of the join key. The
+	 * files of the partition are deleted.
+	 * 
+	 * @param p
+	 * @throws QueryEvaluationException
+	 */
+	protected void split(Partition p) throws QueryEvaluationException {
+		SpillFile[] build = createPartitions();
+		SpillFile[] probe = createPartitions();
+		spill(p.build, build, p.depth+1);
+		spill(p.probe, probe, p.depth+1);
+		p.build.close();
+		p.probe.close();
+		for (int i=0; i<PARTITIONS; i++)
+			pending.push(new Partition(build[i], probe[i], p.depth+1));
+	}
+	
+	protected void spill(SpillFile file, SpillFile[] partitions, int depth) throws QueryEvaluationException {
+		try {
+			CloseableIteration<BindingSet, QueryEvaluationException> iter = file.iterator();
+			try {
+				while (iter.hasNext()) {
+					BindingSet b = iter.next();
+					append(partitions, QueryAlgebraUtil.joinKey(b, join.getJoinVars()), b, depth);
+				}
+			} finally {
+				iter.close();
+			}
+		} catch (IOException e) {
+			throw new QueryEvaluationException(e);
+		}
+	}
+	
+	protected void releaseRows() {
+		queryInfo.releaseRows(reservedRows);
+		reservedRows = 0;
+	}
+	
+	protected synchronized SpillFile[] createPartitions() throws QueryEvaluationException {
+		if (closed)
+			throw new QueryEvaluationException("Hash join of query " + queryInfo.getQueryID() + " is closed.");
+		SpillFile[] res = new SpillFile[PARTITIONS];
+		try {
+			for (int i=0; i<PARTITIONS; i++) {
+				res[i] = new SpillFile();
+				spillFiles.add(res[i]);
+			}
+		} catch (IOException e) {
+			throw new QueryEvaluationException("Failed to create spill file: " + e.getMessage(), e);
+		}
+		return res;
+	}
+	
+	protected static void append(SpillFile[] partitions, List<Value> key, BindingSet b, int depth) throws QueryEvaluationException {
+		try {
+			partitions[(key.hashCode() >>> (depth*PARTITION_BITS)) & (PARTITIONS-1)].append(b);
+		} catch (IOException e) {
+			throw new QueryEvaluationException("Failed to spill rows: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+			rightIter.close();
+		} finally {
+			try {
+				if (probeIter!=null)
+					probeIter.close();
+				else
+					leftIter.close();
+			} finally {
+				synchronized (this) {
+					closed = true;
+					for (SpillFile f : spillFiles)
+						f.close();
+				}
+				releaseRows();
+			}
+		}
+	}
+	
+	
+	/**
+	 * The spilled rows of both arguments with the same bits of the hash of the join key.
+	 */
+	protected static class Partition {
+		public final SpillFile build;
+		public final SpillFile probe;
+		public final int depth;
+		public Partition(SpillFile build, SpillFile probe, int depth) {
+			this.build = build;
+			this.probe = probe;
+			this.depth = depth;
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import com.fluidops.fedx.structures.BindingSchema;
+import com.fluidops.fedx.structures.CompactBindingSet;
+import com.fluidops.fedx.util.QueryAlgebraUtil;
+
+/**
+ * Probes the results of the right join argument against a hash table of the left
+ * bindings, which is keyed by the values of the join variables. For each match
+ * the merged binding set is returned.
+ * 
+ * @see com.fluidops.fedx.evaluation.join.ControlledWorkerSemiJoin
+ */
+public class HashJoinProbeIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	protected final CloseableIteration<BindingSet, QueryEvaluationException> iter;
+	protected final List<String> joinVars;
+	protected final Map<List<Value>, List<BindingSet>> hashTable;
+	
+	protected final BindingSchema schema = new BindingSchema();
+	
+	protected BindingSet current = null;
+	protected Iterator<BindingSet> currentMatches = null;
+	
+	public HashJoinProbeIteration(CloseableIteration<BindingSet, QueryEvaluationException> iter, List<String> joinVars,
+			Map<List<Value>, List<BindingSet>> hashTable) {
+		this.iter = iter;
+		this.joinVars = joinVars;
+		this.hashTable = hashTable;
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		
+		while (currentMatches==null || !currentMatches.hasNext()) {
+			if (!iter.hasNext())
+				return null;
+			current = iter.next();
+			List<BindingSet> matches = hashTable.get(QueryAlgebraUtil.joinKey(current, joinVars));
+			currentMatches = matches==null ? null : matches.iterator();
+		}
+		
+		return CompactBindingSet.create(schema, currentMatches.next(), current);
+	}
+	
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			iter.close();
+		}
+	}
+}
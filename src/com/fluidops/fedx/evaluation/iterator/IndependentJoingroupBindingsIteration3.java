@@ -16,10 +16,9 @@
 package com.fluidops.fedx.evaluation.iterator;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
@@ -27,125 +26,162 @@ import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.Binding;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+
+import com.fluidops.fedx.structures.BindingSchema;
+import com.fluidops.fedx.structures.CompactBindingSet;
 
 /**
  * Inserts original bindings into the result.
  * 
+ * The results of both statements are joined per binding index in a streaming fashion: 
+ * each incoming value is combined with the values of the other statement that have 
+ * been seen so far for the same binding index, i.e. results are returned as soon as
+ * both statements have delivered a value. Only the values per binding index are kept,
+ * not the joined result. Binding names are decoded once and kept in a lookup table.
+ * 
  * @author Andreas Schwarte
  */
 public class IndependentJoingroupBindingsIteration3 extends LookAheadIteration<BindingSet, QueryEvaluationException>{
 
-	// a pattern matcher for the binding resolver, pattern: myVar_%outerID%#bindingId, e.g. name_0#0
-	protected static final Pattern pattern = Pattern.compile("(.*)_(.*)_(.*)");	
-	
 	protected final List<BindingSet> bindings;
 	protected final CloseableIteration<BindingSet, QueryEvaluationException> iter;
-	protected ArrayList<BindingSet> result = null;
-	protected int currentIdx = 0;
+	protected final BindingSchema schema = new BindingSchema();
+	
+	// decoded binding names, pattern: myVar_%outerID%_bindingId, e.g. name_0_0
+	protected final Map<String, BindingName> names = new HashMap<String, BindingName>();
+	
+	// per binding index the values of both statements seen so far
+	protected final PartialResult[] partials;
+	
+	// the current value and the matching values of the other statement
+	protected BindingInfo current = null;
+	protected boolean currentIsA = false;
+	protected int currentBindingsIdx = -1;
+	protected List<BindingInfo> matches = null;
+	protected int matchCount = 0;
+	protected int matchIdx = 0;
 	
 	public IndependentJoingroupBindingsIteration3(CloseableIteration<BindingSet, QueryEvaluationException> iter, List<BindingSet> bindings) {
 		this.bindings = bindings;
 		this.iter = iter;
+		this.partials = new PartialResult[bindings.size()];
 	}
 
 	@Override
 	protected BindingSet getNextElement() throws QueryEvaluationException {
 		
-		if (result==null) {
-			result = computeResult();
-		}
-		
-		if (currentIdx>=result.size())
-			return null;
-		
-		return result.get(currentIdx++);
-	}
-
-	
-	protected ArrayList<BindingSet> computeResult() throws QueryEvaluationException {
-		
-		// underlying arraylist serves as map, index corresponds to bindings index (i.e. at most bindings.size() - 1)
-		// a_res[0] = { v_0#0-1; v_0#0-2; ... }
-		// a_res[1] = { v_0#1-1; v_0#1-2; ... }
-		ArrayList<LinkedList<BindingInfo>> a_res = new ArrayList<LinkedList<BindingInfo>>(bindings.size());
-		ArrayList<LinkedList<BindingInfo>> b_res = new ArrayList<LinkedList<BindingInfo>>(bindings.size());
-		
-		// we assume that each binding returns at least one result for each statement
-		// => create lists in advance to avoid checking later on
-		for (int i=0; i<bindings.size(); i++) {
-			a_res.add(new LinkedList<BindingInfo>());
-			b_res.add(new LinkedList<BindingInfo>());
-		}
-		
-		// assumes that bindingset of iteration has exactly one binding
-		while (iter.hasNext()) {
+		while (current==null || matchIdx>=matchCount) {
 			
-			BindingSet bIn = iter.next();
+			if (!iter.hasNext())
+				return null;
 			
+			// assumes that bindingset of iteration has exactly one binding
+			BindingSet bIn = iter.next();
 			if (bIn.size()!=1)
-				throw new RuntimeException("For this optimization a bindingset needs to have exactly one binding, it has " + bIn.size() + ": " + bIn);
-
-			Binding b = bIn.getBinding( bIn.getBindingNames().iterator().next() );
-			
-			// name is something like myVar_%outerID%_bindingId, e.g. name_0_0
-			Matcher m = pattern.matcher(b.getName());
-			if (!m.find())
-				throw new QueryEvaluationException("Unexpected pattern for binding name: " + b.getName());
-			
-			BindingInfo bInfo = new BindingInfo(m.group(1), Integer.parseInt(m.group(3)), b.getValue());
-			int bIndex = Integer.parseInt(m.group(2));
+				throw new QueryEvaluationException("For this optimization a bindingset needs to have exactly one binding, it has " + bIn.size() + ": " + bIn);
+			Binding b = bIn.iterator().next();
 			
-//			int tmp = b.getName().indexOf("_");
-//			String pattern = b.getName().substring(tmp+1);
-//			String split[] = pattern.split("_");
-//			
-//			int bIndex = Integer.parseInt(split[0]);
-//			int bindingsIdx = Integer.parseInt(split[1]);
-//			BindingInfo bInfo = new BindingInfo(b.getName().substring(0, tmp), bindingsIdx, b.getValue());
+			BindingName name = decode(b.getName());
+			PartialResult partial = partials[name.bindingsIdx];
+			if (partial==null) {
+				partial = new PartialResult();
+				partials[name.bindingsIdx] = partial;
+			}
 			
-			// add a new binding info to the correct result list
-			if (bIndex==0) {
-				a_res.get(bInfo.bindingsIdx).add(bInfo);
+			current = new BindingInfo(name.slot, b.getValue());
+			currentIsA = name.outerId==0;
+			currentBindingsIdx = name.bindingsIdx;
+			if (currentIsA) {
+				partial.a.add(current);
+				matches = partial.b;
+			} else {
+				partial.b.add(current);
+				matches = partial.a;
 			}
-			else if (bIndex==1)
-				b_res.get(bInfo.bindingsIdx).add(bInfo);
-			else
-				throw new RuntimeException("Unexpected binding value.");
+			matchCount = matches.size();
+			matchIdx = 0;
 		}
 		
-		// TODO think about a better upper bound or use linked list
-		ArrayList<BindingSet> res = new ArrayList<BindingSet>(2*bindings.size());
+		BindingInfo match = matches.get(matchIdx++);
+		BindingInfo a = currentIsA ? current : match;
+		BindingInfo b = currentIsA ? match : current;
 		
-		for (int a_idx=0; a_idx<a_res.size(); a_idx++) {
-			LinkedList<BindingInfo> a_list = a_res.get(a_idx);			
-			for (BindingInfo a : a_list) {
-				for (BindingInfo b : b_res.get(a_idx)) {
-					QueryBindingSet newB = new QueryBindingSet(bindings.size() + 2);
-					newB.addBinding(a.name, a.value);
-					newB.addBinding(b.name, b.value);
-					newB.addAll(bindings.get(a.bindingsIdx));
-					res.add(newB);
-				}
-			}
+		Value[] values = new Value[schema.size()];
+		values[a.slot] = a.value;
+		values[b.slot] = b.value;
+		return new CompactBindingSet(schema, values, bindings.get(currentBindingsIdx));
+	}
+	
+	/**
+	 * Decode the given binding name (pattern: myVar_%outerID%_bindingId), the
+	 * result is kept in the lookup table.
+	 * 
+	 * @param bindingName
+	 * @return the decoded binding name
+	 * @throws QueryEvaluationException
+	 */
+	protected BindingName decode(String bindingName) throws QueryEvaluationException {
+		BindingName res = names.get(bindingName);
+		if (res!=null)
+			return res;
+		
+		int idx2 = bindingName.lastIndexOf('_');
+		int idx1 = idx2<=0 ? -1 : bindingName.lastIndexOf('_', idx2-1);
+		if (idx1<0)
+			throw new QueryEvaluationException("Unexpected pattern for binding name: " + bindingName);
+		
+		int outerId, bindingsIdx;
+		try {
+			outerId = Integer.parseInt(bindingName.substring(idx1+1, idx2));
+			bindingsIdx = Integer.parseInt(bindingName.substring(idx2+1));
+		} catch (NumberFormatException e) {
+			throw new QueryEvaluationException("Unexpected pattern for binding name: " + bindingName);
 		}
-				
+		if (outerId!=0 && outerId!=1)
+			throw new QueryEvaluationException("Unexpected binding value: " + bindingName);
+		
+		res = new BindingName(schema.add(bindingName.substring(0, idx1)), outerId, bindingsIdx);
+		names.put(bindingName, res);
 		return res;
 	}
 	
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			iter.close();
+		}
+	}
 	
-	protected class BindingInfo {
-		public final String name;
+	
+	protected static class BindingName {
+		public final int slot;
+		public final int outerId;
 		public final int bindingsIdx;
-		public final Value value;
-		public BindingInfo(String name, int bindingsIdx, Value value) {
+		public BindingName(int slot, int outerId, int bindingsIdx) {
 			super();
-			this.name = name;
+			this.slot = slot;
+			this.outerId = outerId;
 			this.bindingsIdx = bindingsIdx;
+		}
+	}
+	
+	protected static class PartialResult {
+		public final List<BindingInfo> a = new ArrayList<BindingInfo>();
+		public final List<BindingInfo> b = new ArrayList<BindingInfo>();
+	}
+	
+	protected class BindingInfo {
+		public final int slot;
+		public final Value value;
+		public BindingInfo(int slot, Value value) {
+			super();
+			this.slot = slot;
 			this.value = value;
 		}	
 		public String toString() {
-			return name + ":" + value.stringValue();
+			return schema.getName(slot) + ":" + value.stringValue();
 		}
 	}
 
@@ -19,16 +19,20 @@ import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.ConvertingIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+
+import com.fluidops.fedx.structures.BindingSchema;
+import com.fluidops.fedx.structures.CompactBindingSet;
 
 /**
- * Inserts original bindings into the result.
+ * Inserts original bindings into the result. The result rows are {@link CompactBindingSet}s
+ * which share the schema of this iteration and reference the original bindings.
  * 
  * @author Andreas Schwarte
  */
 public class InsertBindingsIteration extends ConvertingIteration<BindingSet, BindingSet, QueryEvaluationException>{
 
 	protected final BindingSet bindings;
+	protected final BindingSchema schema = new BindingSchema();
 	
 	public InsertBindingsIteration(CloseableIteration<BindingSet, QueryEvaluationException> iter, BindingSet bindings) {
 		super(iter);
@@ -37,9 +41,6 @@ public class InsertBindingsIteration extends ConvertingIteration<BindingSet, Bin
 
 	@Override
 	protected BindingSet convert(BindingSet bIn) throws QueryEvaluationException {
-		QueryBindingSet res = new QueryBindingSet(bindings.size() + bIn.size());
-		res.addAll(bindings);
-		res.addAll(bIn);
-		return res;
+		return CompactBindingSet.create(schema, bIn, bindings);
 	}
 }
@@ -43,8 +43,6 @@ import com.fluidops.fedx.structures.QueryInfo;
 public class QueryResultIteration extends AbstractCloseableIteration<BindingSet, QueryEvaluationException>
 {
 
-	// TODO apply this class and provide test case
-	
 	protected final CloseableIteration<BindingSet, QueryEvaluationException> inner;
 	protected final QueryInfo queryInfo;
 	
@@ -58,13 +56,16 @@ public class QueryResultIteration extends AbstractCloseableIteration<BindingSet,
 	
 	@Override	
 	public boolean hasNext() throws QueryEvaluationException {
-		if (inner.hasNext())
-			return true;
-		else {
-			// inform the query manager that this query is done
-			FederationManager.getInstance().getQueryManager().finishQuery(queryInfo);
-			return false;
+		try {
+			if (inner.hasNext())
+				return true;
+		} catch (QueryEvaluationException e) {
+			abortQuery();
+			throw e;
 		}
+		// inform the query manager that this query is done
+		FederationManager.getInstance().getQueryManager().finishQuery(queryInfo);
+		return false;
 	}
 
 	@Override
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.impl.QueueCursor;
+
+
+/**
+ * A {@link QueueCursor} for the intermediate results of parallel executors. In 
+ * contrast to the base class, results which are still queued (or added after
+ * the cursor was closed) are closed when this cursor is closed, i.e. any 
+ * underlying remote requests are released. Tossed {@link QueryEvaluationException}s
+ * are rethrown as is, e.g. a {@link org.eclipse.rdf4j.query.QueryInterruptedException}
+ * of a query which exceeded its deadline.
+ */
+public class ResultQueueCursor<T> extends QueueCursor<CloseableIteration<T, QueryEvaluationException>> {
+
+	public static Logger log = Logger.getLogger(ResultQueueCursor.class);
+	
+	protected final BlockingQueue<CloseableIteration<T, QueryEvaluationException>> queue;
+	
+	public ResultQueueCursor(int capacity) {
+		this(new ArrayBlockingQueue<CloseableIteration<T, QueryEvaluationException>>(capacity));
+	}
+	
+	protected ResultQueueCursor(BlockingQueue<CloseableIteration<T, QueryEvaluationException>> queue) {
+		super(queue);
+		this.queue = queue;
+	}
+
+	@Override
+	public void put(CloseableIteration<T, QueryEvaluationException> res) throws InterruptedException, QueryEvaluationException {
+		super.put(res);
+		// the result is discarded if the cursor is closed concurrently
+		if (isClosed()) {
+			closeSilently(res);
+		}
+	}
+	
+	@Override
+	protected QueryEvaluationException convert(Exception e) {
+		if (e instanceof QueryEvaluationException)
+			throw (QueryEvaluationException) e;
+		throw new QueryEvaluationException(e);
+	}
+	
+	@Override
+	public void handleClose() throws QueryEvaluationException {
+		try {
+			closeQueuedResults();
+		} finally {
+			super.handleClose();
+		}
+	}
+	
+	protected void closeQueuedResults() {
+		List<Object> queued = new ArrayList<Object>();
+		queue.drainTo(queued);
+		for (Object o : queued) {
+			// note: the queue also contains the end marker of the base class
+			if (o instanceof CloseableIteration) {
+				closeSilently((CloseableIteration<?, ?>) o);
+			}
+		}
+	}
+	
+	protected void closeSilently(CloseableIteration<?, ?> res) {
+		try {
+			res.close();
+		} catch (Exception e) {
+			log.debug("Failed to close queued result: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.OrderElem;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.util.ValueComparator;
+
+/**
+ * Merges iterations which are sorted by the same order into a single sorted iteration
+ * (k-way merge). Only the head of each input is kept in memory, and the merge stops 
+ * once the given limit is reached, i.e. the remaining inputs are closed.
+ * 
+ * The inputs are typically the results of subqueries with ORDER BY and LIMIT that are
+ * sent to the individual sources. 
+ */
+public class SortedMergeIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+	/**
+	 * Create a comparator for binding sets according to the given order elements, 
+	 * which must be variables. Unbound values are ordered first.
+	 * 
+	 * @param order
+	 * @return the comparator
+	 */
+	public static Comparator<BindingSet> createComparator(final List<OrderElem> order) {
+		final ValueComparator cmp = new ValueComparator();
+		return new Comparator<BindingSet>() {
+			@Override
+			public int compare(BindingSet b1, BindingSet b2) {
+				for (OrderElem elem : order) {
+					String name = ((Var)elem.getExpr()).getName();
+					int res = cmp.compare(b1.getValue(name), b2.getValue(name));
+					if (res!=0)
+						return elem.isAscending() ? res : -res;
+				}
+				return 0;
+			}
+		};
+	}
+	
+	protected final List<CloseableIteration<BindingSet, QueryEvaluationException>> inputs;
+	protected final PriorityQueue<Head> heads;
+	protected final long limit;
+	protected long returned = 0;
+	protected boolean initialized = false;
+	
+	/**
+	 * @param inputs
+	 * 			the sorted inputs
+	 * @param order
+	 * 			the order of the inputs, the expressions must be variables
+	 * @param limit
+	 * 			the maximum number of results, or a negative value for no limit
+	 */
+	public SortedMergeIteration(List<CloseableIteration<BindingSet, QueryEvaluationException>> inputs, List<OrderElem> order, long limit) {
+		this.inputs = inputs;
+		this.limit = limit;
+		final Comparator<BindingSet> cmp = createComparator(order);
+		this.heads = new PriorityQueue<Head>(Math.max(1, inputs.size()), new Comparator<Head>() {
+			@Override
+			public int compare(Head h1, Head h2) {
+				return cmp.compare(h1.bindings, h2.bindings);
+			}
+		});
+	}
+
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		
+		if (!initialized) {
+			initialized = true;
+			for (CloseableIteration<BindingSet, QueryEvaluationException> input : inputs)
+				advance(input);
+		}
+		
+		if (limit>=0 && returned>=limit)
+			return null;
+		
+		Head head = heads.poll();
+		if (head==null)
+			return null;
+		returned++;
+		if (limit<0 || returned<limit)
+			advance(head.input);
+		return head.bindings;
+	}
+	
+	protected void advance(CloseableIteration<BindingSet, QueryEvaluationException> input) throws QueryEvaluationException {
+		if (input.hasNext())
+			heads.add(new Head(input.next(), input));
+		else
+			input.close();
+	}
+	
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		QueryEvaluationException error = null;
+		for (CloseableIteration<BindingSet, QueryEvaluationException> input : inputs) {
+			try {
+				input.close();
+			} catch (QueryEvaluationException e) {
+				error = e;
+			}
+		}
+		heads.clear();
+		super.handleClose();
+		if (error!=null)
+			throw error;
+	}
+	
+	
+	protected static class Head {
+		public final BindingSet bindings;
+		public final CloseableIteration<BindingSet, QueryEvaluationException> input;
+		public Head(BindingSet bindings, CloseableIteration<BindingSet, QueryEvaluationException> input) {
+			this.bindings = bindings;
+			this.input = input;
+		}
+	}
+}
@@ -19,13 +19,16 @@ import java.util.NoSuchElementException;
 
 import org.eclipse.rdf4j.common.iteration.AbstractCloseableIteration;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
-import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.RepositoryResult;
 
+import com.fluidops.fedx.structures.BindingSchema;
+import com.fluidops.fedx.structures.CompactBindingSet;
+
 
 /**
  * Converts Statement iteration (i.e. RepositoryResult) into the corresponding binding set. Note that
@@ -45,6 +48,10 @@ public class StatementConversionIteration extends AbstractCloseableIteration<Bin
 	protected boolean updateObj = false;
 	protected boolean updateContext = false;
 	
+	// slots of the statement variables in the compact result rows
+	protected final BindingSchema schema = new BindingSchema();
+	protected int subjSlot, predSlot, objSlot, contextSlot;
+	
 	public StatementConversionIteration(RepositoryResult<Statement> repoResult,
 			BindingSet bindings, StatementPattern stmt) {
 		super();
@@ -59,6 +66,15 @@ public class StatementConversionIteration extends AbstractCloseableIteration<Bin
 		updatePred = stmt.getPredicateVar() != null && !bindings.hasBinding(stmt.getPredicateVar().getName());
 		updateObj = stmt.getObjectVar() != null && !bindings.hasBinding(stmt.getObjectVar().getName());
 		updateContext = stmt.getContextVar() != null && !bindings.hasBinding(stmt.getContextVar().getName());
+		
+		if (updateSubj)
+			subjSlot = schema.add(stmt.getSubjectVar().getName());
+		if (updatePred)
+			predSlot = schema.add(stmt.getPredicateVar().getName());
+		if (updateObj)
+			objSlot = schema.add(stmt.getObjectVar().getName());
+		if (updateContext)
+			contextSlot = schema.add(stmt.getContextVar().getName());
 	}
 	
 	@Override
@@ -101,22 +117,22 @@ public class StatementConversionIteration extends AbstractCloseableIteration<Bin
 
 	
 	protected BindingSet convert(Statement st) {
-		QueryBindingSet result = new QueryBindingSet(bindings);
+		Value[] values = new Value[schema.size()];
 
 		if (updateSubj) {
-			result.addBinding(stmt.getSubjectVar().getName(), st.getSubject());
+			values[subjSlot] = st.getSubject();
 		}
 		if (updatePred) {
-			result.addBinding(stmt.getPredicateVar().getName(), st.getPredicate());
+			values[predSlot] = st.getPredicate();
 		}
 		if (updateObj) {
-			result.addBinding(stmt.getObjectVar().getName(), st.getObject());
+			values[objSlot] = st.getObject();
 		}
 		if (updateContext && st.getContext() != null) {
-			result.addBinding(stmt.getContextVar().getName(), st.getContext());
+			values[contextSlot] = st.getContext();
 		}
 
-		return result;
+		return new CompactBindingSet(schema, values, bindings);
 	}
 	
 	protected QueryEvaluationException convertException(Exception e) {
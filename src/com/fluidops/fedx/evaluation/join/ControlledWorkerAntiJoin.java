@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.join;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import com.fluidops.fedx.Config;
+import com.fluidops.fedx.algebra.StatementTupleExpr;
+import com.fluidops.fedx.evaluation.FederationEvalStrategy;
+import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.structures.QueryInfo;
+
+
+/**
+ * Execute an anti join (MINUS or FILTER NOT EXISTS) in an asynchronous fashion, using 
+ * grouped requests, i.e. blocks of left bindings are checked against the sources of the
+ * right statement in a single request (see {@link FederationEvalStrategy#evaluateGroupedAntiJoin(StatementTupleExpr, List, boolean)}).
+ * 
+ * The number of concurrent threads is controlled by a {@link ControlledWorkerScheduler} which
+ * works according to the FIFO principle and uses worker threads.
+ * 
+ * This join cursor is finished once all scheduled tasks are done, the result iteration
+ * can be accessed from different threads to allow for pipelining.
+ */
+public class ControlledWorkerAntiJoin extends ControlledWorkerJoin {
+
+	public static Logger log = Logger.getLogger(ControlledWorkerAntiJoin.class);
+	
+	protected final boolean minusSemantics;
+	
+	/**
+	 * 
+	 * @param scheduler
+	 * @param strategy
+	 * @param leftIter
+	 * @param rightArg
+	 * 			the statement which must not match for a left binding
+	 * @param minusSemantics
+	 * 			if true, SPARQL MINUS semantics are applied, i.e. left bindings which do not share
+	 * 			a variable with the statement are kept. Otherwise FILTER NOT EXISTS semantics apply.
+	 * @param bindings
+	 * @param queryInfo
+	 * @throws QueryEvaluationException
+	 */
+	public ControlledWorkerAntiJoin(ControlledWorkerScheduler<BindingSet> scheduler, FederationEvalStrategy strategy,
+			CloseableIteration<BindingSet, QueryEvaluationException> leftIter,
+			StatementTupleExpr rightArg, boolean minusSemantics, BindingSet bindings, QueryInfo queryInfo)
+			throws QueryEvaluationException {
+		super(scheduler, strategy, leftIter, rightArg, bindings, queryInfo);
+		this.minusSemantics = minusSemantics;
+	}
+
+	
+	@Override
+	protected void handleBindings() throws Exception {
+		
+		int nBindings = Config.getConfig().getBoundJoinBlockSize();	
+		int totalBindings = 0;		// the total number of bindings
+		StatementTupleExpr stmt = (StatementTupleExpr)rightArg;
+		
+		while (!closed && leftIter.hasNext()) {
+			
+			List<BindingSet> bindings = new ArrayList<BindingSet>(nBindings);
+			
+			int count=0;
+			while (count < nBindings && leftIter.hasNext()) {
+				bindings.add(leftIter.next());
+				count++;
+			}
+			
+			totalBindings += count;		
+		
+			phaser.register();
+			scheduler.schedule( new ParallelAntiJoinTask(this, strategy, stmt, bindings, minusSemantics) );
+		}
+		
+		scheduler.informFinish(this);
+		
+		log.debug("JoinStats: left iter of anti join #" + this.joinId + " had " + totalBindings + " results.");
+	}
+}
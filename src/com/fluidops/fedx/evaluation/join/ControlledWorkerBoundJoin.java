@@ -16,14 +16,22 @@
 package com.fluidops.fedx.evaluation.join;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.Binding;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.repository.sparql.federation.CollectionIteration;
 
 import com.fluidops.fedx.Config;
 import com.fluidops.fedx.algebra.BoundJoinTupleExpr;
@@ -33,8 +41,10 @@ import com.fluidops.fedx.algebra.IndependentJoinGroup;
 import com.fluidops.fedx.algebra.StatementTupleExpr;
 import com.fluidops.fedx.evaluation.FederationEvalStrategy;
 import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
 import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
 import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.util.QueryAlgebraUtil;
 
 
 
@@ -45,9 +55,16 @@ import com.fluidops.fedx.structures.QueryInfo;
  * The number of concurrent threads is controlled by a {@link ControlledWorkerScheduler} which
  * works according to the FIFO principle and uses worker threads.
  * 
- * This join cursor blocks until all scheduled tasks are finished, however the result iteration
+ * This join cursor is finished once all scheduled tasks are done, the result iteration
  * can be accessed from different threads to allow for pipelining.
  * 
+ * If {@link Config#isEnableBoundJoinDeduplication()} is set, left bindings of a statement
+ * are projected onto the join variables and only distinct projections are sent to the
+ * endpoints. The results are streamed and expanded back to all matching left bindings. 
+ * The results are memoized for duplicates that arrive later, the memoization table is 
+ * scoped to the join and accounted in the memory budget of the query (see {@link QueryInfo#reserveRows(long)}).
+ * Once the budget is exhausted, the remaining left bindings are sent in plain bound join blocks.
+ * 
  * @author Andreas Schwarte
  * 
  */
@@ -55,6 +72,17 @@ public class ControlledWorkerBoundJoin extends ControlledWorkerJoin {
 
 	public static Logger log = Logger.getLogger(ControlledWorkerBoundJoin.class);
 	
+	/**
+	 * join key (projection of the left binding onto the join variables) => distinct binding
+	 */
+	protected Map<List<Value>, DistinctBinding> distinctBindings = null;
+	
+	/* the rows of the memoization table reserved in the memory budget of the query, guarded by memoLock */
+	protected long reservedRows = 0;
+	/* set if the memoization table exceeds the memory budget or is no longer required, guarded by memoLock */
+	protected boolean memoDisabled = false;
+	protected final Object memoLock = new Object();
+	
 	public ControlledWorkerBoundJoin(ControlledWorkerScheduler<BindingSet> scheduler, FederationEvalStrategy strategy,
 			CloseableIteration<BindingSet, QueryEvaluationException> leftIter,
 			TupleExpr rightArg, BindingSet bindings, QueryInfo queryInfo)
@@ -76,6 +104,7 @@ public class ControlledWorkerBoundJoin extends ControlledWorkerJoin {
 		TupleExpr expr = rightArg;
 		
 		TaskCreator taskCreator = null;
+		List<String> joinVars = null;
 				
 		// first item is always sent in a non-bound way
 		if (!closed && leftIter.hasNext()) {
@@ -89,6 +118,9 @@ public class ControlledWorkerBoundJoin extends ControlledWorkerJoin {
 					expr = new CheckStatementPattern(stmt);
 					taskCreator = new CheckJoinTaskCreator(this, strategy, (CheckStatementPattern)expr);
 				}
+				if (Config.getConfig().isEnableBoundJoinDeduplication()) {
+					joinVars = getJoinVars(stmt, b);
+				}
 			} else if (expr instanceof FedXService) { 
 				taskCreator = new FedXServiceJoinTaskCreator(this, strategy, (FedXService)expr);
 			} else if (expr instanceof IndependentJoinGroup) {
@@ -96,13 +128,26 @@ public class ControlledWorkerBoundJoin extends ControlledWorkerJoin {
 			} else {
 				throw new RuntimeException("Expr is of unexpected type: " + expr.getClass().getCanonicalName() + ". Please report this problem.");
 			}
-			phaser.register();
-			scheduler.schedule( new ParallelJoinTask(this, strategy, expr, b) );
+			if (joinVars!=null) {
+				distinctBindings = new ConcurrentHashMap<List<Value>, DistinctBinding>();
+				List<Value> key = QueryAlgebraUtil.joinKey(b, joinVars);
+				distinctBindings.put(key, new DistinctBinding(b));
+				phaser.register();
+				scheduler.schedule( new ParallelDistinctJoinTask(new ParallelJoinTask(this, strategy, expr, project(b, joinVars)), 
+						joinVars, Collections.singletonList(key)) );
+			} else {
+				phaser.register();
+				scheduler.schedule( new ParallelJoinTask(this, strategy, expr, b) );
+			}
+		}
+		
+		if (joinVars!=null) {
+			totalBindings += handleDistinctBindings(taskCreator, joinVars);
 		}
 		
 		int nBindings;	
 		List<BindingSet> bindings = null;
-		while (!closed && leftIter.hasNext()) {
+		while (joinVars==null && !closed && leftIter.hasNext()) {
 			
 			
 			/*
@@ -137,14 +182,182 @@ public class ControlledWorkerBoundJoin extends ControlledWorkerJoin {
 		scheduler.informFinish(this);
 		
 		log.debug("JoinStats: left iter of join #" + this.joinId + " had " + totalBindings + " results.");
-				
-		// wait until all tasks are executed
-		int maxTimeoutSeconds = Config.getConfig().getEnforceMaxQueryTime();
-		if (maxTimeoutSeconds <= 0)
-		{
-			maxTimeoutSeconds = 100;
+	}
+	
+	@Override
+	protected void finish() {
+		super.finish();
+		// all tasks are done, the memoization table is no longer required
+		releaseMemo();
+	}
+	
+	@Override
+	public void handleClose() throws QueryEvaluationException {
+		try {
+			super.handleClose();
+		} finally {
+			releaseMemo();
+		}
+	}
+	
+	/**
+	 * Reserve a row of the memoization table in the memory budget of the query.
+	 * 
+	 * @return true if the row can be memoized
+	 */
+	protected boolean reserveRow() {
+		synchronized (memoLock) {
+			if (memoDisabled)
+				return false;
+			if (!queryInfo.reserveRows(1)) {
+				log.debug("Memoization table of join #" + joinId + " exceeds the memory budget after " + reservedRows + " rows.");
+				memoDisabled = true;
+				return false;
+			}
+			reservedRows++;
+			return true;
+		}
+	}
+	
+	protected boolean isMemoDisabled() {
+		synchronized (memoLock) {
+			return memoDisabled;
+		}
+	}
+	
+	protected void releaseMemo() {
+		synchronized (memoLock) {
+			memoDisabled = true;
+			queryInfo.releaseRows(reservedRows);
+			reservedRows = 0;
+		}
+		distinctBindings = null;
+	}
+	
+	/**
+	 * Consume the remaining left bindings and send only distinct projections onto the
+	 * join variables in bound join blocks. Duplicates are registered at their
+	 * {@link DistinctBinding} and directly joined with the results memoized so far.
+	 * If the memoization table exceeds the memory budget, the remaining bindings are
+	 * sent as is.
+	 * 
+	 * @param taskCreator
+	 * @param joinVars
+	 * @return the number of consumed left bindings
+	 * @throws Exception
+	 */
+	protected int handleDistinctBindings(TaskCreator taskCreator, List<String> joinVars) throws Exception {
+		
+		int nBindingsCfg = Config.getConfig().getBoundJoinBlockSize();
+		int totalBindings = 0;
+		int totalDistinct = 1;		// the first binding is distinct
+		int nBindings = 3;
+		
+		List<BindingSet> block = new ArrayList<BindingSet>(nBindings);
+		List<List<Value>> blockKeys = new ArrayList<List<Value>>(nBindings);
+		List<BindingSet> plainBlock = new ArrayList<BindingSet>(nBindingsCfg);
+		while (!closed && leftIter.hasNext()) {
+			BindingSet b = leftIter.next();
+			totalBindings++;
+			
+			List<Value> key = QueryAlgebraUtil.joinKey(b, joinVars);
+			if (key==null || bindsOtherVars((StatementTupleExpr)rightArg, b, joinVars)) {
+				// binding with a different set of join variables, evaluate it as is
+				phaser.register();
+				scheduler.schedule( new ParallelJoinTask(this, strategy, rightArg, b) );
+				continue;
+			}
+			
+			DistinctBinding distinct = distinctBindings.get(key);
+			List<BindingSet> results = null;
+			if (distinct!=null && (results=distinct.addBinding(b))!=null) {
+				if (!results.isEmpty()) {
+					List<BindingSet> merged = new ArrayList<BindingSet>(results.size());
+					merge(b, results, merged);
+					addResult(new CollectionIteration<BindingSet, QueryEvaluationException>(merged));
+				}
+				continue;
+			}
+			
+			if (distinct!=null || isMemoDisabled() || !reserveRow()) {
+				// the results cannot be memoized, send the binding in a plain bound join block
+				plainBlock.add(b);
+				if (plainBlock.size() >= nBindingsCfg) {
+					phaser.register();
+					scheduler.schedule( taskCreator.getTask(plainBlock) );
+					plainBlock = new ArrayList<BindingSet>(nBindingsCfg);
+				}
+				continue;
+			}
+			
+			distinctBindings.put(key, new DistinctBinding(b));
+			totalDistinct++;
+			block.add(project(b, joinVars));
+			blockKeys.add(key);
+			
+			if (block.size() >= nBindings) {
+				phaser.register();
+				scheduler.schedule( new ParallelDistinctJoinTask(taskCreator.getTask(block), joinVars, blockKeys) );
+				if (totalDistinct>10)
+					nBindings = nBindingsCfg;
+				block = new ArrayList<BindingSet>(nBindings);
+				blockKeys = new ArrayList<List<Value>>(nBindings);
+			}
+		}
+		
+		if (!block.isEmpty()) {
+			phaser.register();
+			scheduler.schedule( new ParallelDistinctJoinTask(taskCreator.getTask(block), joinVars, blockKeys) );
+		}
+		if (!plainBlock.isEmpty()) {
+			phaser.register();
+			scheduler.schedule( taskCreator.getTask(plainBlock) );
+		}
+		
+		log.debug("JoinStats: join #" + this.joinId + " sent " + totalDistinct + " distinct bindings.");
+		return totalBindings;
+	}
+	
+	/**
+	 * Returns the free variables of the statement that are bound in the given bindings
+	 * 
+	 * @param stmt
+	 * @param b
+	 * @return the join variables
+	 */
+	protected List<String> getJoinVars(StatementTupleExpr stmt, BindingSet b) {
+		List<String> joinVars = new ArrayList<String>();
+		for (String var : stmt.getFreeVars()) {
+			if (b.hasBinding(var))
+				joinVars.add(var);
+		}
+		return joinVars;
+	}
+	
+	private boolean bindsOtherVars(StatementTupleExpr stmt, BindingSet b, List<String> joinVars) {
+		for (String var : stmt.getFreeVars()) {
+			if (b.hasBinding(var) && !joinVars.contains(var))
+				return true;
+		}
+		return false;
+	}
+	
+	private BindingSet project(BindingSet b, List<String> joinVars) {
+		QueryBindingSet res = new QueryBindingSet(joinVars.size());
+		for (String var : joinVars)
+			res.addBinding(var, b.getValue(var));
+		return res;
+	}
+	
+	private static void merge(BindingSet left, List<BindingSet> results, List<BindingSet> out) {
+		for (BindingSet r : results) {
+			QueryBindingSet res = new QueryBindingSet(left);
+			for (Binding binding : r) {
+				if (!res.hasBinding(binding.getName()))
+					res.addBinding(binding);
+			}
+			out.add(res);
 		}
-		phaser.awaitAdvanceInterruptibly(phaser.arrive(), maxTimeoutSeconds, TimeUnit.SECONDS);
 	}
 
 	/**
@@ -167,6 +380,130 @@ public class ControlledWorkerBoundJoin extends ControlledWorkerJoin {
 	}
 	
 	
+	/**
+	 * A distinct projection of left bindings: keeps the left bindings that are waiting
+	 * for further results while the task is in progress, and the memoized results. Each
+	 * pair of left binding and result is joined by whichever of both arrives later.
+	 */
+	protected class DistinctBinding {
+		private List<BindingSet> bindings = new ArrayList<BindingSet>(1);
+		private final List<BindingSet> results = new ArrayList<BindingSet>();
+		private boolean incomplete = false;		// true if not all results are memoized
+		
+		public DistinctBinding(BindingSet b) {
+			bindings.add(b);
+		}
+		
+		/**
+		 * @param b
+		 * @return the results memoized so far, or <code>null</code> if the binding 
+		 * 			has to be evaluated on its own
+		 */
+		public synchronized List<BindingSet> addBinding(BindingSet b) {
+			if (incomplete)
+				return null;
+			if (bindings==null)
+				return results;
+			if (!reserveRow())
+				return null;
+			bindings.add(b);
+			return new ArrayList<BindingSet>(results);
+		}
+		
+		/**
+		 * @param r
+		 * @return the left bindings that are waiting for the result
+		 */
+		public synchronized List<BindingSet> addResult(BindingSet r) {
+			if (!incomplete) {
+				if (reserveRow())
+					results.add(r);
+				else
+					incomplete = true;
+			}
+			return new ArrayList<BindingSet>(bindings);
+		}
+		
+		/**
+		 * All results are known, left bindings are no longer waiting.
+		 */
+		public synchronized void complete() {
+			bindings = null;
+		}
+	}
+	
+	/**
+	 * Wraps a task evaluating distinct projections and expands the results back to
+	 * all matching left bindings while they are streamed.
+	 */
+	protected class ParallelDistinctJoinTask implements ParallelTask<BindingSet> {
+		protected final ParallelTask<BindingSet> _task;
+		protected final List<String> _joinVars;
+		protected final List<List<Value>> _keys;
+		public ParallelDistinctJoinTask(ParallelTask<BindingSet> task, List<String> joinVars, List<List<Value>> keys) {
+			super();
+			_task = task;
+			_joinVars = joinVars;
+			_keys = keys;
+		}
+		@Override
+		public CloseableIteration<BindingSet, QueryEvaluationException> performTask() throws Exception {
+			final Map<List<Value>, DistinctBinding> table = distinctBindings;
+			final CloseableIteration<BindingSet, QueryEvaluationException> res = _task.performTask();
+			if (table==null) {
+				// the join is closed
+				res.close();
+				return new CollectionIteration<BindingSet, QueryEvaluationException>(Collections.<BindingSet>emptyList());
+			}
+			return new LookAheadIteration<BindingSet, QueryEvaluationException>() {
+				
+				private Iterator<BindingSet> merged = Collections.<BindingSet>emptyList().iterator();
+				
+				@Override
+				protected BindingSet getNextElement() throws QueryEvaluationException {
+					while (!merged.hasNext()) {
+						if (!res.hasNext()) {
+							complete();
+							return null;
+						}
+						BindingSet r = res.next();
+						DistinctBinding distinct = table.get(QueryAlgebraUtil.joinKey(r, _joinVars));
+						if (distinct==null)
+							continue;
+						List<BindingSet> out = new ArrayList<BindingSet>();
+						List<BindingSet> rl = Collections.singletonList(r);
+						for (BindingSet left : distinct.addResult(r))
+							merge(left, rl, out);
+						merged = out.iterator();
+					}
+					return merged.next();
+				}
+				
+				private void complete() {
+					for (List<Value> key : _keys) {
+						DistinctBinding distinct = table.get(key);
+						if (distinct!=null)
+							distinct.complete();
+					}
+				}
+				
+				@Override
+				protected void handleClose() throws QueryEvaluationException {
+					try {
+						res.close();
+					} finally {
+						complete();
+						super.handleClose();
+					}
+				}
+			};
+		}
+		@Override
+		public ParallelExecutor<BindingSet> getControl() {
+			return _task.getControl();
+		}
+	}
+	
 	protected interface TaskCreator {
 		public ParallelTask<BindingSet> getTask(List<BindingSet> bindings);
 	}
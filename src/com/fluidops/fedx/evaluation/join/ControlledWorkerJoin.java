@@ -15,9 +15,6 @@
  */
 package com.fluidops.fedx.evaluation.join;
 
-import java.util.concurrent.Phaser;
-import java.util.concurrent.TimeUnit;
-
 import org.apache.log4j.Logger;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.query.BindingSet;
@@ -36,7 +33,7 @@ import com.fluidops.fedx.structures.QueryInfo;
  * The number of concurrent threads is controlled by a {@link ControlledWorkerScheduler} which
  * works according to the FIFO principle.
  * 
- * This join cursor blocks until all scheduled tasks are finished, however the result iteration
+ * This join cursor is finished once all scheduled tasks are done, the result iteration
  * can be accessed from different threads to allow for pipelining.
  * 
  * @author Andreas Schwarte
@@ -47,8 +44,6 @@ public class ControlledWorkerJoin extends JoinExecutorBase<BindingSet> {
 	
 	protected final ControlledWorkerScheduler<BindingSet> scheduler;
 
-	protected final Phaser phaser = new Phaser(1);
-	
 	public ControlledWorkerJoin(ControlledWorkerScheduler<BindingSet> scheduler, FederationEvalStrategy strategy,
 			CloseableIteration<BindingSet, QueryEvaluationException> leftIter,
 			TupleExpr rightArg, BindingSet bindings, QueryInfo queryInfo)
@@ -74,10 +69,6 @@ public class ControlledWorkerJoin extends JoinExecutorBase<BindingSet> {
 		
 		// XXX remove output if not needed anymore
 		log.debug("JoinStats: left iter of join #" + this.joinId + " had " + totalBindings + " results.");
-		
-		// wait until all tasks are executed
-		phaser.awaitAdvanceInterruptibly(phaser.arrive(), 30, TimeUnit.SECONDS);
-
 	}
 
 	@Override
@@ -93,4 +84,12 @@ public class ControlledWorkerJoin extends JoinExecutorBase<BindingSet> {
 		phaser.arriveAndDeregister();
 		super.toss(e);
 	}
+	
+	@Override
+	public void handleClose() throws QueryEvaluationException
+	{
+		// abort queued and running tasks, e.g. if the result is not consumed completely
+		scheduler.abort(this);
+		super.handleClose();
+	}
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.join;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import com.fluidops.fedx.algebra.ExclusiveGroup;
+import com.fluidops.fedx.evaluation.FederationEvalStrategy;
+import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.util.QueryAlgebraUtil;
+
+
+/**
+ * Execute a semi join of the left argument and a right {@link ExclusiveGroup} located at
+ * a different endpoint.
+ * 
+ * The left argument is consumed completely and its bindings are put into a hash table keyed by
+ * the values of the join variables. The distinct join keys are then pushed in blocks to the 
+ * owner of the right group (see {@link FederationEvalStrategy#evaluateExclusiveGroupSemiJoin(ExclusiveGroup, List, List)}),
+ * and the results are joined locally with the hash table. Left bindings which do not bind all join 
+ * variables are joined one by one as in {@link ControlledWorkerJoin}.
+ * 
+ * The number of concurrent threads is controlled by a {@link ControlledWorkerScheduler} which
+ * works according to the FIFO principle and uses worker threads.
+ */
+public class ControlledWorkerSemiJoin extends ControlledWorkerJoin {
+
+	public static Logger log = Logger.getLogger(ControlledWorkerSemiJoin.class);
+	
+	protected final List<String> joinVars;
+	
+	public ControlledWorkerSemiJoin(ControlledWorkerScheduler<BindingSet> scheduler, FederationEvalStrategy strategy,
+			CloseableIteration<BindingSet, QueryEvaluationException> leftIter,
+			ExclusiveGroup rightArg, List<String> joinVars, BindingSet bindings, QueryInfo queryInfo)
+			throws QueryEvaluationException {
+		super(scheduler, strategy, leftIter, rightArg, bindings, queryInfo);
+		this.joinVars = joinVars;
+	}
+
+	
+	@Override
+	protected void handleBindings() throws Exception {
+		
+		int totalBindings = 0;		// the total number of bindings
+		Map<List<Value>, List<BindingSet>> hashTable = new HashMap<List<Value>, List<BindingSet>>();
+		
+		while (!closed && leftIter.hasNext()) {
+			BindingSet b = leftIter.next();
+			totalBindings++;
+			
+			List<Value> key = QueryAlgebraUtil.joinKey(b, joinVars);
+			if (key==null) {
+				phaser.register();
+				scheduler.schedule( new ParallelJoinTask(this, strategy, rightArg, b) );
+				continue;
+			}
+			
+			List<BindingSet> bindings = hashTable.get(key);
+			if (bindings==null) {
+				bindings = new ArrayList<BindingSet>(1);
+				hashTable.put(key, bindings);
+			}
+			bindings.add(b);
+		}
+		
+		int blockSize = strategy.getSemiJoinBlockSize();
+		List<List<Value>> keys = new ArrayList<List<Value>>(hashTable.keySet());
+		
+		for (int i=0; !closed && i<keys.size(); i+=blockSize) {
+			List<List<Value>> block = keys.subList(i, Math.min(keys.size(), i+blockSize));
+			phaser.register();
+			scheduler.schedule( new ParallelSemiJoinTask(this, strategy, (ExclusiveGroup)rightArg, joinVars, block, hashTable) );
+		}
+		
+		scheduler.informFinish(this);
+		
+		log.debug("JoinStats: left iter of semi join #" + this.joinId + " had " + totalBindings + " results, " + keys.size() + " distinct join keys.");
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.join;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+
+import com.fluidops.fedx.Config;
+import com.fluidops.fedx.evaluation.FederationEvalStrategy;
+import com.fluidops.fedx.evaluation.concurrent.ForkJoinParallelTask;
+import com.fluidops.fedx.structures.QueryInfo;
+
+
+/**
+ * Execution of a regular join in a {@link ForkJoinPool} for local federations. The
+ * bindings of the left argument are consumed in blocks of {@link Config#getBoundJoinBlockSize()}.
+ * Each block is submitted as one {@link ForkJoinParallelTask}, which splits the block
+ * recursively into {@link ParallelJoinTask}s for the single bindings, i.e. idle workers
+ * can steal parts of a block.
+ * 
+ * @see Config#isEnableForkJoin()
+ */
+public class ForkJoinJoin extends JoinExecutorBase<BindingSet> {
+
+	public static Logger log = Logger.getLogger(ForkJoinJoin.class);
+	
+	protected final ForkJoinPool pool;
+
+	protected final AtomicBoolean cancelled = new AtomicBoolean(false);
+	
+	public ForkJoinJoin(ForkJoinPool pool, FederationEvalStrategy strategy,
+			CloseableIteration<BindingSet, QueryEvaluationException> leftIter,
+			TupleExpr rightArg, BindingSet bindings, QueryInfo queryInfo)
+			throws QueryEvaluationException {
+		super(strategy, leftIter, rightArg, bindings, queryInfo);
+		this.pool = pool;
+	}
+
+	
+	@Override
+	protected void handleBindings() throws Exception {
+		
+		int blockSize = Config.getConfig().getBoundJoinBlockSize();
+		int totalBindings = 0;		// the total number of bindings
+		
+		while (!closed && leftIter.hasNext()) {
+			List<ParallelJoinTask> block = new ArrayList<ParallelJoinTask>(blockSize);
+			while (block.size() < blockSize && leftIter.hasNext()) {
+				block.add(new ParallelJoinTask(this, strategy, rightArg, leftIter.next()));
+			}
+			totalBindings += block.size();
+			phaser.bulkRegister(block.size());
+			pool.execute(new ForkJoinParallelTask<BindingSet>(block, 0, block.size(), cancelled));
+		}
+		
+		log.debug("JoinStats: left iter of join #" + this.joinId + " had " + totalBindings + " results.");
+	}
+
+	@Override
+	public void done()
+	{
+		phaser.arriveAndDeregister();
+		super.done();
+	}
+
+	@Override
+	public void toss(Exception e)
+	{
+		phaser.arriveAndDeregister();
+		super.toss(e);
+	}
+	
+	@Override
+	public void handleClose() throws QueryEvaluationException
+	{
+		// tasks which are not yet started are skipped
+		cancelled.set(true);
+		super.handleClose();
+	}
+}
@@ -15,17 +15,24 @@
  */
 package com.fluidops.fedx.evaluation.join;
 
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.log4j.Logger;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.impl.QueueCursor;
 
+import com.fluidops.fedx.FederationManager;
 import com.fluidops.fedx.evaluation.FederationEvalStrategy;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
+import com.fluidops.fedx.evaluation.iterator.ResultQueueCursor;
 import com.fluidops.fedx.structures.QueryInfo;
 
 
@@ -36,6 +43,12 @@ import com.fluidops.fedx.structures.QueryInfo;
  * class is applicable for pipelining when used in a different thread (access to shared
  * variables is synchronized).
  * 
+ * Completion is event-driven: the thread executing {@link #run()} and each task registered
+ * at the {@link #phaser} are parties of the phaser. The join is finished by the last party 
+ * to arrive, i.e. the evaluation thread is released as soon as the left argument is consumed
+ * and does not block until the scheduled tasks are executed. If the query has a deadline,
+ * the join is aborted with a {@link QueryInterruptedException} once it has passed.
+ * 
  * @author Andreas Schwarte
  */
 public abstract class JoinExecutorBase<T> extends LookAheadIteration<T, QueryEvaluationException> implements ParallelExecutor<T> {
@@ -58,7 +71,17 @@ public abstract class JoinExecutorBase<T> extends LookAheadIteration<T, QueryEva
 	protected volatile boolean closed;
 	protected boolean finished = false;
 	
-	protected QueueCursor<CloseableIteration<T, QueryEvaluationException>> rightQueue = new QueueCursor<CloseableIteration<T, QueryEvaluationException>>(1024);
+	protected QueueCursor<CloseableIteration<T, QueryEvaluationException>> rightQueue = new ResultQueueCursor<T>(1024);
+	
+	/* the evaluation thread and the scheduled tasks, the last one to arrive finishes the join */
+	protected final Phaser phaser = new Phaser(1) {
+		@Override
+		protected boolean onAdvance(int phase, int registeredParties) {
+			finish();
+			return true;
+		}
+	};
+	protected volatile ScheduledFuture<?> deadlineTimer;
 
 	
 	public JoinExecutorBase(FederationEvalStrategy strategy, CloseableIteration<T, QueryEvaluationException> leftIter, TupleExpr rightArg,
@@ -83,17 +106,63 @@ public abstract class JoinExecutorBase<T> extends LookAheadIteration<T, QueryEva
 		try {
 			handleBindings();
 		} catch (Exception e) {
-			toss(e);
+			rightQueue.toss(e);
 		} finally {
-			finished=true;
 			evaluationThread = null;
-			rightQueue.done();
+			scheduleDeadline();
+			// the join is finished once all scheduled tasks are done
+			phaser.arriveAndDeregister();
 		}
-				
+	}
+	
+	/**
+	 * Finish this join, i.e. mark the result queue as complete. Invoked by the last
+	 * party arriving at the {@link #phaser}, or when the deadline of the query has passed.
+	 */
+	protected void finish() {
+		synchronized (this) {
+			if (finished)
+				return;
+			finished = true;
+		}
+		cancelDeadline();
+		rightQueue.done();
+		
 		if (log.isTraceEnabled())
 			log.trace("Join #" + joinId + " is finished.");
 	}
 	
+	/**
+	 * Abort this join with a {@link QueryInterruptedException} once the deadline of 
+	 * the query has passed, unless it is finished by then. Without deadline the join
+	 * waits at most {@link QueryInfo#FALLBACK_WAIT_TIME} for its pending tasks.
+	 */
+	protected void scheduleDeadline() {
+		if (closed || isFinished())
+			return;
+		deadlineTimer = FederationManager.getInstance().getTimer().schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (isFinished())
+					return;
+				rightQueue.toss(new QueryInterruptedException("Join #" + joinId + " of query " + getQueryId() + " exceeded the maximum wait time."));
+				finish();
+			}
+		}, QueryInfo.getMaxWaitTime(queryInfo), TimeUnit.MILLISECONDS);
+		// the executor may have been closed in the meantime
+		if (closed)
+			cancelDeadline();
+	}
+	
+	/**
+	 * Cancel the deadline timer, if any.
+	 */
+	protected void cancelDeadline() {
+		ScheduledFuture<?> t = deadlineTimer;
+		if (t!=null)
+			t.cancel(false);
+	}
+	
 	/**
 	 * Implementations must implement this method to handle bindings.
 	 * 
@@ -108,6 +177,9 @@ public abstract class JoinExecutorBase<T> extends LookAheadIteration<T, QueryEva
 	 * and thus thread safe. In case you can guarantee sequential access, it is also
 	 * possible to directly access rightQueue
 	 * 
+	 * Asynchronously executed tasks must be registered at the {@link #phaser} and
+	 * arrive at it once they are done, this method must not wait for them.
+	 * 
 	 */
 	protected abstract void handleBindings() throws Exception;
 	
@@ -162,6 +234,7 @@ public abstract class JoinExecutorBase<T> extends LookAheadIteration<T, QueryEva
 	@Override
 	public void handleClose() throws QueryEvaluationException {
 		closed = true;
+		cancelDeadline();
 		if (evaluationThread != null) {
 			evaluationThread.interrupt();
 		}
@@ -170,6 +243,9 @@ public abstract class JoinExecutorBase<T> extends LookAheadIteration<T, QueryEva
 			rightIter.close();
 			rightIter = null;
 		}
+		
+		// release results which are not yet consumed
+		rightQueue.close();
 
 		leftIter.close();
 	}
@@ -200,4 +276,9 @@ public abstract class JoinExecutorBase<T> extends LookAheadIteration<T, QueryEva
 			return queryInfo.getQueryID();
 		return -1;
 	}
+	
+	@Override
+	public QueryInfo getQueryInfo() {
+		return queryInfo;
+	}
 }
@@ -21,10 +21,13 @@ import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 
+import com.fluidops.fedx.EndpointManager;
 import com.fluidops.fedx.algebra.StatementTupleExpr;
 import com.fluidops.fedx.evaluation.FederationEvalStrategy;
+import com.fluidops.fedx.evaluation.concurrent.EndpointTask;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
 import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
+import com.fluidops.fedx.structures.Endpoint;
 
 
 /**
@@ -33,7 +36,7 @@ import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
  * 
  * @author Andreas Schwarte
  */
-public class ParallelBoundJoinTask implements ParallelTask<BindingSet> {
+public class ParallelBoundJoinTask implements ParallelTask<BindingSet>, EndpointTask {
 
 	
 	protected final FederationEvalStrategy strategy;
@@ -59,5 +62,9 @@ public class ParallelBoundJoinTask implements ParallelTask<BindingSet> {
 	public ParallelExecutor<BindingSet> getControl() {
 		return joinControl;
 	}
-
+	
+	@Override
+	public Endpoint getEndpoint() {
+		return EndpointManager.getEndpointManager().getSingleSourceEndpoint(expr);
+	}
 }
@@ -21,10 +21,13 @@ import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 
+import com.fluidops.fedx.EndpointManager;
 import com.fluidops.fedx.algebra.CheckStatementPattern;
 import com.fluidops.fedx.evaluation.FederationEvalStrategy;
+import com.fluidops.fedx.evaluation.concurrent.EndpointTask;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
 import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
+import com.fluidops.fedx.structures.Endpoint;
 
 /**
  * A task implementation representing a grouped bound check. See {@link FederationEvalStrategy#evaluateGroupedCheck(CheckStatementPattern, List)}
@@ -32,7 +35,7 @@ import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
  * 
  * @author Andreas Schwarte
  */
-public class ParallelCheckJoinTask implements ParallelTask<BindingSet> {
+public class ParallelCheckJoinTask implements ParallelTask<BindingSet>, EndpointTask {
 	
 	protected final FederationEvalStrategy strategy;
 	protected final CheckStatementPattern expr;
@@ -55,4 +58,9 @@ public class ParallelCheckJoinTask implements ParallelTask<BindingSet> {
 	public ParallelExecutor<BindingSet> getControl() {
 		return joinControl;
 	}
+	
+	@Override
+	public Endpoint getEndpoint() {
+		return EndpointManager.getEndpointManager().getSingleSourceEndpoint(expr);
+	}
 }
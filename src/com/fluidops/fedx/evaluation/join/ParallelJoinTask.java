@@ -20,9 +20,13 @@ import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
 
+import com.fluidops.fedx.EndpointManager;
+import com.fluidops.fedx.algebra.StatementTupleExpr;
 import com.fluidops.fedx.evaluation.FederationEvalStrategy;
+import com.fluidops.fedx.evaluation.concurrent.EndpointTask;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
 import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
+import com.fluidops.fedx.structures.Endpoint;
 
 /**
  * A task implementation representing a join, i.e. the provided expression is evaluated 
@@ -30,7 +34,7 @@ import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
  * 
  * @author Andreas Schwarte
  */
-public class ParallelJoinTask implements ParallelTask<BindingSet> {
+public class ParallelJoinTask implements ParallelTask<BindingSet>, EndpointTask {
 	
 	protected final FederationEvalStrategy strategy;
 	protected final TupleExpr expr;
@@ -53,4 +57,11 @@ public class ParallelJoinTask implements ParallelTask<BindingSet> {
 	public ParallelExecutor<BindingSet> getControl() {
 		return joinControl;
 	}
+	
+	@Override
+	public Endpoint getEndpoint() {
+		if (expr instanceof StatementTupleExpr)
+			return EndpointManager.getEndpointManager().getSingleSourceEndpoint((StatementTupleExpr)expr);
+		return null;
+	}
 }
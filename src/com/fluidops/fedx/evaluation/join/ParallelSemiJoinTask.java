@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.join;
+
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import com.fluidops.fedx.EndpointManager;
+import com.fluidops.fedx.algebra.ExclusiveGroup;
+import com.fluidops.fedx.evaluation.FederationEvalStrategy;
+import com.fluidops.fedx.evaluation.concurrent.EndpointTask;
+import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
+import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
+import com.fluidops.fedx.evaluation.iterator.HashJoinProbeIteration;
+import com.fluidops.fedx.structures.Endpoint;
+
+/**
+ * A task implementation representing a block of a semi join, i.e. the right {@link ExclusiveGroup}
+ * is evaluated restricted to a block of join keys (see 
+ * {@link FederationEvalStrategy#evaluateExclusiveGroupSemiJoin(ExclusiveGroup, List, List)})
+ * and the results are joined with the left bindings using the hash table.
+ */
+public class ParallelSemiJoinTask implements ParallelTask<BindingSet>, EndpointTask {
+	
+	protected final FederationEvalStrategy strategy;
+	protected final ExclusiveGroup expr;
+	protected final List<String> joinVars;
+	protected final List<List<Value>> keys;
+	protected final Map<List<Value>, List<BindingSet>> hashTable;
+	protected final ParallelExecutor<BindingSet> joinControl;
+	
+	public ParallelSemiJoinTask(ParallelExecutor<BindingSet> joinControl, FederationEvalStrategy strategy, ExclusiveGroup expr, 
+			List<String> joinVars, List<List<Value>> keys, Map<List<Value>, List<BindingSet>> hashTable) {
+		this.strategy = strategy;
+		this.expr = expr;
+		this.joinVars = joinVars;
+		this.keys = keys;
+		this.hashTable = hashTable;
+		this.joinControl = joinControl;
+	}
+
+	@Override
+	public CloseableIteration<BindingSet, QueryEvaluationException> performTask() throws Exception {
+		return new HashJoinProbeIteration(strategy.evaluateExclusiveGroupSemiJoin(expr, joinVars, keys), joinVars, hashTable);
+	}
+
+	@Override
+	public ParallelExecutor<BindingSet> getControl() {
+		return joinControl;
+	}
+	
+	@Override
+	public Endpoint getEndpoint() {
+		return EndpointManager.getEndpointManager().getSingleSourceEndpoint(expr);
+	}
+}
@@ -15,10 +15,8 @@
  */
 package com.fluidops.fedx.evaluation.union;
 
-import java.util.concurrent.Phaser;
-import java.util.concurrent.TimeUnit;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
 
-import com.fluidops.fedx.Config;
 import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
 import com.fluidops.fedx.structures.QueryInfo;
 
@@ -37,8 +35,6 @@ public class ControlledWorkerUnion<T> extends WorkerUnionBase<T> {
 	public static int awakeCount = 0;
 	
 	protected final ControlledWorkerScheduler<T> scheduler;
-	
-	protected final Phaser phaser = new Phaser(1);
 
 	public ControlledWorkerUnion(ControlledWorkerScheduler<T> scheduler, QueryInfo queryInfo) {
 		super(queryInfo);
@@ -49,17 +45,9 @@ public class ControlledWorkerUnion<T> extends WorkerUnionBase<T> {
 	@Override
 	protected void union() throws Exception {
 		
-		// schedule all tasks and inform about finish
+		// schedule all tasks and inform about finish, the union is finished by the last task
 		phaser.bulkRegister(tasks.size());
 		scheduler.scheduleAll(tasks, this);
-		
-		// wait until all tasks are executed
-		int maxTimeoutSeconds = Config.getConfig().getEnforceMaxQueryTime();
-		if (maxTimeoutSeconds <= 0)
-		{
-			maxTimeoutSeconds = 100;
-		}
-		phaser.awaitAdvanceInterruptibly(phaser.arrive(), maxTimeoutSeconds, TimeUnit.SECONDS); // TODO configurable
 	}
 
 	@Override
@@ -75,4 +63,12 @@ public class ControlledWorkerUnion<T> extends WorkerUnionBase<T> {
 		phaser.arriveAndDeregister();
 		super.toss(e);
 	}
+	
+	@Override
+	public void handleClose() throws QueryEvaluationException
+	{
+		// abort queued and running tasks, e.g. if the result is not consumed completely
+		scheduler.abort(this);
+		super.handleClose();
+	}
 }
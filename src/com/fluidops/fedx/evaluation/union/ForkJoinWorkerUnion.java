@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.union;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import com.fluidops.fedx.evaluation.concurrent.ForkJoinParallelTask;
+import com.fluidops.fedx.structures.QueryInfo;
+
+
+/**
+ * Execution of union tasks in a {@link ForkJoinPool}, i.e. the tasks are evaluated in
+ * parallel by the work-stealing workers of the pool. The union is finished by the last
+ * task, i.e. the {@link #run()} method does not block. This union is used
+ * for local federations if {@link com.fluidops.fedx.Config#isEnableForkJoin()} is set.
+ */
+public class ForkJoinWorkerUnion<T> extends WorkerUnionBase<T> {
+
+	protected final ForkJoinPool pool;
+	protected final AtomicBoolean cancelled = new AtomicBoolean(false);
+	
+	public ForkJoinWorkerUnion(ForkJoinPool pool, QueryInfo queryInfo) {
+		super(queryInfo);
+		this.pool = pool;
+	}
+
+	@Override
+	protected void union() throws Exception {
+		phaser.bulkRegister(tasks.size());
+		pool.execute(new ForkJoinParallelTask<T>(tasks, 0, tasks.size(), cancelled));
+	}
+	
+	@Override
+	public void done() {
+		phaser.arriveAndDeregister();
+		super.done();
+	}
+	
+	@Override
+	public void toss(Exception e) {
+		phaser.arriveAndDeregister();
+		super.toss(e);
+	}
+	
+	@Override
+	public void handleClose() throws QueryEvaluationException {
+		cancelled.set(true);
+		super.handleClose();
+	}
+}
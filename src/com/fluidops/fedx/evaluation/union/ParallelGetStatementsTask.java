@@ -24,9 +24,12 @@ import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 
+import com.fluidops.fedx.EndpointManager;
 import com.fluidops.fedx.evaluation.TripleSource;
+import com.fluidops.fedx.evaluation.concurrent.EndpointTask;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
 import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
+import com.fluidops.fedx.structures.Endpoint;
 
 /**
  * A task implementation to retrieve statements for a given {@link StatementPattern}
@@ -34,7 +37,7 @@ import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
  * 
  * @author Andreas Schwarte
  */
-public class ParallelGetStatementsTask implements ParallelTask<Statement> {
+public class ParallelGetStatementsTask implements ParallelTask<Statement>, EndpointTask {
 
 	protected final ParallelExecutor<Statement> unionControl;
 	protected final Resource subj;
@@ -70,4 +73,9 @@ public class ParallelGetStatementsTask implements ParallelTask<Statement> {
 			throws Exception {
 		return tripleSource.getStatements(conn, subj, pred, obj, contexts);
 	}
+	
+	@Override
+	public Endpoint getEndpoint() {
+		return EndpointManager.getEndpointManager().getEndpoint(conn);
+	}
 }
@@ -24,6 +24,7 @@ import org.eclipse.rdf4j.repository.RepositoryConnection;
 import com.fluidops.fedx.EndpointManager;
 import com.fluidops.fedx.algebra.FilterValueExpr;
 import com.fluidops.fedx.evaluation.TripleSource;
+import com.fluidops.fedx.evaluation.concurrent.EndpointTask;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
 import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
 import com.fluidops.fedx.structures.Endpoint;
@@ -34,7 +35,7 @@ import com.fluidops.fedx.structures.Endpoint;
  * 
  * @author Andreas Schwarte
  */
-public class ParallelPreparedAlgebraUnionTask implements ParallelTask<BindingSet> {
+public class ParallelPreparedAlgebraUnionTask implements ParallelTask<BindingSet>, EndpointTask {
 	
 	protected final TripleSource tripleSource;
 	protected final RepositoryConnection conn;
@@ -67,4 +68,9 @@ public class ParallelPreparedAlgebraUnionTask implements ParallelTask<BindingSet
 		Endpoint e = EndpointManager.getEndpointManager().getEndpoint(conn);
 		return this.getClass().getSimpleName() + " @" + e.getId() + ": " + preparedQuery.toString();
 	}
+	
+	@Override
+	public Endpoint getEndpoint() {
+		return EndpointManager.getEndpointManager().getEndpoint(conn);
+	}
 }
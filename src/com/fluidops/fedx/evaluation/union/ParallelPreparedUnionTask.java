@@ -23,17 +23,20 @@ import org.eclipse.rdf4j.repository.RepositoryConnection;
 import com.fluidops.fedx.EndpointManager;
 import com.fluidops.fedx.algebra.FilterValueExpr;
 import com.fluidops.fedx.evaluation.TripleSource;
+import com.fluidops.fedx.evaluation.concurrent.EndpointTask;
+import com.fluidops.fedx.evaluation.concurrent.HedgedRequest;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
 import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
 import com.fluidops.fedx.structures.Endpoint;
 
 /**
  * A task implementation representing a prepared union, i.e. the prepared query is executed
- * on the provided triple source.
+ * on the provided triple source. If the endpoint has replicas, the request is hedged, see
+ * {@link HedgedRequest}.
  * 
  * @author Andreas Schwarte
  */
-public class ParallelPreparedUnionTask implements ParallelTask<BindingSet> {
+public class ParallelPreparedUnionTask implements ParallelTask<BindingSet>, EndpointTask {
 	
 	protected final TripleSource tripleSource;
 	protected final RepositoryConnection conn;
@@ -53,7 +56,15 @@ public class ParallelPreparedUnionTask implements ParallelTask<BindingSet> {
 
 	@Override
 	public CloseableIteration<BindingSet, QueryEvaluationException> performTask() throws Exception {
-		return tripleSource.getStatements(preparedQuery, conn, bindings, filterExpr);
+		Endpoint endpoint = getEndpoint();
+		if (endpoint==null || endpoint.getReplicas().isEmpty())
+			return tripleSource.getStatements(preparedQuery, conn, bindings, filterExpr);
+		return HedgedRequest.execute(endpoint, new HedgedRequest.Request() {
+			@Override
+			public CloseableIteration<BindingSet, QueryEvaluationException> perform(Endpoint e) throws Exception {
+				return e.getTripleSource().getStatements(preparedQuery, e.getConn(), bindings, filterExpr);
+			}
+		});
 	}
 
 
@@ -66,4 +77,9 @@ public class ParallelPreparedUnionTask implements ParallelTask<BindingSet> {
 		Endpoint e = EndpointManager.getEndpointManager().getEndpoint(conn);
 		return this.getClass().getSimpleName() + " @" + e.getId() + ": " + preparedQuery;
 	}
+	
+	@Override
+	public Endpoint getEndpoint() {
+		return EndpointManager.getEndpointManager().getEndpoint(conn);
+	}
 }
@@ -24,6 +24,7 @@ import org.eclipse.rdf4j.repository.RepositoryConnection;
 import com.fluidops.fedx.EndpointManager;
 import com.fluidops.fedx.algebra.FilterValueExpr;
 import com.fluidops.fedx.evaluation.TripleSource;
+import com.fluidops.fedx.evaluation.concurrent.EndpointTask;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
 import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
 import com.fluidops.fedx.structures.Endpoint;
@@ -34,7 +35,7 @@ import com.fluidops.fedx.util.QueryStringUtil;
  * 
  * @author Andreas Schwarte
  */
-public class ParallelUnionTask implements ParallelTask<BindingSet> {
+public class ParallelUnionTask implements ParallelTask<BindingSet>, EndpointTask {
 	
 	protected final TripleSource tripleSource;
 	protected final RepositoryConnection conn;
@@ -66,4 +67,9 @@ public class ParallelUnionTask implements ParallelTask<BindingSet> {
 		Endpoint e = EndpointManager.getEndpointManager().getEndpoint(conn);
 		return this.getClass().getSimpleName() + " @" + e.getId() + ": " + QueryStringUtil.toString(stmt);
 	}
+	
+	@Override
+	public Endpoint getEndpoint() {
+		return EndpointManager.getEndpointManager().getEndpoint(conn);
+	}
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.evaluation.union;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+import org.eclipse.rdf4j.query.algebra.OrderElem;
+
+import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
+import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
+import com.fluidops.fedx.evaluation.iterator.SortedMergeIteration;
+import com.fluidops.fedx.structures.QueryInfo;
+
+/**
+ * A union of sorted results, e.g. of subqueries with ORDER BY and LIMIT sent to the
+ * individual sources. The tasks are executed with the {@link ControlledWorkerScheduler}
+ * of unions, each task delivers one sorted input of the {@link SortedMergeIteration}.
+ * Merging starts once all tasks are finished. Note that the union operation is to be 
+ * executed with the {@link #run()} method.
+ * 
+ * @see com.fluidops.fedx.algebra.StatementSourcePattern
+ */
+public class SortedMergeUnion extends SortedMergeIteration implements ParallelExecutor<BindingSet> {
+
+	protected final ControlledWorkerScheduler<BindingSet> scheduler;
+	protected final QueryInfo queryInfo;
+	protected final List<ParallelTask<BindingSet>> tasks = new ArrayList<ParallelTask<BindingSet>>();
+	
+	/* guarded by inputs */
+	protected int pending = 0;
+	protected Exception error = null;
+	protected boolean closed = false;
+	
+	/**
+	 * @param scheduler
+	 * 			the scheduler executing the tasks
+	 * @param order
+	 * 			the order of the inputs, the expressions must be variables
+	 * @param limit
+	 * 			the maximum number of results, or a negative value for no limit
+	 * @param queryInfo
+	 */
+	public SortedMergeUnion(ControlledWorkerScheduler<BindingSet> scheduler, List<OrderElem> order, long limit, QueryInfo queryInfo) {
+		super(new ArrayList<CloseableIteration<BindingSet, QueryEvaluationException>>(), order, limit);
+		this.scheduler = scheduler;
+		this.queryInfo = queryInfo;
+	}
+	
+	/**
+	 * Add a task delivering one sorted input. Note that it is required that the
+	 * task has this instance as its control.
+	 * 
+	 * @param task
+	 */
+	public void addTask(ParallelTask<BindingSet> task) {
+		if (task.getControl() != this)
+			throw new RuntimeException("Controlling instance of task must be the same as this SortedMergeUnion.");
+		tasks.add(task);
+	}
+	
+	@Override
+	public void run() {
+		synchronized (inputs) {
+			pending = tasks.size();
+		}
+		scheduler.scheduleAll(tasks, this);
+	}
+	
+	@Override
+	protected BindingSet getNextElement() throws QueryEvaluationException {
+		if (!initialized)
+			awaitInputs();
+		return super.getNextElement();
+	}
+	
+	/**
+	 * Wait until all tasks have delivered their input, errors of the tasks are
+	 * passed on to the consumer.
+	 */
+	protected void awaitInputs() throws QueryEvaluationException {
+		long deadline = System.currentTimeMillis() + QueryInfo.getMaxWaitTime(queryInfo);
+		synchronized (inputs) {
+			while (pending>0 && error==null) {
+				long wait = deadline - System.currentTimeMillis();
+				if (wait<=0)
+					throw new QueryInterruptedException("Sorted union of query " + getQueryId() + " exceeded the maximum wait time.");
+				try {
+					inputs.wait(wait);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new QueryInterruptedException("Interrupted while waiting for the sorted inputs.");
+				}
+			}
+			if (error instanceof QueryEvaluationException)
+				throw (QueryEvaluationException)error;
+			if (error!=null)
+				throw new QueryEvaluationException(error);
+		}
+	}
+	
+	@Override
+	public void addResult(CloseableIteration<BindingSet, QueryEvaluationException> res) {
+		synchronized (inputs) {
+			if (!closed) {
+				inputs.add(res);
+				return;
+			}
+		}
+		// the union was closed in the meantime: release the result
+		try {
+			res.close();
+		} catch (QueryEvaluationException ignore) {
+			; // ignore
+		}
+	}
+
+	@Override
+	public void toss(Exception e) {
+		synchronized (inputs) {
+			if (error==null)
+				error = e;
+			pending--;
+			inputs.notifyAll();
+		}
+	}
+
+	@Override
+	public void done() {
+		synchronized (inputs) {
+			pending--;
+			inputs.notifyAll();
+		}
+	}
+
+	@Override
+	public boolean isFinished() {
+		synchronized (inputs) {
+			return closed || pending<=0;
+		}
+	}
+
+	@Override
+	public int getQueryId() {
+		if (queryInfo!=null)
+			return queryInfo.getQueryID();
+		return -1;
+	}
+
+	@Override
+	public QueryInfo getQueryInfo() {
+		return queryInfo;
+	}
+	
+	@Override
+	protected void handleClose() throws QueryEvaluationException {
+		synchronized (inputs) {
+			closed = true;
+		}
+		// abort queued and running tasks, the inputs delivered so far are closed by the merge
+		scheduler.abort(this);
+		super.handleClose();
+	}
+}
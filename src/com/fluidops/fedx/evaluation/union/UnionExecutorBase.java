@@ -15,14 +15,22 @@
  */
 package com.fluidops.fedx.evaluation.union;
 
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.log4j.Logger;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
 import org.eclipse.rdf4j.query.impl.QueueCursor;
 
+import com.fluidops.fedx.FederationManager;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
+import com.fluidops.fedx.evaluation.iterator.ResultQueueCursor;
+import com.fluidops.fedx.structures.QueryInfo;
 
 
 /**
@@ -32,6 +40,10 @@ import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
  * class is applicable for pipelining when used in a different thread (access to shared
  * variables is synchronized).
  * 
+ * Like for joins, completion is event-driven: the thread executing {@link #run()} and
+ * each task registered at the {@link #phaser} are parties of the phaser, the last one
+ * to arrive finishes the union.
+ * 
  * @author Andreas Schwarte
  *
  */
@@ -45,9 +57,19 @@ public abstract class UnionExecutorBase<T> extends LookAheadIteration<T, QueryEv
 	
 	/* Variables */
 	protected volatile boolean closed;
-	protected boolean finished = true;
+	protected boolean finished = false;
 	
-	protected QueueCursor<CloseableIteration<T, QueryEvaluationException>> result = new QueueCursor<CloseableIteration<T, QueryEvaluationException>>(1024);
+	protected QueueCursor<CloseableIteration<T, QueryEvaluationException>> result = new ResultQueueCursor<T>(1024);
+	
+	/* the evaluation thread and the scheduled tasks, the last one to arrive finishes the union */
+	protected final Phaser phaser = new Phaser(1) {
+		@Override
+		protected boolean onAdvance(int phase, int registeredParties) {
+			finish();
+			return true;
+		}
+	};
+	protected volatile ScheduledFuture<?> deadlineTimer;
 	protected CloseableIteration<T, QueryEvaluationException> rightIter;
 	
 	
@@ -62,22 +84,69 @@ public abstract class UnionExecutorBase<T> extends LookAheadIteration<T, QueryEv
 		try {
 			union();
 		} catch (Exception e) {
-			toss(e);
+			logError(e);
+			result.toss(e);
 		} finally {
-			finished=true;
-			result.done();
+			scheduleDeadline();
+			// the union is finished once all scheduled tasks are done
+			phaser.arriveAndDeregister();
 		}
 		
 	}
 	
+	/**
+	 * Finish this union, i.e. mark the result queue as complete. Invoked by the last
+	 * party arriving at the {@link #phaser}, or when the deadline of the query has passed.
+	 */
+	protected void finish() {
+		synchronized (this) {
+			if (finished)
+				return;
+			finished = true;
+		}
+		cancelDeadline();
+		result.done();
+	}
+	
+	/**
+	 * Abort this union with a {@link QueryInterruptedException} once the deadline of 
+	 * the query has passed, unless it is finished by then. Without deadline the union
+	 * waits at most {@link QueryInfo#FALLBACK_WAIT_TIME} for its pending tasks.
+	 */
+	protected void scheduleDeadline() {
+		if (closed || isFinished())
+			return;
+		deadlineTimer = FederationManager.getInstance().getTimer().schedule(new Runnable() {
+			@Override
+			public void run() {
+				if (isFinished())
+					return;
+				result.toss(new QueryInterruptedException("Union #" + unionId + " of query " + getQueryId() + " exceeded the maximum wait time."));
+				finish();
+			}
+		}, QueryInfo.getMaxWaitTime(getQueryInfo()), TimeUnit.MILLISECONDS);
+		// the executor may have been closed in the meantime
+		if (closed)
+			cancelDeadline();
+	}
+	
+	/**
+	 * Cancel the deadline timer, if any.
+	 */
+	protected void cancelDeadline() {
+		ScheduledFuture<?> t = deadlineTimer;
+		if (t!=null)
+			t.cancel(false);
+	}
+	
 
 	/**
 	 * 
-	 * Note: this method must block until the union is executed completely. Otherwise
-	 * the result queue is marked as committed while this isn't the case. The blocking
-	 * behavior in general is no problem: If you need concurrent access to the result
-	 * (i.e. pipelining) just run the union in a separate thread. Access to the result
-	 * iteration is synchronized.
+	 * Note: tasks which are executed asynchronously must be registered at the {@link #phaser}
+	 * and arrive at it once they are done, otherwise the result queue is marked as committed
+	 * while this isn't the case. Synchronous implementations simply add their results. If you
+	 * need concurrent access to the result (i.e. pipelining) just run the union in a separate 
+	 * thread. Access to the result iteration is synchronized.
 	 * 
 	 * @throws Exception
 	 */
@@ -105,10 +174,23 @@ public abstract class UnionExecutorBase<T> extends LookAheadIteration<T, QueryEv
 	
 	@Override
 	public void toss(Exception e) {
-		log.warn("Error executing union operator: " + e.getMessage());
+		logError(e);
 		result.toss(e);
 	}
 	
+	/**
+	 * Log an error of the union operator, an interrupted query (e.g. one which exceeded
+	 * its deadline) is not an error of the operator and is logged at debug level only.
+	 * 
+	 * @param e
+	 */
+	protected void logError(Exception e) {
+		if (e instanceof QueryInterruptedException)
+			log.debug("Union operator was interrupted: " + e.getMessage());
+		else
+			log.warn("Error executing union operator: " + e.getMessage());
+	}
+	
 	
 	@Override
 	public T getNextElement() throws QueryEvaluationException	{
@@ -136,11 +218,15 @@ public abstract class UnionExecutorBase<T> extends LookAheadIteration<T, QueryEv
 	@Override
 	public void handleClose() throws QueryEvaluationException {
 		closed = true;
+		cancelDeadline();
 		
 		if (rightIter != null) {
 			rightIter.close();
 			rightIter = null;
 		}
+		
+		// release results which are not yet consumed
+		result.close();
 
 	}
 	
@@ -58,4 +58,9 @@ public abstract class WorkerUnionBase<T> extends UnionExecutorBase<T> {
 			return queryInfo.getQueryID();
 		return -1;
 	}
+	
+	@Override
+	public QueryInfo getQueryInfo() {
+		return queryInfo;
+	}
 }
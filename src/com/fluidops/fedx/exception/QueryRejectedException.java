@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.exception;
+
+
+/**
+ * Exception to be thrown if a query is not admitted for execution, i.e. if the
+ * admission queue is full or if the query could not be admitted within the
+ * admission timeout.
+ * 
+ * @see com.fluidops.fedx.AdmissionControl
+ */
+public class QueryRejectedException extends FedXRuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public QueryRejectedException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.optimizer;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.query.algebra.AggregateOperator;
+import org.eclipse.rdf4j.query.algebra.Avg;
+import org.eclipse.rdf4j.query.algebra.Coalesce;
+import org.eclipse.rdf4j.query.algebra.Compare;
+import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
+import org.eclipse.rdf4j.query.algebra.Count;
+import org.eclipse.rdf4j.query.algebra.Extension;
+import org.eclipse.rdf4j.query.algebra.ExtensionElem;
+import org.eclipse.rdf4j.query.algebra.Group;
+import org.eclipse.rdf4j.query.algebra.GroupElem;
+import org.eclipse.rdf4j.query.algebra.If;
+import org.eclipse.rdf4j.query.algebra.MathExpr;
+import org.eclipse.rdf4j.query.algebra.MathExpr.MathOp;
+import org.eclipse.rdf4j.query.algebra.Max;
+import org.eclipse.rdf4j.query.algebra.Min;
+import org.eclipse.rdf4j.query.algebra.Sample;
+import org.eclipse.rdf4j.query.algebra.Sum;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.UnaryValueOperator;
+import org.eclipse.rdf4j.query.algebra.ValueConstant;
+import org.eclipse.rdf4j.query.algebra.ValueExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+
+import com.fluidops.fedx.algebra.ExclusiveGroup;
+import com.fluidops.fedx.algebra.FedXStatementPattern;
+import com.fluidops.fedx.algebra.FilterTuple;
+import com.fluidops.fedx.algebra.NUnion;
+import com.fluidops.fedx.algebra.PartialAggregation;
+import com.fluidops.fedx.algebra.PartialAggregation.Aggregate;
+import com.fluidops.fedx.algebra.StatementTupleExpr;
+import com.fluidops.fedx.exception.FilterConversionException;
+import com.fluidops.fedx.exception.OptimizationException;
+import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.util.FedXUtil;
+import com.fluidops.fedx.util.FilterUtils;
+
+
+/**
+ * Optimizer which pushes decomposable aggregates to the sources, i.e. a GROUP BY 
+ * over a single statement, an exclusive group or a union of those is evaluated as
+ * GROUP BY subquery at each relevant source (see {@link PartialAggregation}). The 
+ * partial aggregates are merged locally by the rewritten group:
+ * 
+ * <ul>
+ * <li>COUNT and SUM: SUM of the partial results</li>
+ * <li>MIN, MAX and SAMPLE: the same aggregate over the partial results</li>
+ * <li>AVG: SUM and COUNT are computed remotely, the average is SUM/COUNT</li>
+ * </ul>
+ * 
+ * Aggregates with DISTINCT, GROUP_CONCAT, aggregates over expressions and groups 
+ * with filters that cannot be evaluated remotely are evaluated locally as before.
+ * 
+ * Note that a type error (e.g. SUM over a non numeric value) yields an unbound partial 
+ * SUM at the respective source. Such an unbound partial SUM makes the merged SUM (and 
+ * AVG) unbound as well, as if the aggregate was evaluated locally.
+ */
+public class AggregationOptimizer extends AbstractQueryModelVisitor<OptimizationException> implements FedXOptimizer {
+
+	public static Logger log = Logger.getLogger(AggregationOptimizer.class);
+	
+	protected final QueryInfo queryInfo;
+	protected int partialCount = 0;
+	
+	public AggregationOptimizer(QueryInfo queryInfo) {
+		super();
+		this.queryInfo = queryInfo;
+	}
+
+	@Override
+	public void optimize(TupleExpr tupleExpr) {
+		try { 
+			tupleExpr.visit(this);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}	
+	}
+	
+	@Override
+	public void meet(Group group) {
+		
+		List<TupleExpr> args = new ArrayList<TupleExpr>();
+		List<String> groupNames = new ArrayList<String>(group.getGroupBindingNames());
+		
+		if (!collectArgs(group.getArg(), args) || !canPush(group, args, groupNames)) {
+			super.meet(group);
+			return;
+		}
+		
+		List<Aggregate> aggregates = new ArrayList<Aggregate>();
+		List<GroupElem> mergeElems = new ArrayList<GroupElem>();
+		List<ExtensionElem> avgElems = new ArrayList<ExtensionElem>();
+		
+		for (GroupElem elem : group.getGroupElements()) {
+			AggregateOperator op = elem.getOperator();
+			ValueExpr arg = ((UnaryValueOperator)op).getArg();
+			String argName = arg==null ? null : ((Var)arg).getName();
+			
+			if (op instanceof Avg) {
+				String sum = nextPartialName();
+				String count = nextPartialName();
+				aggregates.add(new Aggregate(sum, "SUM", argName));
+				aggregates.add(new Aggregate(count, "COUNT", argName));
+				mergeElems.add(new GroupElem(sum, mergeSum(sum)));
+				mergeElems.add(new GroupElem(count, new Sum(new Var(count))));
+				
+				// AVG of an empty group is 0
+				ValueConstant zero = new ValueConstant(FedXUtil.valueFactory().createLiteral(BigInteger.ZERO));
+				avgElems.add(new ExtensionElem(new If(
+						new Compare(new Var(count), zero, CompareOp.EQ), zero.clone(), 
+						new MathExpr(new Var(sum), new Var(count), MathOp.DIVIDE)), elem.getName()));
+				continue;
+			}
+			
+			String partial = nextPartialName();
+			if (op instanceof Count) {
+				aggregates.add(new Aggregate(partial, "COUNT", argName));
+				mergeElems.add(new GroupElem(elem.getName(), new Sum(new Var(partial))));
+			} else if (op instanceof Sum) {
+				aggregates.add(new Aggregate(partial, "SUM", argName));
+				mergeElems.add(new GroupElem(elem.getName(), mergeSum(partial)));
+			} else if (op instanceof Min) {
+				aggregates.add(new Aggregate(partial, "MIN", argName));
+				mergeElems.add(new GroupElem(elem.getName(), new Min(new Var(partial))));
+			} else if (op instanceof Max) {
+				aggregates.add(new Aggregate(partial, "MAX", argName));
+				mergeElems.add(new GroupElem(elem.getName(), new Max(new Var(partial))));
+			} else {
+				aggregates.add(new Aggregate(partial, "SAMPLE", argName));
+				mergeElems.add(new GroupElem(elem.getName(), new Sample(new Var(partial))));
+			}
+		}
+		
+		if (log.isTraceEnabled())
+			log.trace("Pushing aggregates " + aggregates + " grouped by " + groupNames + " to the sources of query " + queryInfo.getQueryID());
+		
+		group.setArg(new PartialAggregation(args, groupNames, aggregates, queryInfo));
+		group.setGroupElements(mergeElems);
+		
+		if (!avgElems.isEmpty()) {
+			Extension ext = new Extension();
+			group.replaceWith(ext);
+			ext.setArg(group);
+			for (ExtensionElem elem : avgElems)
+				ext.addElement(elem);
+		}
+	}
+	
+	/**
+	 * Collect the statements and exclusive groups of the given expression, which 
+	 * is either such an expression or an nary union of those.
+	 * 
+	 * @param expr
+	 * @param args
+	 * @return true if the expression can be evaluated as partial aggregation
+	 */
+	protected boolean collectArgs(TupleExpr expr, List<TupleExpr> args) {
+		if (expr instanceof FedXStatementPattern || expr instanceof ExclusiveGroup) {
+			args.add(expr);
+			return true;
+		}
+		if (expr instanceof NUnion) {
+			for (TupleExpr arg : ((NUnion)expr).getArgs()) {
+				if (!collectArgs(arg, args))
+					return false;
+			}
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Check if all aggregates of the group are decomposable and if the subqueries
+	 * can be evaluated remotely, i.e. all variables are free variables of each 
+	 * argument and the filters, if any, can be converted to SPARQL.
+	 * 
+	 * @param group
+	 * @param args
+	 * @param groupNames
+	 * @return true if the aggregates can be pushed
+	 */
+	protected boolean canPush(Group group, List<TupleExpr> args, List<String> groupNames) {
+		
+		List<String> vars = new ArrayList<String>(groupNames);
+		for (GroupElem elem : group.getGroupElements()) {
+			AggregateOperator op = elem.getOperator();
+			if (op.isDistinct())
+				return false;
+			if (!(op instanceof Count || op instanceof Sum || op instanceof Min || op instanceof Max 
+					|| op instanceof Avg || op instanceof Sample))
+				return false;
+			ValueExpr arg = ((UnaryValueOperator)op).getArg();
+			if (arg==null) {
+				if (!(op instanceof Count))
+					return false;
+			} else if (arg instanceof Var && !((Var)arg).hasValue()) {
+				vars.add(((Var)arg).getName());
+			} else {
+				return false;		// aggregate over an expression
+			}
+		}
+		
+		for (TupleExpr arg : args) {
+			if (!((StatementTupleExpr)arg).getFreeVars().containsAll(vars))
+				return false;
+			FilterTuple filterTuple = (FilterTuple)arg;
+			if (filterTuple.hasFilter()) {
+				try {
+					FilterUtils.toSparqlString(filterTuple.getFilterExpr());
+				} catch (FilterConversionException e) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Create the SUM over the given partial sums. An unbound partial sum, i.e. a type error 
+	 * at the source, is replaced by a non numeric value such that the merged SUM yields a 
+	 * type error as well (instead of silently ignoring the partial sum).
+	 * 
+	 * @param partial
+	 * @return the merge aggregate
+	 */
+	protected Sum mergeSum(String partial) {
+		ValueConstant typeError = new ValueConstant(FedXUtil.valueFactory().createLiteral("type error at source"));
+		return new Sum(new Coalesce(Arrays.<ValueExpr>asList(new Var(partial), typeError)));
+	}
+	
+	protected String nextPartialName() {
+		return "__fedx_partial_" + (partialCount++);
+	}
+}
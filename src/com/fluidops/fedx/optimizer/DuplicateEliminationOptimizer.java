@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.optimizer;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.query.algebra.BNodeGenerator;
+import org.eclipse.rdf4j.query.algebra.Distinct;
+import org.eclipse.rdf4j.query.algebra.FunctionCall;
+import org.eclipse.rdf4j.query.algebra.Group;
+import org.eclipse.rdf4j.query.algebra.MultiProjection;
+import org.eclipse.rdf4j.query.algebra.Order;
+import org.eclipse.rdf4j.query.algebra.Projection;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.Reduced;
+import org.eclipse.rdf4j.query.algebra.Slice;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.UnaryTupleOperator;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+
+import com.fluidops.fedx.evaluation.iterator.FingerprintDistinctIteration;
+import com.fluidops.fedx.exception.OptimizationException;
+import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.structures.QueryType;
+
+
+/**
+ * Optimizer which enables duplicate elimination on the results of multi-source unions 
+ * (see {@link FingerprintDistinctIteration}) if it does not change the query result.
+ * 
+ * This is the case if the result has set semantics, i.e. for ASK queries and for queries 
+ * with a DISTINCT or REDUCED projection, and if no operator in the query depends on the 
+ * multiplicity of intermediate results. The latter are aggregates (GROUP BY), subqueries 
+ * with LIMIT/OFFSET, BNODE() and - conservatively - any function call, as a function may
+ * produce a new value for each row (e.g. RAND()).
+ */
+public class DuplicateEliminationOptimizer extends AbstractQueryModelVisitor<OptimizationException> implements FedXOptimizer {
+
+	public static Logger log = Logger.getLogger(DuplicateEliminationOptimizer.class);
+	
+	protected final QueryInfo queryInfo;
+	protected boolean safe = true;
+	
+	public DuplicateEliminationOptimizer(QueryInfo queryInfo) {
+		super();
+		this.queryInfo = queryInfo;
+	}
+
+	@Override
+	public void optimize(TupleExpr tupleExpr) {
+		
+		TupleExpr expr = tupleExpr instanceof QueryRoot ? ((QueryRoot)tupleExpr).getArg() : tupleExpr;
+		boolean setSemantics = queryInfo.getQueryType()==QueryType.ASK;
+		
+		// skip the solution modifiers of the outer query
+		while (expr instanceof Slice || expr instanceof Order || expr instanceof Projection 
+				|| expr instanceof MultiProjection || expr instanceof Distinct || expr instanceof Reduced) {
+			if (expr instanceof Distinct || expr instanceof Reduced)
+				setSemantics = true;
+			else if (expr instanceof Slice && setSemantics)
+				return;		// LIMIT below DISTINCT
+			expr = ((UnaryTupleOperator)expr).getArg();
+		}
+		
+		if (!setSemantics)
+			return;
+		
+		try { 
+			expr.visit(this);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+		
+		if (safe) {
+			if (log.isDebugEnabled())
+				log.debug("Duplicate elimination enabled for query " + queryInfo.getQueryID());
+			queryInfo.setDuplicateElimination(true);
+		}
+	}
+	
+	@Override
+	protected void meetNode(QueryModelNode node) {
+		// stop as soon as the query is known to be unsafe
+		if (safe)
+			super.meetNode(node);
+	}
+	
+	@Override
+	public void meet(Group node) {
+		safe = false;
+	}
+	
+	@Override
+	public void meet(Slice node) {
+		safe = false;
+	}
+	
+	@Override
+	public void meet(BNodeGenerator node) {
+		safe = false;
+	}
+	
+	@Override
+	public void meet(FunctionCall node) {
+		safe = false;
+	}
+}
@@ -25,6 +25,7 @@ import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.Binding;
 import org.eclipse.rdf4j.query.algebra.And;
 import org.eclipse.rdf4j.query.algebra.Compare;
+import org.eclipse.rdf4j.query.algebra.Exists;
 import org.eclipse.rdf4j.query.algebra.Filter;
 import org.eclipse.rdf4j.query.algebra.Not;
 import org.eclipse.rdf4j.query.algebra.Or;
@@ -199,6 +200,11 @@ public class FilterOptimizer extends AbstractQueryModelVisitor<OptimizationExcep
 			return false;
 		}
 		
+		// (NOT) EXISTS is kept in place, it is evaluated as (anti) join
+		if (e instanceof Exists) {
+			return false;
+		}
+		
 		if (e instanceof Not) {
 			return isCompatibleExpr( ((Not)e).getArg() );
 		}
@@ -18,8 +18,11 @@ package com.fluidops.fedx.optimizer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
@@ -31,12 +34,15 @@ import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import com.fluidops.fedx.algebra.ExclusiveGroup;
 import com.fluidops.fedx.algebra.ExclusiveStatement;
 import com.fluidops.fedx.algebra.FedXService;
+import com.fluidops.fedx.algebra.FedXStatementPattern;
+import com.fluidops.fedx.algebra.HashJoin;
 import com.fluidops.fedx.algebra.NJoin;
 import com.fluidops.fedx.algebra.NTuple;
 import com.fluidops.fedx.algebra.NUnion;
 import com.fluidops.fedx.algebra.StatementSourcePattern;
 import com.fluidops.fedx.algebra.StatementTupleExpr;
 import com.fluidops.fedx.exception.FedXRuntimeException;
+import com.fluidops.fedx.structures.QueryInfo;
 import com.fluidops.fedx.util.QueryStringUtil;
 
 
@@ -49,6 +55,9 @@ import com.fluidops.fedx.util.QueryStringUtil;
  *  - ExclusiveGroups are cheaper than any other subquery
  *  - owned statements are cheaper if they have a single free variable
  * 
+ * Bushy plans (see {@link #optimizeBushyJoinOrder(List, QueryInfo)}) combine independent
+ * sub-trees (i.e. stars and exclusive groups) with a {@link HashJoin}.
+ * 
  * @author Andreas Schwarte
  *
  */
@@ -86,6 +95,122 @@ public class JoinOrderOptimizer {
 		return optimized;
 	}
 	
+	/**
+	 * Compute a bushy join order for the given join arguments. Statements sharing the 
+	 * same subject variable (stars) and {@link ExclusiveGroup}s form independent sub-trees.
+	 * Sub-trees that are connected via join variables are combined using a {@link HashJoin},
+	 * such that they can be evaluated in parallel. The remaining arguments are ordered 
+	 * using {@link #optimizeJoinOrder(List)}.
+	 * 
+	 * If there are less than two connected sub-trees, the left-deep join order
+	 * is returned.
+	 * 
+	 * @param joinArgs
+	 * @param queryInfo
+	 * @return the optimized join arguments
+	 */
+	public static List<TupleExpr> optimizeBushyJoinOrder(List<TupleExpr> joinArgs, QueryInfo queryInfo) {
+		
+		// determine the sub-trees
+		List<List<TupleExpr>> subTrees = new ArrayList<List<TupleExpr>>();
+		Map<String, List<TupleExpr>> stars = new LinkedHashMap<String, List<TupleExpr>>();
+		List<TupleExpr> rest = new ArrayList<TupleExpr>();
+		for (TupleExpr t : joinArgs) {
+			if (t instanceof ExclusiveGroup) {
+				List<TupleExpr> l = new ArrayList<TupleExpr>(1);
+				l.add(t);
+				subTrees.add(l);
+				continue;
+			}
+			String subject = getSubjectVar(t);
+			if (subject==null) {
+				rest.add(t);
+				continue;
+			}
+			List<TupleExpr> star = stars.get(subject);
+			if (star==null) {
+				star = new ArrayList<TupleExpr>();
+				stars.put(subject, star);
+			}
+			star.add(t);
+		}
+		for (List<TupleExpr> star : stars.values()) {
+			if (star.size()>1)
+				subTrees.add(star);
+			else
+				rest.addAll(star);
+		}
+		
+		// combine connected sub-trees, starting with the first one
+		List<List<TupleExpr>> combined = new ArrayList<List<TupleExpr>>();
+		Set<String> freeVars = new HashSet<String>();
+		if (!subTrees.isEmpty()) {
+			combined.add(subTrees.remove(0));
+			freeVars.addAll(getFreeVars(combined.get(0)));
+		}
+		boolean found = true;
+		while (found) {
+			found = false;
+			for (Iterator<List<TupleExpr>> iter = subTrees.iterator(); iter.hasNext(); ) {
+				List<TupleExpr> subTree = iter.next();
+				if (!intersect(freeVars, getFreeVars(subTree)).isEmpty()) {
+					combined.add(subTree);
+					freeVars.addAll(getFreeVars(subTree));
+					iter.remove();
+					found = true;
+				}
+			}
+		}
+		
+		if (combined.size()<2)
+			return optimizeJoinOrder(joinArgs);
+		
+		TupleExpr tree = toTupleExpr(combined.get(0), queryInfo);
+		Set<String> treeVars = new HashSet<String>(getFreeVars(combined.get(0)));
+		for (List<TupleExpr> subTree : combined.subList(1, combined.size())) {
+			Collection<String> subTreeVars = getFreeVars(subTree);
+			tree = new HashJoin(tree, toTupleExpr(subTree, queryInfo), intersect(treeVars, subTreeVars), queryInfo);
+			treeVars.addAll(subTreeVars);
+		}
+		
+		List<TupleExpr> res = new ArrayList<TupleExpr>();
+		res.add(tree);
+		for (List<TupleExpr> subTree : subTrees)
+			res.addAll(subTree);
+		res.addAll(rest);
+		return optimizeJoinOrder(res);
+	}
+	
+	private static String getSubjectVar(TupleExpr t) {
+		if (!(t instanceof FedXStatementPattern))
+			return null;
+		FedXStatementPattern stmt = (FedXStatementPattern)t;
+		if (stmt.getSubjectVar().hasValue())
+			return null;
+		return stmt.getSubjectVar().getName();
+	}
+	
+	private static Collection<String> getFreeVars(List<TupleExpr> subTree) {
+		Set<String> res = new HashSet<String>();
+		for (TupleExpr t : subTree)
+			res.addAll(getFreeVars(t));
+		return res;
+	}
+	
+	private static List<String> intersect(Collection<String> vars1, Collection<String> vars2) {
+		List<String> res = new ArrayList<String>();
+		for (String var : vars2)
+			if (vars1.contains(var))
+				res.add(var);
+		return res;
+	}
+	
+	private static TupleExpr toTupleExpr(List<TupleExpr> subTree, QueryInfo queryInfo) {
+		if (subTree.size()==1)
+			return subTree.get(0);
+		return new NJoin(optimizeJoinOrder(subTree), queryInfo);
+	}
+	
 	public static List<ExclusiveStatement> optimizeGroupOrder(List<ExclusiveStatement> groupStmts) {
 		
 		// in this case we do not have to order at all
@@ -173,6 +298,8 @@ public class JoinOrderOptimizer {
 			return estimateCost((ExclusiveGroup)tupleExpr, joinVars);
 		if (tupleExpr instanceof NJoin)
 			return estimateCost((NJoin)tupleExpr, joinVars);
+		if (tupleExpr instanceof HashJoin)
+			return estimateCost((HashJoin)tupleExpr, joinVars);
 		if (tupleExpr instanceof NUnion)
 			return estimateCost((NUnion)tupleExpr, joinVars);
 		if (tupleExpr instanceof FedXService) 
@@ -330,4 +457,11 @@ public class JoinOrderOptimizer {
 		
 		return cost + join.getNumberOfArguments() - 1;
 	}
+	
+	protected static double estimateCost(HashJoin join, Set<String> joinVars) {
+		
+		// both sub-trees are evaluated completely and in parallel, i.e. the cost 
+		// is determined by the more expensive sub-tree
+		return Math.max(estimateCost(join.getLeftArg(), joinVars), estimateCost(join.getRightArg(), joinVars));
+	}
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.optimizer;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.query.algebra.Extension;
+import org.eclipse.rdf4j.query.algebra.Order;
+import org.eclipse.rdf4j.query.algebra.OrderElem;
+import org.eclipse.rdf4j.query.algebra.Projection;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
+import org.eclipse.rdf4j.query.algebra.Reduced;
+import org.eclipse.rdf4j.query.algebra.Slice;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.UnaryTupleOperator;
+import org.eclipse.rdf4j.query.algebra.Union;
+import org.eclipse.rdf4j.query.algebra.Var;
+
+import com.fluidops.fedx.algebra.FilterTuple;
+import com.fluidops.fedx.algebra.LimitTuple;
+import com.fluidops.fedx.algebra.NUnion;
+import com.fluidops.fedx.algebra.StatementTupleExpr;
+import com.fluidops.fedx.evaluation.iterator.SortedMergeIteration;
+import com.fluidops.fedx.exception.FilterConversionException;
+import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.util.FilterUtils;
+import com.fluidops.fedx.util.QueryStringUtil;
+
+
+/**
+ * Optimizer which pushes the LIMIT (and OFFSET) of a query into the subqueries sent
+ * to the sources, i.e. each source is asked for at most offset+limit results.
+ * 
+ * This is safe if the result of the query is the (union of the) results of single
+ * statements or exclusive groups without any operator in between that changes the
+ * number of results, i.e. only projections and extensions. In particular, the limit
+ * is not pushed below a DISTINCT, join or local filter. Filters that cannot be evaluated 
+ * remotely are considered when the subquery is constructed, see {@link QueryStringUtil}.
+ * 
+ * An ORDER BY on variables is pushed together with the limit (top-k), i.e. each source
+ * delivers its top results in sorted order. The sorted results of the sources of a
+ * statement are combined with a {@link SortedMergeIteration}, the final order is 
+ * established locally.
+ * 
+ * Note that this optimizer must run after the statement groups have been formed.
+ */
+public class LimitOptimizer implements FedXOptimizer {
+
+	public static Logger log = Logger.getLogger(LimitOptimizer.class);
+	
+	protected final QueryInfo queryInfo;
+	
+	public LimitOptimizer(QueryInfo queryInfo) {
+		super();
+		this.queryInfo = queryInfo;
+	}
+
+	@Override
+	public void optimize(TupleExpr tupleExpr) {
+		
+		TupleExpr expr = tupleExpr instanceof QueryRoot ? ((QueryRoot)tupleExpr).getArg() : tupleExpr;
+		
+		// find the outermost slice with a limit, and the order below it
+		long limit = LimitTuple.NO_LIMIT;
+		List<OrderElem> order = null;
+		while (expr instanceof Slice || expr instanceof Projection || expr instanceof Extension 
+				|| expr instanceof Reduced || expr instanceof Order) {
+			if (expr instanceof Slice) {
+				if (limit!=LimitTuple.NO_LIMIT)
+					break;		// nested slices are evaluated locally
+				Slice slice = (Slice)expr;
+				if (!slice.hasLimit())
+					return;
+				limit = slice.getLimit() + Math.max(0, slice.getOffset());
+			} else if (expr instanceof Order) {
+				if (limit==LimitTuple.NO_LIMIT || order!=null)
+					return;
+				order = ((Order)expr).getElements();
+				for (OrderElem elem : order) {
+					if (!(elem.getExpr() instanceof Var))
+						return;		// order by expression
+				}
+			}
+			expr = ((UnaryTupleOperator)expr).getArg();
+		}
+		
+		if (limit==LimitTuple.NO_LIMIT)
+			return;
+		
+		pushLimit(expr, limit, order);
+	}
+	
+	protected void pushLimit(TupleExpr expr, long limit, List<OrderElem> order) {
+		
+		if (expr instanceof LimitTuple) {
+			if (order!=null && !canPushOrder(expr, order))
+				return;
+			if (log.isTraceEnabled())
+				log.trace("Pushing limit " + limit + (order!=null ? " with order " + order : "") + " to " + expr + " of query " + queryInfo.getQueryID());
+			((LimitTuple)expr).setUpperLimit(limit);
+			((LimitTuple)expr).setOrder(order);
+		} else if (expr instanceof NUnion) {
+			for (TupleExpr arg : ((NUnion)expr).getArgs())
+				pushLimit(arg, limit, order);
+		} else if (expr instanceof Union) {
+			pushLimit(((Union)expr).getLeftArg(), limit, order);
+			pushLimit(((Union)expr).getRightArg(), limit, order);
+		}
+	}
+	
+	/**
+	 * Check if the subqueries of the given expression can be sorted remotely, i.e. 
+	 * the order variables are free variables of the expression and the filter, if
+	 * any, is evaluated remotely.
+	 * 
+	 * @param expr
+	 * @param order
+	 * @return true if the order can be pushed
+	 */
+	protected boolean canPushOrder(TupleExpr expr, List<OrderElem> order) {
+		List<String> freeVars = ((StatementTupleExpr)expr).getFreeVars();
+		for (OrderElem elem : order) {
+			if (!freeVars.contains(((Var)elem.getExpr()).getName()))
+				return false;
+		}
+		FilterTuple filterTuple = (FilterTuple)expr;
+		if (filterTuple.hasFilter()) {
+			try {
+				FilterUtils.toSparqlString(filterTuple.getFilterExpr());
+			} catch (FilterConversionException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -27,6 +27,7 @@ import org.eclipse.rdf4j.query.algebra.evaluation.impl.ConstantOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.impl.DisjunctiveConstraintOptimizer;
 import org.eclipse.rdf4j.sail.SailException;
 
+import com.fluidops.fedx.Config;
 import com.fluidops.fedx.FedX;
 import com.fluidops.fedx.FederationManager;
 import com.fluidops.fedx.algebra.SingleSourceQuery;
@@ -83,6 +84,10 @@ public class Optimizer {
 		// collect information and perform generic optimizations
 		info.optimize(query);
 		
+		// enable duplicate elimination on multi-source unions, if safe
+		if (Config.getConfig().isEnableDuplicateElimination())
+			new DuplicateEliminationOptimizer(queryInfo).optimize(query);
+		
 		// Source Selection: all nodes are annotated with their source
 		SourceSelection sourceSelection = new SourceSelection(members, cache, queryInfo);
 		sourceSelection.doSourceSelection(info.getStatements());
@@ -108,6 +113,13 @@ public class Optimizer {
 				
 		new VariableScopeOptimizer(queryInfo).optimize(query);
 		
+		// push decomposable aggregates to the sources
+		if (Config.getConfig().isEnableAggregationPushdown())
+			new AggregationOptimizer(queryInfo).optimize(query);
+		
+		// push LIMIT into the subqueries, if safe
+		new LimitOptimizer(queryInfo).optimize(query);
+		
 		if (logger.isTraceEnabled())
 			logger.trace("Query after Optimization: " + query);
 
@@ -22,9 +22,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
@@ -44,6 +46,7 @@ import com.fluidops.fedx.cache.CacheEntry;
 import com.fluidops.fedx.cache.CacheUtils;
 import com.fluidops.fedx.evaluation.TripleSource;
 import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.concurrent.EndpointTask;
 import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
 import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
 import com.fluidops.fedx.exception.ExceptionUtil;
@@ -235,7 +238,11 @@ public class SourceSelection {
 				scheduler.schedule( new ParallelCheckTask(task.e, task.t, this) );
 			
 			try	{
-				latch.await(); 	// TODO maybe add timeout here
+				// wait at most until the deadline of the query
+				if (!latch.await(sourceSelection.queryInfo.getMaxWaitTime(), TimeUnit.MILLISECONDS)) {
+					scheduler.abort(getQueryId());
+					errors.add(new OptimizationException("Source selection of query " + getQueryId() + " exceeded the maximum wait time."));
+				}
 			} catch (InterruptedException e) {
 				log.debug("Error during source selection. Thread got interrupted.");
 			}
@@ -285,6 +292,11 @@ public class SourceSelection {
 		public int getQueryId()	{
 			return sourceSelection.queryInfo.getQueryID();
 		}
+		
+		@Override
+		public QueryInfo getQueryInfo() {
+			return sourceSelection.queryInfo;
+		}
 	}
 	
 	
@@ -303,7 +315,7 @@ public class SourceSelection {
 	 * 
 	 * @author Andreas Schwarte
 	 */
-	protected static class ParallelCheckTask implements ParallelTask<BindingSet> {
+	protected static class ParallelCheckTask implements ParallelTask<BindingSet>, EndpointTask {
 
 		protected final Endpoint endpoint;
 		protected final StatementPattern stmt;
@@ -331,7 +343,7 @@ public class SourceSelection {
 				if (hasResults)
 					sourceSelection.addSource(stmt, new StatementSource(endpoint.getId(), StatementSourceType.REMOTE));
 				
-				return null;
+				return new EmptyIteration<BindingSet, QueryEvaluationException>();
 			} catch (Exception e) {
 				this.control.toss(e);
 				throw new OptimizationException("Error checking results for endpoint " + endpoint.getId() + ": " + e.getMessage(), e);
@@ -342,6 +354,11 @@ public class SourceSelection {
 		public ParallelExecutor<BindingSet> getControl() {
 			return control;
 		}		
+		
+		@Override
+		public Endpoint getEndpoint() {
+			return endpoint;
+		}
 	}
 	
 		
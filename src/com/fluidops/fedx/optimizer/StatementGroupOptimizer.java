@@ -26,6 +26,7 @@ import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
 
+import com.fluidops.fedx.Config;
 import com.fluidops.fedx.algebra.EmptyNJoin;
 import com.fluidops.fedx.algebra.EmptyResult;
 import com.fluidops.fedx.algebra.ExclusiveGroup;
@@ -41,7 +42,8 @@ import com.fluidops.fedx.util.QueryStringUtil;
  * Optimizer with the following tasks:
  * 
  * 1. Group {@link ExclusiveStatement} into {@link ExclusiveGroup}
- * 2. Adjust the join order using {@link JoinOrderOptimizer}
+ * 2. Adjust the join order using {@link JoinOrderOptimizer}, optionally with bushy
+ *    sub-trees if {@link Config#isEnableBushyJoins()} is set
  * 
  * 
  * @author as
@@ -167,7 +169,16 @@ public class StatementGroupOptimizer extends AbstractQueryModelVisitor<Optimizat
 		List<TupleExpr> optimized = newArgs;
 		
 		// optimize the join order
-		optimized = JoinOrderOptimizer.optimizeJoinOrder(optimized);
+		if (Config.getConfig().isEnableBushyJoins()) {
+			optimized = JoinOrderOptimizer.optimizeBushyJoinOrder(optimized, queryInfo);
+			if (optimized.size()==1) {
+				log.debug("Join arguments were combined to a single bushy join, replacing join node.");
+				node.replaceWith( optimized.get(0) );
+				return;
+			}
+		} else {
+			optimized = JoinOrderOptimizer.optimizeJoinOrder(optimized);
+		}
 
 		// exchange the node
 		NJoin newNode = new NJoin(optimized, queryInfo);
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.query.algebra.Group;
 import org.eclipse.rdf4j.query.algebra.LeftJoin;
 import org.eclipse.rdf4j.query.algebra.ProjectionElem;
 import org.eclipse.rdf4j.query.algebra.QueryModelNode;
@@ -31,10 +32,12 @@ import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
 
+import com.fluidops.fedx.algebra.HashJoin;
 import com.fluidops.fedx.algebra.NJoin;
 import com.fluidops.fedx.algebra.StatementTupleExpr;
 import com.fluidops.fedx.exception.OptimizationException;
 import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.util.QueryStringUtil;
 
 
 /**
@@ -43,6 +46,11 @@ import com.fluidops.fedx.structures.QueryInfo;
  * 1. Find the scope of variables within groups (and store information 
  *    within the node)
  * 
+ * Variables are local to an expression if they are neither projected nor
+ * used by another operator of the query (e.g. a join partner, FILTER, BIND,
+ * GROUP BY or ORDER BY). Local variables are not projected in the subquery 
+ * of the expression, see {@link QueryStringUtil}.
+ * 
  * 
  * @author as
  */
@@ -60,10 +68,11 @@ public class VariableScopeOptimizer extends AbstractQueryModelVisitor<Optimizati
 		this.queryInfo = queryInfo;
 	}
 
-	// TODO variables that are required in FILTER (i.e. outside of joins)
-
 	@Override
 	public void optimize(TupleExpr tupleExpr) {
+		// first collect all variables which are required outside of the statement
+		// expressions, independent of the order in which the nodes are visited
+		tupleExpr.visit(new GlobalVariablesCollector());
 		tupleExpr.visit(this);
 	}
 
@@ -90,6 +99,8 @@ public class VariableScopeOptimizer extends AbstractQueryModelVisitor<Optimizati
 			meetTupleExpression((StatementTupleExpr)node);			
 		} else if (node instanceof NJoin) {
 			meetNJoin((NJoin) node);
+		} else if (node instanceof HashJoin) {
+			// stop traversal: variables are shared across the independent sub-trees
 		} else {
 			super.meetOther(node);
 		}
@@ -152,4 +163,36 @@ public class VariableScopeOptimizer extends AbstractQueryModelVisitor<Optimizati
 	private boolean isProjection(String var) {
 		return globalVariables.contains(var);
 	}
+	
+	
+	/**
+	 * Collects the variables of all operators which are not statement expressions,
+	 * i.e. those that must be returned by the subqueries.
+	 */
+	protected class GlobalVariablesCollector extends AbstractQueryModelVisitor<OptimizationException> {
+		
+		@Override
+		public void meet(ProjectionElem node) throws OptimizationException {
+			globalVariables.add(node.getSourceName());
+			super.meet(node);
+		}
+		
+		@Override
+		public void meet(Var var) throws OptimizationException {
+			globalVariables.add(var.getName());
+		}
+		
+		@Override
+		public void meet(Group node) throws OptimizationException {
+			globalVariables.addAll(node.getGroupBindingNames());
+			super.meet(node);
+		}
+		
+		@Override
+		public void meetOther(QueryModelNode node) throws OptimizationException {
+			// the variables of statement expressions are handled by the optimizer
+			if (!(node instanceof StatementTupleExpr))
+				super.meetOther(node);
+		}
+	}
 }
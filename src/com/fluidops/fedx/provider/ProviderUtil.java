@@ -26,6 +26,7 @@ import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 
 import com.fluidops.fedx.Config;
+import com.fluidops.fedx.evaluation.concurrent.VirtualThreadScheduler;
 import com.fluidops.fedx.structures.Endpoint;
 
 /**
@@ -36,6 +37,20 @@ import com.fluidops.fedx.structures.Endpoint;
  */
 public class ProviderUtil {
 
+	/**
+	 * Returns the maximum number of HTTP connections of a repository, which follows the
+	 * number of concurrently running join and union tasks: {@link Config#getVirtualThreadConcurrency()}
+	 * if the {@link VirtualThreadScheduler} is used, the number of worker threads otherwise.
+	 * 
+	 * @return the maximum number of HTTP connections
+	 */
+	public static int getMaxConnections() {
+		Config config = Config.getConfig();
+		if (config.isEnableVirtualThreads() && VirtualThreadScheduler.isAvailable())
+			return config.getVirtualThreadConcurrency();
+		return Math.max(config.getJoinWorkerThreads(), config.getUnionWorkerThreads());
+	}
+
 	/**
 	 * Checks the connection by submitting a SPARQL SELECT query:
 	 * 
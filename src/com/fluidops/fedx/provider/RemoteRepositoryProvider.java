@@ -44,8 +44,8 @@ public class RemoteRepositoryProvider implements EndpointProvider {
 		
 		try {			
 			HTTPRepository repo = new HTTPRepository(repositoryServer, repositoryName);
-			HttpClientBuilder httpClientBuilder = HttpClients.custom().useSystemProperties().setMaxConnTotal(20)
-					.setMaxConnPerRoute(20);
+			HttpClientBuilder httpClientBuilder = HttpClients.custom().useSystemProperties()
+					.setMaxConnTotal(ProviderUtil.getMaxConnections()).setMaxConnPerRoute(ProviderUtil.getMaxConnections());
 			((SharedHttpClientSessionManager) repo.getHttpClientSessionManager())
 					.setHttpClientBuilder(httpClientBuilder);
 			repo.initialize();
@@ -39,8 +39,8 @@ public class SPARQLHttpRepoProvider implements EndpointProvider {
 
 		try {
 			HTTPRepository repo = new HTTPRepository(repoInfo.getLocation());
-			HttpClientBuilder httpClientBuilder = HttpClients.custom().useSystemProperties().setMaxConnTotal(20)
-					.setMaxConnPerRoute(20);
+			HttpClientBuilder httpClientBuilder = HttpClients.custom().useSystemProperties()
+					.setMaxConnTotal(ProviderUtil.getMaxConnections()).setMaxConnPerRoute(ProviderUtil.getMaxConnections());
 			((SharedHttpClientSessionManager) repo.getHttpClientSessionManager())
 					.setHttpClientBuilder(httpClientBuilder);
 			repo.initialize();
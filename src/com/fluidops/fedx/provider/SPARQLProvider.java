@@ -44,8 +44,8 @@ public class SPARQLProvider implements EndpointProvider {
 
 		try {
 			SPARQLRepository repo = new SPARQLRepository(repoInfo.getLocation());
-			HttpClientBuilder httpClientBuilder = HttpClients.custom().useSystemProperties().setMaxConnTotal(20)
-					.setMaxConnPerRoute(20);
+			HttpClientBuilder httpClientBuilder = HttpClients.custom().useSystemProperties()
+					.setMaxConnTotal(ProviderUtil.getMaxConnections()).setMaxConnPerRoute(ProviderUtil.getMaxConnections());
 			((SharedHttpClientSessionManager) repo.getHttpClientSessionManager())
 					.setHttpClientBuilder(httpClientBuilder);
 			repo.initialize();
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.structures;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+
+
+/**
+ * The variable schema of an operator, i.e. a mapping of binding names to slots in the 
+ * value arrays of {@link CompactBindingSet}s. A schema is shared by all rows produced 
+ * by an operator.
+ * 
+ * The schema is append-only: slots never change once assigned, so rows created before
+ * a new name was added remain valid. Lookups are lock-free, additions are copy-on-write.
+ */
+public class BindingSchema implements Serializable {
+
+	private static final long serialVersionUID = 4937751216389560741L;
+
+	private volatile String[] names = new String[0];
+	private volatile Map<String, Integer> slots = Collections.emptyMap();
+	
+	public BindingSchema() {
+		super();
+	}
+	
+	public BindingSchema(Iterable<String> names) {
+		super();
+		for (String name : names)
+			add(name);
+	}
+	
+	/**
+	 * @param name
+	 * @return the slot of the given name, or -1 if it is not part of this schema
+	 */
+	public int indexOf(String name) {
+		Integer slot = slots.get(name);
+		return slot==null ? -1 : slot;
+	}
+	
+	/**
+	 * Add the given name to this schema, if it is not yet part of it.
+	 * 
+	 * @param name
+	 * @return the slot of the name
+	 */
+	public synchronized int add(String name) {
+		Integer slot = slots.get(name);
+		if (slot!=null)
+			return slot;
+		
+		String[] newNames = new String[names.length+1];
+		System.arraycopy(names, 0, newNames, 0, names.length);
+		newNames[names.length] = name;
+		Map<String, Integer> newSlots = new HashMap<String, Integer>(slots);
+		newSlots.put(name, names.length);
+		
+		// names first: readers that see the new slot also see the new name
+		names = newNames;
+		slots = newSlots;
+		return newNames.length-1;
+	}
+	
+	/**
+	 * Add all binding names of the given binding set to this schema
+	 * 
+	 * @param bindings
+	 */
+	public void addAll(BindingSet bindings) {
+		for (Binding b : bindings) {
+			if (indexOf(b.getName())<0)
+				add(b.getName());
+		}
+	}
+	
+	/**
+	 * @param slot
+	 * @return the name at the given slot
+	 */
+	public String getName(int slot) {
+		return names[slot];
+	}
+	
+	/**
+	 * @return the number of names in this schema
+	 */
+	public int size() {
+		return names.length;
+	}
+	
+	@Override
+	public String toString() {
+		return slots.keySet().toString();
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.structures;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.AbstractBindingSet;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.impl.SimpleBinding;
+
+
+/**
+ * A compact, immutable {@link BindingSet}: the values of a row are stored in an array 
+ * whose slots are defined by a {@link BindingSchema} shared among all rows of an operator.
+ * 
+ * Optionally the row is layered over parent bindings (e.g. the bindings of a join that 
+ * are inserted into the results of a subquery), which are referenced rather than copied.
+ * Values of the row take precedence over those of the parent.
+ */
+public class CompactBindingSet extends AbstractBindingSet {
+
+	private static final long serialVersionUID = -1850541227925483322L;
+
+	protected final BindingSchema schema;
+	protected final Value[] values;
+	protected final BindingSet parent;
+	
+	protected transient int size = -1;
+	
+	/**
+	 * @param schema
+	 * 			the schema defining the slots of values
+	 * @param values
+	 * 			the values, may be shorter than the schema and contain null for unbound slots
+	 * @param parent
+	 * 			the parent bindings, may be null
+	 */
+	public CompactBindingSet(BindingSchema schema, Value[] values, BindingSet parent) {
+		super();
+		this.schema = schema;
+		this.values = values;
+		this.parent = parent==null || parent.size()==0 ? null : parent;
+	}
+	
+	/**
+	 * Create a compact copy of the given row layered over the parent bindings. Names of
+	 * the row which are not part of the schema are added to it.
+	 * 
+	 * @param schema
+	 * @param row
+	 * @param parent
+	 * 			the parent bindings, may be null
+	 * @return the compact binding set
+	 */
+	public static CompactBindingSet create(BindingSchema schema, BindingSet row, BindingSet parent) {
+		Value[] values = new Value[schema.size()];
+		for (Binding b : row) {
+			int slot = schema.indexOf(b.getName());
+			if (slot<0)
+				slot = schema.add(b.getName());
+			if (slot>=values.length)
+				values = Arrays.copyOf(values, schema.size());
+			values[slot] = b.getValue();
+		}
+		return new CompactBindingSet(schema, values, parent);
+	}
+	
+	@Override
+	public Value getValue(String bindingName) {
+		int slot = schema.indexOf(bindingName);
+		if (slot>=0 && slot<values.length && values[slot]!=null)
+			return values[slot];
+		return parent==null ? null : parent.getValue(bindingName);
+	}
+
+	@Override
+	public Binding getBinding(String bindingName) {
+		Value value = getValue(bindingName);
+		return value==null ? null : new SimpleBinding(bindingName, value);
+	}
+
+	@Override
+	public boolean hasBinding(String bindingName) {
+		return getValue(bindingName)!=null;
+	}
+	
+	@Override
+	public Set<String> getBindingNames() {
+		Set<String> res = new LinkedHashSet<String>();
+		for (int i=0; i<values.length; i++) {
+			if (values[i]!=null)
+				res.add(schema.getName(i));
+		}
+		if (parent!=null)
+			res.addAll(parent.getBindingNames());
+		return res;
+	}
+
+	@Override
+	public Iterator<Binding> iterator() {
+		return new CompactBindingIterator();
+	}
+
+	@Override
+	public int size() {
+		if (size<0) {
+			int res = 0;
+			for (Value v : values) {
+				if (v!=null)
+					res++;
+			}
+			if (parent!=null) {
+				for (Binding b : parent) {
+					if (!isBoundLocally(b.getName()))
+						res++;
+				}
+			}
+			size = res;
+		}
+		return size;
+	}
+	
+	protected boolean isBoundLocally(String bindingName) {
+		int slot = schema.indexOf(bindingName);
+		return slot>=0 && slot<values.length && values[slot]!=null;
+	}
+	
+	
+	/**
+	 * Iterates the bound slots of the row followed by the bindings of the 
+	 * parent which are not shadowed by the row.
+	 */
+	protected class CompactBindingIterator implements Iterator<Binding> {
+
+		protected int slot = 0;
+		protected Iterator<Binding> parentIter = null;
+		protected Binding next = null;
+		
+		@Override
+		public boolean hasNext() {
+			if (next==null)
+				next = computeNext();
+			return next!=null;
+		}
+
+		@Override
+		public Binding next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Binding res = next;
+			next = null;
+			return res;
+		}
+		
+		protected Binding computeNext() {
+			while (slot<values.length) {
+				int i = slot++;
+				if (values[i]!=null)
+					return new SimpleBinding(schema.getName(i), values[i]);
+			}
+			if (parent==null)
+				return null;
+			if (parentIter==null)
+				parentIter = parent.iterator();
+			while (parentIter.hasNext()) {
+				Binding b = parentIter.next();
+				if (!isBoundLocally(b.getName()))
+					return b;
+			}
+			return null;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -15,6 +15,7 @@
  */
 package com.fluidops.fedx.structures;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -26,6 +27,9 @@ import org.eclipse.rdf4j.repository.RepositoryException;
 import com.fluidops.fedx.EndpointManager;
 import com.fluidops.fedx.evaluation.TripleSource;
 import com.fluidops.fedx.evaluation.TripleSourceFactory;
+import com.fluidops.fedx.evaluation.concurrent.EndpointRequestLimiter;
+import com.fluidops.fedx.evaluation.concurrent.HedgedRequest;
+import com.fluidops.fedx.evaluation.concurrent.LatencyTracker;
 import com.fluidops.fedx.exception.FedXRuntimeException;
 
 
@@ -106,6 +110,9 @@ public class Endpoint  {
 	protected boolean initialized = false;			// true, iff the contained repository is initialized
 	protected TripleSource tripleSource;			// the triple source, initialized when repository is set
 	protected EndpointConfiguration endpointConfiguration;	// additional endpoint type specific configuration
+	protected EndpointRequestLimiter requestLimiter = null;	// optional limit of concurrent requests
+	protected List<Endpoint> replicas = new ArrayList<Endpoint>(0);	// replicas with the same data, used for hedged requests
+	protected final LatencyTracker latencyTracker = new LatencyTracker(100);	// latencies of recent (hedged) requests
 
 	/**
 	 * Construct a new endpoint.
@@ -194,6 +201,55 @@ public class Endpoint  {
 		this.endpointConfiguration = endpointConfiguration;
 	}
 
+	/**
+	 * Returns the limiter for concurrent requests to this endpoint, see
+	 * {@link #setMaxConcurrentRequests(int)}.
+	 * 
+	 * @return the request limiter or <code>null</code> if unlimited
+	 */
+	public EndpointRequestLimiter getRequestLimiter() {
+		return requestLimiter;
+	}
+	
+	/**
+	 * Limit the number of concurrently executed tasks for this endpoint. Tasks
+	 * exceeding the limit are parked by the scheduler.
+	 * 
+	 * @param maxConcurrentRequests
+	 * 			the maximum number of concurrent requests, 0 or less means unlimited
+	 */
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		this.requestLimiter = maxConcurrentRequests > 0 ? new EndpointRequestLimiter(maxConcurrentRequests) : null;
+	}
+	
+	/**
+	 * Returns the replicas of this endpoint, i.e. endpoints which provide the same data
+	 * and to which requests can be hedged, see {@link HedgedRequest}. Replicas are not
+	 * members of the federation.
+	 * 
+	 * @return the replicas, possibly empty
+	 */
+	public List<Endpoint> getReplicas() {
+		return replicas;
+	}
+	
+	/**
+	 * Add a replica of this endpoint. The replica is initialized and shut down
+	 * together with this endpoint.
+	 * 
+	 * @param replica
+	 */
+	public void addReplica(Endpoint replica) {
+		replicas.add(replica);
+	}
+	
+	/**
+	 * @return the latencies of recent requests to this endpoint
+	 */
+	public LatencyTracker getLatencyTracker() {
+		return latencyTracker;
+	}
+
 	/**
 	 * return a singleton connection object. this is valid for the whole lifetime of the
 	 * underlying repository, i.e. until it is shutDown
@@ -271,6 +327,8 @@ public class Endpoint  {
 			return;		
 		tripleSource = TripleSourceFactory.tripleSourceFor(this, type);
 		conn = repo.getConnection();
+		for (Endpoint replica : replicas)
+			replica.initialize();
 		initialized = true;
 	}
 	
@@ -314,6 +372,8 @@ public class Endpoint  {
 		conn.close();
 		conn = null;
 		repo.shutDown();
+		for (Endpoint replica : replicas)
+			replica.shutDown();
 		initialized = false;
 	}
 	
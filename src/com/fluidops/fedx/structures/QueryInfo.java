@@ -15,10 +15,17 @@
  */
 package com.fluidops.fedx.structures;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
 
+import com.fluidops.fedx.Config;
+import com.fluidops.fedx.optimizer.DuplicateEliminationOptimizer;
 import com.fluidops.fedx.util.QueryStringUtil;
 
 
@@ -29,6 +36,13 @@ import com.fluidops.fedx.util.QueryStringUtil;
  * 
  * The queryId can be used to abort tasks belonging to a particular evaluation.
  * 
+ * The priority of a query is used for weighted fair scheduling of its tasks. It can
+ * be set programmatically or using the query hint <code>#fedx:priority=N</code>.
+ * 
+ * Each query has an absolute deadline, which is derived from {@link Config#getEnforceMaxQueryTime()}
+ * upon creation. All operators of the query (scheduler, source selection, joins, unions and 
+ * remote requests) use the remaining time as their budget, see {@link #getRemainingTime()}.
+ * 
  * @author Andreas Schwarte
  *
  */
@@ -36,9 +50,34 @@ public class QueryInfo {
 
 	protected static int NEXT_QUERY_ID = 1;		// static id count
 	
+	/**
+	 * The default priority of a query, see {@link #getPriority()}
+	 */
+	public static final int DEFAULT_PRIORITY = 1;
+	
+	/**
+	 * The deadline of queries without time limit, see {@link #getDeadline()}
+	 */
+	public static final long NO_DEADLINE = Long.MAX_VALUE;
+	
+	/**
+	 * The time in milliseconds operators wait at most for their pending tasks if
+	 * the query has no deadline, see {@link #getMaxWaitTime()}
+	 */
+	public static final long FALLBACK_WAIT_TIME = 100000;
+	
+	/* the query of the task which is currently performed by a thread, if any */
+	private static final ThreadLocal<QueryInfo> current = new ThreadLocal<QueryInfo>();
+	
+	protected static final Pattern PRIORITY_HINT = Pattern.compile("#\\s*fedx:priority\\s*=\\s*(\\d+)");
+	
 	private final int queryID;
 	private final String query;
 	private final QueryType queryType;
+	private volatile int priority;
+	private volatile long deadline;
+	private volatile boolean duplicateElimination = false;
+	private final AtomicLong bufferedRows = new AtomicLong(0);
 	
 	public QueryInfo(String query, QueryType queryType) {
 		super();
@@ -47,6 +86,9 @@ public class QueryInfo {
 		}
 		this.query = query;
 		this.queryType = queryType;
+		this.priority = parsePriority(query);
+		int maxQueryTime = Config.getConfig().getEnforceMaxQueryTime();
+		this.deadline = maxQueryTime>0 ? System.currentTimeMillis() + maxQueryTime*1000L : NO_DEADLINE;
 	}
 
 	public QueryInfo(Resource subj, IRI pred, Value obj)
@@ -65,6 +107,195 @@ public class QueryInfo {
 	public QueryType getQueryType() {
 		return queryType;
 	}
+	
+	/**
+	 * Returns the priority of this query, i.e. the weight of its tasks in 
+	 * the fair scheduling of the workers. Higher values mean higher priority.
+	 * 
+	 * @return the priority, at least 1
+	 */
+	public int getPriority() {
+		return priority;
+	}
+	
+	/**
+	 * Set the priority of this query, values smaller than 1 are adjusted to 1.
+	 * 
+	 * @param priority
+	 */
+	public void setPriority(int priority) {
+		this.priority = Math.max(1, priority);
+	}
+	
+	/**
+	 * Returns the absolute deadline of this query in milliseconds (as in
+	 * {@link System#currentTimeMillis()}), or {@link #NO_DEADLINE}.
+	 * 
+	 * @return the deadline
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+	
+	/**
+	 * Set the absolute deadline of this query in milliseconds.
+	 * 
+	 * @param deadline
+	 * 			the deadline or {@link #NO_DEADLINE}
+	 */
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+	
+	/**
+	 * Returns a flag indicating whether duplicates may be removed from the results of 
+	 * multi-source unions, i.e. whether set semantics do not change the query result.
+	 * 
+	 * @return whether duplicate elimination is applied
+	 * @see DuplicateEliminationOptimizer
+	 */
+	public boolean isDuplicateElimination() {
+		return duplicateElimination;
+	}
+	
+	public void setDuplicateElimination(boolean duplicateElimination) {
+		this.duplicateElimination = duplicateElimination;
+	}
+	
+	/**
+	 * Reserve memory for the given number of intermediate result rows of this query,
+	 * see {@link Config#getQueryMemoryBudget()}. Operators which can spill to disk 
+	 * should do so if the reservation fails.
+	 * 
+	 * @param rows
+	 * @return true if the rows fit into the memory budget of this query
+	 */
+	public boolean reserveRows(long rows) {
+		long budget = Config.getConfig().getQueryMemoryBudget();
+		if (budget<=0) 
+			return true;
+		if (bufferedRows.addAndGet(rows) > budget) {
+			bufferedRows.addAndGet(-rows);
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Release rows reserved with {@link #reserveRows(long)}
+	 * 
+	 * @param rows
+	 */
+	public void releaseRows(long rows) {
+		if (Config.getConfig().getQueryMemoryBudget()>0)
+			bufferedRows.addAndGet(-rows);
+	}
+	
+	/**
+	 * @return the number of rows currently reserved with {@link #reserveRows(long)}
+	 */
+	public long getReservedRows() {
+		return bufferedRows.get();
+	}
+	
+	public boolean hasDeadline() {
+		return deadline!=NO_DEADLINE;
+	}
+	
+	/**
+	 * Returns the time left until the deadline of this query is reached, e.g. to 
+	 * be used as timeout for blocking operations.
+	 * 
+	 * @return the remaining time in milliseconds, 0 if the deadline has passed, and 
+	 * 			{@link Long#MAX_VALUE} if the query has no deadline
+	 */
+	public long getRemainingTime() {
+		if (!hasDeadline())
+			return Long.MAX_VALUE;
+		return Math.max(0, deadline - System.currentTimeMillis());
+	}
+	
+	public boolean isExpired() {
+		return hasDeadline() && System.currentTimeMillis() >= deadline;
+	}
+	
+	/**
+	 * Throws a {@link QueryInterruptedException} if the deadline of this query has passed.
+	 * 
+	 * @throws QueryInterruptedException
+	 */
+	public void checkDeadline() throws QueryInterruptedException {
+		if (isExpired())
+			throw new QueryInterruptedException("Query " + queryID + " exceeded its deadline.");
+	}
+	
+	/**
+	 * Returns the remaining time of the given query, see {@link #getRemainingTime()}.
+	 * 
+	 * @param queryInfo
+	 * 			the query, may be null
+	 * @return the remaining time in milliseconds, {@link Long#MAX_VALUE} if there is no limit
+	 */
+	public static long getRemainingTime(QueryInfo queryInfo) {
+		return queryInfo==null ? Long.MAX_VALUE : queryInfo.getRemainingTime();
+	}
+	
+	/**
+	 * Returns the time operators of this query wait at most for their pending tasks,
+	 * i.e. the remaining time or {@link #FALLBACK_WAIT_TIME} if the query has no deadline.
+	 * 
+	 * @return the maximum wait time in milliseconds
+	 */
+	public long getMaxWaitTime() {
+		return hasDeadline() ? getRemainingTime() : FALLBACK_WAIT_TIME;
+	}
+	
+	/**
+	 * Returns the maximum wait time of the given query, see {@link #getMaxWaitTime()}.
+	 * 
+	 * @param queryInfo
+	 * 			the query, may be null
+	 * @return the maximum wait time in milliseconds
+	 */
+	public static long getMaxWaitTime(QueryInfo queryInfo) {
+		return queryInfo==null ? FALLBACK_WAIT_TIME : queryInfo.getMaxWaitTime();
+	}
+	
+	/**
+	 * Bind the given query to the current thread, e.g. while a worker performs a task
+	 * of the query. This allows the triple sources to apply the remaining time of the
+	 * query to remote requests.
+	 * 
+	 * @param queryInfo
+	 * 			the query, or null to remove the binding
+	 */
+	public static void setCurrent(QueryInfo queryInfo) {
+		if (queryInfo==null)
+			current.remove();
+		else
+			current.set(queryInfo);
+	}
+	
+	/**
+	 * @return the query bound to the current thread, or null
+	 * @see #setCurrent(QueryInfo)
+	 */
+	public static QueryInfo getCurrent() {
+		return current.get();
+	}
+	
+	private static int parsePriority(String query) {
+		if (query==null)
+			return DEFAULT_PRIORITY;
+		Matcher m = PRIORITY_HINT.matcher(query);
+		if (!m.find())
+			return DEFAULT_PRIORITY;
+		try {
+			return Math.max(1, Integer.parseInt(m.group(1)));
+		} catch (NumberFormatException e) {
+			return DEFAULT_PRIORITY;
+		}
+	}
 
 	@Override
 	public int hashCode()
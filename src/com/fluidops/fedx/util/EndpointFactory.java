@@ -167,6 +167,12 @@ public class EndpointFactory {
 	 * NativeStore and SPARQLEndpoint are supported. For details please refer to the documentation
 	 * in {@link NativeGraphRepositoryInformation} and {@link SPARQLGraphRepositoryInformation}.
 	 * 
+	 * For any endpoint type the number of concurrent requests can be limited using
+	 * <code>fluid:maxConcurrentRequests "5"</code>, see {@link Endpoint#setMaxConcurrentRequests(int)}.
+	 * 
+	 * SPARQL endpoints can declare replicas providing the same data using 
+	 * <code>fluid:replica "http://mirror.example.org/sparql"</code>, see {@link Endpoint#getReplicas()}.
+	 * 
 	 * @param dataConfig
 	 * 
 	 * @return
@@ -203,6 +209,31 @@ public class EndpointFactory {
 	
 	public static Endpoint loadEndpoint(Model graph, Resource repNode, Value repType) throws FedXException {
 		
+		Endpoint e = loadEndpointInternal(graph, repNode, repType);
+		
+		// optional limit of concurrent requests
+		Model maxConcurrentRequests = graph.filter(repNode, FedXUtil.iri("http://fluidops.org/config#maxConcurrentRequests"), null);
+		if (!maxConcurrentRequests.isEmpty()) {
+			String value = maxConcurrentRequests.iterator().next().getObject().stringValue();
+			try {
+				e.setMaxConcurrentRequests(Integer.parseInt(value.trim()));
+			} catch (NumberFormatException ex) {
+				throw new FedXException("Invalid value for maxConcurrentRequests of " + repNode.stringValue() + ": " + value);
+			}
+		}
+		
+		// optional replicas, used for hedged requests
+		for (Statement st : graph.filter(repNode, FedXUtil.iri("http://fluidops.org/config#replica"), null)) {
+			if (e.getType()!=EndpointType.SparqlEndpoint)
+				throw new FedXException("Replicas are only supported for SPARQL endpoints: " + repNode.stringValue());
+			e.addReplica(loadSPARQLEndpoint(e.getName(), st.getObject().stringValue()));
+		}
+		
+		return e;
+	}
+	
+	private static Endpoint loadEndpointInternal(Model graph, Resource repNode, Value repType) throws FedXException {
+		
 		EndpointProvider repProvider;
 		
 		// NativeStore => Sesame native store implementation
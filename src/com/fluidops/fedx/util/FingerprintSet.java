@@ -0,0 +1,297 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+
+/**
+ * A set of 64 bit fingerprints, e.g. hashes of result rows used for duplicate elimination.
+ * 
+ * The fingerprints are kept in a primitive open addressing hash table (linear probing) which
+ * grows on demand up to the configured maximum number of entries. If this number is exceeded,
+ * the in-memory fingerprints are sorted and merged into a sorted run on disk, and the table
+ * is cleared. Lookups for spilled fingerprints use a sparse in-memory index of the run, i.e.
+ * they require a single block read.
+ * 
+ * This class is not thread safe.
+ */
+public class FingerprintSet implements Closeable {
+
+	public static Logger log = Logger.getLogger(FingerprintSet.class);
+	
+	/* number of fingerprints per block of the spilled run */
+	protected static final int BLOCK_SIZE = 1024;
+	
+	protected static final int INITIAL_CAPACITY = 64;
+	
+	/* the marker for free slots, the fingerprint 0 is tracked in hasZero */
+	protected static final long FREE = 0L;
+	
+	protected final int maxEntries;
+	
+	protected long[] table = new long[INITIAL_CAPACITY];
+	protected int size = 0;
+	protected boolean hasZero = false;
+	
+	protected File runFile = null;
+	protected RandomAccessFile run = null;
+	protected long runSize = 0;
+	protected long[] runIndex = null;		// first fingerprint of each block
+	protected byte[] blockBuffer = null;
+	
+	
+	/**
+	 * @param maxEntries
+	 * 			the maximum number of fingerprints kept in memory
+	 */
+	public FingerprintSet(int maxEntries) {
+		this.maxEntries = Math.max(BLOCK_SIZE, maxEntries);
+	}
+	
+	/**
+	 * Add the fingerprint to this set.
+	 * 
+	 * @param fingerprint
+	 * @return true if the fingerprint was not contained in this set
+	 * @throws IOException
+	 * 			if the spilled fingerprints cannot be accessed
+	 */
+	public boolean add(long fingerprint) throws IOException {
+		
+		if (fingerprint==FREE) {
+			if (hasZero)
+				return false;
+		} else if (containsInMemory(fingerprint)) {
+			return false;
+		}
+		
+		if (runSize>0 && containsInRun(fingerprint))
+			return false;
+		
+		if (fingerprint==FREE)
+			hasZero = true;
+		else 
+			insert(fingerprint);
+		
+		if (size + (hasZero ? 1 : 0) >= maxEntries)
+			spill();
+		return true;
+	}
+	
+	/**
+	 * @return the number of fingerprints in this set
+	 */
+	public long size() {
+		return runSize + size + (hasZero ? 1 : 0);
+	}
+	
+	/**
+	 * @return true if fingerprints have been spilled to disk
+	 */
+	public boolean isSpilled() {
+		return runFile!=null;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		table = null;
+		runIndex = null;
+		blockBuffer = null;
+		try {
+			if (run!=null)
+				run.close();
+		} finally {
+			run = null;
+			if (runFile!=null && !runFile.delete())
+				log.warn("Failed to delete temporary file " + runFile);
+			runFile = null;
+		}
+	}
+	
+	
+	protected static int slot(long fingerprint, int mask) {
+		return (int)(fingerprint ^ (fingerprint >>> 32)) & mask;
+	}
+	
+	protected boolean containsInMemory(long fingerprint) {
+		int mask = table.length-1;
+		for (int i=slot(fingerprint, mask); table[i]!=FREE; i=(i+1) & mask) {
+			if (table[i]==fingerprint)
+				return true;
+		}
+		return false;
+	}
+	
+	protected void insert(long fingerprint) {
+		// keep the load factor below 0.5
+		if ((size+1)*2 > table.length)
+			rehash(table.length*2);
+		int mask = table.length-1;
+		int i = slot(fingerprint, mask);
+		while (table[i]!=FREE)
+			i = (i+1) & mask;
+		table[i] = fingerprint;
+		size++;
+	}
+	
+	protected void rehash(int capacity) {
+		long[] old = table;
+		table = new long[capacity];
+		int mask = capacity-1;
+		for (long fingerprint : old) {
+			if (fingerprint==FREE)
+				continue;
+			int i = slot(fingerprint, mask);
+			while (table[i]!=FREE)
+				i = (i+1) & mask;
+			table[i] = fingerprint;
+		}
+	}
+	
+	/**
+	 * Sort the in-memory fingerprints and merge them with the current run into a 
+	 * new run file. Afterwards the hash table is cleared.
+	 * 
+	 * @throws IOException
+	 */
+	protected void spill() throws IOException {
+		
+		long[] sorted = new long[size + (hasZero ? 1 : 0)];
+		int n = 0;
+		for (long fingerprint : table) {
+			if (fingerprint!=FREE)
+				sorted[n++] = fingerprint;
+		}
+		if (hasZero)
+			sorted[n++] = FREE;
+		Arrays.sort(sorted);
+		
+		File newFile = File.createTempFile("fedx-distinct", ".run");
+		long newSize = sorted.length + runSize;
+		long[] newIndex = new long[(int)((newSize + BLOCK_SIZE - 1) / BLOCK_SIZE)];
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(newFile), 64*1024));
+		DataInputStream in = null;
+		try {
+			if (runFile!=null)
+				in = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile), 64*1024));
+			
+			// merge the sorted fingerprints with the current run, both are duplicate free
+			long written = 0;
+			int i = 0;
+			long remaining = runSize;
+			long next = remaining>0 ? readLong(in) : 0;
+			while (i<sorted.length || remaining>0) {
+				long value;
+				if (remaining==0 || (i<sorted.length && sorted[i]<next)) {
+					value = sorted[i++];
+				} else {
+					value = next;
+					if (--remaining>0)
+						next = readLong(in);
+				}
+				if (written % BLOCK_SIZE == 0)
+					newIndex[(int)(written / BLOCK_SIZE)] = value;
+				out.writeLong(value);
+				written++;
+			}
+		} catch (IOException e) {
+			out.close();
+			newFile.delete();
+			throw e;
+		} finally {
+			if (in!=null)
+				in.close();
+		}
+		out.close();
+		
+		if (run!=null)
+			run.close();
+		if (runFile!=null)
+			runFile.delete();
+		
+		runFile = newFile;
+		run = new RandomAccessFile(newFile, "r");
+		runSize = newSize;
+		runIndex = newIndex;
+		if (blockBuffer==null)
+			blockBuffer = new byte[BLOCK_SIZE*8];
+		
+		if (log.isDebugEnabled())
+			log.debug("Spilled " + sorted.length + " fingerprints to " + newFile + ", total: " + runSize);
+		
+		Arrays.fill(table, FREE);
+		size = 0;
+		hasZero = false;
+	}
+	
+	protected static long readLong(DataInputStream in) throws IOException {
+		try {
+			return in.readLong();
+		} catch (EOFException e) {
+			throw new IOException("Unexpected end of spilled fingerprints", e);
+		}
+	}
+	
+	protected boolean containsInRun(long fingerprint) throws IOException {
+		
+		// find the last block whose first fingerprint is not greater than the given one
+		int block = Arrays.binarySearch(runIndex, fingerprint);
+		if (block>=0)
+			return true;
+		block = -block - 2;
+		if (block<0)
+			return false;
+		
+		long offset = (long)block * BLOCK_SIZE;
+		int count = (int)Math.min(BLOCK_SIZE, runSize - offset);
+		run.seek(offset * 8);
+		run.readFully(blockBuffer, 0, count*8);
+		
+		int low = 0, high = count-1;
+		while (low<=high) {
+			int mid = (low + high) >>> 1;
+			long value = readLong(blockBuffer, mid*8);
+			if (value<fingerprint)
+				low = mid+1;
+			else if (value>fingerprint)
+				high = mid-1;
+			else
+				return true;
+		}
+		return false;
+	}
+	
+	protected static long readLong(byte[] b, int off) {
+		return ((long)b[off] << 56) | ((long)(b[off+1] & 0xff) << 48) | ((long)(b[off+2] & 0xff) << 40) 
+				| ((long)(b[off+3] & 0xff) << 32) | ((long)(b[off+4] & 0xff) << 24) | ((long)(b[off+5] & 0xff) << 16) 
+				| ((long)(b[off+6] & 0xff) << 8) | (b[off+7] & 0xff);
+	}
+}
@@ -15,6 +15,7 @@
  */
 package com.fluidops.fedx.util;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -27,6 +28,7 @@ import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.algebra.Compare;
 import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
+import org.eclipse.rdf4j.query.algebra.Distinct;
 import org.eclipse.rdf4j.query.algebra.Filter;
 import org.eclipse.rdf4j.query.algebra.Join;
 import org.eclipse.rdf4j.query.algebra.Projection;
@@ -91,6 +93,24 @@ public class QueryAlgebraUtil {
 			return bindings.getValue(var.getName());
 		}
 	}
+	
+	/**
+	 * Compute the join key of the given bindings, i.e. the list of values of the join variables.
+	 * 
+	 * @param bindings
+	 * @param joinVars
+	 * @return the join key or <code>null</code> if some join variable is not bound
+	 */
+	public static List<Value> joinKey(BindingSet bindings, List<String> joinVars) {
+		List<Value> key = new ArrayList<Value>(joinVars.size());
+		for (String var : joinVars) {
+			Value v = bindings.getValue(var);
+			if (v==null)
+				return null;
+			key.add(v);
+		}
+		return key;
+	}
 		
 	
 	public static StatementPattern toStatementPattern(Statement stmt) {
@@ -210,12 +230,19 @@ public class QueryAlgebraUtil {
 			}
 		}
 		
+		// project only relevant variables, i.e. do not bind local variables
+		int nVars = varNames.size();
+		varNames = QueryStringUtil.project(group, varNames, filterExpr);
+		
 		ProjectionElemList projList = new ProjectionElemList();
 		for (String var : varNames)
 			projList.addElement( new ProjectionElem(var));
 		
 		Projection proj = new Projection(expr, projList);
 		
+		if (QueryStringUtil.isDistinctProjection(group, varNames.size(), nVars))
+			return new Distinct(proj);
+		
 		return proj;
 	}
 
@@ -32,20 +32,27 @@ import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.OrderElem;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 
+import com.fluidops.fedx.algebra.ConjunctiveFilterExpr;
 import com.fluidops.fedx.algebra.ExclusiveGroup;
 import com.fluidops.fedx.algebra.ExclusiveStatement;
 import com.fluidops.fedx.algebra.FedXStatementPattern;
+import com.fluidops.fedx.algebra.FilterExpr;
+import com.fluidops.fedx.algebra.FilterTuple;
 import com.fluidops.fedx.algebra.FilterValueExpr;
 import com.fluidops.fedx.algebra.IndependentJoinGroup;
+import com.fluidops.fedx.algebra.LimitTuple;
+import com.fluidops.fedx.algebra.PartialAggregation.Aggregate;
 import com.fluidops.fedx.algebra.StatementTupleExpr;
 import com.fluidops.fedx.evaluation.SparqlFederationEvalStrategyWithValues;
 import com.fluidops.fedx.evaluation.iterator.BoundJoinVALUESConversionIteration;
 import com.fluidops.fedx.exception.FilterConversionException;
 import com.fluidops.fedx.exception.IllegalQueryException;
+import com.fluidops.fedx.structures.QueryInfo;
 
 /**
  * Various static functions for query handling and parsing.
@@ -145,7 +152,8 @@ public class QueryStringUtil {
 		String s = constructStatement(stmt, varNames, bindings);
 		
 		// project only relevant variables, i.e. do not bind local variables
-		varNames = project(stmt, varNames);
+		int nVars = varNames.size();
+		varNames = project(stmt, varNames, filterExpr);
 		
 		StringBuilder res = new StringBuilder();
 		
@@ -154,16 +162,21 @@ public class QueryStringUtil {
 		if (varNames.size()==0)
 			throw new IllegalQueryException("SELECT query needs at least one projection!");
 		
+		if (isDistinctProjection(stmt, varNames.size(), nVars))
+			res.append("DISTINCT ");
+		
 		for (String var : varNames)
 			res.append(" ?").append(var);
 		
 		res.append(" WHERE { ").append(s);
 		
+		boolean filterRemote = filterExpr==null;
 		if (filterExpr!=null) {
 			try {
 				String filter = FilterUtils.toSparqlString(filterExpr);
 				res.append("FILTER ").append(filter);
 				evaluated = true;
+				filterRemote = true;
 			} catch (FilterConversionException e) {
 				log.warn("Filter could not be evaluated remotely. " + e.getMessage());
 			}
@@ -171,6 +184,10 @@ public class QueryStringUtil {
 	
 		res.append(" }");
 		
+		// the limit can only be pushed if the results are not filtered locally
+		if (filterRemote)
+			appendModifiers(res, stmt);
+		
 		return res.toString();		
 	}
 	
@@ -200,13 +217,17 @@ public class QueryStringUtil {
 			sb.append( constructStatement(s, varNames, bindings) );
 		
 		// project only relevant variables, i.e. do not bind local variables
-		varNames = project(group, varNames);
+		int nVars = varNames.size();
+		varNames = project(group, varNames, filterExpr);
 		
 		if (varNames.size()==0)
 			throw new IllegalQueryException("SELECT query needs at least one projection!");		
 
 		StringBuilder res = new StringBuilder();	
 		res.append("SELECT  ");
+		
+		if (isDistinctProjection(group, varNames.size(), nVars))
+			res.append("DISTINCT ");
 			
 		for (String var : varNames)
 			res.append(" ?").append(var);
@@ -214,11 +235,13 @@ public class QueryStringUtil {
 		
 		res.append(" WHERE { ").append(sb);
 		
+		boolean filterRemote = filterExpr==null;
 		if (filterExpr!=null) {
 			try {
 				String filter = FilterUtils.toSparqlString(filterExpr);
 				res.append("FILTER ").append(filter);
 				evaluated = true;
+				filterRemote = true;
 			} catch (FilterConversionException e) {
 				log.warn("Filter could not be evaluated remotely. " + e.getMessage());
 			}
@@ -226,6 +249,139 @@ public class QueryStringUtil {
 		
 		res.append(" }");
 		
+		// the limit can only be pushed if the results are not filtered locally
+		if (filterRemote)
+			appendModifiers(res, group);
+		
+		return res.toString();
+	}
+	
+	/**
+	 * Append the order and the upper limit of the given expression as ORDER BY
+	 * and LIMIT clauses, if any
+	 * 
+	 * @param res
+	 * @param expr
+	 */
+	protected static void appendModifiers(StringBuilder res, LimitTuple expr) {
+		if (expr.getOrder()!=null) {
+			res.append(" ORDER BY");
+			for (OrderElem elem : expr.getOrder())
+				res.append(elem.isAscending() ? " ASC(?" : " DESC(?").append(((Var)elem.getExpr()).getName()).append(")");
+		}
+		if (expr.getUpperLimit()!=LimitTuple.NO_LIMIT)
+			res.append(" LIMIT ").append(expr.getUpperLimit());
+	}
+
+	/**
+	 * Construct a SELECT query computing the given partial aggregates for the provided
+	 * statement or exclusive group, grouped by the given variables. The filter of the
+	 * expression, if any, is always evaluated remotely.
+	 * 
+	 * Example subquery:
+	 * 
+	 * <source>
+	 * SELECT ?s (COUNT(*) AS ?p0) (SUM(?v) AS ?p1) WHERE {
+	 *   ?s age ?v. 
+	 * } GROUP BY ?s
+	 * </source>
+	 * 
+	 * @param expr
+	 * 				the statement or exclusive group
+	 * @param bindings
+	 * 				the bindings to be applied
+	 * @param groupNames
+	 * 				the names of the grouping variables
+	 * @param aggregates
+	 * 				the partial aggregates
+	 * 
+	 * @return the SELECT query string
+	 * @throws FilterConversionException
+	 * 				if the filter of the expression cannot be evaluated remotely
+	 * @see com.fluidops.fedx.optimizer.AggregationOptimizer
+	 */
+	public static String selectQueryStringAggregate(StatementTupleExpr expr, BindingSet bindings, List<String> groupNames, List<Aggregate> aggregates) throws FilterConversionException {
+		
+		StringBuilder sb = new StringBuilder();
+		Set<String> varNames = new HashSet<String>();
+		
+		if (expr instanceof ExclusiveGroup) {
+			for (ExclusiveStatement s : ((ExclusiveGroup)expr).getStatements())
+				sb.append( constructStatement(s, varNames, bindings) );
+		} else {
+			sb.append( constructStatement((StatementPattern)expr, varNames, bindings) );
+		}
+		
+		StringBuilder res = new StringBuilder();
+		res.append("SELECT ");
+		
+		for (String var : groupNames)
+			res.append(" ?").append(var);
+		for (Aggregate a : aggregates)
+			res.append(" ").append(a);
+		
+		res.append(" WHERE { ").append(sb);
+		
+		FilterTuple filterTuple = (FilterTuple)expr;
+		if (filterTuple.hasFilter())
+			res.append("FILTER ").append(FilterUtils.toSparqlString(filterTuple.getFilterExpr()));
+		
+		res.append(" }");
+		
+		if (!groupNames.isEmpty()) {
+			res.append(" GROUP BY");
+			for (String var : groupNames)
+				res.append(" ?").append(var);
+		}
+		
+		return res.toString();
+	}
+	
+	/**
+	 * Construct a SELECT query for the provided {@link ExclusiveGroup} which is restricted
+	 * to the given join keys using the SPARQL 1.1 VALUES operator, i.e. the right side of
+	 * a semi join.
+	 * 
+	 * Example subquery:
+	 * 
+	 * <source>
+	 * SELECT ?s ?v WHERE {
+	 *   ?s name ?v. ?s age ?a.
+	 * } VALUES (?s) { (:s1) (:s2) ... (:sN) }
+	 * </source>
+	 * 
+	 * @param group
+	 * 				the expression for the query
+	 * @param joinVars
+	 * 				the join variables
+	 * @param keys
+	 * 				the join keys, i.e. the values of the join variables
+	 * @param filterExpr
+	 * 				a filter expression or null
+	 * @param evaluated
+	 * 				parameter can be used outside this method to check whether FILTER has been evaluated, false in beginning
+	 * 
+	 * @return the SELECT query string
+	 * @throws IllegalQueryException
+	 */
+	public static String selectQueryStringSemiJoinVALUES( ExclusiveGroup group, List<String> joinVars, List<List<Value>> keys, FilterValueExpr filterExpr, Boolean evaluated) throws IllegalQueryException {
+		
+		StringBuilder res = new StringBuilder(selectQueryString(group, EmptyBindingSet.getInstance(), filterExpr, evaluated));
+		
+		// add VALUES clause
+		res.append(" VALUES (");
+		for (String var : joinVars)
+			res.append("?").append(var).append(" ");
+		res.append(") { ");
+		
+		for (List<Value> key : keys) {
+			res.append("(");
+			for (Value v : key)
+				appendValue(res, v).append(" ");
+			res.append(") ");
+		}
+		res.append(" }");
+		
 		return res.toString();
 	}
 
@@ -371,17 +527,51 @@ public class QueryStringUtil {
 	
 	/**
 	 * Modifies the set of varNames to remove those variables that are local
-	 * to the expression, i.e. those that do not have to be projected. Does
-	 * not create a copy!
+	 * to the expression, i.e. those that do not have to be projected. Variables
+	 * of the filter expression are kept, as the filter is also applied to the
+	 * results locally. Does not create a copy!
+	 * 
 	 * @param expr
 	 * @param varNames
+	 * @param filterExpr
+	 * 			the filter expression or null
 	 * @return the projected variables
+	 * @see com.fluidops.fedx.optimizer.VariableScopeOptimizer
 	 */
-	private static Set<String> project(StatementTupleExpr expr, Set<String> varNames) {
-		varNames.removeAll(expr.getLocalVars());
+	static Set<String> project(StatementTupleExpr expr, Set<String> varNames, FilterValueExpr filterExpr) {
+		if (expr.getLocalVars().isEmpty())
+			return varNames;
+		Set<String> filterVars = new HashSet<String>();
+		if (filterExpr instanceof FilterExpr) {
+			filterVars.addAll(((FilterExpr)filterExpr).getVars());
+		} else if (filterExpr instanceof ConjunctiveFilterExpr) {
+			for (FilterExpr e : ((ConjunctiveFilterExpr)filterExpr).getExpressions())
+				filterVars.addAll(e.getVars());
+		}
+		for (String var : expr.getLocalVars()) {
+			if (!filterVars.contains(var))
+				varNames.remove(var);
+		}
 		return varNames;
 	}
 	
+	/**
+	 * Returns true if the subquery for the given expression is to be evaluated with a
+	 * DISTINCT projection, i.e. if local variables are not projected and if duplicates 
+	 * do not change the query result (see {@link QueryInfo#isDuplicateElimination()}).
+	 * Otherwise rows which only differ in the local variables are returned as duplicates.
+	 * 
+	 * @param expr
+	 * @param nProjected
+	 * 			the number of projected variables
+	 * @param nVars
+	 * 			the number of free variables of the subquery
+	 * @return whether a DISTINCT projection is to be used
+	 */
+	static boolean isDistinctProjection(StatementTupleExpr expr, int nProjected, int nVars) {
+		return nProjected<nVars && expr.getQueryInfo()!=null && expr.getQueryInfo().isDuplicateElimination();
+	}
+	
 	/**
 	 * Construct a SELECT query for a grouped bound check.
 	 * 
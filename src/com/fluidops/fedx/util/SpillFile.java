@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2018 Veritas Technologies LLC.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.fluidops.fedx.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.log4j.Logger;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+
+import com.fluidops.fedx.structures.BindingSchema;
+import com.fluidops.fedx.structures.CompactBindingSet;
+import com.fluidops.fedx.structures.QueryInfo;
+
+
+/**
+ * A temporary file of intermediate result rows, which can be used by operators that
+ * exceed the memory budget of their query (see {@link QueryInfo#reserveRows(long)}).
+ * 
+ * Rows are appended in a compact binary format: each row is prefixed by its length,
+ * binding names are encoded as slots of a {@link BindingSchema} which is kept in memory,
+ * and values are encoded by type (IRI, blank node, plain, language tagged or typed 
+ * literal) followed by their UTF-8 encoded strings. Once all rows are written, the file 
+ * can be read (repeatedly) using memory-mapped windows, the rows are returned as 
+ * {@link CompactBindingSet}s.
+ * 
+ * This class is not thread safe. The file is deleted on {@link #close()}.
+ */
+public class SpillFile implements Closeable {
+
+	public static Logger log = Logger.getLogger(SpillFile.class);
+	
+	/* the default size of the memory-mapped windows for reading */
+	protected static final int WINDOW_SIZE = 64*1024*1024;
+	
+	protected static final byte IRI_VALUE = 0;
+	protected static final byte BNODE_VALUE = 1;
+	protected static final byte PLAIN_LITERAL = 2;
+	protected static final byte LANG_LITERAL = 3;
+	protected static final byte TYPED_LITERAL = 4;
+	
+	protected final BindingSchema schema = new BindingSchema();
+	protected final int windowSize;
+	protected final File file;
+	protected DataOutputStream out;
+	
+	/* buffer for the encoding of a single row */
+	protected final ByteArrayOutputStream rowBytes = new ByteArrayOutputStream(256);
+	protected final DataOutputStream row = new DataOutputStream(rowBytes);
+	
+	protected long rows = 0;
+	
+	public SpillFile() throws IOException {
+		this(WINDOW_SIZE);
+	}
+	
+	/**
+	 * @param windowSize
+	 * 			the size of the memory-mapped windows for reading
+	 * @throws IOException
+	 */
+	protected SpillFile(int windowSize) throws IOException {
+		this.windowSize = windowSize;
+		this.file = File.createTempFile("fedx-spill", ".rows");
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64*1024));
+	}
+	
+	/**
+	 * Append the given row to this file.
+	 * 
+	 * @param bindings
+	 * @throws IOException
+	 */
+	public void append(BindingSet bindings) throws IOException {
+		if (out==null)
+			throw new IllegalStateException("Spill file is already read or closed.");
+		
+		rowBytes.reset();
+		row.writeShort(bindings.size());
+		for (Binding b : bindings) {
+			int slot = schema.indexOf(b.getName());
+			row.writeShort(slot<0 ? schema.add(b.getName()) : slot);
+			writeValue(b.getValue());
+		}
+		out.writeInt(rowBytes.size());
+		rowBytes.writeTo(out);
+		rows++;
+	}
+	
+	protected void writeValue(Value value) throws IOException {
+		if (value instanceof IRI) {
+			row.writeByte(IRI_VALUE);
+			writeString(value.stringValue());
+		} else if (value instanceof BNode) {
+			row.writeByte(BNODE_VALUE);
+			writeString(((BNode)value).getID());
+		} else {
+			Literal literal = (Literal)value;
+			if (literal.getLanguage().isPresent()) {
+				row.writeByte(LANG_LITERAL);
+				writeString(literal.getLabel());
+				writeString(literal.getLanguage().get());
+			} else if (XMLSchema.STRING.equals(literal.getDatatype())) {
+				row.writeByte(PLAIN_LITERAL);
+				writeString(literal.getLabel());
+			} else {
+				row.writeByte(TYPED_LITERAL);
+				writeString(literal.getLabel());
+				writeString(literal.getDatatype().stringValue());
+			}
+		}
+	}
+	
+	protected void writeString(String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		row.writeInt(bytes.length);
+		row.write(bytes);
+	}
+	
+	/**
+	 * @return the number of rows in this file
+	 */
+	public long size() {
+		return rows;
+	}
+	
+	/**
+	 * @return the temporary file, deleted on {@link #close()}
+	 */
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * Return an iteration over the rows of this file. No more rows can be appended
+	 * once the file is read.
+	 * 
+	 * @return the rows of this file
+	 * @throws IOException
+	 */
+	public RowIteration iterator() throws IOException {
+		if (out!=null) {
+			out.close();
+			out = null;
+		}
+		return new RowIteration();
+	}
+	
+	@Override
+	public void close() {
+		try {
+			if (out!=null)
+				out.close();
+		} catch (IOException e) {
+			log.debug("Failed to close spill file " + file + ": " + e.getMessage());
+		} finally {
+			out = null;
+			if (!file.delete() && file.exists())
+				log.warn("Failed to delete spill file " + file);
+		}
+	}
+	
+	
+	/**
+	 * Reads the rows of the file using memory-mapped windows.
+	 */
+	public class RowIteration extends LookAheadIteration<BindingSet, QueryEvaluationException> {
+
+		protected final RandomAccessFile raf;
+		protected final FileChannel channel;
+		protected final long length;
+		protected final ValueFactory vf = FedXUtil.valueFactory();
+		
+		protected MappedByteBuffer window = null;
+		protected long windowStart = 0;
+		protected long position = 0;
+		
+		protected RowIteration() throws IOException {
+			this.raf = new RandomAccessFile(file, "r");
+			this.channel = raf.getChannel();
+			this.length = channel.size();
+		}
+		
+		@Override
+		protected BindingSet getNextElement() throws QueryEvaluationException {
+			if (position>=length)
+				return null;
+			try {
+				ensureMapped(4);
+				int rowLength = window.getInt((int)(position-windowStart));
+				ensureMapped(4+rowLength);
+				window.position((int)(position-windowStart) + 4);
+				position += 4 + rowLength;
+				
+				int n = window.getShort() & 0xFFFF;
+				Value[] values = new Value[schema.size()];
+				for (int i=0; i<n; i++) {
+					int slot = window.getShort() & 0xFFFF;
+					values[slot] = readValue();
+				}
+				return new CompactBindingSet(schema, values, null);
+			} catch (IOException e) {
+				throw new QueryEvaluationException("Failed to read spill file " + file + ": " + e.getMessage(), e);
+			}
+		}
+		
+		/**
+		 * Make sure that the given number of bytes starting at the current position
+		 * are mapped.
+		 * 
+		 * @param bytes
+		 * @throws IOException
+		 */
+		protected void ensureMapped(int bytes) throws IOException {
+			if (window!=null && position+bytes <= windowStart+window.capacity())
+				return;
+			windowStart = position;
+			long size = Math.min(length-position, Math.max(windowSize, bytes));
+			window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+		}
+		
+		protected Value readValue() {
+			byte type = window.get();
+			switch (type) {
+			case IRI_VALUE:		return vf.createIRI(readString());
+			case BNODE_VALUE:	return vf.createBNode(readString());
+			case PLAIN_LITERAL:	return vf.createLiteral(readString());
+			case LANG_LITERAL:	return vf.createLiteral(readString(), readString());
+			case TYPED_LITERAL:	return vf.createLiteral(readString(), vf.createIRI(readString()));
+			default:
+				throw new IllegalStateException("Unexpected value type in spill file: " + type);
+			}
+		}
+		
+		protected String readString() {
+			int n = window.getInt();
+			byte[] bytes = new byte[n];
+			window.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+		
+		@Override
+		protected void handleClose() throws QueryEvaluationException {
+			try {
+				super.handleClose();
+			} finally {
+				window = null;
+				try {
+					raf.close();
+				} catch (IOException e) {
+					log.debug("Failed to close spill file " + file + ": " + e.getMessage());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.fluidops.fedx;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fluidops.fedx.exception.QueryRejectedException;
+import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.structures.QueryType;
+
+public class AdmissionControlTest {
+
+	@Before
+	public void setUp() throws Exception {
+		Config.reset();
+		Config.initialize();
+	}
+	
+	@After
+	public void tearDown() {
+		Config.reset();
+	}
+	
+	@Test
+	public void testQueueAndReject() throws Exception {
+		
+		final AdmissionControl admissionControl = new AdmissionControl(1, 1, 200);
+		
+		QueryInfo q1 = new QueryInfo("q1", QueryType.SELECT);
+		final QueryInfo q2 = new QueryInfo("q2", QueryType.SELECT);
+		admissionControl.admit(q1, 1);
+		
+		// q2 has to wait for q1
+		final AtomicBoolean admitted = new AtomicBoolean(false);
+		final CountDownLatch done = new CountDownLatch(1);
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					admissionControl.admit(q2, 1);
+					admitted.set(true);
+				} catch (Exception e) {
+					;	// not admitted
+				}
+				done.countDown();
+			}
+		}).start();
+		while (admissionControl.getQueueLength()==0)
+			Thread.sleep(5);
+		
+		// the queue is full, q3 is rejected immediately
+		try {
+			admissionControl.admit(new QueryInfo("q3", QueryType.SELECT), 1);
+			Assert.fail("Expected QueryRejectedException");
+		} catch (QueryRejectedException e) {
+			// expected
+		}
+		Assert.assertEquals(1, admissionControl.getNumberOfRejected());
+		
+		admissionControl.release(q1);
+		done.await();
+		Assert.assertTrue(admitted.get());
+		Assert.assertEquals(1, admissionControl.getNumberOfExecutingQueries());
+		
+		// q4 is not admitted within the timeout
+		try {
+			admissionControl.admit(new QueryInfo("q4", QueryType.SELECT), 1);
+			Assert.fail("Expected QueryRejectedException");
+		} catch (QueryRejectedException e) {
+			// expected
+		}
+		Assert.assertEquals(1, admissionControl.getNumberOfTimeouts());
+		Assert.assertEquals(0, admissionControl.getQueueLength());
+		Assert.assertEquals(2, admissionControl.getNumberOfAdmitted());
+	}
+}
@@ -1,9 +1,14 @@
 package com.fluidops.fedx;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import org.eclipse.rdf4j.common.iteration.Iterations;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.query.QueryResults;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class BasicTests extends SPARQLBaseTest {
@@ -59,10 +64,36 @@ public class BasicTests extends SPARQLBaseTest {
 		execute("/tests/basic/query_singleSource02.rq", "/tests/basic/query_singleSource02.ttl", false);	
 	}
 
+	@Test
+	public void testLimit() throws Exception {
+		/* the limit is pushed to each source, offset+limit results are retrieved */
+		prepareTest(Arrays.asList("/tests/basic/data01endpoint1.ttl", "/tests/basic/data01endpoint2.ttl"));
+		String queryPlan = QueryManager.getQueryPlan(readQueryString("/tests/basic/query_limit.rq"));
+		Assert.assertTrue(queryPlan, queryPlan.contains("StatementSourcePattern (limit: 3)"));
+		Assert.assertEquals(2, QueryResults.asList(runSelectQueryFile("/tests/basic/query_limit.rq")).size());
+	}
+	
+	@Test
+	public void testTopK() throws Exception {
+		/* ORDER BY and LIMIT are pushed to each source, the sorted results are merged */
+		prepareTest(Arrays.asList("/tests/basic/data01endpoint1.ttl", "/tests/basic/data01endpoint2.ttl"));
+		execute("/tests/basic/query_topk.rq", "/tests/basic/query_topk.srx", true);
+	}
+	
 	@Test
 	public void testGetStatements() throws Exception {
 		prepareTest(Arrays.asList("/tests/basic/data01endpoint1.ttl", "/tests/basic/data01endpoint2.ttl"));
 		Set<Statement> res = getStatements(null, null, null);
 		compareGraphs(res, readExpectedGraphQueryResult("/tests/basic/query02.ttl"));
 	}
+	
+	@Test
+	public void testGetStatementsDeduplication() throws Exception {
+		/* both endpoints provide the same statements, which are returned once */
+		fedxRule.setConfig("enableStatementDeduplication", "true");
+		prepareTest(Arrays.asList("/tests/basic/data01endpoint1.ttl", "/tests/basic/data01endpoint1.ttl"));
+		List<Statement> res = Iterations.asList(fedxRule.getRepository().getConnection().getStatements(null, null, null, false));
+		Assert.assertEquals(new HashSet<Statement>(res).size(), res.size());
+		Assert.assertEquals(2, res.size());
+	}
 }
@@ -1,14 +1,60 @@
 package com.fluidops.fedx;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.QueryResults;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.junit.Assert;
 import org.junit.Test;
 
+import com.fluidops.fedx.algebra.HashJoin;
+import com.fluidops.fedx.algebra.StatementTupleExpr;
+import com.fluidops.fedx.evaluation.AsyncSparqlTripleSource;
+import com.fluidops.fedx.evaluation.FederationEvalStrategy;
 import com.fluidops.fedx.evaluation.SparqlFederationEvalStrategy;
 import com.fluidops.fedx.evaluation.SparqlFederationEvalStrategyWithValues;
+import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.concurrent.VirtualThreadScheduler;
+import com.fluidops.fedx.evaluation.iterator.HashJoinIteration;
+import com.fluidops.fedx.structures.Endpoint;
+import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.util.SpillFile;
 
 public class BoundJoinTests extends SPARQLBaseTest {
 
+	/**
+	 * The number of left bindings sent in bound join blocks, see {@link #useCountingStrategy()}.
+	 * Native store federations do not use bound joins.
+	 */
+	protected static final AtomicInteger boundJoinBindings = new AtomicInteger();
+	
+	/**
+	 * The threads which evaluated the bound join blocks, see {@link #useCountingStrategy()}
+	 */
+	protected static final List<Thread> boundJoinThreads = Collections.synchronizedList(new ArrayList<Thread>());
+	
+	/**
+	 * Signals of the bound join blocks held by {@link BlockingSparqlStrategy}
+	 */
+	protected static CountDownLatch blockStarted, blockInterrupted, blockReleased;
+	
+	/**
+	 * The spill files and queries of the hash joins, see {@link SpillingSparqlStrategy}
+	 */
+	protected static final List<SpillFile> hashJoinSpillFiles = Collections.synchronizedList(new ArrayList<SpillFile>());
+	protected static final List<QueryInfo> hashJoinQueries = Collections.synchronizedList(new ArrayList<QueryInfo>());
 	
 	@Test
 	public void testSimpleUnion() throws Exception {
@@ -25,4 +71,243 @@ public class BoundJoinTests extends SPARQLBaseTest {
 		prepareTest(Arrays.asList("/tests/data/data1.ttl", "/tests/data/data2.ttl"));
 		execute("/tests/boundjoin/query01.rq", "/tests/boundjoin/query01.srx", false);			
 	}
+	
+	@Test
+	public void testSemiJoin() throws Exception {
+		/* test a semi join of two exclusive groups at different endpoints */
+		fedxRule.setConfig("optimizer.enableSemiJoin", "true");
+		prepareTest(Arrays.asList("/tests/boundjoin/data_semijoin1.ttl", "/tests/boundjoin/data_semijoin2.ttl"));
+		execute("/tests/boundjoin/query02.rq", "/tests/boundjoin/query02.srx", false);			
+	}
+	
+	@Test
+	public void testBushyJoin() throws Exception {
+		/* test a bushy join of two exclusive groups evaluated in parallel */
+		fedxRule.setConfig("optimizer.enableBushyJoins", "true");
+		prepareTest(Arrays.asList("/tests/boundjoin/data_semijoin1.ttl", "/tests/boundjoin/data_semijoin2.ttl"));
+		String queryPlan = QueryManager.getQueryPlan(readQueryString("/tests/boundjoin/query02.rq"));
+		Assert.assertTrue(queryPlan, queryPlan.contains("HashJoin"));
+		execute("/tests/boundjoin/query02.rq", "/tests/boundjoin/query02.srx", false);			
+	}
+	
+	@Test
+	public void testBushyJoinSpill() throws Exception {
+		/* test a bushy join whose hash table exceeds the memory budget of the query */
+		fedxRule.setConfig("optimizer.enableBushyJoins", "true");
+		fedxRule.setConfig("queryMemoryBudget", "1");
+		fedxRule.setConfig("sparqlEvaluationStrategy", SpillingSparqlStrategy.class.getName());
+		hashJoinSpillFiles.clear();
+		hashJoinQueries.clear();
+		prepareTest(Arrays.asList("/tests/boundjoin/data_semijoin1.ttl", "/tests/boundjoin/data_semijoin2.ttl"));
+		execute("/tests/boundjoin/query02.rq", "/tests/boundjoin/query02.srx", false);
+		
+		ignoreForNativeStore();
+		// the rows beyond the budget are spilled, the files are deleted and the rows released after the query
+		Assert.assertEquals(1, hashJoinQueries.size());
+		Assert.assertFalse(hashJoinSpillFiles.isEmpty());
+		long spilledRows = 0;
+		for (SpillFile f : hashJoinSpillFiles) {
+			spilledRows += f.size();
+			Assert.assertFalse(f.getFile().toString(), f.getFile().exists());
+		}
+		Assert.assertTrue(spilledRows > 0);
+		Assert.assertEquals(0, hashJoinQueries.get(0).getReservedRows());
+	}
+	
+	@Test
+	public void testDistinctBindings() throws Exception {
+		/* test a bound join with duplicate join bindings on the left side */
+		useCountingStrategy();
+		prepareTest(Arrays.asList("/tests/boundjoin/data_dedup1.ttl", "/tests/boundjoin/data_dedup2.ttl"));
+		execute("/tests/boundjoin/query03.rq", "/tests/boundjoin/query03.srx", false);
+		
+		ignoreForNativeStore();
+		// the first binding (org2) is sent on its own, the block contains org3 and org1 only
+		Assert.assertEquals(2, boundJoinBindings.get());
+	}
+	
+	@Test
+	public void testDistinctBindingsOverBudget() throws Exception {
+		/* test a bound join whose memoized results exceed the memory budget of the query */
+		useCountingStrategy();
+		fedxRule.setConfig("queryMemoryBudget", "1");
+		prepareTest(Arrays.asList("/tests/boundjoin/data_dedup1.ttl", "/tests/boundjoin/data_dedup2.ttl"));
+		execute("/tests/boundjoin/query03.rq", "/tests/boundjoin/query03.srx", false);
+		
+		ignoreForNativeStore();
+		// at most one further row can be memoized, the duplicates are sent in plain blocks
+		Assert.assertTrue("Bindings sent: " + boundJoinBindings.get(), boundJoinBindings.get() > 2);
+		Assert.assertTrue("Bindings sent: " + boundJoinBindings.get(), boundJoinBindings.get() <= 11);
+	}
+	
+	@Test
+	public void testVirtualThreadScheduler() throws Exception {
+		/* test bound joins executed by the virtual thread scheduler */
+		useCountingStrategy();
+		fedxRule.setConfig("enableVirtualThreads", "true");
+		FederationManager.getInstance().reset();
+		
+		// the mode is refused if the runtime does not provide virtual threads
+		boolean available = VirtualThreadScheduler.isAvailable();
+		ControlledWorkerScheduler<BindingSet> scheduler = FederationManager.getInstance().getJoinScheduler();
+		Assert.assertEquals(available, scheduler instanceof VirtualThreadScheduler);
+		Assert.assertEquals(available, FederationManager.getInstance().getUnionScheduler() instanceof VirtualThreadScheduler);
+		Assert.assertEquals(available ? 1000 : 20, scheduler.getTotalNumberOfWorkers());
+		
+		prepareTest(Arrays.asList("/tests/boundjoin/data_dedup1.ttl", "/tests/boundjoin/data_dedup2.ttl"));
+		execute("/tests/boundjoin/query03.rq", "/tests/boundjoin/query03.srx", false);
+		
+		ignoreForNativeStore();
+		Assert.assertFalse(boundJoinThreads.isEmpty());
+		for (Thread t : boundJoinThreads) {
+			Assert.assertTrue(t.getName(), t.getName().startsWith("Join Scheduler-"));
+			Assert.assertEquals(t.getName(), available, isVirtual(t));
+		}
+	}
+	
+	@Test
+	public void testAsyncSparqlRequests() throws Exception {
+		/* test bound joins with subqueries sent by the asynchronous SPARQL client */
+		ignoreForNativeStore();
+		fedxRule.setConfig("enableAsyncSparqlRequests", "true");
+		prepareTest(Arrays.asList("/tests/boundjoin/data_dedup1.ttl", "/tests/boundjoin/data_dedup2.ttl"));
+		for (Endpoint e : FederationManager.getInstance().getFederation().getMembers())
+			Assert.assertTrue(e.getId(), e.getTripleSource() instanceof AsyncSparqlTripleSource);
+		
+		// the client is created with the first request
+		Assert.assertNull(FederationManager.getInstance().asyncSparqlClient);
+		execute("/tests/boundjoin/query03.rq", "/tests/boundjoin/query03.srx", false);
+		Assert.assertNotNull(FederationManager.getInstance().asyncSparqlClient);
+	}
+	
+	@Test
+	public void testCloseAbortsQuery() throws Exception {
+		/* closing a partially consumed result aborts the remaining tasks of the query */
+		boolean blocking = isSPARQLServer();
+		if (blocking) {
+			// a single join worker: the first bound join block is held, the others are queued
+			useCountingStrategy();
+			fedxRule.setConfig("sparqlEvaluationStrategy", BlockingSparqlStrategy.class.getName());
+			fedxRule.setConfig("optimizer.enableBoundJoinDeduplication", "false");
+			fedxRule.setConfig("joinWorkerThreads", "1");
+			FederationManager.getInstance().reset();
+			blockStarted = new CountDownLatch(1);
+			blockInterrupted = new CountDownLatch(1);
+			blockReleased = new CountDownLatch(1);
+		}
+		prepareTest(Arrays.asList("/tests/boundjoin/data_dedup1.ttl", "/tests/boundjoin/data_dedup2.ttl"));
+		QueryManager qm = FederationManager.getInstance().getQueryManager();
+		ControlledWorkerScheduler<BindingSet> scheduler = FederationManager.getInstance().getJoinScheduler();
+		RepositoryConnection conn = fedxRule.getRepository().getConnection();
+		try {
+			TupleQueryResult res = conn.prepareTupleQuery(QueryLanguage.SPARQL, readQueryString("/tests/boundjoin/query03.rq")).evaluate();
+			Assert.assertTrue(res.hasNext());
+			res.next();
+			Assert.assertEquals(1, qm.getNumberOfRunningQueries());
+			if (blocking) {
+				// the first binding is evaluated on its own, 11 bindings remain in 4 blocks
+				Assert.assertTrue(blockStarted.await(10, TimeUnit.SECONDS));
+				for (int i=0; i<100 && scheduler.getNumberOfTasks()<3; i++)
+					Thread.sleep(50);
+				Assert.assertEquals(3, scheduler.getNumberOfTasks());
+			}
+			res.close();
+			Assert.assertEquals(0, qm.getNumberOfRunningQueries());
+			if (blocking) {
+				// the running task is interrupted, the queued tasks are dropped
+				Assert.assertTrue(blockInterrupted.await(10, TimeUnit.SECONDS));
+				Assert.assertEquals(0, scheduler.getNumberOfTasks());
+				Thread.sleep(500);
+				Assert.assertEquals(1, boundJoinThreads.size());
+			}
+		} finally {
+			if (blocking)
+				blockReleased.countDown();
+			conn.close();
+		}
+	}
+	
+	@Test
+	public void testQueryDeadline() throws Exception {
+		/* a query whose bound join does not complete fails once its deadline has passed */
+		ignoreForNativeStore();
+		useCountingStrategy();
+		fedxRule.setConfig("sparqlEvaluationStrategy", BlockingSparqlStrategy.class.getName());
+		fedxRule.setConfig("enforceMaxQueryTime", "1");
+		blockStarted = new CountDownLatch(1);
+		blockInterrupted = new CountDownLatch(1);
+		blockReleased = new CountDownLatch(1);
+		prepareTest(Arrays.asList("/tests/boundjoin/data_dedup1.ttl", "/tests/boundjoin/data_dedup2.ttl"));
+		
+		long start = System.currentTimeMillis();
+		try {
+			QueryResults.asList(runSelectQueryFile("/tests/boundjoin/query03.rq"));
+			Assert.fail("Expected QueryInterruptedException");
+		} catch (QueryInterruptedException e) {
+			// expected, long before the fallback wait time of queries without deadline
+			long duration = System.currentTimeMillis() - start;
+			Assert.assertTrue("Duration: " + duration, duration < 10000);
+		} finally {
+			blockReleased.countDown();
+		}
+		Assert.assertEquals(0, FederationManager.getInstance().getQueryManager().getNumberOfRunningQueries());
+	}
+	
+	protected void useCountingStrategy() {
+		boundJoinBindings.set(0);
+		boundJoinThreads.clear();
+		fedxRule.setConfig("sparqlEvaluationStrategy", CountingSparqlStrategy.class.getName());
+	}
+	
+	protected static boolean isVirtual(Thread t) throws Exception {
+		try {
+			return (Boolean)Thread.class.getMethod("isVirtual").invoke(t);
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+	
+	public static class CountingSparqlStrategy extends SparqlFederationEvalStrategy {
+		@Override
+		public CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(StatementTupleExpr stmt, List<BindingSet> bindings) throws QueryEvaluationException {
+			boundJoinBindings.addAndGet(bindings.size());
+			boundJoinThreads.add(Thread.currentThread());
+			return super.evaluateBoundJoinStatementPattern(stmt, bindings);
+		}
+	}
+	
+	public static class BlockingSparqlStrategy extends SparqlFederationEvalStrategy {
+		@Override
+		public CloseableIteration<BindingSet, QueryEvaluationException> evaluateBoundJoinStatementPattern(StatementTupleExpr stmt, List<BindingSet> bindings) throws QueryEvaluationException {
+			boundJoinThreads.add(Thread.currentThread());
+			blockStarted.countDown();
+			try {
+				blockReleased.await();
+			} catch (InterruptedException e) {
+				blockInterrupted.countDown();
+				throw new QueryEvaluationException(e);
+			}
+			return super.evaluateBoundJoinStatementPattern(stmt, bindings);
+		}
+	}
+	
+	public static class SpillingSparqlStrategy extends SparqlFederationEvalStrategy {
+		@Override
+		public CloseableIteration<BindingSet, QueryEvaluationException> evaluateHashJoin(HashJoin join, BindingSet bindings) throws QueryEvaluationException {
+			return new SpillRecordingHashJoin(this, join, bindings);
+		}
+	}
+	
+	protected static class SpillRecordingHashJoin extends HashJoinIteration {
+		public SpillRecordingHashJoin(FederationEvalStrategy strategy, HashJoin join, BindingSet bindings) throws QueryEvaluationException {
+			super(strategy, join, bindings);
+			hashJoinQueries.add(queryInfo);
+		}
+		@Override
+		protected synchronized SpillFile[] createPartitions() throws QueryEvaluationException {
+			SpillFile[] res = super.createPartitions();
+			hashJoinSpillFiles.addAll(Arrays.asList(res));
+			return res;
+		}
+	}
 }
@@ -2,6 +2,8 @@ package com.fluidops.fedx;
 
 import java.util.Arrays;
 
+import org.eclipse.rdf4j.query.QueryResults;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class DistinctTests extends SPARQLBaseTest {
@@ -47,4 +49,25 @@ public class DistinctTests extends SPARQLBaseTest {
 		prepareTest(Arrays.asList("/tests/data/distinctTest04a.ttl", "/tests/data/distinctTest04b.ttl"));
 		execute("/tests/basic/query_distinct05a.rq", "/tests/basic/query_distinct05a.srx", false);			
 	}
+	
+	@Test
+	public void test6() throws Exception {
+		/* test for projection pushdown: local variables are not returned, DISTINCT in subqueries */
+		prepareTest(Arrays.asList("/tests/data/distinctTest05a.ttl", "/tests/data/distinctTest05b.ttl"));
+		execute("/tests/basic/query_distinct06.rq", "/tests/basic/query_distinct06.srx", false);			
+	}
+	
+	@Test
+	public void test6a() throws Exception {
+		/* test for projection pushdown without DISTINCT: duplicates are preserved */
+		prepareTest(Arrays.asList("/tests/data/distinctTest05a.ttl", "/tests/data/distinctTest05b.ttl"));
+		Assert.assertEquals(3, QueryResults.asList(runSelectQueryFile("/tests/basic/query_distinct06a.rq")).size());
+	}
+	
+	@Test
+	public void test7() throws Exception {
+		/* test for projection pushdown: variables of the filter are returned */
+		prepareTest(Arrays.asList("/tests/data/distinctTest05a.ttl", "/tests/data/distinctTest05b.ttl"));
+		execute("/tests/basic/query_distinct07.rq", "/tests/basic/query_distinct07.srx", false);			
+	}
 }
@@ -9,6 +9,8 @@ import org.eclipse.rdf4j.repository.sail.SailRepository;
 import org.junit.rules.ExternalResource;
 
 import com.fluidops.fedx.exception.FedXException;
+import com.fluidops.fedx.monitoring.MonitoringFactory;
+import com.fluidops.fedx.monitoring.MonitoringService;
 import com.fluidops.fedx.structures.Endpoint;
 import com.fluidops.fedx.util.EndpointFactory;
 
@@ -54,6 +56,15 @@ public class FedXRule extends ExternalResource {
 		setConfig("debugQueryPlan", "true");
 	}
 	
+	/**
+	 * Enable the request monitoring, endpoints must be added afterwards.
+	 */
+	public MonitoringService enableMonitoring() {
+		setConfig("enableMonitoring", "true");
+		FederationManager.monitoring = MonitoringFactory.createMonitoring();
+		return (MonitoringService)FederationManager.monitoring;
+	}
+	
 	public void setConfig(String key, String value) {
 		Config.getConfig().set(key, value);
 	}
@@ -105,5 +105,16 @@ public class MediumTests extends SPARQLBaseTest {
 		execute("/tests/medium/query12.rq", "/tests/medium/query12.srx", false);
 	}
 	
+	@Test
+	public void testForkJoin() throws Exception {
+		
+		/* test joins and unions of a local federation evaluated in the fork/join pool */
+		assumeNativeStore();
+		fedxRule.setConfig("enableForkJoin", "true");
+		fedxRule.setConfig("boundJoinBlockSize", "2");
+		prepareTest(Arrays.asList("/tests/medium/data1.ttl", "/tests/medium/data2.ttl", "/tests/medium/data3.ttl", "/tests/medium/data4.ttl"));
+		execute("/tests/medium/query03.rq", "/tests/medium/query03.srx", false);
+	}
+	
 	
 }
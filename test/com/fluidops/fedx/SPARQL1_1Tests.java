@@ -2,8 +2,12 @@ package com.fluidops.fedx;
 
 import java.util.Arrays;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import com.fluidops.fedx.monitoring.MonitoringImpl.MonitoringInformation;
+import com.fluidops.fedx.monitoring.MonitoringService;
+
 public class SPARQL1_1Tests extends SPARQLBaseTest {
 
 	@Test
@@ -22,4 +26,56 @@ public class SPARQL1_1Tests extends SPARQLBaseTest {
 		prepareTest(Arrays.asList("/tests/sparql1_1/data01endpoint1.ttl", "/tests/sparql1_1/data01endpoint2.ttl"));
 		execute("/tests/sparql1_1/query02.rq", "/tests/sparql1_1/query02.srx", false);			
 	}
+	
+	@Test
+	public void test3() throws Exception {
+		
+		/* test FILTER NOT EXISTS (vectored anti join) */
+		prepareTest(Arrays.asList("/tests/sparql1_1/data03endpoint1.ttl", "/tests/sparql1_1/data03endpoint2.ttl"));
+		execute("/tests/sparql1_1/query03.rq", "/tests/sparql1_1/query03.srx", false);			
+	}
+	
+	@Test
+	public void test4() throws Exception {
+		
+		/* test MINUS (vectored anti join) */
+		prepareTest(Arrays.asList("/tests/sparql1_1/data03endpoint1.ttl", "/tests/sparql1_1/data03endpoint2.ttl"));
+		execute("/tests/sparql1_1/query04.rq", "/tests/sparql1_1/query04.srx", false);			
+	}
+	
+	@Test
+	public void testMinusRequests() throws Exception {
+		
+		/* test MINUS with partially bound bindings: a single bound join per source */
+		ignoreForNativeStore();
+		MonitoringService monitoring = fedxRule.enableMonitoring();
+		prepareTest(Arrays.asList("/tests/sparql1_1/data03endpoint1.ttl", "/tests/sparql1_1/data03endpoint2.ttl"));
+		execute("/tests/sparql1_1/query04.rq", "/tests/sparql1_1/query04.srx", false);
+		
+		// source selection is cached, i.e. one request per source for each statement
+		monitoring.resetMonitoringInformation();
+		execute("/tests/sparql1_1/query04.rq", "/tests/sparql1_1/query04.srx", false);
+		int requests = 0;
+		for (MonitoringInformation m : monitoring.getAllMonitoringInformation())
+			requests += m.getNumberOfRequests();
+		Assert.assertEquals(4, requests);
+	}
+	
+	@Test
+	public void test5() throws Exception {
+		
+		/* test aggregates pushed to the sources (COUNT, AVG, MIN, MAX) */
+		fedxRule.setConfig("enableAggregationPushdown", "true");
+		prepareTest(Arrays.asList("/tests/sparql1_1/data01endpoint1.ttl", "/tests/sparql1_1/data01endpoint2.ttl"));
+		execute("/tests/sparql1_1/query05.rq", "/tests/sparql1_1/query05.srx", false);			
+	}
+	
+	@Test
+	public void test6() throws Exception {
+		
+		/* test aggregates pushed to the sources with a non numeric value at one source (SUM, AVG) */
+		fedxRule.setConfig("enableAggregationPushdown", "true");
+		prepareTest(Arrays.asList("/tests/sparql1_1/data04endpoint1.ttl", "/tests/sparql1_1/data04endpoint2.ttl"));
+		execute("/tests/sparql1_1/query06.rq", "/tests/sparql1_1/query06.srx", false);			
+	}
 }
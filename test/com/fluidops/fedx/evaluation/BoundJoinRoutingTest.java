@@ -0,0 +1,114 @@
+package com.fluidops.fedx.evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fluidops.fedx.FederationManager;
+import com.fluidops.fedx.SPARQLBaseTest;
+import com.fluidops.fedx.algebra.StatementSource;
+import com.fluidops.fedx.algebra.StatementSource.StatementSourceType;
+import com.fluidops.fedx.algebra.StatementSourcePattern;
+import com.fluidops.fedx.cache.Cache;
+import com.fluidops.fedx.cache.CacheUtils;
+import com.fluidops.fedx.structures.Endpoint;
+import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.structures.QueryType;
+import com.fluidops.fedx.structures.SubQuery;
+import com.fluidops.fedx.util.FedXUtil;
+
+public class BoundJoinRoutingTest extends SPARQLBaseTest {
+
+	protected static final ValueFactory vf = FedXUtil.valueFactory();
+
+	protected static final IRI EMAIL = vf.createIRI("http://example.org/email");
+
+	@Test
+	public void testRouteBySubject() throws Exception {
+
+		prepareTest(Arrays.asList("/tests/boundjoin/data_routing1.ttl", "/tests/boundjoin/data_routing2.ttl", "/tests/boundjoin/data_routing3.ttl"));
+		List<Endpoint> members = FederationManager.getInstance().getFederation().getMembers();
+		Endpoint e2 = members.get(1);
+		Endpoint e3 = members.get(2);
+
+		// the subjects are known to be absent from one of the endpoints, p4 is unknown
+		Cache cache = FederationManager.getInstance().getCache();
+		cache.updateEntry(new SubQuery(person("p1"), null, null), CacheUtils.createCacheEntry(e3, false));
+		cache.updateEntry(new SubQuery(person("p2"), null, null), CacheUtils.createCacheEntry(e3, false));
+		cache.updateEntry(new SubQuery(person("p3"), null, null), CacheUtils.createCacheEntry(e2, false));
+
+		StatementSourcePattern stmt = emailPattern(e2, e3);
+		StatementSource s2 = stmt.getStatementSources().get(0);
+		StatementSource s3 = stmt.getStatementSources().get(1);
+		List<BindingSet> bindings = new ArrayList<BindingSet>();
+		for (String p : Arrays.asList("p1", "p2", "p3", "p4"))
+			bindings.add(bindings("p", person(p)));
+
+		Map<List<StatementSource>, List<BindingSet>> partitions = FederationManager.getInstance().getStrategy().routeBindings(stmt, bindings);
+		Assert.assertEquals(3, partitions.size());
+		Assert.assertEquals(bindings.subList(0, 2), partitions.get(Collections.singletonList(s2)));
+		Assert.assertEquals(bindings.subList(2, 3), partitions.get(Collections.singletonList(s3)));
+		Assert.assertEquals(bindings.subList(3, 4), partitions.get(Arrays.asList(s2, s3)));
+
+		// the routed blocks produce all results
+		execute("/tests/boundjoin/query04.rq", "/tests/boundjoin/query04.srx", false);
+	}
+
+	@Test
+	public void testRouteByObject() throws Exception {
+
+		prepareTest(Arrays.asList("/tests/boundjoin/data_routing1.ttl", "/tests/boundjoin/data_routing2.ttl", "/tests/boundjoin/data_routing3.ttl"));
+		List<Endpoint> members = FederationManager.getInstance().getFederation().getMembers();
+		Endpoint e2 = members.get(1);
+		Endpoint e3 = members.get(2);
+
+		// cache entries of an IRI and of a literal with the same lexical form
+		Cache cache = FederationManager.getInstance().getCache();
+		cache.updateEntry(new SubQuery(null, EMAIL, vf.createIRI("http://example.org/x")), CacheUtils.createCacheEntry(e2, false));
+		cache.updateEntry(new SubQuery(null, EMAIL, vf.createLiteral("y")), CacheUtils.createCacheEntry(e3, false));
+
+		StatementSourcePattern stmt = emailPattern(e2, e3);
+		StatementSource s2 = stmt.getStatementSources().get(0);
+		StatementSource s3 = stmt.getStatementSources().get(1);
+		BindingSet iri = bindings("email", vf.createIRI("http://example.org/x"));
+		BindingSet literal = bindings("email", vf.createLiteral("http://example.org/x"));
+		BindingSet known = bindings("email", vf.createLiteral("y"));
+
+		Map<List<StatementSource>, List<BindingSet>> partitions = FederationManager.getInstance().getStrategy().routeBindings(stmt, Arrays.asList(iri, literal, known));
+		Assert.assertEquals(3, partitions.size());
+		Assert.assertEquals(Arrays.asList(iri), partitions.get(Collections.singletonList(s3)));
+		Assert.assertEquals(Arrays.asList(literal), partitions.get(Arrays.asList(s2, s3)));
+		Assert.assertEquals(Arrays.asList(known), partitions.get(Collections.singletonList(s2)));
+	}
+
+	protected StatementSourcePattern emailPattern(Endpoint... sources) {
+		Var pred = new Var("_const_email", EMAIL);
+		pred.setConstant(true);
+		StatementSourcePattern stmt = new StatementSourcePattern(new StatementPattern(new Var("p"), pred, new Var("email")), new QueryInfo("", QueryType.SELECT));
+		for (Endpoint e : sources)
+			stmt.addStatementSource(new StatementSource(e.getId(), StatementSourceType.REMOTE));
+		return stmt;
+	}
+
+	protected static IRI person(String localName) {
+		return vf.createIRI("http://example.org/" + localName);
+	}
+
+	protected static BindingSet bindings(String name, Value value) {
+		QueryBindingSet b = new QueryBindingSet();
+		b.addBinding(name, value);
+		return b;
+	}
+}
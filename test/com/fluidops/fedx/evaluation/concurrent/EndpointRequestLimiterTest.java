@@ -0,0 +1,155 @@
+package com.fluidops.fedx.evaluation.concurrent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fluidops.fedx.structures.Endpoint;
+import com.fluidops.fedx.structures.Endpoint.EndpointClassification;
+import com.fluidops.fedx.structures.Endpoint.EndpointType;
+import com.fluidops.fedx.structures.QueryInfo;
+
+public class EndpointRequestLimiterTest {
+
+	
+	@Test
+	public void testParkAndResume() throws Exception {
+		
+		final AtomicInteger resumed = new AtomicInteger();
+		Runnable resume = new Runnable() {
+			@Override
+			public void run() {
+				resumed.incrementAndGet();
+			}
+		};
+		
+		EndpointRequestLimiter limiter = new EndpointRequestLimiter(2);
+		Assert.assertTrue(limiter.tryAcquire(resume));
+		Assert.assertTrue(limiter.tryAcquire(resume));
+		Assert.assertFalse(limiter.tryAcquire(resume));
+		Assert.assertEquals(1, limiter.getNumberOfParkedTasks());
+		Assert.assertEquals(0, resumed.get());
+		
+		// a finished task resumes the parked task, which acquires the free slot
+		limiter.release();
+		Assert.assertEquals(1, resumed.get());
+		Assert.assertEquals(0, limiter.getNumberOfParkedTasks());
+		Assert.assertTrue(limiter.tryAcquire(resume));
+		Assert.assertFalse(limiter.tryAcquire(resume));
+	}
+	
+	@Test
+	public void testAbortParkedTask() throws Exception {
+		
+		Endpoint endpoint = new Endpoint("e", "e", "http://e/sparql", EndpointType.SparqlEndpoint, EndpointClassification.Remote);
+		endpoint.setMaxConcurrentRequests(1);
+		
+		ControlledWorkerScheduler<BindingSet> scheduler = new ControlledWorkerScheduler<BindingSet>(4, "Test Scheduler") {
+			@Override
+			protected BlockingQueue<Runnable> createTaskQueue() {
+				return new LinkedBlockingQueue<Runnable>();
+			}
+		};
+		
+		try {
+			CountDownLatch running = new CountDownLatch(1);
+			CountDownLatch finish = new CountDownLatch(1);
+			CountDownLatch performed = new CountDownLatch(1);
+			
+			TestControl controlA = new TestControl(1);
+			TestControl controlB = new TestControl(2);
+			TestControl controlC = new TestControl(3);
+			
+			// A occupies the slot of the endpoint, B and C are parked
+			scheduler.schedule(new TestTask(controlA, endpoint, running, finish));
+			Assert.assertTrue(running.await(5, TimeUnit.SECONDS));
+			scheduler.schedule(new TestTask(controlB, endpoint, null, null));
+			scheduler.schedule(new TestTask(controlC, endpoint, performed, null));
+			waitForParkedTasks(endpoint, 2);
+			
+			// B is aborted while parked, the slot must be passed on to C
+			scheduler.abort(controlB);
+			finish.countDown();
+			
+			Assert.assertTrue(performed.await(5, TimeUnit.SECONDS));
+			Assert.assertEquals(0, endpoint.getRequestLimiter().getNumberOfParkedTasks());
+		} finally {
+			scheduler.abort();
+		}
+	}
+	
+	private void waitForParkedTasks(Endpoint endpoint, int n) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (endpoint.getRequestLimiter().getNumberOfParkedTasks()<n) {
+			if (System.currentTimeMillis()>deadline)
+				Assert.fail("Tasks were not parked");
+			Thread.sleep(10);
+		}
+	}
+	
+	
+	private static class TestTask implements ParallelTask<BindingSet>, EndpointTask {
+		private final TestControl control;
+		private final Endpoint endpoint;
+		private final CountDownLatch started;
+		private final CountDownLatch finish;
+		public TestTask(TestControl control, Endpoint endpoint, CountDownLatch started, CountDownLatch finish) {
+			this.control = control;
+			this.endpoint = endpoint;
+			this.started = started;
+			this.finish = finish;
+		}
+		@Override
+		public CloseableIteration<BindingSet, QueryEvaluationException> performTask() throws Exception {
+			if (started!=null)
+				started.countDown();
+			if (finish!=null)
+				finish.await();
+			return new EmptyIteration<BindingSet, QueryEvaluationException>();
+		}
+		@Override
+		public ParallelExecutor<BindingSet> getControl() {
+			return control;
+		}
+		@Override
+		public Endpoint getEndpoint() {
+			return endpoint;
+		}
+	}
+	
+	private static class TestControl implements ParallelExecutor<BindingSet> {
+		private final int queryId;
+		public TestControl(int queryId) {
+			this.queryId = queryId;
+		}
+		@Override
+		public void run() { }
+		@Override
+		public void addResult(CloseableIteration<BindingSet, QueryEvaluationException> res) { }
+		@Override
+		public void toss(Exception e) { }
+		@Override
+		public void done() { }
+		@Override
+		public boolean isFinished() {
+			return false;
+		}
+		@Override
+		public int getQueryId() {
+			return queryId;
+		}
+		@Override
+		public QueryInfo getQueryInfo() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package com.fluidops.fedx.evaluation.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FairTaskQueueTest {
+
+	
+	@Test
+	public void testRoundRobin() throws Exception {
+		
+		FairTaskQueue queue = new FairTaskQueue();
+		for (int i=0; i<5; i++)
+			queue.offer(new TestTask(1, 1));
+		queue.offer(new TestTask(2, 1));
+		queue.offer(new TestTask(2, 1));
+		
+		Assert.assertEquals(7, queue.size());
+		Assert.assertEquals(Arrays.asList(1, 2, 1, 2, 1, 1, 1), dequeueAll(queue));
+		Assert.assertNull(queue.poll());
+	}
+	
+	@Test
+	public void testPriority() throws Exception {
+		
+		FairTaskQueue queue = new FairTaskQueue();
+		for (int i=0; i<4; i++)
+			queue.offer(new TestTask(1, 1));
+		for (int i=0; i<4; i++)
+			queue.offer(new TestTask(2, 3));
+		
+		Assert.assertEquals(Arrays.asList(1, 2, 2, 2, 1, 2, 1, 1), dequeueAll(queue));
+	}
+	
+	private List<Integer> dequeueAll(FairTaskQueue queue) {
+		List<Integer> res = new ArrayList<Integer>();
+		Runnable r;
+		while ((r = queue.poll())!=null)
+			res.add(((TestTask)r).getQueryId());
+		return res;
+	}
+	
+	
+	private static class TestTask implements Runnable, FairTaskQueue.QueryTask {
+		private final int queryId;
+		private final int priority;
+		public TestTask(int queryId, int priority) {
+			this.queryId = queryId;
+			this.priority = priority;
+		}
+		@Override
+		public void run() { }
+		@Override
+		public int getQueryId() {
+			return queryId;
+		}
+		@Override
+		public int getPriority() {
+			return priority;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.fluidops.fedx.evaluation.concurrent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fluidops.fedx.evaluation.iterator.SingleBindingSetIteration;
+import com.fluidops.fedx.structures.Endpoint;
+import com.fluidops.fedx.structures.Endpoint.EndpointClassification;
+import com.fluidops.fedx.structures.Endpoint.EndpointType;
+
+public class HedgedRequestTest {
+
+	private ControlledWorkerScheduler<BindingSet> scheduler;
+	private Endpoint primary;
+	private Endpoint replica;
+	
+	@Before
+	public void setUp() {
+		scheduler = new ControlledWorkerScheduler<BindingSet>(4, "Test Scheduler") {
+			@Override
+			protected BlockingQueue<Runnable> createTaskQueue() {
+				return new LinkedBlockingQueue<Runnable>();
+			}
+		};
+		primary = new Endpoint("primary", "primary", "http://primary/sparql", EndpointType.SparqlEndpoint, EndpointClassification.Remote);
+		replica = new Endpoint("replica", "replica", "http://replica/sparql", EndpointType.SparqlEndpoint, EndpointClassification.Remote);
+		primary.addReplica(replica);
+	}
+	
+	@After
+	public void tearDown() {
+		scheduler.abort();
+	}
+	
+	@Test
+	public void testSlowPrimary() throws Exception {
+		
+		final CountDownLatch primaryLatch = new CountDownLatch(1);
+		final TestResult primaryResult = new TestResult();
+		
+		CloseableIteration<BindingSet, QueryEvaluationException> res = new HedgedRequest(primary, new HedgedRequest.Request() {
+			@Override
+			public CloseableIteration<BindingSet, QueryEvaluationException> perform(Endpoint endpoint) throws Exception {
+				if (endpoint==primary) {
+					// blocking I/O which does not react to the cancellation
+					while (primaryLatch.getCount()>0) {
+						try {
+							primaryLatch.await();
+						} catch (InterruptedException e) {
+							;	// ignore
+						}
+					}
+					return primaryResult;
+				}
+				return new TestResult();
+			}
+		}, scheduler, 10).execute();
+		
+		// the replica has answered, the abandoned primary has recorded its latency so far
+		Assert.assertNotSame(primaryResult, res);
+		Assert.assertEquals(1, primary.getLatencyTracker().size());
+		
+		// the response of the primary is closed once available
+		primaryLatch.countDown();
+		Assert.assertTrue(primaryResult.closed.await(5, TimeUnit.SECONDS));
+		Assert.assertFalse(((TestResult)res).isClosed());
+		Assert.assertEquals(1, primary.getLatencyTracker().size());
+	}
+	
+	@Test
+	public void testFailedPrimary() throws Exception {
+		
+		CloseableIteration<BindingSet, QueryEvaluationException> res = new HedgedRequest(primary, new HedgedRequest.Request() {
+			@Override
+			public CloseableIteration<BindingSet, QueryEvaluationException> perform(Endpoint endpoint) throws Exception {
+				if (endpoint==primary)
+					throw new QueryEvaluationException("Primary is not available");
+				return new TestResult();
+			}
+		}, scheduler, 10000).execute();
+		
+		// retried immediately on the replica
+		Assert.assertTrue(res.hasNext());
+		Assert.assertEquals(1, replica.getLatencyTracker().size());
+	}
+	
+	@Test
+	public void testLimitedReplica() throws Exception {
+		
+		// the replica is saturated, i.e. the hedged attempt is parked
+		replica.setMaxConcurrentRequests(1);
+		final EndpointRequestLimiter limiter = replica.getRequestLimiter();
+		Assert.assertTrue(limiter.tryAcquire(new Runnable() {
+			@Override
+			public void run() {
+			}
+		}));
+		
+		final TestResult primaryResult = new TestResult();
+		final AtomicBoolean replicaRequested = new AtomicBoolean(false);
+		CloseableIteration<BindingSet, QueryEvaluationException> res = new HedgedRequest(primary, new HedgedRequest.Request() {
+			@Override
+			public CloseableIteration<BindingSet, QueryEvaluationException> perform(Endpoint endpoint) throws Exception {
+				if (endpoint==replica) {
+					replicaRequested.set(true);
+					return new TestResult();
+				}
+				// answer once the hedged attempt is parked at the replica
+				long deadline = System.currentTimeMillis() + 5000;
+				while (limiter.getNumberOfParkedTasks()==0 && System.currentTimeMillis()<deadline)
+					Thread.sleep(10);
+				return primaryResult;
+			}
+		}, scheduler, 10).execute();
+		
+		Assert.assertSame(primaryResult, res);
+		Assert.assertEquals(1, limiter.getNumberOfParkedTasks());
+		Assert.assertFalse(replicaRequested.get());
+	}
+	
+	private static class TestResult extends SingleBindingSetIteration {
+		
+		private final CountDownLatch closed = new CountDownLatch(1);
+		
+		public TestResult() {
+			super(EmptyBindingSet.getInstance());
+		}
+		
+		@Override
+		protected void handleClose() throws QueryEvaluationException {
+			super.handleClose();
+			closed.countDown();
+		}
+	}
+}
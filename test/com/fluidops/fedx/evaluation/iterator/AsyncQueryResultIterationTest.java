@@ -0,0 +1,211 @@
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fluidops.fedx.evaluation.AsyncSparqlClient;
+import com.fluidops.fedx.evaluation.concurrent.EndpointRequestLimiter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class AsyncQueryResultIterationTest {
+
+	protected HttpServer server;
+	protected AsyncSparqlClient client;
+	protected ScheduledExecutorService timer;
+	protected final CountDownLatch release = new CountDownLatch(1);
+
+	@Before
+	public void before() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/sparql", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, results(3), 200);
+			}
+		});
+		server.createContext("/large", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, results(20000), 200);
+			}
+		});
+		server.createContext("/error", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				respond(exchange, "Parse error in query", 400);
+			}
+		});
+		server.createContext("/slow", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				respond(exchange, results(1), 200);
+			}
+		});
+		server.start();
+		timer = new ScheduledThreadPoolExecutor(1);
+		client = new AsyncSparqlClient(1, 4, 1000, 10000, timer);
+	}
+
+	@After
+	public void after() {
+		release.countDown();
+		client.shutdown();
+		timer.shutdownNow();
+		server.stop(0);
+	}
+
+	protected String location(String path) {
+		return "http://localhost:" + server.getAddress().getPort() + path;
+	}
+
+	protected AsyncQueryResultIteration sendQuery(String path, long timeout, EndpointRequestLimiter.Slot slot) {
+		AsyncQueryResultIteration res = new AsyncQueryResultIteration("SELECT * WHERE { ?s ?p ?o }", null, slot);
+		res.setRequest(client.sendQuery(location(path), "SELECT * WHERE { ?s ?p ?o }", timeout, res.getResponseConsumer(), res));
+		return res;
+	}
+
+	@Test
+	public void testResult() throws Exception {
+
+		AsyncQueryResultIteration res = sendQuery("/sparql", Long.MAX_VALUE, null);
+
+		Assert.assertTrue(res.hasNext());
+		BindingSet first = res.next();
+		Assert.assertEquals("http://example.org/s0", first.getValue("s").stringValue());
+		Assert.assertEquals("b0", first.getValue("b").stringValue());
+		Assert.assertEquals("en", ((Literal)first.getValue("l")).getLanguage().get());
+		Assert.assertEquals("label \u00e4 0", first.getValue("l").stringValue());
+		Assert.assertEquals(XMLSchema.INTEGER, ((Literal)first.getValue("n")).getDatatype());
+		Assert.assertFalse(first.hasBinding("o"));
+
+		int count = 1;
+		while (res.hasNext()) {
+			BindingSet bs = res.next();
+			Assert.assertEquals(count, ((Literal)bs.getValue("n")).intValue());
+			count++;
+		}
+		Assert.assertEquals(3, count);
+		res.close();
+	}
+
+	@Test
+	public void testLargeResult() throws Exception {
+
+		// exceeds the bounded buffer, i.e. input is suspended and resumed
+		AsyncQueryResultIteration res = sendQuery("/large", Long.MAX_VALUE, null);
+		int count = 0;
+		while (res.hasNext()) {
+			res.next();
+			count++;
+		}
+		Assert.assertEquals(20000, count);
+		res.close();
+	}
+
+	@Test
+	public void testErrorStatus() throws Exception {
+
+		AsyncQueryResultIteration res = sendQuery("/error", Long.MAX_VALUE, null);
+		try {
+			res.hasNext();
+			Assert.fail("Expected QueryEvaluationException");
+		} catch (QueryEvaluationException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("400"));
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("Parse error in query"));
+		} finally {
+			res.close();
+		}
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+
+		AsyncQueryResultIteration res = sendQuery("/slow", 200, null);
+		try {
+			res.hasNext();
+			Assert.fail("Expected QueryInterruptedException");
+		} catch (QueryInterruptedException e) {
+			// expected
+		} finally {
+			res.close();
+		}
+	}
+
+	@Test
+	public void testSlotReleasedOnClose() throws Exception {
+
+		EndpointRequestLimiter limiter = new EndpointRequestLimiter(1);
+		Runnable resume = new Runnable() {
+			@Override
+			public void run() {
+			}
+		};
+		Assert.assertTrue(limiter.tryAcquire(resume));
+		AsyncQueryResultIteration res = sendQuery("/slow", Long.MAX_VALUE, limiter.newSlot());
+
+		// the slot is held while the request is in progress
+		Assert.assertFalse(limiter.tryAcquire(resume));
+		Assert.assertEquals(1, limiter.getNumberOfParkedTasks());
+
+		res.close();
+		Assert.assertEquals(0, limiter.getNumberOfParkedTasks());
+
+		// closing again does not release another slot
+		res.close();
+		Assert.assertTrue(limiter.tryAcquire(resume));
+		Assert.assertFalse(limiter.tryAcquire(resume));
+	}
+
+	protected static String results(int n) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+		sb.append("<sparql xmlns='http://www.w3.org/2005/sparql-results#'>\n");
+		sb.append("<head><variable name='s'/><variable name='b'/><variable name='l'/><variable name='n'/><variable name='o'/></head>\n");
+		sb.append("<results>\n");
+		for (int i=0; i<n; i++) {
+			sb.append("<result>");
+			sb.append("<binding name='s'><uri>http://example.org/s").append(i).append("</uri></binding>");
+			sb.append("<binding name='b'><bnode>b").append(i).append("</bnode></binding>");
+			sb.append("<binding name='l'><literal xml:lang='en'>label \u00e4 ").append(i).append("</literal></binding>");
+			sb.append("<binding name='n'><literal datatype='http://www.w3.org/2001/XMLSchema#integer'>").append(i).append("</literal></binding>");
+			sb.append("</result>\n");
+		}
+		sb.append("</results>\n</sparql>\n");
+		return sb.toString();
+	}
+
+	protected static void respond(HttpExchange exchange, String body, int status) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", status==200 ? "application/sparql-results+xml; charset=UTF-8" : "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+}
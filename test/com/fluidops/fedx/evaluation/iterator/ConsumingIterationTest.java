@@ -0,0 +1,182 @@
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+
+public class ConsumingIterationTest {
+
+	private ControlledWorkerScheduler<BindingSet> scheduler;
+	
+	@Before
+	public void setUp() {
+		scheduler = new ControlledWorkerScheduler<BindingSet>(4, "Test Scheduler") {
+			@Override
+			protected BlockingQueue<Runnable> createTaskQueue() {
+				return new LinkedBlockingQueue<Runnable>();
+			}
+		};
+	}
+	
+	@After
+	public void tearDown() {
+		scheduler.abort();
+	}
+	
+	@Test
+	public void testEarlyRelease() throws Exception {
+		
+		final CountDownLatch closed = new CountDownLatch(1);
+		CloseableIteratorIteration<BindingSet, QueryEvaluationException> inner = new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(bindings(500).iterator()) {
+			@Override
+			protected void handleClose() throws QueryEvaluationException {
+				closed.countDown();
+				super.handleClose();
+			}
+		};
+		
+		ConsumingIteration iter = new ConsumingIteration(inner, scheduler, 1000);
+		Assert.assertTrue(iter.hasNext());
+		iter.next();
+		
+		// the buffer grows while the consumer is slow, such that the input is released
+		Assert.assertTrue(closed.await(5, TimeUnit.SECONDS));
+		
+		int count = 1;
+		while (iter.hasNext()) {
+			iter.next();
+			count++;
+		}
+		Assert.assertEquals(500, count);
+		iter.close();
+	}
+	
+	@Test
+	public void testError() throws Exception {
+		
+		final List<BindingSet> bindings = bindings(3);
+		CloseableIteratorIteration<BindingSet, QueryEvaluationException> inner = new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(bindings.iterator()) {
+			int count = 0;
+			@Override
+			public boolean hasNext() throws QueryEvaluationException {
+				if (count++ == bindings.size())
+					throw new QueryEvaluationException("Remote failure");
+				return super.hasNext();
+			}
+		};
+		
+		ConsumingIteration iter = new ConsumingIteration(inner, scheduler, 1000);
+		for (int i=0; i<bindings.size(); i++)
+			Assert.assertEquals(bindings.get(i), iter.next());
+		try {
+			iter.hasNext();
+			Assert.fail("Expected QueryEvaluationException");
+		} catch (QueryEvaluationException e) {
+			Assert.assertEquals("Remote failure", e.getMessage());
+		}
+		iter.close();
+	}
+	
+	@Test
+	public void testSlowConsumer() throws Exception {
+		
+		// a single worker: a prefetch task waiting for a slow consumer would block the second iteration
+		ControlledWorkerScheduler<BindingSet> single = new ControlledWorkerScheduler<BindingSet>(2, "Single Worker") {
+			@Override
+			protected BlockingQueue<Runnable> createTaskQueue() {
+				return new LinkedBlockingQueue<Runnable>();
+			}
+		};
+		try {
+			ConsumingIteration slow = new ConsumingIteration(new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(bindings(100).iterator()), single, 10);
+			Assert.assertTrue(slow.hasNext());
+			slow.next();
+			
+			ConsumingIteration other = new ConsumingIteration(new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(bindings(100).iterator()), single, 10);
+			int count = 0;
+			while (other.hasNext()) {
+				other.next();
+				count++;
+			}
+			Assert.assertEquals(100, count);
+			
+			count = 1;
+			while (slow.hasNext()) {
+				slow.next();
+				count++;
+			}
+			Assert.assertEquals(100, count);
+			slow.close();
+			other.close();
+		} finally {
+			single.abort();
+		}
+	}
+	
+	@Test
+	public void testCloseWhileReading() throws Exception {
+		
+		final CountDownLatch reading = new CountDownLatch(1);
+		final CountDownLatch proceed = new CountDownLatch(1);
+		final CountDownLatch closed = new CountDownLatch(1);
+		final List<BindingSet> bindings = bindings(3);
+		CloseableIteratorIteration<BindingSet, QueryEvaluationException> inner = new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(bindings.iterator()) {
+			int count = 0;
+			@Override
+			public boolean hasNext() throws QueryEvaluationException {
+				if (count++ == 1) {
+					// blocking I/O which does not react to the interrupt
+					reading.countDown();
+					while (proceed.getCount()>0) {
+						try {
+							proceed.await();
+						} catch (InterruptedException e) {
+							;	// ignore
+						}
+					}
+				}
+				return super.hasNext();
+			}
+			@Override
+			protected void handleClose() throws QueryEvaluationException {
+				closed.countDown();
+				super.handleClose();
+			}
+		};
+		
+		ConsumingIteration iter = new ConsumingIteration(inner, scheduler, 1000);
+		Assert.assertTrue(reading.await(5, TimeUnit.SECONDS));
+		iter.close();
+		
+		// the inner iteration is closed by the prefetch task, not concurrently by the consumer
+		Assert.assertEquals(1, closed.getCount());
+		proceed.countDown();
+		Assert.assertTrue(closed.await(5, TimeUnit.SECONDS));
+		Assert.assertFalse(iter.hasNext());
+	}
+	
+	private static List<BindingSet> bindings(int n) {
+		List<BindingSet> res = new ArrayList<BindingSet>(n);
+		for (int i=0; i<n; i++) {
+			MapBindingSet b = new MapBindingSet();
+			b.addBinding("x", SimpleValueFactory.getInstance().createLiteral(i));
+			res.add(b);
+		}
+		return res;
+	}
+}
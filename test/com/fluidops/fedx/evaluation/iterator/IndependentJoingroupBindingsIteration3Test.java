@@ -0,0 +1,67 @@
+package com.fluidops.fedx.evaluation.iterator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fluidops.fedx.util.FedXUtil;
+
+public class IndependentJoingroupBindingsIteration3Test {
+
+	@Test
+	public void testStreaming() throws Exception {
+		
+		List<BindingSet> bindings = Arrays.asList(binding("x", "x0"), binding("x", "x1"));
+		
+		final List<BindingSet> rows = Arrays.asList(
+				binding("first_name_0_0", "a"), binding("age_1_1", "30"), binding("age_1_0", "20"),
+				binding("first_name_0_1", "b"), binding("first_name_0_0", "c"));
+		final int[] consumed = new int[1];
+		CloseableIteratorIteration<BindingSet, QueryEvaluationException> inner = new CloseableIteratorIteration<BindingSet, QueryEvaluationException>(rows.iterator()) {
+			@Override
+			public BindingSet next() throws QueryEvaluationException {
+				consumed[0]++;
+				return super.next();
+			}
+		};
+		
+		IndependentJoingroupBindingsIteration3 iter = new IndependentJoingroupBindingsIteration3(inner, bindings);
+		Set<BindingSet> res = new HashSet<BindingSet>();
+		
+		// the first result is available as soon as both statements delivered a value for index 0
+		res.add(iter.next());
+		Assert.assertEquals(3, consumed[0]);
+		while (iter.hasNext())
+			res.add(iter.next());
+		iter.close();
+		
+		Set<BindingSet> expected = new HashSet<BindingSet>();
+		expected.add(result("x0", "a", "20"));
+		expected.add(result("x0", "c", "20"));
+		expected.add(result("x1", "b", "30"));
+		Assert.assertEquals(expected, res);
+	}
+	
+	private static BindingSet binding(String name, String value) {
+		MapBindingSet res = new MapBindingSet();
+		res.addBinding(name, FedXUtil.literal(value));
+		return res;
+	}
+	
+	private static BindingSet result(String x, String name, String age) {
+		QueryBindingSet res = new QueryBindingSet();
+		res.addBinding("x", FedXUtil.literal(x));
+		res.addBinding("first_name", FedXUtil.literal(name));
+		res.addBinding("age", FedXUtil.literal(age));
+		return res;
+	}
+}
@@ -0,0 +1,128 @@
+package com.fluidops.fedx.evaluation.join;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.repository.sparql.federation.CollectionIteration;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.fluidops.fedx.FedXRule;
+import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
+import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
+import com.fluidops.fedx.evaluation.iterator.SingleBindingSetIteration;
+
+public class JoinExecutorBaseTest {
+
+	@Rule
+	public FedXRule fedxRule = new FedXRule();
+	
+	private ControlledWorkerScheduler<BindingSet> scheduler;
+	private CountDownLatch release;
+	
+	@Before
+	public void setUp() {
+		scheduler = new ControlledWorkerScheduler<BindingSet>(2, "Test Scheduler");
+		release = new CountDownLatch(1);
+	}
+	
+	@After
+	public void tearDown() {
+		release.countDown();
+		scheduler.abort();
+	}
+	
+	@Test
+	public void testEventDrivenCompletion() throws Exception {
+		
+		BlockingJoin join = new BlockingJoin(scheduler, leftBindings(3), release);
+		
+		// the evaluation thread is released once the left argument is consumed
+		join.run();
+		Assert.assertFalse(join.isFinished());
+		Assert.assertNull(join.evaluationThread);
+		Assert.assertNotNull(join.deadlineTimer);
+		
+		// the last task finishes the join
+		release.countDown();
+		Assert.assertEquals(3, Iterations.asList(join).size());
+		Assert.assertTrue(join.isFinished());
+		Assert.assertTrue(join.deadlineTimer.isCancelled());
+	}
+	
+	@Test
+	public void testCloseCancelsDeadline() throws Exception {
+		
+		// the running task is not aborted, i.e. only the join cancels its deadline
+		BlockingJoin join = new BlockingJoin(scheduler, leftBindings(1), release);
+		join.run();
+		Assert.assertFalse(join.deadlineTimer.isDone());
+		
+		join.close();
+		Assert.assertTrue(join.deadlineTimer.isCancelled());
+	}
+	
+	protected static CloseableIteration<BindingSet, QueryEvaluationException> leftBindings(int n) {
+		BindingSet[] bindings = new BindingSet[n];
+		Arrays.fill(bindings, EmptyBindingSet.getInstance());
+		return new CollectionIteration<BindingSet, QueryEvaluationException>(Arrays.asList(bindings));
+	}
+	
+	/**
+	 * A join which schedules a task per left binding, the tasks are blocked until released
+	 * and are not aborted if the join is closed.
+	 */
+	protected static class BlockingJoin extends JoinExecutorBase<BindingSet> {
+		
+		protected final ControlledWorkerScheduler<BindingSet> scheduler;
+		protected final CountDownLatch release;
+		
+		public BlockingJoin(ControlledWorkerScheduler<BindingSet> scheduler, CloseableIteration<BindingSet, QueryEvaluationException> leftIter,
+				CountDownLatch release) throws QueryEvaluationException {
+			super(null, leftIter, null, EmptyBindingSet.getInstance(), null);
+			this.scheduler = scheduler;
+			this.release = release;
+		}
+		
+		@Override
+		protected void handleBindings() throws Exception {
+			while (!closed && leftIter.hasNext()) {
+				leftIter.next();
+				phaser.register();
+				scheduler.schedule(new ParallelTask<BindingSet>() {
+					@Override
+					public CloseableIteration<BindingSet, QueryEvaluationException> performTask() throws Exception {
+						release.await();
+						return new SingleBindingSetIteration(EmptyBindingSet.getInstance());
+					}
+					
+					@Override
+					public ParallelExecutor<BindingSet> getControl() {
+						return BlockingJoin.this;
+					}
+				});
+			}
+			scheduler.informFinish(this);
+		}
+		
+		@Override
+		public void done() {
+			phaser.arriveAndDeregister();
+		}
+		
+		@Override
+		public void toss(Exception e) {
+			phaser.arriveAndDeregister();
+			super.toss(e);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package com.fluidops.fedx.evaluation.union;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.fluidops.fedx.FedXRule;
+import com.fluidops.fedx.evaluation.concurrent.ControlledWorkerScheduler;
+import com.fluidops.fedx.evaluation.concurrent.ParallelExecutor;
+import com.fluidops.fedx.evaluation.concurrent.ParallelTask;
+import com.fluidops.fedx.evaluation.iterator.SingleBindingSetIteration;
+
+public class UnionExecutorBaseTest {
+
+	@Rule
+	public FedXRule fedxRule = new FedXRule();
+	
+	private ControlledWorkerScheduler<BindingSet> scheduler;
+	private CountDownLatch release;
+	
+	@Before
+	public void setUp() {
+		scheduler = new ControlledWorkerScheduler<BindingSet>(2, "Test Scheduler");
+		release = new CountDownLatch(1);
+	}
+	
+	@After
+	public void tearDown() {
+		release.countDown();
+		scheduler.abort();
+	}
+	
+	@Test
+	public void testEventDrivenCompletion() throws Exception {
+		
+		ControlledWorkerUnion<BindingSet> union = new ControlledWorkerUnion<BindingSet>(scheduler, null);
+		union.addTask(new BlockingTask(union, release));
+		union.addTask(new BlockingTask(union, release));
+		
+		// the calling thread only schedules the tasks, it does not wait for them
+		union.run();
+		Assert.assertFalse(union.isFinished());
+		Assert.assertNotNull(union.deadlineTimer);
+		
+		// the last task finishes the union
+		release.countDown();
+		Assert.assertEquals(2, Iterations.asList(union).size());
+		Assert.assertTrue(union.isFinished());
+		Assert.assertTrue(union.deadlineTimer.isCancelled());
+	}
+	
+	@Test
+	public void testCloseCancelsDeadline() throws Exception {
+		
+		// the running task is not aborted, i.e. only the union cancels its deadline
+		NonAbortingUnion union = new NonAbortingUnion(scheduler);
+		union.addTask(new BlockingTask(union, release));
+		union.run();
+		Assert.assertFalse(union.deadlineTimer.isDone());
+		
+		union.close();
+		Assert.assertTrue(union.deadlineTimer.isCancelled());
+	}
+	
+	/**
+	 * A union like {@link ControlledWorkerUnion} whose tasks are not aborted if the union is closed.
+	 */
+	protected static class NonAbortingUnion extends WorkerUnionBase<BindingSet> {
+		
+		protected final ControlledWorkerScheduler<BindingSet> scheduler;
+		
+		public NonAbortingUnion(ControlledWorkerScheduler<BindingSet> scheduler) {
+			super(null);
+			this.scheduler = scheduler;
+		}
+		
+		@Override
+		protected void union() throws Exception {
+			phaser.bulkRegister(tasks.size());
+			scheduler.scheduleAll(tasks, this);
+		}
+		
+		@Override
+		public void done() {
+			phaser.arriveAndDeregister();
+		}
+		
+		@Override
+		public void toss(Exception e) {
+			phaser.arriveAndDeregister();
+			super.toss(e);
+		}
+	}
+	
+	protected static class BlockingTask implements ParallelTask<BindingSet> {
+		
+		protected final ParallelExecutor<BindingSet> control;
+		protected final CountDownLatch release;
+		
+		public BlockingTask(ParallelExecutor<BindingSet> control, CountDownLatch release) {
+			this.control = control;
+			this.release = release;
+		}
+		
+		@Override
+		public CloseableIteration<BindingSet, QueryEvaluationException> performTask() throws Exception {
+			release.await();
+			return new SingleBindingSetIteration(EmptyBindingSet.getInstance());
+		}
+		
+		@Override
+		public ParallelExecutor<BindingSet> getControl() {
+			return control;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.fluidops.fedx.structures;
+
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fluidops.fedx.util.FedXUtil;
+
+public class CompactBindingSetTest {
+
+	
+	@Test
+	public void testLayering() throws Exception {
+		
+		QueryBindingSet parent = new QueryBindingSet();
+		parent.addBinding("a", FedXUtil.literal("parentA"));
+		parent.addBinding("b", FedXUtil.literal("parentB"));
+		
+		BindingSchema schema = new BindingSchema();
+		QueryBindingSet row1 = new QueryBindingSet();
+		row1.addBinding("a", FedXUtil.literal("rowA"));
+		CompactBindingSet res1 = CompactBindingSet.create(schema, row1, parent);
+		
+		// the schema grows with the second row, the first row remains valid
+		QueryBindingSet row2 = new QueryBindingSet();
+		row2.addBinding("c", FedXUtil.literal("rowC"));
+		CompactBindingSet res2 = CompactBindingSet.create(schema, row2, parent);
+		Assert.assertEquals(2, schema.size());
+		
+		QueryBindingSet expected1 = new QueryBindingSet();
+		expected1.addBinding("a", FedXUtil.literal("rowA"));
+		expected1.addBinding("b", FedXUtil.literal("parentB"));
+		Assert.assertEquals(expected1, res1);
+		Assert.assertEquals(expected1.hashCode(), res1.hashCode());
+		Assert.assertEquals(2, res1.size());
+		Assert.assertFalse(res1.hasBinding("c"));
+		
+		QueryBindingSet expected2 = new QueryBindingSet(parent);
+		expected2.addBinding("c", FedXUtil.literal("rowC"));
+		Assert.assertEquals(expected2, res2);
+		Assert.assertEquals(expected2.getBindingNames(), res2.getBindingNames());
+		Assert.assertEquals(3, res2.size());
+	}
+}
@@ -0,0 +1,33 @@
+package com.fluidops.fedx.util;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FingerprintSetTest {
+
+	
+	@Test
+	public void testSpill() throws Exception {
+		
+		Random random = new Random(42);
+		Set<Long> expected = new HashSet<Long>();
+		FingerprintSet set = new FingerprintSet(1000);
+		try {
+			for (int i=0; i<20000; i++) {
+				// small value range to produce duplicates, including 0
+				long fingerprint = random.nextInt(8000) - 4000;
+				Assert.assertEquals(expected.add(fingerprint), set.add(fingerprint));
+			}
+			Assert.assertTrue(set.isSpilled());
+			Assert.assertEquals(expected.size(), set.size());
+			for (Long fingerprint : expected)
+				Assert.assertFalse(set.add(fingerprint));
+		} finally {
+			set.close();
+		}
+	}
+}
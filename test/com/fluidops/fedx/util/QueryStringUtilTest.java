@@ -0,0 +1,80 @@
+package com.fluidops.fedx.util;
+
+import java.util.Arrays;
+
+import org.eclipse.rdf4j.query.algebra.StatementPattern;
+import org.eclipse.rdf4j.query.algebra.Var;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.fluidops.fedx.FedXRule;
+import com.fluidops.fedx.algebra.ExclusiveGroup;
+import com.fluidops.fedx.algebra.ExclusiveStatement;
+import com.fluidops.fedx.algebra.StatementSource;
+import com.fluidops.fedx.algebra.StatementSource.StatementSourceType;
+import com.fluidops.fedx.structures.QueryInfo;
+import com.fluidops.fedx.structures.QueryType;
+
+public class QueryStringUtilTest {
+
+	@Rule
+	public FedXRule fedxRule = new FedXRule();
+
+	@Test
+	public void testExclusiveGroupLocalVars() throws Exception {
+
+		QueryInfo queryInfo = new QueryInfo("SELECT ?s ?n WHERE { ?s :name ?n . ?s :age ?a }", QueryType.SELECT);
+		ExclusiveGroup group = createGroup(queryInfo);
+		group.addLocalVar("a");
+
+		String query = QueryStringUtil.selectQueryString(group, EmptyBindingSet.getInstance(), null, false);
+		String projection = projection(query);
+		Assert.assertTrue(query, projection.contains("?s"));
+		Assert.assertTrue(query, projection.contains("?n"));
+		Assert.assertFalse(query, projection.contains("?a"));
+		Assert.assertTrue(query, query.contains("?s <http://example.org/age> ?a"));
+
+		// duplicates of the local variable are only dropped if the query eliminates them
+		Assert.assertFalse(query, projection.contains("DISTINCT"));
+
+		queryInfo.setDuplicateElimination(true);
+		query = QueryStringUtil.selectQueryString(group, EmptyBindingSet.getInstance(), null, false);
+		Assert.assertTrue(query, projection(query).contains("DISTINCT"));
+		Assert.assertFalse(query, projection(query).contains("?a"));
+	}
+
+	@Test
+	public void testExclusiveGroupWithoutLocalVars() throws Exception {
+
+		QueryInfo queryInfo = new QueryInfo("SELECT DISTINCT * WHERE { ?s :name ?n . ?s :age ?a }", QueryType.SELECT);
+		queryInfo.setDuplicateElimination(true);
+		ExclusiveGroup group = createGroup(queryInfo);
+
+		// all variables are projected, i.e. the rows are distinct already
+		String query = QueryStringUtil.selectQueryString(group, EmptyBindingSet.getInstance(), null, false);
+		String projection = projection(query);
+		Assert.assertFalse(query, projection.contains("DISTINCT"));
+		Assert.assertTrue(query, projection.contains("?s"));
+		Assert.assertTrue(query, projection.contains("?n"));
+		Assert.assertTrue(query, projection.contains("?a"));
+	}
+
+	protected ExclusiveGroup createGroup(QueryInfo queryInfo) {
+		StatementSource owner = new StatementSource("endpoint1", StatementSourceType.REMOTE);
+		ExclusiveStatement name = new ExclusiveStatement(statement("s", "http://example.org/name", "n"), owner, queryInfo);
+		ExclusiveStatement age = new ExclusiveStatement(statement("s", "http://example.org/age", "a"), owner, queryInfo);
+		return new ExclusiveGroup(Arrays.asList(name, age), owner, queryInfo);
+	}
+
+	protected static StatementPattern statement(String subj, String pred, String obj) {
+		Var predVar = new Var("const_" + pred, FedXUtil.valueFactory().createIRI(pred));
+		predVar.setConstant(true);
+		return new StatementPattern(new Var(subj), predVar, new Var(obj));
+	}
+
+	protected static String projection(String query) {
+		return query.substring(0, query.indexOf(" WHERE"));
+	}
+}
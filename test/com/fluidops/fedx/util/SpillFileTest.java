@@ -0,0 +1,61 @@
+package com.fluidops.fedx.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpillFileTest {
+
+	
+	@Test
+	public void testRoundtrip() throws Exception {
+		
+		ValueFactory vf = FedXUtil.valueFactory();
+		List<BindingSet> expected = new ArrayList<BindingSet>();
+		for (int i=0; i<1000; i++) {
+			QueryBindingSet b = new QueryBindingSet();
+			b.addBinding("s", vf.createIRI("http://example.org/s" + i));
+			if (i%2==0)
+				b.addBinding("o", vf.createLiteral("label \u00e4 " + i, "de"));
+			else
+				b.addBinding("o", vf.createLiteral(Integer.toString(i), XMLSchema.INT));
+			if (i%3==0)
+				b.addBinding("n", vf.createBNode("node" + i));
+			if (i%5==0)
+				b.addBinding("l", vf.createLiteral("plain " + i));
+			expected.add(b);
+		}
+		
+		// small windows such that rows cross window boundaries
+		SpillFile file = new SpillFile(1000);
+		try {
+			for (BindingSet b : expected)
+				file.append(b);
+			Assert.assertEquals(expected.size(), file.size());
+			
+			// the file can be read repeatedly
+			for (int run=0; run<2; run++) {
+				List<BindingSet> actual = new ArrayList<BindingSet>();
+				CloseableIteration<BindingSet, QueryEvaluationException> iter = file.iterator();
+				try {
+					while (iter.hasNext())
+						actual.add(iter.next());
+				} finally {
+					iter.close();
+				}
+				Assert.assertEquals(expected, actual);
+			}
+		} finally {
+			file.close();
+		}
+		Assert.assertFalse(file.file.exists());
+	}
+}